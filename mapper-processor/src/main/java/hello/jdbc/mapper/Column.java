@@ -0,0 +1,16 @@
+package hello.jdbc.mapper;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * 필드명과 컬럼명이 snake_case 규칙으로 대응되지 않을 때 컬럼명을 지정한다.
+ */
+@Retention(RetentionPolicy.SOURCE)
+@Target(ElementType.FIELD)
+public @interface Column {
+
+    String value();
+}
@@ -0,0 +1,16 @@
+package hello.jdbc.mapper;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * 컴파일 시점에 {@code <클래스명>RowMapper}, {@code <클래스명>ParameterBinder}를 생성한다.
+ * static이 아닌 필드를 선언 순서대로 컬럼에 대응시키며, 기본 컬럼명은 필드명의 snake_case다.
+ * 생성된 코드는 기본 생성자와 setter/getter를 직접 호출하므로 리플렉션을 사용하지 않는다.
+ */
+@Retention(RetentionPolicy.SOURCE)
+@Target(ElementType.TYPE)
+public @interface RowMapped {
+}
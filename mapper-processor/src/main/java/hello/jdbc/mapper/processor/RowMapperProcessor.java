@@ -0,0 +1,294 @@
+package hello.jdbc.mapper.processor;
+
+import hello.jdbc.mapper.Column;
+import hello.jdbc.mapper.RowMapped;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.PackageElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.tools.Diagnostic;
+import javax.tools.JavaFileObject;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * {@link RowMapped} 클래스마다 RowMapper와 ParameterBinder 소스를 생성한다.
+ *
+ * RowMapper는 조회마다 newMapper()로 만들어서 쓴다. 첫 행에서 한 번만 findColumn으로 컬럼 인덱스를 찾고,
+ * 이후 행은 인덱스와 원시 타입 getter(getInt 등)로 읽는다.
+ * 인덱스를 공유 인스턴스에 두면 동시 조회끼리 서로 덮어써서 행마다 findColumn을 다시 하게 된다.
+ */
+@SupportedAnnotationTypes("hello.jdbc.mapper.RowMapped")
+public class RowMapperProcessor extends AbstractProcessor {
+
+    /**
+     * 필드 타입 -> ResultSet/PreparedStatement 접근자 이름
+     * 목록에 없는 타입은 getObject(index, Type.class)/setObject로 처리한다.
+     */
+    private static final Map<String, String> ACCESSORS = new HashMap<>();
+
+    static {
+        ACCESSORS.put("java.lang.String", "String");
+        ACCESSORS.put("int", "Int");
+        ACCESSORS.put("long", "Long");
+        ACCESSORS.put("short", "Short");
+        ACCESSORS.put("byte", "Byte");
+        ACCESSORS.put("boolean", "Boolean");
+        ACCESSORS.put("double", "Double");
+        ACCESSORS.put("float", "Float");
+        ACCESSORS.put("java.math.BigDecimal", "BigDecimal");
+        ACCESSORS.put("java.sql.Timestamp", "Timestamp");
+        ACCESSORS.put("java.sql.Date", "Date");
+        ACCESSORS.put("byte[]", "Bytes");
+    }
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        for (Element element : roundEnv.getElementsAnnotatedWith(RowMapped.class)) {
+            if (element.getKind() != ElementKind.CLASS) {
+                error(element, "@RowMapped can only be applied to classes");
+                continue;
+            }
+            TypeElement type = (TypeElement) element;
+            List<Property> properties = properties(type);
+            if (properties.isEmpty()) {
+                error(element, "@RowMapped class has no mappable fields");
+                continue;
+            }
+            try {
+                writeRowMapper(type, properties);
+                writeParameterBinder(type, properties);
+            } catch (IOException e) {
+                error(element, "failed to generate row mapper: " + e.getMessage());
+            }
+        }
+        return true;
+    }
+
+    private List<Property> properties(TypeElement type) {
+        List<Property> properties = new ArrayList<>();
+        for (VariableElement field : ElementFilter.fieldsIn(type.getEnclosedElements())) {
+            Set<Modifier> modifiers = field.getModifiers();
+            if (modifiers.contains(Modifier.STATIC) || modifiers.contains(Modifier.TRANSIENT)) {
+                continue;
+            }
+            String name = field.getSimpleName().toString();
+            Column column = field.getAnnotation(Column.class);
+            String columnName = column != null ? column.value() : snakeCase(name);
+            properties.add(new Property(name, columnName, field.asType()));
+        }
+        return properties;
+    }
+
+    private void writeRowMapper(TypeElement type, List<Property> properties) throws IOException {
+        String packageName = packageName(type);
+        String typeName = type.getSimpleName().toString();
+        String className = typeName + "RowMapper";
+
+        JavaFileObject file = processingEnv.getFiler().createSourceFile(qualified(packageName, className), type);
+        try (PrintWriter out = new PrintWriter(file.openWriter())) {
+            if (!packageName.isEmpty()) {
+                out.println("package " + packageName + ";");
+                out.println();
+            }
+            out.println("/**");
+            out.println(" * " + typeName + " RowMapper. Generated by RowMapperProcessor, do not edit.");
+            out.println(" */");
+            out.println("@javax.annotation.processing.Generated(\"" + RowMapperProcessor.class.getName() + "\")");
+            out.println("public final class " + className + " implements org.springframework.jdbc.core.RowMapper<" + typeName + "> {");
+            out.println();
+            out.println("    /**");
+            out.println("     * Columns in declaration order, usable as a select list.");
+            out.println("     */");
+            out.println("    public static final String COLUMNS = \"" + columnList(properties) + "\";");
+            out.println();
+            out.println("    /**");
+            out.println("     * Column indexes resolved from the first row of the query.");
+            out.println("     */");
+            out.println("    private Columns columns;");
+            out.println();
+            out.println("    private " + className + "() {");
+            out.println("    }");
+            out.println();
+            out.println("    /**");
+            out.println("     * Creates a mapper for one query. Not thread-safe, do not share across queries running concurrently.");
+            out.println("     */");
+            out.println("    public static " + className + " newMapper() {");
+            out.println("        return new " + className + "();");
+            out.println("    }");
+            out.println();
+            out.println("    @Override");
+            out.println("    public " + typeName + " mapRow(java.sql.ResultSet rs, int rowNum) throws java.sql.SQLException {");
+            out.println("        Columns c = columns;");
+            out.println("        if (c == null || c.resultSet != rs) {");
+            out.println("            c = new Columns(rs);");
+            out.println("            columns = c;");
+            out.println("        }");
+            out.println("        " + typeName + " target = new " + typeName + "();");
+            for (Property property : properties) {
+                out.println("        target." + property.setter() + "(" + property.read("rs", "c." + property.name) + ");");
+            }
+            out.println("        return target;");
+            out.println("    }");
+            out.println();
+            out.println("    private static final class Columns {");
+            out.println();
+            out.println("        private final java.sql.ResultSet resultSet;");
+            for (Property property : properties) {
+                out.println("        private final int " + property.name + ";");
+            }
+            out.println();
+            out.println("        private Columns(java.sql.ResultSet rs) throws java.sql.SQLException {");
+            out.println("            this.resultSet = rs;");
+            for (Property property : properties) {
+                out.println("            this." + property.name + " = rs.findColumn(\"" + property.column + "\");");
+            }
+            out.println("        }");
+            out.println("    }");
+            out.println("}");
+        }
+    }
+
+    private void writeParameterBinder(TypeElement type, List<Property> properties) throws IOException {
+        String packageName = packageName(type);
+        String typeName = type.getSimpleName().toString();
+        String className = typeName + "ParameterBinder";
+
+        JavaFileObject file = processingEnv.getFiler().createSourceFile(qualified(packageName, className), type);
+        try (PrintWriter out = new PrintWriter(file.openWriter())) {
+            if (!packageName.isEmpty()) {
+                out.println("package " + packageName + ";");
+                out.println();
+            }
+            out.println("/**");
+            out.println(" * " + typeName + " parameter binder. Generated by RowMapperProcessor, do not edit.");
+            out.println(" */");
+            out.println("@javax.annotation.processing.Generated(\"" + RowMapperProcessor.class.getName() + "\")");
+            out.println("public final class " + className + " {");
+            out.println();
+            out.println("    public static final String COLUMNS = \"" + columnList(properties) + "\";");
+            out.println("    public static final String PLACEHOLDERS = \"" + placeholders(properties.size()) + "\";");
+            out.println();
+            out.println("    private " + className + "() {");
+            out.println("    }");
+            out.println();
+            out.println("    /**");
+            out.println("     * Binds COLUMNS in order starting at index and returns the next parameter index.");
+            out.println("     */");
+            out.println("    public static int bind(java.sql.PreparedStatement ps, int index, " + typeName + " source) throws java.sql.SQLException {");
+            for (Property property : properties) {
+                out.println("        " + property.write("ps", "index++", "source." + property.getter() + "()") + ";");
+            }
+            out.println("        return index;");
+            out.println("    }");
+            out.println("}");
+        }
+    }
+
+    private String columnList(List<Property> properties) {
+        StringBuilder sb = new StringBuilder();
+        for (Property property : properties) {
+            if (sb.length() > 0) {
+                sb.append(", ");
+            }
+            sb.append(property.column);
+        }
+        return sb.toString();
+    }
+
+    private String placeholders(int count) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            sb.append(i == 0 ? "?" : ", ?");
+        }
+        return sb.toString();
+    }
+
+    private String packageName(TypeElement type) {
+        PackageElement pkg = processingEnv.getElementUtils().getPackageOf(type);
+        return pkg.isUnnamed() ? "" : pkg.getQualifiedName().toString();
+    }
+
+    private String qualified(String packageName, String className) {
+        return packageName.isEmpty() ? className : packageName + "." + className;
+    }
+
+    private void error(Element element, String message) {
+        processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, message, element);
+    }
+
+    static String snakeCase(String name) {
+        StringBuilder sb = new StringBuilder();
+        for (char ch : name.toCharArray()) {
+            if (Character.isUpperCase(ch)) {
+                if (sb.length() > 0) {
+                    sb.append('_');
+                }
+                sb.append(Character.toLowerCase(ch));
+            } else {
+                sb.append(ch);
+            }
+        }
+        return sb.toString();
+    }
+
+    private static final class Property {
+
+        private final String name;
+        private final String column;
+        private final TypeMirror type;
+
+        Property(String name, String column, TypeMirror type) {
+            this.name = name;
+            this.column = column;
+            this.type = type;
+        }
+
+        String setter() {
+            return "set" + capitalize(name);
+        }
+
+        String getter() {
+            return (type.toString().equals("boolean") ? "is" : "get") + capitalize(name);
+        }
+
+        String read(String rs, String index) {
+            String accessor = ACCESSORS.get(type.toString());
+            if (accessor != null) {
+                return rs + ".get" + accessor + "(" + index + ")";
+            }
+            return rs + ".getObject(" + index + ", " + type + ".class)";
+        }
+
+        String write(String ps, String index, String value) {
+            String accessor = ACCESSORS.get(type.toString());
+            if (accessor != null) {
+                return ps + ".set" + accessor + "(" + index + ", " + value + ")";
+            }
+            return ps + ".setObject(" + index + ", " + value + ")";
+        }
+
+        private static String capitalize(String value) {
+            return Character.toUpperCase(value.charAt(0)) + value.substring(1);
+        }
+    }
+}
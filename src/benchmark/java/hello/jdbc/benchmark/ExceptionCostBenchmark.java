@@ -0,0 +1,107 @@
+package hello.jdbc.benchmark;
+
+import hello.jdbc.domain.Member;
+import hello.jdbc.repository.MemberRepository;
+import hello.jdbc.repository.MemberRepositoryV4_1;
+import hello.jdbc.repository.MemberSchema;
+import hello.jdbc.repository.ex.LightweightDuplicateKeyException;
+import hello.jdbc.repository.ex.MemberNotFoundException;
+import hello.jdbc.repository.ex.MyDbException;
+import hello.jdbc.repository.ex.MyDuplicateKeyException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.util.NoSuchElementException;
+import java.util.function.Supplier;
+
+/**
+ * 실패 경로 비용 - 스택 트레이스 있는 예외 vs 없는 예외 vs Optional
+ *
+ * 실행: ./gradlew exceptionBenchmark -Piterations=200000
+ * 예외 생성 비용은 스택 깊이에 비례하므로 호출 스택을 STACK_DEPTH 만큼 쌓은 상태에서 측정한다.
+ */
+@Slf4j
+public class ExceptionCostBenchmark {
+
+    private static final String URL = "jdbc:h2:mem:exception;DB_CLOSE_DELAY=-1";
+    private static final int STACK_DEPTH = 100;
+    private static final String MISSING_ID = "closed";
+
+    private static volatile Object sink;
+
+    public static void main(String[] args) {
+        int iterations = args.length > 0 ? Integer.parseInt(args[0]) : 200_000;
+
+        //예외 생성만
+        for (int round = 0; round < 2; round++) {
+            boolean report = round == 1; //첫 라운드는 워밍업
+            construct("NoSuchElementException", iterations, report,
+                    () -> new NoSuchElementException("member not found memberId = " + MISSING_ID));
+            construct("MemberNotFoundException", iterations, report,
+                    () -> new MemberNotFoundException(MISSING_ID));
+            construct("MyDuplicateKeyException", iterations, report,
+                    () -> new MyDuplicateKeyException("duplicate"));
+            construct("LightweightDuplicateKeyException", iterations, report,
+                    () -> new LightweightDuplicateKeyException("duplicate"));
+        }
+
+        //DB 조회 포함 - 없는 회원 조회, 중복 저장
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(URL, "sa", "");
+        new MemberSchema(dataSource).createMemberTable();
+        MemberRepository repository = new MemberRepositoryV4_1(dataSource);
+        repository.save(new Member("dup", 0));
+
+        int queries = iterations / 10;
+        for (int round = 0; round < 2; round++) {
+            boolean report = round == 1;
+            query("findById (throw)", queries, report, () -> {
+                try {
+                    return repository.findById(MISSING_ID);
+                } catch (NoSuchElementException e) {
+                    return e;
+                }
+            });
+            query("findByIdOptional", queries, report, () -> repository.findByIdOptional(MISSING_ID));
+            query("save duplicate", queries, report, () -> {
+                try {
+                    return repository.save(new Member("dup", 0));
+                } catch (MyDbException e) {
+                    return e;
+                }
+            });
+        }
+    }
+
+    private static void construct(String name, int iterations, boolean report, Supplier<? extends Throwable> factory) {
+        long elapsed = atDepth(STACK_DEPTH, () -> {
+            long start = System.nanoTime();
+            for (int i = 0; i < iterations; i++) {
+                sink = factory.get();
+            }
+            return System.nanoTime() - start;
+        });
+        if (report) {
+            log.info("[construct] {} depth={} avg={}ns", name, STACK_DEPTH, elapsed / iterations);
+        }
+    }
+
+    private static void query(String name, int iterations, boolean report, Supplier<Object> call) {
+        long elapsed = atDepth(STACK_DEPTH, () -> {
+            long start = System.nanoTime();
+            for (int i = 0; i < iterations; i++) {
+                sink = call.get();
+            }
+            return System.nanoTime() - start;
+        });
+        if (report) {
+            log.info("[query] {} depth={} avg={}ns", name, STACK_DEPTH, elapsed / iterations);
+        }
+    }
+
+    private static long atDepth(int depth, Supplier<Long> body) {
+        if (depth == 0) {
+            return body.get();
+        }
+        return atDepth(depth - 1, body);
+    }
+}
@@ -0,0 +1,79 @@
+package hello.jdbc.benchmark;
+
+import hello.jdbc.repository.MemberRepository;
+import hello.jdbc.repository.MemberRepositoryV5;
+import hello.jdbc.repository.MemberSchema;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.util.List;
+
+/**
+ * 잔고 범위 조회 - money 인덱스 범위 스캔 vs 전체 스캔
+ *
+ * 실행: ./gradlew moneyIndexBenchmark -Prows=10000000
+ * build/benchmark 아래에 파일 H2 DB를 만든다.
+ */
+@Slf4j
+public class MoneyIndexBenchmark {
+
+    private static final String URL = "jdbc:h2:file:./build/benchmark/money;DB_CLOSE_ON_EXIT=FALSE";
+    private static final int MAX_MONEY = 1_000_000;
+    private static final int ITERATIONS = 20;
+
+    public static void main(String[] args) {
+        int rows = args.length > 0 ? Integer.parseInt(args[0]) : 10_000_000;
+
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(URL, "sa", "");
+        JdbcTemplate template = new JdbcTemplate(dataSource);
+        MemberSchema schema = new MemberSchema(dataSource);
+        MemberRepository repository = new MemberRepositoryV5(dataSource);
+
+        schema.dropMoneyIndex();
+        template.execute("drop table if exists member");
+        schema.createMemberTable();
+        long start = System.currentTimeMillis();
+        template.execute("insert into member select 'm' || x, mod(x * 7919, " + MAX_MONEY + ") from system_range(1, " + rows + ")");
+        log.info("prepared rows={}, elapsed={}ms", rows, System.currentTimeMillis() - start);
+
+        run("full scan", template, repository);
+        schema.createMoneyIndex();
+        run("index range", template, repository);
+
+        template.execute("shutdown");
+    }
+
+    private static void run(String name, JdbcTemplate template, MemberRepository repository) {
+        //전체의 0.1%에 해당하는 범위
+        int min = 500_000;
+        int max = min + MAX_MONEY / 1000;
+
+        List<String> plan = template.queryForList("explain select member_id, money from member where money between "
+                + min + " and " + max + " order by money, member_id limit 100", String.class);
+        log.info("[{}] plan={}", name, plan);
+
+        long pageNanos = 0;
+        long countNanos = 0;
+        long scanNanos = 0;
+        long rows = 0;
+        for (int i = 0; i < ITERATIONS; i++) {
+            long start = System.nanoTime();
+            repository.findByMoneyBetween(min, max, null, 100);
+            pageNanos += System.nanoTime() - start;
+
+            start = System.nanoTime();
+            repository.countByMoneyBelow(min / 100);
+            countNanos += System.nanoTime() - start;
+
+            start = System.nanoTime();
+            rows = repository.forEachByMoneyBetween(min, max, 1000, member -> {
+            });
+            scanNanos += System.nanoTime() - start;
+        }
+        log.info("[{}] first page avg={}ms, countBelow avg={}ms, keyset scan rows={} avg={}ms", name,
+                String.format("%.3f", pageNanos / 1_000_000.0 / ITERATIONS),
+                String.format("%.3f", countNanos / 1_000_000.0 / ITERATIONS),
+                rows, String.format("%.3f", scanNanos / 1_000_000.0 / ITERATIONS));
+    }
+}
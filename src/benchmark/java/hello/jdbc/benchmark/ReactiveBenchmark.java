@@ -0,0 +1,120 @@
+package hello.jdbc.benchmark;
+
+import com.zaxxer.hikari.HikariDataSource;
+import hello.jdbc.domain.Member;
+import hello.jdbc.repository.MemberRepository;
+import hello.jdbc.repository.MemberRepositoryV5;
+import hello.jdbc.repository.MemberSchema;
+import hello.jdbc.repository.ReactiveMemberRepository;
+import hello.jdbc.repository.ReactiveMemberRepositoryV1;
+import io.r2dbc.pool.ConnectionPool;
+import io.r2dbc.pool.ConnectionPoolConfiguration;
+import io.r2dbc.spi.ConnectionFactories;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import reactor.core.publisher.Flux;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 동시 요청이 많을 때 MemberRepositoryV5(요청당 스레드) vs ReactiveMemberRepositoryV1(R2DBC)
+ * 두 방식 모두 커넥션 POOL_SIZE 개로 같은 조건에서 findById를 실행하고, 처리량과 최대 스레드 수를 비교한다.
+ *
+ * 실행: ./gradlew reactiveBenchmark -Pconcurrency=1000
+ * r2dbc-h2는 내부적으로 H2 엔진을 호출 스레드에서 실행하므로, 원격 DB 드라이버보다 처리량 차이가 작게 나온다.
+ */
+@Slf4j
+public class ReactiveBenchmark {
+
+    private static final String JDBC_URL = "jdbc:h2:mem:reactivebench;DB_CLOSE_DELAY=-1";
+    private static final String R2DBC_URL = "r2dbc:h2:mem:///reactivebench;DB_CLOSE_DELAY=-1";
+    private static final int MEMBERS = 10_000;
+    private static final int REQUESTS = 200_000;
+    private static final int POOL_SIZE = 10;
+
+    private static final ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+
+    public static void main(String[] args) throws Exception {
+        int concurrency = args.length > 0 ? Integer.parseInt(args[0]) : 1000;
+
+        HikariDataSource dataSource = new HikariDataSource();
+        dataSource.setJdbcUrl(JDBC_URL);
+        dataSource.setUsername("sa");
+        dataSource.setMaximumPoolSize(POOL_SIZE);
+        new MemberSchema(dataSource).createMemberTable();
+        new JdbcTemplate(dataSource).execute("insert into member select 'b' || x, x from system_range(0, " + (MEMBERS - 1) + ")");
+        MemberRepository blocking = new MemberRepositoryV5(dataSource);
+
+        ConnectionPool connectionPool = new ConnectionPool(ConnectionPoolConfiguration
+                .builder(ConnectionFactories.get(R2DBC_URL))
+                .maxSize(POOL_SIZE)
+                .build());
+        ReactiveMemberRepository reactive = new ReactiveMemberRepositoryV1(connectionPool);
+
+        for (int round = 0; round < 2; round++) {
+            boolean report = round == 1; //첫 라운드는 워밍업
+            runBlocking(blocking, concurrency, report);
+            runReactive(reactive, concurrency, report);
+        }
+
+        connectionPool.dispose();
+        dataSource.close();
+    }
+
+    private static void runBlocking(MemberRepository repository, int concurrency, boolean report) throws Exception {
+        threads.resetPeakThreadCount();
+        AtomicLong remaining = new AtomicLong(REQUESTS);
+        ExecutorService executor = Executors.newFixedThreadPool(concurrency);
+        long start = System.nanoTime();
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < concurrency; i++) {
+                futures.add(executor.submit(() -> {
+                    while (remaining.getAndDecrement() > 0) {
+                        repository.findById(randomId());
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+        print("blocking V5", concurrency, System.nanoTime() - start, report);
+    }
+
+    private static void runReactive(ReactiveMemberRepository repository, int concurrency, boolean report) {
+        threads.resetPeakThreadCount();
+        long start = System.nanoTime();
+        Long found = Flux.range(0, REQUESTS)
+                .flatMap(i -> repository.findById(randomId()), concurrency)
+                .map(Member::getMoney)
+                .count()
+                .block();
+        if (found == null || found != REQUESTS) {
+            throw new IllegalStateException("found=" + found);
+        }
+        print("reactive R2DBC", concurrency, System.nanoTime() - start, report);
+    }
+
+    private static void print(String name, int concurrency, long elapsed, boolean report) {
+        if (report) {
+            log.info("[{}] concurrency={}, requests={}, elapsed={}ms, req/s={}, peakThreads={}",
+                    name, concurrency, REQUESTS, elapsed / 1_000_000,
+                    String.format("%,.0f", REQUESTS * 1_000_000_000.0 / elapsed), threads.getPeakThreadCount());
+        }
+    }
+
+    private static String randomId() {
+        return "b" + ThreadLocalRandom.current().nextInt(MEMBERS);
+    }
+}
@@ -0,0 +1,80 @@
+package hello.jdbc.benchmark;
+
+import hello.jdbc.domain.Member;
+import hello.jdbc.domain.MemberRowMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.util.function.Supplier;
+
+/**
+ * 대량 조회 시 row 매핑 처리량 비교
+ * 1. 컬럼명으로 조회하는 람다 RowMapper (기존 MemberRepositoryV5 방식)
+ * 2. 애노테이션 프로세서가 생성한 MemberRowMapper (ResultSet당 컬럼 인덱스 1회 조회)
+ *
+ * 실행: ./gradlew rowMapperBenchmark -Prows=1000000
+ */
+@Slf4j
+public class RowMapperBenchmark {
+
+    private static final String URL = "jdbc:h2:mem:rowmapper;DB_CLOSE_DELAY=-1";
+    private static final int WARMUP = 3;
+    private static final int ITERATIONS = 5;
+
+    public static void main(String[] args) {
+        int rows = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+
+        JdbcTemplate template = new JdbcTemplate(new DriverManagerDataSource(URL, "sa", ""));
+        template.setFetchSize(1000);
+        template.execute("create table member (member_id varchar(20) primary key, money integer not null default 0)");
+        template.execute("insert into member select 'member' || x, x from system_range(1, " + rows + ")");
+        log.info("prepared rows={}", rows);
+
+        RowMapper<Member> byName = (rs, rowNum) -> {
+            Member member = new Member();
+            member.setMemberId(rs.getString("member_id"));
+            member.setMoney(rs.getInt("money"));
+            return member;
+        };
+
+        run(template, "name lookup", () -> byName);
+        run(template, "generated", MemberRowMapper::newMapper);
+        run(template, "name lookup", () -> byName);
+        run(template, "generated", MemberRowMapper::newMapper);
+    }
+
+    /**
+     * 조회마다 mappers에서 새 mapper를 받는다.
+     */
+    private static void run(JdbcTemplate template, String name, Supplier<RowMapper<Member>> mappers) {
+        for (int i = 0; i < WARMUP; i++) {
+            scan(template, mappers.get());
+        }
+
+        long rows = 0;
+        long start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            rows += scan(template, mappers.get());
+        }
+        long elapsed = System.nanoTime() - start;
+        log.info("[{}] rows={}, elapsed={}ms, rows/s={}", name, rows, elapsed / 1_000_000,
+                String.format("%,.0f", rows * 1_000_000_000.0 / elapsed));
+    }
+
+    private static long scan(JdbcTemplate template, RowMapper<Member> mapper) {
+        long[] result = new long[2];
+        template.query("select member_id, money from member", (RowCallbackHandler) rs -> {
+            Member member = mapper.mapRow(rs, (int) result[0]);
+            result[0]++;
+            result[1] += member.getMoney();
+        });
+        //JIT가 매핑을 제거하지 못하도록 결과를 사용한다.
+        if (result[1] == 42) {
+            log.info("checksum={}", result[1]);
+        }
+        return result[0];
+    }
+}
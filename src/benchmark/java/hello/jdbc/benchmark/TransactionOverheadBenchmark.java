@@ -0,0 +1,127 @@
+package hello.jdbc.benchmark;
+
+import hello.jdbc.domain.Member;
+import hello.jdbc.repository.MemberRepository;
+import hello.jdbc.repository.MemberRepositoryV5;
+import hello.jdbc.repository.MemberSchema;
+import hello.jdbc.service.MemberServiceV4;
+import hello.jdbc.service.MemberServiceV6;
+import hello.jdbc.transaction.TransactionExecutor;
+import hello.jdbc.transaction.TxDefinition;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.aop.framework.ProxyFactory;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+import org.springframework.transaction.annotation.AnnotationTransactionAttributeSource;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.interceptor.TransactionInterceptor;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 트랜잭션 적용 방식별 호출 비용 - @Transactional CGLIB 프록시 vs TransactionTemplate vs TransactionExecutor
+ *
+ * 실행: ./gradlew transactionBenchmark (할당량: -PjmhArgs='-prof gc')
+ * 세 방식 모두 같은 DataSourceTransactionManager와 같은 이체 로직(MemberServiceV4)을 사용한다.
+ * empty*는 빈 트랜잭션으로 적용 방식 자체의 비용만, transfer*는 실제 이체(조회 2번, 변경 2번)를 포함한 비용을 잰다.
+ * 커넥션 획득 비용이 섞이지 않도록 커넥션 하나를 재사용한다.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TransactionOverheadBenchmark {
+
+    private static final String URL = "jdbc:h2:mem:txbench;DB_CLOSE_DELAY=-1";
+    private static final TxDefinition EMPTY = TxDefinition.named("empty");
+
+    private MemberServiceV4 proxyService;
+    private Noop proxyNoop;
+    private MemberServiceV4 plainService;
+    private TransactionTemplate txTemplate;
+    private TransactionExecutor txExecutor;
+    private MemberServiceV6 executorService;
+
+    @Setup
+    public void setup() {
+        SingleConnectionDataSource dataSource = new SingleConnectionDataSource(URL, "sa", "", true);
+        MemberSchema schema = new MemberSchema(new DriverManagerDataSource(URL, "sa", ""));
+        schema.createMemberTable();
+        MemberRepository repository = new MemberRepositoryV5(dataSource);
+        repository.delete("benchA");
+        repository.delete("benchB");
+        repository.save(new Member("benchA", 0));
+        repository.save(new Member("benchB", 0));
+
+        DataSourceTransactionManager transactionManager = new DataSourceTransactionManager(dataSource);
+        TransactionInterceptor interceptor = new TransactionInterceptor(transactionManager, new AnnotationTransactionAttributeSource());
+        proxyService = proxy(new MemberServiceV4(repository), interceptor);
+        proxyNoop = proxy(new Noop(), interceptor);
+
+        plainService = new MemberServiceV4(repository);
+        txTemplate = new TransactionTemplate(transactionManager);
+        txExecutor = new TransactionExecutor(transactionManager);
+        executorService = new MemberServiceV6(txExecutor, repository);
+    }
+
+    @Benchmark
+    public void emptyProxy() {
+        proxyNoop.run();
+    }
+
+    @Benchmark
+    public void emptyTemplate() {
+        txTemplate.executeWithoutResult(status -> {
+        });
+    }
+
+    @Benchmark
+    public void emptyExecutor() {
+        txExecutor.run(EMPTY, status -> {
+        });
+    }
+
+    @Benchmark
+    public void transferProxy() {
+        proxyService.accountTransfer("benchA", "benchB", 0);
+    }
+
+    @Benchmark
+    public void transferTemplate() {
+        //프록시가 아니므로 @Transactional은 무시되고 템플릿 트랜잭션 안에서 실행된다.
+        txTemplate.executeWithoutResult(status -> plainService.accountTransfer("benchA", "benchB", 0));
+    }
+
+    @Benchmark
+    public void transferExecutor() {
+        executorService.accountTransfer("benchA", "benchB", 0);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T proxy(T target, TransactionInterceptor interceptor) {
+        ProxyFactory proxyFactory = new ProxyFactory(target);
+        proxyFactory.setProxyTargetClass(true);
+        proxyFactory.addAdvice(interceptor);
+        return (T) proxyFactory.getProxy();
+    }
+
+    public static class Noop {
+
+        @Transactional
+        public void run() {
+        }
+    }
+}
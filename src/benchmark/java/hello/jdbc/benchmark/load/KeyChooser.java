@@ -0,0 +1,21 @@
+package hello.jdbc.benchmark.load;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * 0 ~ keyCount-1 범위의 키 인덱스를 고른다.
+ */
+public interface KeyChooser {
+
+    int next(ThreadLocalRandom random);
+
+    static KeyChooser of(String distribution, int keyCount, double zipfSkew) {
+        if ("zipf".equalsIgnoreCase(distribution) || "zipfian".equalsIgnoreCase(distribution)) {
+            return new ZipfianKeyChooser(keyCount, zipfSkew);
+        }
+        if ("uniform".equalsIgnoreCase(distribution)) {
+            return random -> random.nextInt(keyCount);
+        }
+        throw new IllegalArgumentException("unknown distribution: " + distribution);
+    }
+}
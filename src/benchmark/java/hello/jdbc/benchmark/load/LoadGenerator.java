@@ -0,0 +1,296 @@
+package hello.jdbc.benchmark.load;
+
+import com.zaxxer.hikari.HikariDataSource;
+import hello.jdbc.connection.ConnectionConst;
+import hello.jdbc.domain.Member;
+import hello.jdbc.repository.MemberRepository;
+import hello.jdbc.repository.MemberRepositoryV4_1;
+import hello.jdbc.repository.MemberRepositoryV4_2;
+import hello.jdbc.repository.MemberRepositoryV5;
+import hello.jdbc.service.MemberServiceV4;
+import lombok.extern.slf4j.Slf4j;
+import org.HdrHistogram.Histogram;
+import org.springframework.aop.framework.ProxyFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.transaction.annotation.AnnotationTransactionAttributeSource;
+import org.springframework.transaction.interceptor.TransactionInterceptor;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * MemberRepository / MemberServiceV4 부하 발생기
+ *
+ * 스레드마다 closed loop로 작업을 실행하고 작업별 지연 시간을 HdrHistogram에 기록한다.
+ * rate를 지정하면 각 스레드는 정해진 간격의 예정 시각에 맞춰 작업을 시작하고,
+ * 지연 시간은 실제 시작이 아닌 예정 시각부터 측정한다. (coordinated omission 보정)
+ *
+ * 실행: ./gradlew loadTest -Pargs="url=mem threads=16 rate=5000 distribution=zipf"
+ */
+@Slf4j
+public class LoadGenerator {
+
+    static final String KEY_PREFIX = "ld";
+    static final String SAVE_PREFIX = "ls";
+    private static final int INITIAL_MONEY = 1_000_000;
+    private static final long HIGHEST_TRACKABLE_MICROS = TimeUnit.MINUTES.toMicros(10);
+
+    private final LoadOptions options;
+    private final MemberRepository memberRepository;
+    private final MemberServiceV4 memberService;
+    private final KeyChooser keyChooser;
+    private final Operation[] operations;
+    private final double[] cumulativeWeights;
+    private final AtomicLong saveSequence = new AtomicLong();
+
+    public LoadGenerator(LoadOptions options, MemberRepository memberRepository, MemberServiceV4 memberService) {
+        this.options = options;
+        this.memberRepository = memberRepository;
+        this.memberService = memberService;
+        this.keyChooser = KeyChooser.of(options.getDistribution(), options.getKeys(), options.getSkew());
+        this.operations = options.getMix().keySet().toArray(new Operation[0]);
+        this.cumulativeWeights = cumulativeWeights(options.getMix());
+    }
+
+    public static void main(String[] args) throws Exception {
+        LoadOptions options = LoadOptions.parse(args);
+        log.info("options={}", options);
+
+        HikariDataSource dataSource = new HikariDataSource();
+        dataSource.setJdbcUrl(options.getUrl());
+        dataSource.setUsername(ConnectionConst.USERNAME);
+        dataSource.setPassword(ConnectionConst.PASSWORD);
+        dataSource.setMaximumPoolSize(options.getThreads());
+
+        try {
+            prepare(dataSource, options);
+            MemberRepository memberRepository = repository(options.getRepository(), dataSource);
+            MemberServiceV4 memberService = transactionalService(memberRepository, dataSource);
+            Map<Operation, Result> results = new LoadGenerator(options, memberRepository, memberService).run();
+            report(results, options.getDurationSeconds());
+        } finally {
+            new JdbcTemplate(dataSource).update("delete from member where member_id like ?", SAVE_PREFIX + "%");
+            dataSource.close();
+        }
+    }
+
+    public Map<Operation, Result> run() throws Exception {
+        log.info("warmup {}s", options.getWarmupSeconds());
+        execute(options.getWarmupSeconds());
+        log.info("measure {}s", options.getDurationSeconds());
+        return execute(options.getDurationSeconds());
+    }
+
+    private Map<Operation, Result> execute(int seconds) throws Exception {
+        int threads = options.getThreads();
+        //스레드당 작업 간격, rate가 없으면 0 (closed loop)
+        long intervalNanos = options.getRate() > 0 ? TimeUnit.SECONDS.toNanos(1) * threads / options.getRate() : 0;
+        long startNanos = System.nanoTime();
+        long endNanos = startNanos + TimeUnit.SECONDS.toNanos(seconds);
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        List<Future<Map<Operation, Result>>> futures = new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+            //스레드마다 시작 시각을 나눠서 요청이 한꺼번에 몰리지 않게 한다.
+            long offset = intervalNanos * i / threads;
+            futures.add(executor.submit(() -> worker(startNanos + offset, endNanos, intervalNanos)));
+        }
+
+        Map<Operation, Result> total = newResults();
+        for (Future<Map<Operation, Result>> future : futures) {
+            for (Map.Entry<Operation, Result> entry : future.get().entrySet()) {
+                total.get(entry.getKey()).add(entry.getValue());
+            }
+        }
+        executor.shutdown();
+        return total;
+    }
+
+    private Map<Operation, Result> worker(long firstStartNanos, long endNanos, long intervalNanos) {
+        Map<Operation, Result> results = newResults();
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        long intendedStart = firstStartNanos;
+
+        while (true) {
+            if (intervalNanos > 0) {
+                long now = System.nanoTime();
+                if (intendedStart > now) {
+                    LockSupport.parkNanos(intendedStart - now);
+                }
+            } else {
+                intendedStart = System.nanoTime();
+            }
+            if (intendedStart >= endNanos) {
+                break;
+            }
+
+            Operation operation = nextOperation(random);
+            Result result = results.get(operation);
+            try {
+                execute(operation, random);
+            } catch (RuntimeException e) {
+                result.errors++;
+                log.debug("operation failed operation={}", operation, e);
+            }
+            //예정 시각부터 측정해서 앞선 작업이 밀린 시간도 지연에 포함한다.
+            long latencyMicros = (System.nanoTime() - intendedStart) / 1000;
+            result.histogram.recordValue(Math.min(latencyMicros, HIGHEST_TRACKABLE_MICROS));
+
+            if (intervalNanos > 0) {
+                intendedStart += intervalNanos;
+            }
+        }
+        return results;
+    }
+
+    private void execute(Operation operation, ThreadLocalRandom random) {
+        switch (operation) {
+            case FIND_BY_ID:
+                memberRepository.findById(key(random));
+                break;
+            case SAVE:
+                memberRepository.save(new Member(SAVE_PREFIX + Long.toString(saveSequence.incrementAndGet(), 36), 0));
+                break;
+            case UPDATE:
+                memberRepository.update(key(random), random.nextInt(INITIAL_MONEY));
+                break;
+            case TRANSFER:
+                String fromId = key(random);
+                String toId = key(random);
+                while (toId.equals(fromId) && options.getKeys() > 1) {
+                    toId = KEY_PREFIX + random.nextInt(options.getKeys());
+                }
+                memberService.accountTransfer(fromId, toId, 1);
+                break;
+            default:
+                throw new IllegalStateException("unknown operation: " + operation);
+        }
+    }
+
+    private String key(ThreadLocalRandom random) {
+        return KEY_PREFIX + keyChooser.next(random);
+    }
+
+    private static Map<Operation, Result> newResults() {
+        Map<Operation, Result> results = new EnumMap<>(Operation.class);
+        for (Operation operation : Operation.values()) {
+            results.put(operation, new Result());
+        }
+        return results;
+    }
+
+    /**
+     * 누적 비율에서 난수 한 번으로 작업을 고른다. 비율이 작아도 반올림으로 사라지지 않는다.
+     */
+    private Operation nextOperation(ThreadLocalRandom random) {
+        double r = random.nextDouble();
+        for (int i = 0; i < cumulativeWeights.length - 1; i++) {
+            if (r < cumulativeWeights[i]) {
+                return operations[i];
+            }
+        }
+        return operations[operations.length - 1];
+    }
+
+    /**
+     * mix 순서대로 0~1로 정규화한 누적 비율, 마지막 값은 1
+     */
+    private static double[] cumulativeWeights(Map<Operation, Integer> mix) {
+        long sum = mix.values().stream().mapToLong(Integer::longValue).sum();
+        if (sum <= 0) {
+            throw new IllegalArgumentException("mix must have positive weight: " + mix);
+        }
+        double[] cumulative = new double[mix.size()];
+        long running = 0;
+        int i = 0;
+        for (int weight : mix.values()) {
+            if (weight < 0) {
+                throw new IllegalArgumentException("mix weight must not be negative: " + mix);
+            }
+            running += weight;
+            cumulative[i++] = (double) running / sum;
+        }
+        return cumulative;
+    }
+
+    static MemberRepository repository(String version, DataSource dataSource) {
+        switch (version) {
+            case "V4_1":
+                return new MemberRepositoryV4_1(dataSource);
+            case "V4_2":
+                return new MemberRepositoryV4_2(dataSource);
+            case "V5":
+                return new MemberRepositoryV5(dataSource);
+            default:
+                throw new IllegalArgumentException("unknown repository: " + version);
+        }
+    }
+
+    /**
+     * 스프링 컨테이너 없이 @Transactional 프록시를 만든다.
+     */
+    static MemberServiceV4 transactionalService(MemberRepository memberRepository, DataSource dataSource) {
+        ProxyFactory proxyFactory = new ProxyFactory(new MemberServiceV4(memberRepository));
+        proxyFactory.setProxyTargetClass(true);
+        proxyFactory.addAdvice(new TransactionInterceptor(new DataSourceTransactionManager(dataSource),
+                new AnnotationTransactionAttributeSource()));
+        return (MemberServiceV4) proxyFactory.getProxy();
+    }
+
+    /**
+     * 내장 DB면 테이블을 만들고, 키 개수만큼 회원을 준비한다.
+     */
+    static void prepare(DataSource dataSource, LoadOptions options) {
+        JdbcTemplate template = new JdbcTemplate(dataSource);
+        if (options.isEmbedded()) {
+            template.execute("create table if not exists member (member_id varchar(10) primary key, money integer not null default 0)");
+        }
+        template.update("delete from member where member_id like ?", SAVE_PREFIX + "%");
+        template.update("merge into member key(member_id) select '" + KEY_PREFIX + "' || x, " + INITIAL_MONEY
+                + " from system_range(0, " + (options.getKeys() - 1) + ")");
+        log.info("prepared keys={}", options.getKeys());
+    }
+
+    private static void report(Map<Operation, Result> results, int seconds) {
+        log.info(String.format("%-16s %10s %10s %8s %10s %10s %10s %10s %10s",
+                "operation", "count", "ops/s", "errors", "p50(ms)", "p90(ms)", "p99(ms)", "p99.9(ms)", "max(ms)"));
+        for (Map.Entry<Operation, Result> entry : results.entrySet()) {
+            Histogram histogram = entry.getValue().histogram;
+            if (histogram.getTotalCount() == 0) {
+                continue;
+            }
+            log.info(String.format("%-16s %10d %10.0f %8d %10.3f %10.3f %10.3f %10.3f %10.3f",
+                    entry.getKey().getLabel(),
+                    histogram.getTotalCount(),
+                    histogram.getTotalCount() / (double) seconds,
+                    entry.getValue().errors,
+                    histogram.getValueAtPercentile(50) / 1000.0,
+                    histogram.getValueAtPercentile(90) / 1000.0,
+                    histogram.getValueAtPercentile(99) / 1000.0,
+                    histogram.getValueAtPercentile(99.9) / 1000.0,
+                    histogram.getMaxValue() / 1000.0));
+        }
+    }
+
+    static class Result {
+
+        final Histogram histogram = new Histogram(HIGHEST_TRACKABLE_MICROS, 3);
+        long errors;
+
+        void add(Result other) {
+            histogram.add(other.histogram);
+            errors += other.errors;
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package hello.jdbc.benchmark.load;
+
+import hello.jdbc.connection.ConnectionConst;
+import lombok.Getter;
+import lombok.ToString;
+
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * key=value 형식의 실행 인자
+ *
+ * url          jdbc url, mem 이면 내장 H2 (기본: ConnectionConst.URL)
+ * repository   V4_1 | V4_2 | V5 (기본: V5)
+ * threads      작업 스레드 수 (기본: 8)
+ * rate         전체 목표 처리량 ops/s, 0이면 제한 없는 closed loop (기본: 0)
+ * warmup       워밍업 초 (기본: 5)
+ * duration     측정 초 (기본: 30)
+ * keys         키 개수 (기본: 10000)
+ * distribution uniform | zipf (기본: uniform)
+ * skew         zipf 지수 (기본: 0.99)
+ * mix          작업 비율 (기본: findById=70,update=20,save=5,accountTransfer=5)
+ */
+@Getter
+@ToString
+public class LoadOptions {
+
+    private final String url;
+    private final String repository;
+    private final int threads;
+    private final int rate;
+    private final int warmupSeconds;
+    private final int durationSeconds;
+    private final int keys;
+    private final String distribution;
+    private final double skew;
+    private final Map<Operation, Integer> mix;
+
+    private LoadOptions(Map<String, String> args) {
+        String url = args.getOrDefault("url", ConnectionConst.URL);
+        this.url = "mem".equals(url) ? "jdbc:h2:mem:load;DB_CLOSE_DELAY=-1" : url;
+        this.repository = args.getOrDefault("repository", "V5");
+        this.threads = Integer.parseInt(args.getOrDefault("threads", "8"));
+        this.rate = Integer.parseInt(args.getOrDefault("rate", "0"));
+        this.warmupSeconds = Integer.parseInt(args.getOrDefault("warmup", "5"));
+        this.durationSeconds = Integer.parseInt(args.getOrDefault("duration", "30"));
+        this.keys = Integer.parseInt(args.getOrDefault("keys", "10000"));
+        this.distribution = args.getOrDefault("distribution", "uniform");
+        this.skew = Double.parseDouble(args.getOrDefault("skew", "0.99"));
+        this.mix = parseMix(args.getOrDefault("mix", "findById=70,update=20,save=5,accountTransfer=5"));
+    }
+
+    public static LoadOptions parse(String[] args) {
+        Map<String, String> map = new HashMap<>();
+        for (String arg : args) {
+            int index = arg.indexOf('=');
+            if (index < 0) {
+                throw new IllegalArgumentException("argument must be key=value: " + arg);
+            }
+            map.put(arg.substring(0, index), arg.substring(index + 1));
+        }
+        return new LoadOptions(map);
+    }
+
+    public boolean isEmbedded() {
+        return url.startsWith("jdbc:h2:mem:");
+    }
+
+    private static Map<Operation, Integer> parseMix(String value) {
+        Map<Operation, Integer> mix = new EnumMap<>(Operation.class);
+        for (String part : value.split(",")) {
+            String[] pair = part.split("=");
+            mix.put(Operation.of(pair[0].trim()), Integer.parseInt(pair[1].trim()));
+        }
+        return mix;
+    }
+}
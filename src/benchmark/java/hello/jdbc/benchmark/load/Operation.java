@@ -0,0 +1,27 @@
+package hello.jdbc.benchmark.load;
+
+public enum Operation {
+    FIND_BY_ID("findById"),
+    SAVE("save"),
+    UPDATE("update"),
+    TRANSFER("accountTransfer");
+
+    private final String label;
+
+    Operation(String label) {
+        this.label = label;
+    }
+
+    public String getLabel() {
+        return label;
+    }
+
+    public static Operation of(String label) {
+        for (Operation operation : values()) {
+            if (operation.label.equalsIgnoreCase(label) || operation.name().equalsIgnoreCase(label)) {
+                return operation;
+            }
+        }
+        throw new IllegalArgumentException("unknown operation: " + label);
+    }
+}
@@ -0,0 +1,50 @@
+package hello.jdbc.benchmark.load;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Zipf 분포 키 선택 (Gray et al. "Quickly Generating Billion-Record Synthetic Databases" 방식)
+ * 인덱스 0이 가장 자주 선택되며, skew가 클수록 소수 키에 집중된다.
+ */
+public class ZipfianKeyChooser implements KeyChooser {
+
+    private final int keyCount;
+    private final double theta;
+    private final double alpha;
+    private final double zetaN;
+    private final double eta;
+
+    public ZipfianKeyChooser(int keyCount, double skew) {
+        if (skew <= 0 || skew >= 1.0) {
+            throw new IllegalArgumentException("zipf skew must be in (0, 1): " + skew);
+        }
+        this.keyCount = keyCount;
+        this.theta = skew;
+        this.alpha = 1.0 / (1.0 - theta);
+        this.zetaN = zeta(keyCount, theta);
+        double zeta2 = zeta(2, theta);
+        this.eta = (1 - Math.pow(2.0 / keyCount, 1 - theta)) / (1 - zeta2 / zetaN);
+    }
+
+    @Override
+    public int next(ThreadLocalRandom random) {
+        double u = random.nextDouble();
+        double uz = u * zetaN;
+        if (uz < 1.0) {
+            return 0;
+        }
+        if (uz < 1.0 + Math.pow(0.5, theta)) {
+            return 1;
+        }
+        int index = (int) (keyCount * Math.pow(eta * u - eta + 1, alpha));
+        return Math.min(index, keyCount - 1);
+    }
+
+    private static double zeta(int n, double theta) {
+        double sum = 0;
+        for (int i = 1; i <= n; i++) {
+            sum += 1.0 / Math.pow(i, theta);
+        }
+        return sum;
+    }
+}
@@ -0,0 +1,13 @@
+package hello.jdbc.audit;
+
+public enum AuditDurability {
+    /**
+     * 커밋 후(afterCommit) 링 버퍼에 넣고 별도 스레드가 저장한다. 이체에 DB 왕복이 추가되지 않는다.
+     * 프로세스가 죽으면 아직 저장하지 않은 버퍼 내용(최대 capacity 건)을 잃는다.
+     */
+    ASYNC,
+    /**
+     * 이체 트랜잭션 안에서 바로 저장한다. 이체와 감사 기록이 함께 커밋되지만 DB 왕복이 하나 추가된다.
+     */
+    SYNC
+}
@@ -0,0 +1,31 @@
+package hello.jdbc.audit;
+
+import lombok.Data;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * TransferAuditor 설정
+ */
+@Data
+public class AuditOptions {
+
+    private AuditDurability durability = AuditDurability.ASYNC;
+
+    /**
+     * 링 버퍼 크기, 2의 거듭제곱
+     */
+    private int capacity = 8192;
+    private int batchSize = 500;
+
+    /**
+     * 버퍼가 비었을 때 writer 스레드가 쉬는 시간
+     */
+    private long idleMillis = 5;
+
+    /**
+     * 버퍼가 가득 찼거나 DB 저장이 실패한 감사 기록을 쓰는 파일, 버퍼가 비면 다시 읽어서 저장한다.
+     */
+    private Path spillPath = Paths.get("build", "audit-spill.bin");
+}
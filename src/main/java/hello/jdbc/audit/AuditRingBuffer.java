@@ -0,0 +1,78 @@
+package hello.jdbc.audit;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 고정 크기 lock-free 링 버퍼 (생산자 여럿, 소비자 하나)
+ *
+ * 슬롯마다 시퀀스를 두고 생산자는 tail을 CAS로 차지한 뒤 값을 쓰고 시퀀스를 올린다.
+ * 소비자는 시퀀스가 올라간 슬롯만 순서대로 꺼낸다. 가득 차면 offer가 false를 반환한다.
+ */
+class AuditRingBuffer<T> {
+
+    private final int mask;
+    private final Object[] items;
+    private final AtomicLongArray sequences;
+    private final AtomicLong tail = new AtomicLong();
+    private volatile long head;
+
+    AuditRingBuffer(int capacity) {
+        if (capacity < 2 || Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("capacity must be a power of two capacity=" + capacity);
+        }
+        this.mask = capacity - 1;
+        this.items = new Object[capacity];
+        this.sequences = new AtomicLongArray(capacity);
+        for (int i = 0; i < capacity; i++) {
+            sequences.set(i, i);
+        }
+    }
+
+    boolean offer(T item) {
+        long position = tail.get();
+        while (true) {
+            int index = (int) (position & mask);
+            long diff = sequences.get(index) - position;
+            if (diff == 0) {
+                if (tail.compareAndSet(position, position + 1)) {
+                    items[index] = item;
+                    sequences.set(index, position + 1); //소비자에게 공개
+                    return true;
+                }
+                position = tail.get();
+            } else if (diff < 0) {
+                return false; //한 바퀴 전 값을 아직 소비하지 않음
+            } else {
+                position = tail.get();
+            }
+        }
+    }
+
+    /**
+     * 소비자 스레드 하나에서만 호출한다.
+     */
+    @SuppressWarnings("unchecked")
+    int drainTo(List<T> out, int max) {
+        long position = head;
+        int count = 0;
+        while (count < max) {
+            int index = (int) (position & mask);
+            if (sequences.get(index) != position + 1) {
+                break;
+            }
+            out.add((T) items[index]);
+            items[index] = null;
+            sequences.set(index, position + mask + 1); //다음 바퀴 생산자에게 반납
+            position++;
+            count++;
+        }
+        head = position;
+        return count;
+    }
+
+    int size() {
+        return (int) Math.max(0, tail.get() - head);
+    }
+}
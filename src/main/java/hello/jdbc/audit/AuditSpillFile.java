@@ -0,0 +1,154 @@
+package hello.jdbc.audit;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 링 버퍼에 넣지 못한 감사 기록을 디스크에 덧붙인다.
+ * 다시 저장할 때는 파일을 .replay로 바꿔서 읽으므로 그 사이에 들어오는 기록은 새 파일에 쌓인다.
+ */
+@Slf4j
+class AuditSpillFile {
+
+    private final Path path;
+    private final Path replayPath;
+    private DataOutputStream out;
+    private long pending;
+    /**
+     * 이전 실행(비정상 종료 포함)에서 남긴 기록이 있는지, 건수는 읽어봐야 안다.
+     */
+    private boolean leftover;
+    private boolean closed;
+
+    AuditSpillFile(Path path) {
+        this.path = path;
+        this.replayPath = path.resolveSibling(path.getFileName() + ".replay");
+        try {
+            this.leftover = Files.exists(path) && Files.size(path) > 0;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        if (leftover) {
+            log.info("audit spill file from previous run found path={}", path);
+        }
+    }
+
+    synchronized void append(List<TransferAudit> audits) {
+        try {
+            if (out == null) {
+                Path parent = path.toAbsolutePath().getParent();
+                if (parent != null) {
+                    Files.createDirectories(parent);
+                }
+                out = new DataOutputStream(new BufferedOutputStream(
+                        Files.newOutputStream(path, StandardOpenOption.CREATE, StandardOpenOption.APPEND)));
+            }
+            for (TransferAudit audit : audits) {
+                out.writeUTF(audit.getFromId());
+                out.writeUTF(audit.getToId());
+                out.writeInt(audit.getMoney());
+                out.writeLong(audit.getCommittedAt().toEpochMilli());
+            }
+            out.flush();
+            pending += audits.size();
+            if (closed) {
+                //close 이후에 들어온 기록, 다음 실행에서 다시 저장한다.
+                out.close();
+                out = null;
+            }
+        } catch (IOException e) {
+            //디스크에도 쓸 수 없으면 남길 곳이 없다.
+            log.error("audit spill failed, lost size={}", audits.size(), e);
+        }
+    }
+
+    /**
+     * 다시 저장할 기록이 있는지, 이전에 저장하지 못한 .replay 파일도 포함
+     */
+    synchronized boolean hasData() {
+        return pending > 0 || leftover || Files.exists(replayPath);
+    }
+
+    long getPending() {
+        return pending;
+    }
+
+    /**
+     * 쌓인 기록을 .replay 파일로 넘기고 읽는다. 저장에 성공하면 {@link #replayed()}로 지운다.
+     */
+    List<TransferAudit> takeForReplay() {
+        synchronized (this) {
+            if (!Files.exists(replayPath) && (pending > 0 || leftover)) {
+                try {
+                    if (out != null) {
+                        out.close();
+                        out = null;
+                    }
+                    pending = 0;
+                    leftover = false;
+                    Files.move(path, replayPath, StandardCopyOption.ATOMIC_MOVE);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+        }
+        return read(replayPath);
+    }
+
+    void replayed() {
+        try {
+            Files.deleteIfExists(replayPath);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    synchronized void close() {
+        closed = true;
+        if (out != null) {
+            try {
+                out.close();
+            } catch (IOException e) {
+                log.warn("audit spill close failed", e);
+            }
+            out = null;
+        }
+    }
+
+    private static List<TransferAudit> read(Path file) {
+        List<TransferAudit> audits = new ArrayList<>();
+        if (!Files.exists(file)) {
+            return audits;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            while (true) {
+                String fromId;
+                try {
+                    fromId = in.readUTF();
+                } catch (EOFException e) {
+                    break;
+                }
+                audits.add(new TransferAudit(fromId, in.readUTF(), in.readInt(), Instant.ofEpochMilli(in.readLong())));
+            }
+        } catch (EOFException e) {
+            log.warn("audit spill file truncated, recovered size={}", audits.size());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return audits;
+    }
+}
@@ -0,0 +1,26 @@
+package hello.jdbc.audit;
+
+import lombok.Getter;
+import lombok.ToString;
+
+import java.time.Instant;
+
+/**
+ * 커밋된 이체 한 건
+ */
+@Getter
+@ToString
+public class TransferAudit {
+
+    private final String fromId;
+    private final String toId;
+    private final int money;
+    private final Instant committedAt;
+
+    public TransferAudit(String fromId, String toId, int money, Instant committedAt) {
+        this.fromId = fromId;
+        this.toId = toId;
+        this.money = money;
+        this.committedAt = committedAt;
+    }
+}
@@ -0,0 +1,100 @@
+package hello.jdbc.audit;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.sql.DataSource;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 날짜별 테이블(transfer_audit_yyyyMMdd)에 감사 기록을 batch로 저장한다.
+ * 오래된 기록은 테이블 단위로 삭제(drop)하므로 대량 delete가 필요 없다.
+ *
+ * H2에서 DDL은 진행 중인 트랜잭션을 커밋하므로 테이블 생성은 트랜잭션 밖(writer 스레드)에서만 한다.
+ */
+@Slf4j
+public class TransferAuditWriter {
+
+    public static final String TABLE_PREFIX = "TRANSFER_AUDIT_";
+    private static final DateTimeFormatter SUFFIX = DateTimeFormatter.BASIC_ISO_DATE;
+
+    private final JdbcTemplate template;
+    private final ZoneId zone;
+    private final Set<LocalDate> created = ConcurrentHashMap.newKeySet();
+
+    public TransferAuditWriter(DataSource dataSource, ZoneId zone) {
+        this.template = new JdbcTemplate(dataSource);
+        this.zone = zone;
+    }
+
+    public static String tableName(LocalDate date) {
+        return TABLE_PREFIX + SUFFIX.format(date);
+    }
+
+    public LocalDate dateOf(TransferAudit audit) {
+        return audit.getCommittedAt().atZone(zone).toLocalDate();
+    }
+
+    /**
+     * 트랜잭션 밖에서 호출한다.
+     */
+    public void ensurePartition(LocalDate date) {
+        if (created.contains(date)) {
+            return;
+        }
+        template.execute("create table if not exists " + tableName(date) + " (" +
+                "audit_id bigint auto_increment primary key, " +
+                "from_id varchar(10) not null, " +
+                "to_id varchar(10) not null, " +
+                "money integer not null, " +
+                "committed_at timestamp not null)");
+        created.add(date);
+    }
+
+    /**
+     * 날짜별로 나눠서 테이블마다 하나의 JDBC batch로 저장한다.
+     * createPartitions가 false면 테이블이 이미 있다고 가정한다. (SYNC 모드, 트랜잭션 안)
+     */
+    public void insert(List<TransferAudit> audits, boolean createPartitions) {
+        Map<LocalDate, List<Object[]>> byDate = new TreeMap<>();
+        for (TransferAudit audit : audits) {
+            byDate.computeIfAbsent(dateOf(audit), date -> new ArrayList<>()).add(new Object[]{
+                    audit.getFromId(), audit.getToId(), audit.getMoney(), Timestamp.from(audit.getCommittedAt())});
+        }
+        for (Map.Entry<LocalDate, List<Object[]>> entry : byDate.entrySet()) {
+            if (createPartitions) {
+                ensurePartition(entry.getKey());
+            }
+            template.batchUpdate("insert into " + tableName(entry.getKey()) +
+                    "(from_id, to_id, money, committed_at) values(?, ?, ?, ?)", entry.getValue());
+        }
+    }
+
+    /**
+     * before 이전 날짜의 테이블을 삭제한다.
+     */
+    public int dropPartitionsBefore(LocalDate before) {
+        List<String> tables = template.queryForList("select table_name from information_schema.tables " +
+                "where table_name like '" + TABLE_PREFIX + "%'", String.class);
+        int dropped = 0;
+        for (String table : tables) {
+            LocalDate date = LocalDate.parse(table.substring(TABLE_PREFIX.length()), SUFFIX);
+            if (date.isBefore(before)) {
+                template.execute("drop table if exists " + table);
+                created.remove(date);
+                dropped++;
+            }
+        }
+        log.info("dropped audit partitions before {} count={}", before, dropped);
+        return dropped;
+    }
+}
@@ -0,0 +1,244 @@
+package hello.jdbc.audit;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 이체 감사 기록
+ *
+ * ASYNC: 이체 트랜잭션이 커밋되면(afterCommit) 링 버퍼에 넣고, writer 스레드 하나가 batchSize씩 꺼내서 저장한다.
+ * 버퍼가 가득 차거나 DB 저장이 실패하면 spill 파일에 쓰고, 버퍼가 비었을 때 다시 읽어서 저장한다.
+ * SYNC: 이체 트랜잭션 안에서 바로 저장한다.
+ *
+ * writer 스레드는 두 모드 모두 오늘/내일 테이블을 미리 만든다.
+ */
+@Slf4j
+public class TransferAuditor implements AutoCloseable {
+
+    private final AuditOptions options;
+    private final TransferAuditWriter writer;
+    private final AuditRingBuffer<TransferAudit> buffer;
+    private final AuditSpillFile spillFile;
+    private final ZoneId zone = ZoneId.systemDefault();
+
+    private final AtomicLong enqueued = new AtomicLong();
+    private final AtomicLong written = new AtomicLong();
+    private final AtomicLong spilled = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+
+    private volatile boolean running;
+    private volatile boolean closed;
+    /**
+     * writer 스레드가 끝났으면 close 이후 버퍼에 남은 기록은 호출한 스레드가 spill 파일로 옮긴다.
+     */
+    private boolean writerStopped;
+    private Thread writerThread;
+
+    public TransferAuditor(DataSource dataSource, AuditOptions options) {
+        this.options = options;
+        this.writer = new TransferAuditWriter(dataSource, zone);
+        this.buffer = new AuditRingBuffer<>(options.getCapacity());
+        this.spillFile = new AuditSpillFile(options.getSpillPath());
+    }
+
+    public synchronized void start() {
+        if (closed) {
+            throw new IllegalStateException("transfer auditor is closed");
+        }
+        if (writerThread != null) {
+            return;
+        }
+        ensurePartitions();
+        running = true;
+        writerThread = new Thread(this::writeLoop, "transfer-audit-writer");
+        writerThread.setDaemon(true);
+        writerThread.start();
+    }
+
+    /**
+     * 이체 트랜잭션 안에서 호출한다. SYNC 모드는 start()로 날짜별 테이블이 준비되어 있어야 한다.
+     */
+    public void transferred(String fromId, String toId, int money) {
+        if (options.getDurability() == AuditDurability.SYNC) {
+            writer.insert(Collections.singletonList(new TransferAudit(fromId, toId, money, Instant.now())), false);
+            written.incrementAndGet();
+            return;
+        }
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            enqueue(new TransferAudit(fromId, toId, money, Instant.now()));
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                enqueue(new TransferAudit(fromId, toId, money, Instant.now()));
+            }
+        });
+    }
+
+    /**
+     * 버퍼와 spill 파일에 남은 기록을 모두 저장하고 writer 스레드를 멈춘다.
+     * 저장하지 못한 기록과 close 이후에 들어오는 기록은 spill 파일에 남기고 다음 실행의 start()에서 저장한다.
+     */
+    @Override
+    public void close() {
+        Thread thread;
+        synchronized (this) {
+            closed = true;
+            running = false;
+            thread = writerThread;
+            writerThread = null;
+        }
+        if (thread != null) {
+            LockSupport.unpark(thread);
+            try {
+                thread.join(TimeUnit.SECONDS.toMillis(30));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        synchronized (this) {
+            if (thread != null && thread.isAlive()) {
+                log.warn("transfer audit writer did not stop, buffered={}", buffer.size());
+            } else {
+                writerStopped = true;
+                spillBuffered();
+            }
+        }
+        spillFile.close();
+    }
+
+    public TransferAuditWriter getWriter() {
+        return writer;
+    }
+
+    public long getEnqueued() {
+        return enqueued.get();
+    }
+
+    public long getWritten() {
+        return written.get();
+    }
+
+    public long getSpilled() {
+        return spilled.get();
+    }
+
+    public long getFailures() {
+        return failures.get();
+    }
+
+    public int getBuffered() {
+        return buffer.size();
+    }
+
+    private void enqueue(TransferAudit audit) {
+        enqueued.incrementAndGet();
+        if (closed || !buffer.offer(audit)) {
+            spilled.incrementAndGet();
+            spillFile.append(Collections.singletonList(audit));
+            return;
+        }
+        if (closed) {
+            //close와 겹쳐서 writer가 이미 끝난 뒤에 버퍼에 들어갔을 수 있다.
+            synchronized (this) {
+                spillBuffered();
+            }
+        }
+    }
+
+    /**
+     * writer 스레드가 끝난 뒤에만 호출한다. (버퍼의 소비자는 하나)
+     */
+    private void spillBuffered() {
+        if (!writerStopped) {
+            return;
+        }
+        List<TransferAudit> rest = new ArrayList<>();
+        buffer.drainTo(rest, Integer.MAX_VALUE);
+        if (!rest.isEmpty()) {
+            spilled.addAndGet(rest.size());
+            spillFile.append(rest);
+            log.info("audit buffered after close spilled size={}", rest.size());
+        }
+    }
+
+    private void writeLoop() {
+        List<TransferAudit> batch = new ArrayList<>(options.getBatchSize());
+        long idleNanos = TimeUnit.MILLISECONDS.toNanos(options.getIdleMillis());
+        while (true) {
+            batch.clear();
+            buffer.drainTo(batch, options.getBatchSize());
+            if (!batch.isEmpty()) {
+                write(batch);
+                continue;
+            }
+            if (spillFile.hasData() && replay()) {
+                continue;
+            }
+            if (!running) {
+                break;
+            }
+            ensurePartitions();
+            LockSupport.parkNanos(idleNanos);
+        }
+        log.info("transfer audit writer stopped written={}, spilled={}, failures={}", written.get(), spilled.get(), failures.get());
+    }
+
+    private void write(List<TransferAudit> batch) {
+        try {
+            writer.insert(batch, true);
+            written.addAndGet(batch.size());
+        } catch (RuntimeException e) {
+            failures.incrementAndGet();
+            spilled.addAndGet(batch.size());
+            spillFile.append(batch);
+            log.warn("audit batch insert failed, spilled size={}", batch.size(), e);
+            LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(100));
+        }
+    }
+
+    /**
+     * spill 파일을 다시 저장한다. 실패하면 파일을 남겨두고 false
+     */
+    private boolean replay() {
+        try {
+            List<TransferAudit> audits = spillFile.takeForReplay();
+            for (int from = 0; from < audits.size(); from += options.getBatchSize()) {
+                writer.insert(audits.subList(from, Math.min(from + options.getBatchSize(), audits.size())), true);
+            }
+            spillFile.replayed();
+            written.addAndGet(audits.size());
+            log.info("audit spill replayed size={}", audits.size());
+            return true;
+        } catch (RuntimeException e) {
+            //일부 batch가 이미 저장됐을 수 있으므로 다시 저장할 때 중복될 수 있다. (최소 한 번)
+            failures.incrementAndGet();
+            log.warn("audit spill replay failed", e);
+            LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(100));
+            return false;
+        }
+    }
+
+    private void ensurePartitions() {
+        LocalDate today = LocalDate.now(zone);
+        try {
+            writer.ensurePartition(today);
+            writer.ensurePartition(today.plusDays(1));
+        } catch (RuntimeException e) {
+            log.warn("audit partition creation failed", e);
+        }
+    }
+}
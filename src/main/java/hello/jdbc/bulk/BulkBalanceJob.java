@@ -0,0 +1,144 @@
+package hello.jdbc.bulk;
+
+import hello.jdbc.repository.MemberRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * 전체 회원의 잔고를 money * multiplier + addend로 바꾸는 일괄 작업 (월 이자 등)
+ *
+ * 처음 실행할 때 member_id를 chunkSize개씩 나눈 구간을 bulk_job_range에 저장하고,
+ * 구간마다 별도 트랜잭션에서 updateMoneyInRange와 완료 표시를 함께 커밋한다.
+ * 중간에 실패하거나 프로세스가 죽어도 같은 jobId로 다시 실행하면 완료되지 않은 구간만 처리하므로 두 번 적용되지 않는다.
+ * 한 트랜잭션은 구간의 row에만 락을 걸기 때문에 작업 중에도 다른 구간의 이체는 막히지 않는다.
+ *
+ * repository는 이 DataSource를 사용해야 완료 표시와 같은 트랜잭션에 참여한다.
+ */
+@Slf4j
+public class BulkBalanceJob {
+
+    private final JdbcTemplate template;
+    private final MemberRepository repository;
+    private final TransactionTemplate txTemplate;
+    private final BulkOptions options;
+
+    public BulkBalanceJob(DataSource dataSource, MemberRepository repository,
+                          PlatformTransactionManager transactionManager, BulkOptions options) {
+        this.template = new JdbcTemplate(dataSource);
+        this.repository = repository;
+        this.txTemplate = new TransactionTemplate(transactionManager);
+        this.options = options;
+    }
+
+    public BulkResult run(String jobId, BigDecimal multiplier, int addend) {
+        long startTime = System.currentTimeMillis();
+        int totalRanges = txTemplate.execute(status -> plan(jobId, multiplier, addend));
+        List<Map<String, Object>> ranges = template.queryForList("select range_no, from_id, to_id from bulk_job_range " +
+                "where job_id = ? and done_at is null order by range_no", jobId);
+        log.info("bulk job={} ranges={} remaining={}", jobId, totalRanges, ranges.size());
+
+        List<Callable<Integer>> tasks = new ArrayList<>();
+        for (Map<String, Object> range : ranges) {
+            int rangeNo = ((Number) range.get("range_no")).intValue();
+            String fromId = (String) range.get("from_id");
+            String toId = (String) range.get("to_id");
+            tasks.add(() -> txTemplate.execute(status -> runRange(jobId, rangeNo, fromId, toId, multiplier, addend)));
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(options.getParallelism());
+        int executed = 0;
+        long updatedRows = 0;
+        RuntimeException failure = null;
+        try {
+            //실패한 구간이 있어도 나머지 구간은 끝까지 처리하고 커밋한다.
+            for (Future<Integer> future : executor.invokeAll(tasks)) {
+                try {
+                    Integer updated = future.get();
+                    if (updated != null) {
+                        executed++;
+                        updatedRows += updated;
+                    }
+                } catch (ExecutionException e) {
+                    if (failure == null) {
+                        failure = e.getCause() instanceof RuntimeException
+                                ? (RuntimeException) e.getCause() : new IllegalStateException(e.getCause());
+                    } else {
+                        failure.addSuppressed(e.getCause());
+                    }
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("bulk job interrupted jobId=" + jobId, e);
+        } finally {
+            executor.shutdownNow();
+        }
+        if (failure != null) {
+            log.warn("bulk job={} failed, executed={} updatedRows={}", jobId, executed, updatedRows);
+            throw failure;
+        }
+
+        template.update("update bulk_job set completed_at = ? where job_id = ? and completed_at is null",
+                new Timestamp(System.currentTimeMillis()), jobId);
+        BulkResult result = new BulkResult(jobId, totalRanges, executed, updatedRows, System.currentTimeMillis() - startTime);
+        log.info("bulk job completed {}", result);
+        return result;
+    }
+
+    /**
+     * 처음 실행이면 구간을 나눠 저장하고, 재실행이면 같은 작업인지 확인한다.
+     */
+    private int plan(String jobId, BigDecimal multiplier, int addend) {
+        List<Map<String, Object>> jobs = template.queryForList("select multiplier, addend from bulk_job where job_id = ?", jobId);
+        if (!jobs.isEmpty()) {
+            BigDecimal savedMultiplier = (BigDecimal) jobs.get(0).get("multiplier");
+            int savedAddend = ((Number) jobs.get(0).get("addend")).intValue();
+            if (savedMultiplier.compareTo(multiplier) != 0 || savedAddend != addend) {
+                throw new IllegalArgumentException("job " + jobId + " was started with multiplier=" + savedMultiplier + ", addend=" + savedAddend);
+            }
+            return template.queryForObject("select count(*) from bulk_job_range where job_id = ?", Integer.class, jobId);
+        }
+
+        template.update("insert into bulk_job(job_id, multiplier, addend, created_at) values(?, ?, ?, ?)",
+                jobId, multiplier, addend, new Timestamp(System.currentTimeMillis()));
+        //PK 인덱스를 한 번 훑어서 chunkSize번째 member_id마다 경계를 잡는다. 이후 추가된 회원도 열린 끝 구간에 포함된다.
+        List<String> bounds = template.queryForList("select member_id from " +
+                "(select member_id, row_number() over (order by member_id) rn from member) t " +
+                "where mod(rn, ?) = 1 and rn > 1 order by member_id", String.class, options.getChunkSize());
+        List<Object[]> args = new ArrayList<>();
+        for (int i = 0; i <= bounds.size(); i++) {
+            args.add(new Object[]{jobId, i, i == 0 ? null : bounds.get(i - 1), i == bounds.size() ? null : bounds.get(i)});
+        }
+        template.batchUpdate("insert into bulk_job_range(job_id, range_no, from_id, to_id) values(?, ?, ?, ?)", args);
+        return args.size();
+    }
+
+    /**
+     * 완료 표시를 먼저 해서 row 락을 잡는다. 같은 작업을 동시에 실행해도 한 쪽만 구간을 처리한다.
+     * 이미 완료된 구간이면 null
+     */
+    private Integer runRange(String jobId, int rangeNo, String fromId, String toId, BigDecimal multiplier, int addend) {
+        int claimed = template.update("update bulk_job_range set done_at = ? where job_id = ? and range_no = ? and done_at is null",
+                new Timestamp(System.currentTimeMillis()), jobId, rangeNo);
+        if (claimed == 0) {
+            return null;
+        }
+        int updated = repository.updateMoneyInRange(fromId, toId, multiplier, addend);
+        template.update("update bulk_job_range set updated_rows = ? where job_id = ? and range_no = ?", updated, jobId, rangeNo);
+        return updated;
+    }
+}
@@ -0,0 +1,20 @@
+package hello.jdbc.bulk;
+
+import lombok.Data;
+
+/**
+ * BulkBalanceJob 설정
+ */
+@Data
+public class BulkOptions {
+
+    /**
+     * 구간 하나의 회원 수, 한 트랜잭션에서 락을 거는 row 수다.
+     */
+    private int chunkSize = 1000;
+
+    /**
+     * 동시에 처리하는 구간 수, 커넥션 풀 크기보다 작아야 다른 요청이 커넥션을 얻을 수 있다.
+     */
+    private int parallelism = 4;
+}
@@ -0,0 +1,26 @@
+package hello.jdbc.bulk;
+
+import lombok.Getter;
+import lombok.ToString;
+
+@Getter
+@ToString
+public class BulkResult {
+
+    private final String jobId;
+    private final int totalRanges;
+    /**
+     * 이번 실행에서 처리한 구간 수, 나머지는 이전 실행에서 이미 완료됐다.
+     */
+    private final int executedRanges;
+    private final long updatedRows;
+    private final long elapsedMillis;
+
+    public BulkResult(String jobId, int totalRanges, int executedRanges, long updatedRows, long elapsedMillis) {
+        this.jobId = jobId;
+        this.totalRanges = totalRanges;
+        this.executedRanges = executedRanges;
+        this.updatedRows = updatedRows;
+        this.elapsedMillis = elapsedMillis;
+    }
+}
@@ -0,0 +1,251 @@
+package hello.jdbc.cache;
+
+import hello.jdbc.domain.Member;
+import hello.jdbc.repository.DelegatingMemberRepository;
+import hello.jdbc.repository.MemberRepository;
+import hello.jdbc.repository.UpsertResult;
+import hello.jdbc.repository.ex.MemberNotFoundException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * MemberRepository 앞단의 off-heap 잔고 캐시
+ * 조회 시 캐시에 없으면 target에서 읽어 채우고(read-through), 쓰기 시 캐시에서 제거한다(evict-on-write).
+ *
+ * 트랜잭션 안에서 쓴 키는 커밋/롤백 전까지 캐시를 거치지 않고, 트랜잭션 완료 시 한 번 더 제거한다.
+ * 그래야 다른 스레드가 커밋 전 값을 다시 채워 넣어도 완료 후에는 최신 값을 읽는다.
+ */
+@Slf4j
+public class CachedMemberRepository extends DelegatingMemberRepository {
+
+    private final OffHeapMemberStore store;
+
+    /**
+     * 제거가 일어날 때마다 증가한다. 조회 도중 제거가 있었다면 읽어온 값은 오래된 값일 수 있으므로 채우지 않는다.
+     */
+    private final AtomicLong invalidations = new AtomicLong();
+
+    public CachedMemberRepository(MemberRepository target, OffHeapMemberStore store) {
+        super(target);
+        this.store = store;
+    }
+
+    @Override
+    public Member save(Member member) {
+        Member saved = target.save(member);
+        evict(member.getMemberId());
+        return saved;
+    }
+
+    @Override
+    public Member findById(String memberId) {
+        boolean bypass = writtenInTransaction(memberId);
+        if (!bypass) {
+            long balance = store.get(memberId);
+            if (balance != OffHeapMemberStore.MISSING) {
+                return new Member(memberId, (int) balance);
+            }
+        }
+
+        long version = invalidations.get();
+        //회원 없음은 target에서 예외를 만들지 않고 여기서 스택 트레이스 없는 예외로 바꾼다.
+        Member member = target.findByIdOptional(memberId).orElseThrow(() -> new MemberNotFoundException(memberId));
+        if (!bypass) {
+            populate(memberId, member.getMoney(), version);
+        }
+        return member;
+    }
+
+    @Override
+    public Optional<Member> findByIdOptional(String memberId) {
+        boolean bypass = writtenInTransaction(memberId);
+        if (!bypass) {
+            long balance = store.get(memberId);
+            if (balance != OffHeapMemberStore.MISSING) {
+                return Optional.of(new Member(memberId, (int) balance));
+            }
+        }
+
+        long version = invalidations.get();
+        Optional<Member> member = target.findByIdOptional(memberId);
+        if (!bypass && member.isPresent()) {
+            populate(memberId, member.get().getMoney(), version);
+        }
+        return member;
+    }
+
+    @Override
+    public int findMoneyById(String memberId) {
+        boolean bypass = writtenInTransaction(memberId);
+        if (!bypass) {
+            long balance = store.get(memberId);
+            if (balance != OffHeapMemberStore.MISSING) {
+                return (int) balance;
+            }
+        }
+
+        long version = invalidations.get();
+        int money = target.findMoneyById(memberId);
+        if (!bypass) {
+            populate(memberId, money, version);
+        }
+        return money;
+    }
+
+    @Override
+    public boolean existsById(String memberId) {
+        if (!writtenInTransaction(memberId) && store.get(memberId) != OffHeapMemberStore.MISSING) {
+            return true;
+        }
+        return target.existsById(memberId);
+    }
+
+    @Override
+    public void update(String memberId, int money) {
+        target.update(memberId, money);
+        evict(memberId);
+    }
+
+    @Override
+    public void updateAll(Map<String, Integer> moneyById) {
+        target.updateAll(moneyById);
+        for (String memberId : moneyById.keySet()) {
+            evict(memberId);
+        }
+    }
+
+    @Override
+    public UpsertResult upsert(Member member) {
+        UpsertResult result = target.upsert(member);
+        evict(member.getMemberId());
+        return result;
+    }
+
+    @Override
+    public Map<String, UpsertResult> upsertAll(Map<String, Integer> moneyById) {
+        Map<String, UpsertResult> results = target.upsertAll(moneyById);
+        for (String memberId : moneyById.keySet()) {
+            evict(memberId);
+        }
+        return results;
+    }
+
+    @Override
+    public int updateMoneyInRange(String fromId, String toId, BigDecimal multiplier, int addend) {
+        int updated = target.updateMoneyInRange(fromId, toId, multiplier, addend);
+        evictRange(fromId, toId);
+        return updated;
+    }
+
+    @Override
+    public void delete(String memberId) {
+        target.delete(memberId);
+        evict(memberId);
+    }
+
+    public OffHeapMemberStore getStore() {
+        return store;
+    }
+
+    private void populate(String memberId, int money, long version) {
+        if (invalidations.get() != version) {
+            return;
+        }
+        store.put(memberId, money);
+        //확인과 put 사이에 제거가 끼어들었으면 방금 넣은 값이 오래된 값일 수 있으므로 다시 제거한다.
+        if (invalidations.get() != version) {
+            store.remove(memberId);
+        }
+    }
+
+    private boolean writtenInTransaction(String memberId) {
+        WrittenKeys written = writtenKeys(false);
+        return written != null && written.contains(memberId);
+    }
+
+    private void evict(String memberId) {
+        invalidations.incrementAndGet();
+        store.remove(memberId);
+
+        WrittenKeys written = writtenKeys(true);
+        if (written != null) {
+            written.keys.add(memberId);
+        }
+    }
+
+    /**
+     * 구간에 속한 키를 알 수 없으므로 캐시 전체를 비운다.
+     */
+    private void evictRange(String fromId, String toId) {
+        invalidations.incrementAndGet();
+        store.clear();
+
+        WrittenKeys written = writtenKeys(true);
+        if (written != null) {
+            written.ranges.add(new String[]{fromId, toId});
+        }
+    }
+
+    /**
+     * 현재 트랜잭션에서 쓴 키 목록, 트랜잭션 동기화가 활성화되지 않았으면 null
+     */
+    private WrittenKeys writtenKeys(boolean create) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return null;
+        }
+        WrittenKeys written = (WrittenKeys) TransactionSynchronizationManager.getResource(this);
+        if (written == null && create) {
+            WrittenKeys keys = new WrittenKeys();
+            TransactionSynchronizationManager.bindResource(this, keys);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    TransactionSynchronizationManager.unbindResourceIfPossible(CachedMemberRepository.this);
+                    invalidations.incrementAndGet();
+                    if (!keys.ranges.isEmpty()) {
+                        store.clear();
+                        log.debug("cleared cache after range update completion status={}", status);
+                        return;
+                    }
+                    for (String key : keys.keys) {
+                        store.remove(key);
+                    }
+                    log.debug("evicted {} keys after completion status={}", keys.keys.size(), status);
+                }
+            });
+            written = keys;
+        }
+        return written;
+    }
+
+    private static class WrittenKeys {
+
+        private final Set<String> keys = new HashSet<>();
+        /**
+         * updateMoneyInRange로 쓴 [fromId, toId) 구간
+         */
+        private final List<String[]> ranges = new ArrayList<>();
+
+        boolean contains(String memberId) {
+            if (keys.contains(memberId)) {
+                return true;
+            }
+            for (String[] range : ranges) {
+                if ((range[0] == null || memberId.compareTo(range[0]) >= 0) && (range[1] == null || memberId.compareTo(range[1]) < 0)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+}
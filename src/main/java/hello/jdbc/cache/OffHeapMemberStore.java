@@ -0,0 +1,397 @@
+package hello.jdbc.cache;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * member_id(UTF-8) -> int 잔고를 힙 밖(direct ByteBuffer)에 저장하는 open addressing 해시맵
+ *
+ * 세그먼트 단위로 락을 나누고(striped lock), 조회는 StampedLock의 낙관적 읽기로 락 없이 수행한다.
+ * 선형 탐사 + backward shift 삭제를 사용하므로 tombstone이 남지 않는다.
+ * 세그먼트가 가득 차면 CLOCK 알고리즘으로 최근에 조회되지 않은 항목을 제거한다.
+ *
+ * 슬롯 레이아웃(64byte)
+ * [0]hash(int) [4]state(byte) [5]referenced(byte) [6]keyLength(short) [8]balance(int) [12]key bytes
+ */
+public class OffHeapMemberStore {
+
+    public static final long MISSING = Long.MIN_VALUE;
+    public static final int MAX_KEY_BYTES = 52;
+
+    private static final int SLOT_SIZE = 64;
+    private static final int HASH_OFFSET = 0;
+    private static final int STATE_OFFSET = 4;
+    private static final int REF_OFFSET = 5;
+    private static final int KEY_LENGTH_OFFSET = 6;
+    private static final int BALANCE_OFFSET = 8;
+    private static final int KEY_OFFSET = 12;
+
+    private static final byte EMPTY = 0;
+    private static final byte USED = 1;
+
+    private static final float LOAD_FACTOR = 0.75f;
+    private static final int INITIAL_SLOTS = 64;
+
+    private final Segment[] segments;
+    private final int segmentShift;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    public OffHeapMemberStore(int maxEntries) {
+        this(maxEntries, 16);
+    }
+
+    public OffHeapMemberStore(int maxEntries, int concurrencyLevel) {
+        if (maxEntries <= 0) {
+            throw new IllegalArgumentException("maxEntries must be positive: " + maxEntries);
+        }
+        int segmentCount = powerOfTwo(Math.max(1, concurrencyLevel));
+        int maxPerSegment = (maxEntries + segmentCount - 1) / segmentCount;
+
+        this.segmentShift = 32 - Integer.numberOfTrailingZeros(segmentCount);
+        this.segments = new Segment[segmentCount];
+        for (int i = 0; i < segmentCount; i++) {
+            segments[i] = new Segment(maxPerSegment);
+        }
+    }
+
+    /**
+     * @return 잔고, 없으면 {@link #MISSING}
+     */
+    public long get(String memberId) {
+        byte[] key = encode(memberId);
+        if (key == null) {
+            misses.increment();
+            return MISSING;
+        }
+        int hash = hash(key);
+        long balance = segmentFor(hash).get(hash, key);
+        if (balance == MISSING) {
+            misses.increment();
+        } else {
+            hits.increment();
+        }
+        return balance;
+    }
+
+    /**
+     * 키가 {@link #MAX_KEY_BYTES}보다 길면 저장하지 않는다.
+     */
+    public void put(String memberId, int balance) {
+        byte[] key = encode(memberId);
+        if (key == null) {
+            return;
+        }
+        int hash = hash(key);
+        segmentFor(hash).put(hash, key, balance);
+    }
+
+    public boolean remove(String memberId) {
+        byte[] key = encode(memberId);
+        if (key == null) {
+            return false;
+        }
+        int hash = hash(key);
+        return segmentFor(hash).remove(hash, key);
+    }
+
+    public void clear() {
+        for (Segment segment : segments) {
+            segment.clear();
+        }
+    }
+
+    public int size() {
+        int size = 0;
+        for (Segment segment : segments) {
+            size += segment.size;
+        }
+        return size;
+    }
+
+    /**
+     * 현재 확보한 off-heap 메모리(byte)
+     */
+    public long memoryBytes() {
+        long bytes = 0;
+        for (Segment segment : segments) {
+            bytes += segment.table.capacity();
+        }
+        return bytes;
+    }
+
+    public long hitCount() {
+        return hits.sum();
+    }
+
+    public long missCount() {
+        return misses.sum();
+    }
+
+    public long evictionCount() {
+        return evictions.sum();
+    }
+
+    private Segment segmentFor(int hash) {
+        return segments.length == 1 ? segments[0] : segments[hash >>> segmentShift];
+    }
+
+    private static byte[] encode(String memberId) {
+        byte[] key = memberId.getBytes(StandardCharsets.UTF_8);
+        return key.length > MAX_KEY_BYTES ? null : key;
+    }
+
+    private static int hash(byte[] key) {
+        int h = 1;
+        for (byte b : key) {
+            h = 31 * h + b;
+        }
+        //murmur3 finalizer - 상위 비트는 세그먼트, 하위 비트는 슬롯 선택에 사용
+        h ^= h >>> 16;
+        h *= 0x85ebca6b;
+        h ^= h >>> 13;
+        h *= 0xc2b2ae35;
+        h ^= h >>> 16;
+        return h;
+    }
+
+    private static int powerOfTwo(int n) {
+        int highest = Integer.highestOneBit(n);
+        return highest == n ? n : highest << 1;
+    }
+
+    private final class Segment {
+
+        private final StampedLock lock = new StampedLock();
+        private final int maxEntries;
+        private final int maxSlots;
+
+        private volatile ByteBuffer table;
+        private volatile int size;
+        private int clockHand;
+
+        Segment(int maxEntries) {
+            this.maxEntries = maxEntries;
+            this.maxSlots = powerOfTwo(Math.max(2, (int) Math.ceil(maxEntries / LOAD_FACTOR)));
+            this.table = allocate(Math.min(INITIAL_SLOTS, maxSlots));
+        }
+
+        long get(int hash, byte[] key) {
+            long stamp = lock.tryOptimisticRead();
+            if (stamp != 0) {
+                long balance = find(table, hash, key);
+                if (lock.validate(stamp)) {
+                    return balance;
+                }
+            }
+            stamp = lock.readLock();
+            try {
+                return find(table, hash, key);
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+
+        void put(int hash, byte[] key, int balance) {
+            long stamp = lock.writeLock();
+            try {
+                ByteBuffer t = table;
+                int index = indexOf(t, hash, key);
+                if (index >= 0) {
+                    int base = index * SLOT_SIZE;
+                    t.putInt(base + BALANCE_OFFSET, balance);
+                    t.put(base + REF_OFFSET, (byte) 1);
+                    return;
+                }
+
+                if (size >= maxEntries) {
+                    evictOne(t);
+                } else if (size + 1 > slots(t) * LOAD_FACTOR && slots(t) < maxSlots) {
+                    t = resize(t);
+                }
+                insert(t, hash, key, balance, (byte) 1);
+                size++;
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+        }
+
+        boolean remove(int hash, byte[] key) {
+            long stamp = lock.writeLock();
+            try {
+                int index = indexOf(table, hash, key);
+                if (index < 0) {
+                    return false;
+                }
+                removeAt(table, index);
+                size--;
+                return true;
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+        }
+
+        void clear() {
+            long stamp = lock.writeLock();
+            try {
+                table = allocate(Math.min(INITIAL_SLOTS, maxSlots));
+                size = 0;
+                clockHand = 0;
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+        }
+
+        /**
+         * 낙관적 읽기 중에는 테이블이 동시에 바뀔 수 있으므로 탐사 횟수를 슬롯 수로 제한한다.
+         * 결과는 호출한 쪽에서 validate 한 뒤에만 사용한다.
+         */
+        private long find(ByteBuffer t, int hash, byte[] key) {
+            int mask = slots(t) - 1;
+            int index = hash & mask;
+            for (int probe = 0; probe <= mask; probe++) {
+                int base = index * SLOT_SIZE;
+                if (t.get(base + STATE_OFFSET) == EMPTY) {
+                    return MISSING;
+                }
+                if (t.getInt(base + HASH_OFFSET) == hash && keyEquals(t, base, key)) {
+                    int balance = t.getInt(base + BALANCE_OFFSET);
+                    //CLOCK 참조 비트, 경쟁 시 잘못된 슬롯에 기록되어도 제거 순서에만 영향을 준다.
+                    t.put(base + REF_OFFSET, (byte) 1);
+                    return balance;
+                }
+                index = (index + 1) & mask;
+            }
+            return MISSING;
+        }
+
+        private int indexOf(ByteBuffer t, int hash, byte[] key) {
+            int mask = slots(t) - 1;
+            int index = hash & mask;
+            for (int probe = 0; probe <= mask; probe++) {
+                int base = index * SLOT_SIZE;
+                if (t.get(base + STATE_OFFSET) == EMPTY) {
+                    return -1;
+                }
+                if (t.getInt(base + HASH_OFFSET) == hash && keyEquals(t, base, key)) {
+                    return index;
+                }
+                index = (index + 1) & mask;
+            }
+            return -1;
+        }
+
+        private void insert(ByteBuffer t, int hash, byte[] key, int balance, byte referenced) {
+            int mask = slots(t) - 1;
+            int index = hash & mask;
+            while (t.get(index * SLOT_SIZE + STATE_OFFSET) != EMPTY) {
+                index = (index + 1) & mask;
+            }
+            int base = index * SLOT_SIZE;
+            t.putInt(base + HASH_OFFSET, hash);
+            t.put(base + REF_OFFSET, referenced);
+            t.putShort(base + KEY_LENGTH_OFFSET, (short) key.length);
+            t.putInt(base + BALANCE_OFFSET, balance);
+            for (int i = 0; i < key.length; i++) {
+                t.put(base + KEY_OFFSET + i, key[i]);
+            }
+            //state는 마지막에 기록해서 낙관적 읽기가 반쯤 쓰인 슬롯을 보는 시간을 줄인다.
+            t.put(base + STATE_OFFSET, USED);
+        }
+
+        /**
+         * 선형 탐사용 backward shift 삭제
+         * 빈 자리 뒤의 항목 중 원래 위치(home)가 빈 자리 이전인 항목을 앞으로 당긴다.
+         */
+        private void removeAt(ByteBuffer t, int index) {
+            int mask = slots(t) - 1;
+            int hole = index;
+            int next = (hole + 1) & mask;
+            while (t.get(next * SLOT_SIZE + STATE_OFFSET) != EMPTY) {
+                int home = t.getInt(next * SLOT_SIZE + HASH_OFFSET) & mask;
+                if (((next - home) & mask) >= ((next - hole) & mask)) {
+                    copySlot(t, next, hole);
+                    hole = next;
+                }
+                next = (next + 1) & mask;
+            }
+            t.put(hole * SLOT_SIZE + STATE_OFFSET, EMPTY);
+        }
+
+        /**
+         * CLOCK - 참조 비트가 꺼진 첫 항목을 제거한다.
+         */
+        private void evictOne(ByteBuffer t) {
+            int mask = slots(t) - 1;
+            for (int step = 0; step <= 2 * mask + 1; step++) {
+                int index = clockHand;
+                clockHand = (clockHand + 1) & mask;
+                int base = index * SLOT_SIZE;
+                if (t.get(base + STATE_OFFSET) == EMPTY) {
+                    continue;
+                }
+                if (t.get(base + REF_OFFSET) != 0) {
+                    t.put(base + REF_OFFSET, (byte) 0);
+                    continue;
+                }
+                removeAt(t, index);
+                //당겨온 항목도 검사하도록 시계 바늘을 되돌린다.
+                clockHand = index;
+                size--;
+                evictions.increment();
+                return;
+            }
+        }
+
+        private ByteBuffer resize(ByteBuffer old) {
+            ByteBuffer t = allocate(slots(old) * 2);
+            for (int index = 0; index < slots(old); index++) {
+                int base = index * SLOT_SIZE;
+                if (old.get(base + STATE_OFFSET) == EMPTY) {
+                    continue;
+                }
+                byte[] key = new byte[old.getShort(base + KEY_LENGTH_OFFSET)];
+                for (int i = 0; i < key.length; i++) {
+                    key[i] = old.get(base + KEY_OFFSET + i);
+                }
+                insert(t, old.getInt(base + HASH_OFFSET), key, old.getInt(base + BALANCE_OFFSET), old.get(base + REF_OFFSET));
+            }
+            //이전 버퍼는 진행 중인 낙관적 읽기가 끝난 뒤 GC가 해제한다.
+            table = t;
+            clockHand = 0;
+            return t;
+        }
+
+        private boolean keyEquals(ByteBuffer t, int base, byte[] key) {
+            if (t.getShort(base + KEY_LENGTH_OFFSET) != key.length) {
+                return false;
+            }
+            for (int i = 0; i < key.length; i++) {
+                if (t.get(base + KEY_OFFSET + i) != key[i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private void copySlot(ByteBuffer t, int from, int to) {
+            int fromBase = from * SLOT_SIZE;
+            int toBase = to * SLOT_SIZE;
+            for (int i = 0; i < SLOT_SIZE; i += Long.BYTES) {
+                t.putLong(toBase + i, t.getLong(fromBase + i));
+            }
+        }
+
+        private int slots(ByteBuffer t) {
+            return t.capacity() / SLOT_SIZE;
+        }
+
+        private ByteBuffer allocate(int slots) {
+            return ByteBuffer.allocateDirect(slots * SLOT_SIZE);
+        }
+    }
+}
@@ -0,0 +1,309 @@
+package hello.jdbc.cache;
+
+import hello.jdbc.domain.Member;
+import hello.jdbc.repository.DelegatingMemberRepository;
+import hello.jdbc.repository.MemberRepository;
+import hello.jdbc.repository.UpsertResult;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.math.BigDecimal;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * 트랜잭션 범위 1차 캐시(identity map)
+ * 같은 트랜잭션 안에서 같은 회원을 다시 조회하면 DB 대신 메모리에서 돌려준다.
+ * 트랜잭션에서 한 save/update/delete는 캐시에도 반영하고, 커밋/롤백 시 캐시를 버린다.
+ *
+ * 캐시는 TransactionSynchronizationManager 리소스로 바인딩되며, 트랜잭션 밖에서는 target을 그대로 호출한다.
+ *
+ * writeBehind 모드에서는 트랜잭션 안의 update를 회원별로 모아 마지막 값만 남기고,
+ * 커밋 직전(beforeCommit)에 하나의 JDBC batch로 반영한다. 반영이 실패하면 커밋도 실패하고 롤백된다.
+ * 같은 트랜잭션에서 이 저장소를 거치지 않고 member 테이블을 직접 읽는 코드는 버퍼된 값을 보지 못하므로
+ * 필요하면 먼저 {@link #flush()}를 호출한다.
+ */
+@Slf4j
+public class TransactionScopedMemberRepository extends DelegatingMemberRepository {
+
+    private final boolean writeBehind;
+
+    public TransactionScopedMemberRepository(MemberRepository target) {
+        this(target, false);
+    }
+
+    public TransactionScopedMemberRepository(MemberRepository target, boolean writeBehind) {
+        super(target);
+        this.writeBehind = writeBehind;
+    }
+
+    @Override
+    public Member save(Member member) {
+        Member saved = target.save(member);
+        Context context = context();
+        if (context != null) {
+            context.balances.put(member.getMemberId(), member.getMoney());
+        }
+        return saved;
+    }
+
+    @Override
+    public Member findById(String memberId) {
+        Context context = context();
+        if (context == null) {
+            return target.findById(memberId);
+        }
+        Integer money = context.balances.get(memberId);
+        if (money != null) {
+            return new Member(memberId, money);
+        }
+        Member member = target.findById(memberId);
+        context.balances.put(memberId, member.getMoney());
+        return member;
+    }
+
+    @Override
+    public Optional<Member> findByIdOptional(String memberId) {
+        Context context = context();
+        if (context == null) {
+            return target.findByIdOptional(memberId);
+        }
+        Integer money = context.balances.get(memberId);
+        if (money != null) {
+            return Optional.of(new Member(memberId, money));
+        }
+        Optional<Member> member = target.findByIdOptional(memberId);
+        member.ifPresent(found -> context.balances.put(memberId, found.getMoney()));
+        return member;
+    }
+
+    @Override
+    public int findMoneyById(String memberId) {
+        Context context = context();
+        if (context == null) {
+            return target.findMoneyById(memberId);
+        }
+        Integer money = context.balances.get(memberId);
+        if (money != null) {
+            return money;
+        }
+        int found = target.findMoneyById(memberId);
+        context.balances.put(memberId, found);
+        return found;
+    }
+
+    @Override
+    public boolean existsById(String memberId) {
+        Context context = context();
+        if (context != null && context.balances.containsKey(memberId)) {
+            return true;
+        }
+        return target.existsById(memberId);
+    }
+
+    @Override
+    public void update(String memberId, int money) {
+        Context context = context();
+        if (context == null) {
+            target.update(memberId, money);
+            return;
+        }
+
+        //읽기 전용 트랜잭션에서는 버퍼하지 않으므로 커밋 전 flush도 할 일이 없다.
+        if (writeBehind && !TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            //존재하지 않는 회원의 update는 버퍼하지 않고 그대로 실행한다. (영향받는 row 없음)
+            if (context.balances.containsKey(memberId) || target.existsById(memberId)) {
+                context.pending.put(memberId, money);
+                context.balances.put(memberId, money);
+            } else {
+                target.update(memberId, money);
+            }
+            return;
+        }
+
+        target.update(memberId, money);
+        //캐시에 없던 회원은 실제로 존재하는지 모르므로 다음 조회 때 DB에서 읽는다.
+        if (context.balances.containsKey(memberId)) {
+            context.balances.put(memberId, money);
+        }
+    }
+
+    @Override
+    public void updateAll(Map<String, Integer> moneyById) {
+        Context context = context();
+        if (context != null) {
+            //버퍼된 값이 나중 값을 덮어쓰지 않도록 먼저 제거한다.
+            for (Map.Entry<String, Integer> entry : moneyById.entrySet()) {
+                context.pending.remove(entry.getKey());
+                if (context.balances.containsKey(entry.getKey())) {
+                    context.balances.put(entry.getKey(), entry.getValue());
+                }
+            }
+        }
+        target.updateAll(moneyById);
+    }
+
+    @Override
+    public UpsertResult upsert(Member member) {
+        Context context = context();
+        if (context != null) {
+            context.pending.remove(member.getMemberId());
+        }
+        UpsertResult result = target.upsert(member);
+        if (context != null) {
+            //upsert 이후에는 회원이 반드시 존재한다.
+            context.balances.put(member.getMemberId(), member.getMoney());
+        }
+        return result;
+    }
+
+    @Override
+    public Map<String, UpsertResult> upsertAll(Map<String, Integer> moneyById) {
+        Context context = context();
+        if (context != null) {
+            for (String memberId : moneyById.keySet()) {
+                context.pending.remove(memberId);
+            }
+        }
+        Map<String, UpsertResult> results = target.upsertAll(moneyById);
+        if (context != null) {
+            context.balances.putAll(moneyById);
+        }
+        return results;
+    }
+
+    /**
+     * DB의 현재 잔고로 계산하므로 버퍼된 update를 먼저 반영하고, 구간의 캐시된 잔고는 버린다.
+     */
+    @Override
+    public int updateMoneyInRange(String fromId, String toId, BigDecimal multiplier, int addend) {
+        Context context = context();
+        if (context != null) {
+            flush(context);
+            context.balances.keySet().removeIf(memberId ->
+                    (fromId == null || memberId.compareTo(fromId) >= 0) && (toId == null || memberId.compareTo(toId) < 0));
+        }
+        return target.updateMoneyInRange(fromId, toId, multiplier, addend);
+    }
+
+    @Override
+    public void delete(String memberId) {
+        Context context = context();
+        if (context != null) {
+            context.pending.remove(memberId);
+            context.balances.remove(memberId);
+        }
+        target.delete(memberId);
+    }
+
+    /**
+     * 범위 조회는 DB에서 처리하므로 버퍼된 update를 먼저 반영한다.
+     */
+    @Override
+    public List<Member> findByMoneyBetween(int min, int max, Member afterKey, int limit) {
+        flush();
+        return target.findByMoneyBetween(min, max, afterKey, limit);
+    }
+
+    @Override
+    public long countByMoneyBelow(int money) {
+        flush();
+        return target.countByMoneyBelow(money);
+    }
+
+    /**
+     * 현재 트랜잭션에 버퍼된 update를 즉시 반영한다.
+     */
+    public void flush() {
+        Context context = context();
+        if (context != null) {
+            flush(context);
+        }
+    }
+
+    private void flush(Context context) {
+        if (context.pending.isEmpty()) {
+            return;
+        }
+        log.debug("flush buffered updates size={}", context.pending.size());
+        Map<String, Integer> batch = new LinkedHashMap<>(context.pending);
+        context.pending.clear();
+        target.updateAll(batch);
+    }
+
+    /**
+     * 현재 트랜잭션의 캐시, 트랜잭션이 없으면 null
+     */
+    protected Context context() {
+        if (!TransactionSynchronizationManager.isActualTransactionActive()
+                || !TransactionSynchronizationManager.isSynchronizationActive()) {
+            return null;
+        }
+        Context context = (Context) TransactionSynchronizationManager.getResource(this);
+        if (context == null) {
+            context = new Context();
+            TransactionSynchronizationManager.bindResource(this, context);
+            TransactionSynchronizationManager.registerSynchronization(new ContextSynchronization(context));
+        }
+        return context;
+    }
+
+    protected static class Context {
+
+        protected final Map<String, Integer> balances = new HashMap<>();
+
+        /**
+         * 아직 반영하지 않은 update, 회원별 마지막 값만 유지
+         */
+        protected final Map<String, Integer> pending = new LinkedHashMap<>();
+    }
+
+    protected class ContextSynchronization implements TransactionSynchronization {
+
+        protected final Context context;
+
+        protected ContextSynchronization(Context context) {
+            this.context = context;
+        }
+
+        @Override
+        public void suspend() {
+            TransactionSynchronizationManager.unbindResource(TransactionScopedMemberRepository.this);
+        }
+
+        @Override
+        public void resume() {
+            TransactionSynchronizationManager.bindResource(TransactionScopedMemberRepository.this, context);
+        }
+
+        @Override
+        public void flush() {
+            TransactionScopedMemberRepository.this.flush(context);
+        }
+
+        /**
+         * 여기서 발생한 예외는 커밋을 실패시키고 트랜잭션 매니저가 롤백한다.
+         */
+        @Override
+        public void beforeCommit(boolean readOnly) {
+            if (readOnly) {
+                return;
+            }
+            TransactionScopedMemberRepository.this.flush(context);
+        }
+
+        @Override
+        public void afterCompletion(int status) {
+            TransactionSynchronizationManager.unbindResourceIfPossible(TransactionScopedMemberRepository.this);
+            if (!context.pending.isEmpty()) {
+                log.debug("discard buffered updates size={}, status={}", context.pending.size(), status);
+                context.pending.clear();
+            }
+            log.debug("transaction scoped cache discarded size={}, status={}", context.balances.size(), status);
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package hello.jdbc.deadline;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * 요청 하나의 마감 시각
+ *
+ * within으로 현재 스레드에 설정하면 DeadlineTransactionManager가 트랜잭션 타임아웃으로,
+ * DeadlineDataSource가 쿼리 타임아웃과 Statement.cancel로 바꿔서 적용한다.
+ * 중첩해서 설정하면 더 이른 마감 시각을 사용한다.
+ */
+public final class Deadline {
+
+    private static final ThreadLocal<Deadline> CURRENT = new ThreadLocal<>();
+
+    private final long expiresAtNanos;
+
+    private Deadline(long expiresAtNanos) {
+        this.expiresAtNanos = expiresAtNanos;
+    }
+
+    public static Deadline after(Duration timeout) {
+        return new Deadline(System.nanoTime() + timeout.toNanos());
+    }
+
+    /**
+     * 현재 스레드의 마감 시각, 없으면 null
+     */
+    public static Deadline current() {
+        return CURRENT.get();
+    }
+
+    public static <T> T within(Duration timeout, Supplier<T> call) {
+        Deadline outer = CURRENT.get();
+        Deadline deadline = after(timeout);
+        if (outer != null && outer.expiresAtNanos - deadline.expiresAtNanos < 0) {
+            deadline = outer;
+        }
+        CURRENT.set(deadline);
+        try {
+            return call.get();
+        } finally {
+            if (outer == null) {
+                CURRENT.remove();
+            } else {
+                CURRENT.set(outer);
+            }
+        }
+    }
+
+    public static void runWithin(Duration timeout, Runnable call) {
+        within(timeout, () -> {
+            call.run();
+            return null;
+        });
+    }
+
+    public long remainingNanos() {
+        return expiresAtNanos - System.nanoTime();
+    }
+
+    public boolean isExpired() {
+        return remainingNanos() <= 0;
+    }
+
+    /**
+     * JDBC/트랜잭션 타임아웃용 초 단위 남은 시간, 올림하고 최소 1초 (0은 타임아웃 없음을 의미하므로)
+     * 1초 미만의 정밀도는 DeadlineDataSource의 Statement.cancel이 맡는다.
+     */
+    public int remainingSeconds() {
+        long seconds = (TimeUnit.NANOSECONDS.toMillis(remainingNanos()) + 999) / 1000;
+        return (int) Math.max(1, Math.min(seconds, Integer.MAX_VALUE));
+    }
+
+    public void check(String task) {
+        if (isExpired()) {
+            throw new DeadlineExceededException("deadline exceeded before " + task);
+        }
+    }
+}
@@ -0,0 +1,157 @@
+package hello.jdbc.deadline;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.sql.Statement;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 현재 스레드의 Deadline을 Statement 실행에 적용한다.
+ *
+ * 1. 실행 전에 마감 시각이 지났으면 DB에 보내지 않고 SQLTimeoutException
+ * 2. 남은 시간(초, 올림)을 setQueryTimeout으로 설정 (이미 더 짧으면 유지)
+ * 3. 마감 시각에 Statement.cancel을 호출해서 실행 중인 쿼리를 취소하고 SQLTimeoutException으로 바꾼다.
+ *
+ * SQLTimeoutException은 SQLExceptionTranslator/JdbcTemplate에서 QueryTimeoutException으로 변환된다.
+ * Deadline이 없으면 아무것도 하지 않는다.
+ */
+@Slf4j
+public class DeadlineDataSource extends DelegatingDataSource {
+
+    private static final String QUERY_CANCELED = "57014";
+
+    private static final ScheduledThreadPoolExecutor canceller = new ScheduledThreadPoolExecutor(1, r -> {
+        Thread thread = new Thread(r, "statement-canceller");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    static {
+        //대부분의 쿼리는 마감 전에 끝나므로 취소된 타이머를 바로 제거한다.
+        canceller.setRemoveOnCancelPolicy(true);
+    }
+
+    public DeadlineDataSource(DataSource targetDataSource) {
+        super(targetDataSource);
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return wrap(super.getConnection());
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return wrap(super.getConnection(username, password));
+    }
+
+    private Connection wrap(Connection con) {
+        return (Connection) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class<?>[]{Connection.class}, new ConnectionHandler(con));
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getTargetException();
+        }
+    }
+
+    private static class ConnectionHandler implements InvocationHandler {
+
+        private final Connection target;
+
+        ConnectionHandler(Connection target) {
+            this.target = target;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            if (name.equals("unwrap") && ((Class<?>) args[0]).isInstance(target)) {
+                return target;
+            }
+            Object result = DeadlineDataSource.invoke(target, method, args);
+            if (name.equals("prepareStatement")) {
+                return statementProxy(PreparedStatement.class, (Statement) result);
+            }
+            if (name.equals("prepareCall")) {
+                return statementProxy(CallableStatement.class, (Statement) result);
+            }
+            if (name.equals("createStatement")) {
+                return statementProxy(Statement.class, (Statement) result);
+            }
+            return result;
+        }
+
+        private Object statementProxy(Class<?> type, Statement statement) {
+            return Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{type},
+                    new StatementHandler(statement));
+        }
+    }
+
+    private static class StatementHandler implements InvocationHandler {
+
+        private final Statement target;
+
+        StatementHandler(Statement target) {
+            this.target = target;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            Deadline deadline = Deadline.current();
+            if (deadline == null || !method.getName().startsWith("execute")) {
+                return DeadlineDataSource.invoke(target, method, args);
+            }
+
+            long remaining = deadline.remainingNanos();
+            if (remaining <= 0) {
+                throw new SQLTimeoutException("deadline exceeded before execute", QUERY_CANCELED);
+            }
+            int seconds = deadline.remainingSeconds();
+            int queryTimeout = target.getQueryTimeout();
+            if (queryTimeout == 0 || queryTimeout > seconds) {
+                target.setQueryTimeout(seconds);
+            }
+
+            AtomicBoolean cancelled = new AtomicBoolean();
+            ScheduledFuture<?> timer = canceller.schedule(() -> cancel(cancelled), remaining, TimeUnit.NANOSECONDS);
+            try {
+                return DeadlineDataSource.invoke(target, method, args);
+            } catch (SQLException e) {
+                if (cancelled.get() || deadline.isExpired()) {
+                    throw new SQLTimeoutException("deadline exceeded, statement cancelled", QUERY_CANCELED, e);
+                }
+                throw e;
+            } finally {
+                timer.cancel(false);
+            }
+        }
+
+        private void cancel(AtomicBoolean cancelled) {
+            cancelled.set(true);
+            try {
+                target.cancel();
+                log.info("statement cancelled at deadline");
+            } catch (SQLException e) {
+                log.warn("statement cancel failed", e);
+            }
+        }
+    }
+}
@@ -0,0 +1,14 @@
+package hello.jdbc.deadline;
+
+import org.springframework.dao.QueryTimeoutException;
+
+/**
+ * 마감 시각이 지나서 DB 작업을 시작하지 않았다.
+ * 취소된 쿼리가 변환된 예외와 같은 QueryTimeoutException으로 처리할 수 있다.
+ */
+public class DeadlineExceededException extends QueryTimeoutException {
+
+    public DeadlineExceededException(String msg) {
+        super(msg);
+    }
+}
@@ -0,0 +1,57 @@
+package hello.jdbc.deadline;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionException;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.DelegatingTransactionDefinition;
+
+/**
+ * 현재 스레드의 Deadline을 트랜잭션 타임아웃으로 바꿔서 target 트랜잭션 매니저에 넘긴다.
+ * 트랜잭션에 이미 더 짧은 타임아웃이 있으면 그대로 사용한다.
+ * DataSourceTransactionManager는 이 타임아웃을 커넥션 홀더에 기록하고, JdbcTemplate과
+ * DataSourceUtils.applyTransactionTimeout은 남은 시간을 쿼리 타임아웃으로 설정한다.
+ */
+@Slf4j
+public class DeadlineTransactionManager implements PlatformTransactionManager {
+
+    private final PlatformTransactionManager target;
+
+    public DeadlineTransactionManager(PlatformTransactionManager target) {
+        this.target = target;
+    }
+
+    @Override
+    public TransactionStatus getTransaction(TransactionDefinition definition) throws TransactionException {
+        Deadline deadline = Deadline.current();
+        if (deadline == null) {
+            return target.getTransaction(definition);
+        }
+        //커넥션을 획득하기 전에 실패
+        deadline.check("transaction begin");
+
+        TransactionDefinition base = definition != null ? definition : TransactionDefinition.withDefaults();
+        int remaining = deadline.remainingSeconds();
+        if (base.getTimeout() != TransactionDefinition.TIMEOUT_DEFAULT && base.getTimeout() <= remaining) {
+            return target.getTransaction(base);
+        }
+        log.debug("transaction timeout from deadline {}s name={}", remaining, base.getName());
+        return target.getTransaction(new DelegatingTransactionDefinition(base) {
+            @Override
+            public int getTimeout() {
+                return remaining;
+            }
+        });
+    }
+
+    @Override
+    public void commit(TransactionStatus status) throws TransactionException {
+        target.commit(status);
+    }
+
+    @Override
+    public void rollback(TransactionStatus status) throws TransactionException {
+        target.rollback(status);
+    }
+}
@@ -1,8 +1,10 @@
 package hello.jdbc.domain;
 
+import hello.jdbc.mapper.RowMapped;
 import lombok.Data;
 
 @Data
+@RowMapped
 public class Member {
 
     private String memberId;
@@ -0,0 +1,5 @@
+package hello.jdbc.export;
+
+public enum ExportCompression {
+    NONE, GZIP, LZ4
+}
@@ -0,0 +1,10 @@
+package hello.jdbc.export;
+
+/**
+ * 내보내기 포맷
+ * CSV - member_id,money 텍스트
+ * BINARY - [unsigned short 길이][member_id UTF-8 바이트][int money] 반복
+ */
+public enum ExportFormat {
+    CSV, BINARY
+}
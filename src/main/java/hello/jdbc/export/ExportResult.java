@@ -0,0 +1,32 @@
+package hello.jdbc.export;
+
+import lombok.Getter;
+import lombok.ToString;
+
+import java.nio.file.Path;
+
+@Getter
+@ToString
+public class ExportResult {
+
+    private final Path path;
+    private final long rowCount;
+    private final long bytesWritten;
+    private final long elapsedMillis;
+
+    public ExportResult(Path path, long rowCount, long bytesWritten, long elapsedMillis) {
+        this.path = path;
+        this.rowCount = rowCount;
+        this.bytesWritten = bytesWritten;
+        this.elapsedMillis = elapsedMillis;
+    }
+
+    public double rowsPerSecond() {
+        return elapsedMillis == 0 ? rowCount : rowCount * 1000.0 / elapsedMillis;
+    }
+
+    public double megabytesPerSecond() {
+        double mb = bytesWritten / (1024.0 * 1024.0);
+        return elapsedMillis == 0 ? mb : mb * 1000.0 / elapsedMillis;
+    }
+}
@@ -0,0 +1,167 @@
+package hello.jdbc.export;
+
+import hello.jdbc.repository.ex.MyDbException;
+import lombok.extern.slf4j.Slf4j;
+import net.jpountz.lz4.LZ4FrameOutputStream;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.DefaultTransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * member 테이블 전체를 하나의 읽기 전용 트랜잭션(일관된 스냅샷)에서 파일로 내보낸다.
+ * 결과는 fetchSize 단위로 스트리밍하므로 테이블 크기와 무관하게 힙 사용량이 일정하다.
+ */
+@Slf4j
+public class MemberExporter {
+
+    private static final String SQL = "select member_id, money from member order by member_id";
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final int FETCH_SIZE = 1000;
+
+    private final JdbcTemplate template;
+    private final TransactionTemplate txTemplate;
+
+    public MemberExporter(DataSource dataSource, PlatformTransactionManager transactionManager) {
+        this.template = new JdbcTemplate(dataSource);
+        this.template.setFetchSize(FETCH_SIZE);
+
+        DefaultTransactionDefinition definition = new DefaultTransactionDefinition();
+        definition.setReadOnly(true);
+        //트랜잭션 내 모든 조회가 같은 스냅샷을 보도록 한다. 읽기 전용이므로 이체를 막지 않는다.
+        definition.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+        this.txTemplate = new TransactionTemplate(transactionManager, definition);
+    }
+
+    public ExportResult export(Path path, ExportFormat format, ExportCompression compression) {
+        long startTime = System.currentTimeMillis();
+
+        try (FileChannel channel = FileChannel.open(path,
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+
+            long rowCount;
+            try (DataOutputStream out = new DataOutputStream(open(channel, compression))) {
+                RowWriter writer = format == ExportFormat.CSV ? new CsvRowWriter(out) : new BinaryRowWriter(out);
+                rowCount = txTemplate.execute(status -> {
+                    template.query(SQL, (RowCallbackHandler) rs -> writer.write(rs.getString(1), rs.getInt(2)));
+                    return writer.count();
+                });
+            }
+
+            long elapsed = System.currentTimeMillis() - startTime;
+            //스트림을 닫으면 channel도 닫히므로 크기는 파일에서 읽는다.
+            ExportResult result = new ExportResult(path, rowCount, Files.size(path), elapsed);
+            log.info("export done path={}, format={}, compression={}, rows={}, bytes={}, elapsed={}ms, rows/s={}, MB/s={}",
+                    path, format, compression, result.getRowCount(), result.getBytesWritten(), elapsed,
+                    String.format("%.0f", result.rowsPerSecond()), String.format("%.2f", result.megabytesPerSecond()));
+            return result;
+        } catch (IOException e) {
+            throw new MyDbException("member export failed path=" + path, e);
+        } catch (UncheckedIOException e) {
+            throw new MyDbException("member export failed path=" + path, e.getCause());
+        }
+    }
+
+    private OutputStream open(FileChannel channel, ExportCompression compression) throws IOException {
+        //Channels.newOutputStream은 스트림을 닫을 때 channel도 닫는다. (스트림 생성 전 실패는 호출한 쪽의 try-with-resources가 닫는다)
+        OutputStream out = new BufferedOutputStream(Channels.newOutputStream(channel), BUFFER_SIZE);
+        switch (compression) {
+            case GZIP:
+                return new BufferedOutputStream(new GZIPOutputStream(out, BUFFER_SIZE), BUFFER_SIZE);
+            case LZ4:
+                return new BufferedOutputStream(new LZ4FrameOutputStream(out), BUFFER_SIZE);
+            default:
+                return out;
+        }
+    }
+
+    private abstract static class RowWriter {
+
+        protected final DataOutputStream out;
+        private long count;
+
+        RowWriter(DataOutputStream out) {
+            this.out = out;
+        }
+
+        void write(String memberId, int money) {
+            try {
+                writeRow(memberId.getBytes(StandardCharsets.UTF_8), money);
+                count++;
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        long count() {
+            return count;
+        }
+
+        abstract void writeRow(byte[] memberId, int money) throws IOException;
+    }
+
+    private static class CsvRowWriter extends RowWriter {
+
+        CsvRowWriter(DataOutputStream out) {
+            super(out);
+        }
+
+        @Override
+        void writeRow(byte[] memberId, int money) throws IOException {
+            if (needsQuote(memberId)) {
+                out.write('"');
+                for (byte b : memberId) {
+                    if (b == '"') {
+                        out.write('"');
+                    }
+                    out.write(b);
+                }
+                out.write('"');
+            } else {
+                out.write(memberId);
+            }
+            out.write(',');
+            out.writeBytes(Integer.toString(money));
+            out.write('\n');
+        }
+
+        private boolean needsQuote(byte[] value) {
+            for (byte b : value) {
+                if (b == ',' || b == '"' || b == '\n' || b == '\r') {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    private static class BinaryRowWriter extends RowWriter {
+
+        BinaryRowWriter(DataOutputStream out) {
+            super(out);
+        }
+
+        @Override
+        void writeRow(byte[] memberId, int money) throws IOException {
+            out.writeShort(memberId.length);
+            out.write(memberId);
+            out.writeInt(money);
+        }
+    }
+}
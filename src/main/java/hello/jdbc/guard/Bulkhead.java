@@ -0,0 +1,58 @@
+package hello.jdbc.guard;
+
+import hello.jdbc.repository.ex.DbUnavailableException;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 동시 실행 수 제한
+ * 한도를 넘으면 커넥션 풀 대기열에 쌓이지 않고 maxWait 후 바로 실패한다.
+ */
+public class Bulkhead {
+
+    private final String name;
+    private final int maxConcurrent;
+    private final long maxWaitNanos;
+    private final Semaphore semaphore;
+    private final AtomicLong rejected = new AtomicLong();
+
+    public Bulkhead(String name, int maxConcurrent, long maxWaitMillis) {
+        this.name = name;
+        this.maxConcurrent = maxConcurrent;
+        this.maxWaitNanos = TimeUnit.MILLISECONDS.toNanos(maxWaitMillis);
+        this.semaphore = new Semaphore(maxConcurrent);
+    }
+
+    public void acquire() {
+        boolean acquired;
+        try {
+            acquired = semaphore.tryAcquire(maxWaitNanos, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            acquired = false;
+        }
+        if (!acquired) {
+            rejected.incrementAndGet();
+            throw new DbUnavailableException(DbUnavailableException.Reason.BULKHEAD_FULL,
+                    "bulkhead full name=" + name + ", maxConcurrent=" + maxConcurrent);
+        }
+    }
+
+    public void release() {
+        semaphore.release();
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getActive() {
+        return maxConcurrent - semaphore.availablePermits();
+    }
+
+    public long getRejected() {
+        return rejected.get();
+    }
+}
@@ -0,0 +1,175 @@
+package hello.jdbc.guard;
+
+import hello.jdbc.repository.ex.DbUnavailableException;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * 서킷 브레이커
+ *
+ * CLOSED: 최근 windowSize 번의 호출 중 실패율 또는 느린 호출 비율이 기준을 넘으면 OPEN
+ * OPEN: 모든 호출을 DB에 보내지 않고 바로 실패, openMillis가 지나면 HALF_OPEN
+ * HALF_OPEN: halfOpenCalls 번의 시험 호출만 허용, 모두 정상이면 CLOSED, 하나라도 실패하거나 느리면 다시 OPEN
+ *
+ * 호출 한 번에 상태 확인과 결과 기록이 각각 한 번이므로 단순하게 synchronized로 처리한다.
+ * 상태가 바뀔 때마다 세대(generation)가 증가하고, 허용할 때 받은 세대와 다른 세대의 결과는 무시한다.
+ * (CLOSED에서 시작한 느린 호출이 HALF_OPEN 시험 호출로 집계되지 않도록)
+ */
+@Slf4j
+public class CircuitBreaker {
+
+    private static final byte SUCCESS = 0;
+    private static final byte FAILURE = 1;
+    private static final byte SLOW = 2;
+
+    private final String name;
+    private final GuardOptions options;
+    private final long slowCallNanos;
+    private final long openNanos;
+    private final LongSupplier nanoClock;
+
+    private final Map<CircuitState, AtomicLong> transitions = new EnumMap<>(CircuitState.class);
+    private final AtomicLong notPermitted = new AtomicLong();
+
+    private CircuitState state = CircuitState.CLOSED;
+    private long generation;
+    private long openedAt;
+
+    //CLOSED 상태의 최근 호출 결과 (원형 버퍼)
+    private final byte[] window;
+    private int next;
+    private int calls;
+    private int failures;
+    private int slowCalls;
+
+    //HALF_OPEN 상태
+    private int halfOpenPermitted;
+    private int halfOpenSucceeded;
+
+    public CircuitBreaker(String name, GuardOptions options) {
+        this(name, options, System::nanoTime);
+    }
+
+    CircuitBreaker(String name, GuardOptions options, LongSupplier nanoClock) {
+        this.name = name;
+        this.options = options;
+        this.slowCallNanos = TimeUnit.MILLISECONDS.toNanos(options.getSlowCallMillis());
+        this.openNanos = TimeUnit.MILLISECONDS.toNanos(options.getOpenMillis());
+        this.nanoClock = nanoClock;
+        this.window = new byte[options.getWindowSize()];
+        for (CircuitState value : CircuitState.values()) {
+            transitions.put(value, new AtomicLong());
+        }
+    }
+
+    /**
+     * 호출 전에 확인한다. 허용된 호출은 반드시 반환된 세대와 함께 onResult로 결과를 기록해야 한다.
+     */
+    public synchronized long acquirePermission() {
+        if (state == CircuitState.OPEN) {
+            if (nanoClock.getAsLong() - openedAt < openNanos) {
+                reject();
+            }
+            transition(CircuitState.HALF_OPEN);
+        }
+        if (state == CircuitState.HALF_OPEN) {
+            if (halfOpenPermitted >= options.getHalfOpenCalls()) {
+                reject();
+            }
+            halfOpenPermitted++;
+        }
+        return generation;
+    }
+
+    public synchronized void onResult(long permission, long elapsedNanos, boolean failure) {
+        if (permission != generation) {
+            return; //상태가 바뀌기 전에 허용된 호출
+        }
+        byte outcome = failure ? FAILURE : elapsedNanos >= slowCallNanos ? SLOW : SUCCESS;
+
+        if (state == CircuitState.HALF_OPEN) {
+            if (outcome != SUCCESS) {
+                transition(CircuitState.OPEN);
+            } else if (++halfOpenSucceeded >= options.getHalfOpenCalls()) {
+                transition(CircuitState.CLOSED);
+            }
+            return;
+        }
+
+        if (calls == window.length) {
+            remove(window[next]);
+        } else {
+            calls++;
+        }
+        window[next] = outcome;
+        next = (next + 1) % window.length;
+        if (outcome == FAILURE) {
+            failures++;
+        } else if (outcome == SLOW) {
+            slowCalls++;
+        }
+
+        if (calls >= options.getMinimumCalls()
+                && (failures * 100 >= options.getFailureRateThreshold() * calls
+                || slowCalls * 100 >= options.getSlowCallRateThreshold() * calls)) {
+            log.warn("circuit opening name={}, calls={}, failures={}, slowCalls={}", name, calls, failures, slowCalls);
+            transition(CircuitState.OPEN);
+        }
+    }
+
+    public synchronized CircuitState getState() {
+        return state;
+    }
+
+    public synchronized double getFailureRate() {
+        return calls == 0 ? 0 : failures * 100.0 / calls;
+    }
+
+    public synchronized double getSlowCallRate() {
+        return calls == 0 ? 0 : slowCalls * 100.0 / calls;
+    }
+
+    public long getTransitions(CircuitState to) {
+        return transitions.get(to).get();
+    }
+
+    public long getNotPermitted() {
+        return notPermitted.get();
+    }
+
+    private void reject() {
+        notPermitted.incrementAndGet();
+        throw new DbUnavailableException(DbUnavailableException.Reason.CIRCUIT_OPEN,
+                "circuit " + state + " name=" + name);
+    }
+
+    private void remove(byte outcome) {
+        if (outcome == FAILURE) {
+            failures--;
+        } else if (outcome == SLOW) {
+            slowCalls--;
+        }
+    }
+
+    private void transition(CircuitState to) {
+        log.info("circuit state changed name={}, {} -> {}", name, state, to);
+        state = to;
+        generation++;
+        transitions.get(to).incrementAndGet();
+
+        calls = 0;
+        next = 0;
+        failures = 0;
+        slowCalls = 0;
+        halfOpenPermitted = 0;
+        halfOpenSucceeded = 0;
+        if (to == CircuitState.OPEN) {
+            openedAt = nanoClock.getAsLong();
+        }
+    }
+}
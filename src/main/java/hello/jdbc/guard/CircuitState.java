@@ -0,0 +1,5 @@
+package hello.jdbc.guard;
+
+public enum CircuitState {
+    CLOSED, OPEN, HALF_OPEN
+}
@@ -0,0 +1,174 @@
+package hello.jdbc.guard;
+
+import hello.jdbc.repository.ex.DbUnavailableException;
+import hello.jdbc.repository.ex.MyDbException;
+import hello.jdbc.repository.ex.MyDuplicateKeyException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.NonTransientDataAccessResourceException;
+import org.springframework.dao.TransientDataAccessException;
+import org.springframework.transaction.CannotCreateTransactionException;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.function.Supplier;
+
+/**
+ * DB 보호 계층 - 격벽(bulkhead) + 서킷 브레이커
+ *
+ * 조회와 변경(이체)은 서로 다른 격벽을 사용하므로 조회가 몰려도 이체는 실행된다.
+ * DB가 느려지거나 실패가 늘면 서킷을 열어 DbUnavailableException으로 바로 실패시킨다.
+ *
+ * 이체처럼 여러 쿼리를 하나의 트랜잭션으로 묶는 경우 트랜잭션 전체를 write로 감싼다.
+ * 보호 구간 안에서 다시 호출된 read/write(트랜잭션 안의 저장소 호출)는 그대로 실행한다.
+ */
+@Slf4j
+public class DbGuard implements DbGuardMXBean {
+
+    private final Bulkhead readBulkhead;
+    private final Bulkhead writeBulkhead;
+    private final CircuitBreaker circuitBreaker;
+    private final ThreadLocal<Boolean> guarded = ThreadLocal.withInitial(() -> false);
+
+    public DbGuard(String name, GuardOptions options) {
+        this(new Bulkhead(name + "-read", options.getReadConcurrency(), options.getMaxWaitMillis()),
+                new Bulkhead(name + "-write", options.getWriteConcurrency(), options.getMaxWaitMillis()),
+                new CircuitBreaker(name, options));
+    }
+
+    DbGuard(Bulkhead readBulkhead, Bulkhead writeBulkhead, CircuitBreaker circuitBreaker) {
+        this.readBulkhead = readBulkhead;
+        this.writeBulkhead = writeBulkhead;
+        this.circuitBreaker = circuitBreaker;
+    }
+
+    public <T> T read(Supplier<T> call) {
+        return execute(readBulkhead, call);
+    }
+
+    public <T> T write(Supplier<T> call) {
+        return execute(writeBulkhead, call);
+    }
+
+    public void writeWithoutResult(Runnable call) {
+        execute(writeBulkhead, () -> {
+            call.run();
+            return null;
+        });
+    }
+
+    /**
+     * 현재 스레드가 read/write 보호 구간 안에서 실행 중인지
+     */
+    public boolean isGuarded() {
+        return guarded.get();
+    }
+
+    public CircuitBreaker getCircuitBreaker() {
+        return circuitBreaker;
+    }
+
+    private <T> T execute(Bulkhead bulkhead, Supplier<T> call) {
+        if (guarded.get()) {
+            return call.get();
+        }
+
+        //격벽에서 거절된 호출은 서킷 결과에 포함하지 않도록 격벽을 먼저 통과한다.
+        bulkhead.acquire();
+        try {
+            long permission = circuitBreaker.acquirePermission();
+            guarded.set(true);
+            long start = System.nanoTime();
+            try {
+                T result = call.get();
+                circuitBreaker.onResult(permission, System.nanoTime() - start, false);
+                return result;
+            } catch (RuntimeException | Error e) {
+                circuitBreaker.onResult(permission, System.nanoTime() - start, isFailure(e));
+                throw e;
+            } finally {
+                guarded.set(false);
+            }
+        } finally {
+            bulkhead.release();
+        }
+    }
+
+    /**
+     * DB 상태와 관련된 예외만 실패로 센다. 리소스 장애(DataAccessResourceFailureException 등),
+     * 일시적 오류(QueryTimeoutException, 락 실패 등), 트랜잭션 시작 실패, 저장소의 MyDbException
+     * 키 중복, 회원 없음(EmptyResultDataAccessException 등), 비즈니스 예외는 정상 응답이다.
+     */
+    static boolean isFailure(Throwable e) {
+        if (e instanceof DbUnavailableException || e instanceof MyDuplicateKeyException) {
+            return false;
+        }
+        return e instanceof MyDbException
+                || e instanceof TransientDataAccessException
+                || e instanceof NonTransientDataAccessResourceException
+                || e instanceof CannotCreateTransactionException;
+    }
+
+    @Override
+    public String getCircuitState() {
+        return circuitBreaker.getState().name();
+    }
+
+    @Override
+    public long getTransitionsToOpen() {
+        return circuitBreaker.getTransitions(CircuitState.OPEN);
+    }
+
+    @Override
+    public long getTransitionsToHalfOpen() {
+        return circuitBreaker.getTransitions(CircuitState.HALF_OPEN);
+    }
+
+    @Override
+    public long getTransitionsToClosed() {
+        return circuitBreaker.getTransitions(CircuitState.CLOSED);
+    }
+
+    @Override
+    public long getCircuitRejected() {
+        return circuitBreaker.getNotPermitted();
+    }
+
+    @Override
+    public double getFailureRate() {
+        return circuitBreaker.getFailureRate();
+    }
+
+    @Override
+    public double getSlowCallRate() {
+        return circuitBreaker.getSlowCallRate();
+    }
+
+    @Override
+    public int getReadActive() {
+        return readBulkhead.getActive();
+    }
+
+    @Override
+    public long getReadRejected() {
+        return readBulkhead.getRejected();
+    }
+
+    @Override
+    public int getWriteActive() {
+        return writeBulkhead.getActive();
+    }
+
+    @Override
+    public long getWriteRejected() {
+        return writeBulkhead.getRejected();
+    }
+
+    public void registerMBean(String name) {
+        try {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(this, new ObjectName("hello.jdbc:type=DbGuard,name=" + name));
+        } catch (JMException e) {
+            throw new IllegalStateException("failed to register db guard mbean name=" + name, e);
+        }
+    }
+}
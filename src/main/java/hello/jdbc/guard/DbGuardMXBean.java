@@ -0,0 +1,29 @@
+package hello.jdbc.guard;
+
+/**
+ * JMX 관리 인터페이스 - 서킷 상태, 상태 전이 횟수, 격벽별 사용량/거절 수
+ */
+public interface DbGuardMXBean {
+
+    String getCircuitState();
+
+    long getTransitionsToOpen();
+
+    long getTransitionsToHalfOpen();
+
+    long getTransitionsToClosed();
+
+    long getCircuitRejected();
+
+    double getFailureRate();
+
+    double getSlowCallRate();
+
+    int getReadActive();
+
+    long getReadRejected();
+
+    int getWriteActive();
+
+    long getWriteRejected();
+}
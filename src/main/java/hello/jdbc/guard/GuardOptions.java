@@ -0,0 +1,44 @@
+package hello.jdbc.guard;
+
+import lombok.Data;
+
+/**
+ * DbGuard 설정
+ */
+@Data
+public class GuardOptions {
+
+    /**
+     * 조회 동시 실행 한도
+     */
+    private int readConcurrency = 32;
+
+    /**
+     * 이체 등 변경 작업 동시 실행 한도, 조회가 몰려도 이체 자리는 남겨둔다.
+     */
+    private int writeConcurrency = 8;
+
+    /**
+     * 동시 실행 한도에 걸렸을 때 기다리는 최대 시간, 넘으면 바로 실패
+     */
+    private long maxWaitMillis = 50;
+
+    /**
+     * 최근 windowSize 번의 호출로 실패율/느린 호출 비율을 계산한다.
+     */
+    private int windowSize = 100;
+    private int minimumCalls = 20;
+    private int failureRateThreshold = 50;
+    private int slowCallRateThreshold = 80;
+    private long slowCallMillis = 1000;
+
+    /**
+     * 서킷이 열린 뒤 반열림(half-open)으로 넘어가기까지의 시간
+     */
+    private long openMillis = 5000;
+
+    /**
+     * 반열림 상태에서 허용하는 시험 호출 수, 모두 성공하면 서킷을 닫는다.
+     */
+    private int halfOpenCalls = 5;
+}
@@ -0,0 +1,60 @@
+package hello.jdbc.guard;
+
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * 서킷이 열려 있으면 커넥션 풀에서 기다리지 않고 바로 DbUnavailableException을 던진다.
+ * DbUnavailableException은 런타임 예외이므로 DataSourceUtils를 그대로 통과한다.
+ *
+ * DbGuard 보호 구간 밖(JdbcTemplate 직접 사용 등)의 커넥션 획득은 성공/실패/지연을 서킷에 기록한다.
+ * 보호 구간 안에서는 DbGuard가 이미 확인하고 기록하므로 그대로 통과시킨다.
+ */
+public class GuardedDataSource extends DelegatingDataSource {
+
+    private final DbGuard guard;
+
+    public GuardedDataSource(DataSource targetDataSource, DbGuard guard) {
+        super(targetDataSource);
+        this.guard = guard;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        if (guard.isGuarded()) {
+            return super.getConnection();
+        }
+        CircuitBreaker circuitBreaker = guard.getCircuitBreaker();
+        long permission = circuitBreaker.acquirePermission();
+        long start = System.nanoTime();
+        try {
+            Connection con = super.getConnection();
+            circuitBreaker.onResult(permission, System.nanoTime() - start, false);
+            return con;
+        } catch (SQLException | RuntimeException e) {
+            circuitBreaker.onResult(permission, System.nanoTime() - start, true);
+            throw e;
+        }
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        if (guard.isGuarded()) {
+            return super.getConnection(username, password);
+        }
+        CircuitBreaker circuitBreaker = guard.getCircuitBreaker();
+        long permission = circuitBreaker.acquirePermission();
+        long start = System.nanoTime();
+        try {
+            Connection con = super.getConnection(username, password);
+            circuitBreaker.onResult(permission, System.nanoTime() - start, false);
+            return con;
+        } catch (SQLException | RuntimeException e) {
+            circuitBreaker.onResult(permission, System.nanoTime() - start, true);
+            throw e;
+        }
+    }
+}
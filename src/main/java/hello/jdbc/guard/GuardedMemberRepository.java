@@ -0,0 +1,89 @@
+package hello.jdbc.guard;
+
+import hello.jdbc.domain.Member;
+import hello.jdbc.repository.DelegatingMemberRepository;
+import hello.jdbc.repository.MemberRepository;
+import hello.jdbc.repository.UpsertResult;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * 조회는 read 격벽, 변경은 write 격벽을 거쳐서 target을 호출한다.
+ */
+public class GuardedMemberRepository extends DelegatingMemberRepository {
+
+    private final DbGuard guard;
+
+    public GuardedMemberRepository(MemberRepository target, DbGuard guard) {
+        super(target);
+        this.guard = guard;
+    }
+
+    @Override
+    public Member save(Member member) {
+        return guard.write(() -> target.save(member));
+    }
+
+    @Override
+    public Member findById(String memberId) {
+        return guard.read(() -> target.findById(memberId));
+    }
+
+    @Override
+    public Optional<Member> findByIdOptional(String memberId) {
+        return guard.read(() -> target.findByIdOptional(memberId));
+    }
+
+    @Override
+    public void update(String memberId, int money) {
+        guard.writeWithoutResult(() -> target.update(memberId, money));
+    }
+
+    @Override
+    public void updateAll(Map<String, Integer> moneyById) {
+        guard.writeWithoutResult(() -> target.updateAll(moneyById));
+    }
+
+    @Override
+    public UpsertResult upsert(Member member) {
+        return guard.write(() -> target.upsert(member));
+    }
+
+    @Override
+    public Map<String, UpsertResult> upsertAll(Map<String, Integer> moneyById) {
+        return guard.write(() -> target.upsertAll(moneyById));
+    }
+
+    @Override
+    public int updateMoneyInRange(String fromId, String toId, BigDecimal multiplier, int addend) {
+        return guard.write(() -> target.updateMoneyInRange(fromId, toId, multiplier, addend));
+    }
+
+    @Override
+    public void delete(String memberId) {
+        guard.writeWithoutResult(() -> target.delete(memberId));
+    }
+
+    @Override
+    public int findMoneyById(String memberId) {
+        return guard.read(() -> target.findMoneyById(memberId));
+    }
+
+    @Override
+    public boolean existsById(String memberId) {
+        return guard.read(() -> target.existsById(memberId));
+    }
+
+    @Override
+    public List<Member> findByMoneyBetween(int min, int max, Member afterKey, int limit) {
+        return guard.read(() -> target.findByMoneyBetween(min, max, afterKey, limit));
+    }
+
+    @Override
+    public long countByMoneyBelow(int money) {
+        return guard.read(() -> target.countByMoneyBelow(money));
+    }
+}
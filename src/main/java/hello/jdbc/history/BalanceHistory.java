@@ -0,0 +1,132 @@
+package hello.jdbc.history;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
+
+import javax.sql.DataSource;
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 시점별 잔고 조회
+ *
+ * 주기적으로 member 전체를 스냅샷으로 복사하고, 그 사이의 변경은 변경 로그(balance_change, BalanceHistorySink)에 쌓는다.
+ * 변경 로그는 변경 후 잔고를 기록하므로 T 시점 잔고는
+ * T 이전의 가장 가까운 스냅샷 이후 ~ T 사이의 마지막 변경, 변경이 없으면 스냅샷 값이다.
+ * 변경 시각은 커밋 전에 정해지므로 스냅샷보다 maxCommitLag만큼 앞선 변경부터 읽는다.
+ * 스냅샷 이전에 커밋된 변경이 다시 읽혀도 스냅샷 값과 같으므로 결과는 달라지지 않는다.
+ * 모든 조회가 인덱스 탐색 한 번씩(스냅샷 찾기, 마지막 변경, 스냅샷 값)이므로 이력이 쌓여도 조회 시간이 일정하다.
+ */
+@Slf4j
+public class BalanceHistory {
+
+    private final JdbcTemplate template;
+    private final HistoryOptions options;
+    private ScheduledExecutorService scheduler;
+
+    public BalanceHistory(DataSource dataSource, HistoryOptions options) {
+        this.template = new JdbcTemplate(dataSource);
+        this.options = options;
+    }
+
+    /**
+     * instant 시점의 잔고, 회원이 없었거나 보관 기간 이전이면 빈 값
+     */
+    public Optional<Integer> findBalanceAsOf(String memberId, Instant instant) {
+        Timestamp asOf = Timestamp.from(instant);
+        List<Map<String, Object>> snapshots = template.queryForList(
+                "select snapshot_id, taken_at from balance_snapshot where taken_at <= ? order by taken_at desc limit 1", asOf);
+        Long snapshotId = snapshots.isEmpty() ? null : ((Number) snapshots.get(0).get("snapshot_id")).longValue();
+        Timestamp takenAt = snapshots.isEmpty() ? new Timestamp(0) : (Timestamp) snapshots.get(0).get("taken_at");
+
+        //스냅샷 이후 마지막 변경, 스냅샷 시각 전에 기록됐지만 스냅샷 이후에 커밋된 변경도 포함한다.
+        Timestamp changedAfter = snapshotId == null ? takenAt : new Timestamp(takenAt.getTime() - options.getMaxCommitLagMillis());
+        List<Integer> changes = template.query("select money from balance_change " +
+                        "where member_id = ? and changed_at > ? and changed_at <= ? order by changed_at desc, change_id desc limit 1",
+                (rs, rowNum) -> {
+                    int money = rs.getInt(1);
+                    return rs.wasNull() ? null : money;
+                }, memberId, changedAfter, asOf);
+        if (!changes.isEmpty()) {
+            return Optional.ofNullable(changes.get(0));
+        }
+        if (snapshotId == null) {
+            return Optional.empty();
+        }
+        List<Integer> money = template.queryForList("select money from balance_snapshot_item where snapshot_id = ? and member_id = ?",
+                Integer.class, snapshotId, memberId);
+        return money.stream().findFirst();
+    }
+
+    /**
+     * member 전체를 한 문장으로 복사한다. (문장 하나는 일관된 시점을 읽는다)
+     */
+    public long takeSnapshot() {
+        long start = System.currentTimeMillis();
+        KeyHolder keyHolder = new GeneratedKeyHolder();
+        template.update(con -> {
+            PreparedStatement ps = con.prepareStatement("insert into balance_snapshot(taken_at) values(?)", new String[]{"snapshot_id"});
+            ps.setTimestamp(1, new Timestamp(System.currentTimeMillis()));
+            return ps;
+        }, keyHolder);
+        long snapshotId = keyHolder.getKey().longValue();
+        int rows = template.update("insert into balance_snapshot_item(snapshot_id, member_id, money) " +
+                "select ?, member_id, money from member", snapshotId);
+        log.info("balance snapshot id={}, rows={}, elapsed={}ms", snapshotId, rows, System.currentTimeMillis() - start);
+        return snapshotId;
+    }
+
+    /**
+     * 보관 기간이 지난 스냅샷과, 남은 가장 오래된 스냅샷 이전의 변경 로그를 삭제한다.
+     */
+    public void purge() {
+        Timestamp cutoff = new Timestamp(System.currentTimeMillis() - options.getRetentionMillis());
+        //cutoff 시점을 조회하려면 cutoff 이전의 마지막 스냅샷은 남겨야 한다.
+        Long keepFrom = template.queryForObject("select max(snapshot_id) from balance_snapshot where taken_at <= ?", Long.class, cutoff);
+        if (keepFrom == null) {
+            return;
+        }
+        int items = template.update("delete from balance_snapshot_item where snapshot_id < ?", keepFrom);
+        int snapshots = template.update("delete from balance_snapshot where snapshot_id < ?", keepFrom);
+        Timestamp keptTakenAt = template.queryForObject("select taken_at from balance_snapshot where snapshot_id = ?", Timestamp.class, keepFrom);
+        //남은 스냅샷 조회에 필요한 maxCommitLag 구간의 변경은 남긴다.
+        int changes = template.update("delete from balance_change where changed_at <= ?",
+                new Timestamp(keptTakenAt.getTime() - options.getMaxCommitLagMillis()));
+        log.info("balance history purged snapshots={}, items={}, changes={}", snapshots, items, changes);
+    }
+
+    public synchronized void start() {
+        if (scheduler != null) {
+            return;
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "balance-snapshot");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(() -> {
+            try {
+                takeSnapshot();
+                purge();
+            } catch (RuntimeException e) {
+                log.warn("balance snapshot failed", e);
+            }
+        }, options.getSnapshotIntervalMillis(), options.getSnapshotIntervalMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    public synchronized void stop() {
+        if (scheduler != null) {
+            scheduler.shutdown();
+            scheduler = null;
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package hello.jdbc.history;
+
+import hello.jdbc.outbox.BalanceEvent;
+import hello.jdbc.outbox.BalanceEventSink;
+import hello.jdbc.outbox.BalanceEventType;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.sql.DataSource;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * outbox 릴레이가 발행한 잔고 변경 이벤트를 변경 로그(balance_change)에 추가한다.
+ * change_id는 outbox의 event_id이므로 같은 이벤트가 다시 발행되어도 한 번만 기록된다.
+ */
+public class BalanceHistorySink implements BalanceEventSink {
+
+    private final JdbcTemplate template;
+
+    public BalanceHistorySink(DataSource dataSource) {
+        this.template = new JdbcTemplate(dataSource);
+    }
+
+    @Override
+    public void publish(List<BalanceEvent> events) {
+        List<Object[]> args = new ArrayList<>(events.size());
+        for (BalanceEvent event : events) {
+            Integer money = event.getType() == BalanceEventType.DELETED ? null : event.getMoney();
+            args.add(new Object[]{event.getEventId(), event.getMemberId(), money, Timestamp.from(event.getCreatedAt())});
+        }
+        template.batchUpdate("merge into balance_change(change_id, member_id, money, changed_at) key(change_id) values(?, ?, ?, ?)", args);
+    }
+}
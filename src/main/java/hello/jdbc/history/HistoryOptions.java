@@ -0,0 +1,28 @@
+package hello.jdbc.history;
+
+import lombok.Data;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * BalanceHistory 설정
+ */
+@Data
+public class HistoryOptions {
+
+    /**
+     * 스냅샷 주기, 조회 시 스냅샷 이후의 변경 로그만 읽는다.
+     */
+    private long snapshotIntervalMillis = TimeUnit.HOURS.toMillis(1);
+
+    /**
+     * 이 기간보다 오래된 스냅샷과 변경 로그는 삭제한다. 이보다 이전 시점은 조회할 수 없다.
+     */
+    private long retentionMillis = TimeUnit.DAYS.toMillis(90);
+
+    /**
+     * 변경 시각(outbox created_at)과 커밋 사이의 최대 지연
+     * 스냅샷 직전 시각으로 기록됐지만 스냅샷 이후에 커밋된 변경은 스냅샷에 없으므로, 스냅샷 이후 조회 시 이만큼 앞의 변경 로그부터 읽는다.
+     */
+    private long maxCommitLagMillis = TimeUnit.MINUTES.toMillis(1);
+}
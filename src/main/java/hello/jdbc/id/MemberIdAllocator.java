@@ -0,0 +1,94 @@
+package hello.jdbc.id;
+
+import hello.jdbc.repository.MemberSchema;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.sql.DataSource;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 회원 ID 할당 (hi/lo)
+ *
+ * DB 시퀀스 값 하나(hi)로 blockSize 개의 ID 블록 [hi * blockSize, (hi + 1) * blockSize)를 예약하고,
+ * 블록 안의 ID는 메모리에서 CAS로 나눠준다. DB 왕복은 블록이 소진될 때만 발생한다.
+ * 시퀀스는 재시작 후에도 이어지므로 ID가 재사용되지 않는다. 재시작 시 쓰지 않은 블록 나머지는 버려진다.
+ *
+ * ID 형식: prefix + 36진수 값(width 자리까지 0으로 채움), 예) prefix="m", width=6 -> m00002s
+ */
+@Slf4j
+public class MemberIdAllocator {
+
+    //member.member_id varchar(10)
+    public static final int MAX_ID_LENGTH = 10;
+
+    private final JdbcTemplate template;
+    private final String prefix;
+    private final int width;
+    private final int blockSize;
+
+    private volatile Block block = Block.EMPTY;
+
+    public MemberIdAllocator(DataSource dataSource, String prefix, int width, int blockSize) {
+        if (prefix.length() + width > MAX_ID_LENGTH) {
+            throw new IllegalArgumentException("id too long prefix=" + prefix + ", width=" + width);
+        }
+        if (blockSize < 1) {
+            throw new IllegalArgumentException("blockSize=" + blockSize);
+        }
+        this.template = new JdbcTemplate(dataSource);
+        this.prefix = prefix;
+        this.width = width;
+        this.blockSize = blockSize;
+    }
+
+    public String nextId() {
+        return format(nextValue());
+    }
+
+    public long nextValue() {
+        while (true) {
+            Block current = block;
+            long value = current.next.getAndIncrement();
+            if (value < current.end) {
+                return value;
+            }
+            refill(current);
+        }
+    }
+
+    String format(long value) {
+        String digits = Long.toString(value, Character.MAX_RADIX);
+        if (prefix.length() + digits.length() > MAX_ID_LENGTH) {
+            throw new IllegalStateException("member id space exhausted value=" + value);
+        }
+        StringBuilder sb = new StringBuilder(MAX_ID_LENGTH).append(prefix);
+        for (int i = digits.length(); i < width; i++) {
+            sb.append('0');
+        }
+        return sb.append(digits).toString();
+    }
+
+    private synchronized void refill(Block exhausted) {
+        if (block != exhausted) {
+            return; //다른 스레드가 이미 새 블록을 받아 왔다.
+        }
+        Long hi = template.queryForObject("select next value for " + MemberSchema.ID_SEQUENCE, Long.class);
+        long start = Math.multiplyExact(hi, (long) blockSize);
+        block = new Block(start, start + blockSize);
+        log.debug("member id block reserved [{}, {})", start, start + blockSize);
+    }
+
+    private static final class Block {
+
+        static final Block EMPTY = new Block(0, 0);
+
+        final AtomicLong next;
+        final long end;
+
+        Block(long start, long end) {
+            this.next = new AtomicLong(start);
+            this.end = end;
+        }
+    }
+}
@@ -0,0 +1,20 @@
+package hello.jdbc.monitor;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * DataSource.getConnection 대기 시간, 커넥션 풀 고갈을 찾는 데 사용한다.
+ */
+@Name("hello.jdbc.ConnectionAcquire")
+@Label("Connection Acquire")
+@Category({"hello.jdbc", "JDBC"})
+@Description("Time spent waiting in DataSource.getConnection")
+class ConnectionAcquireEvent extends Event {
+
+    @Label("Success")
+    boolean success;
+}
@@ -0,0 +1,292 @@
+package hello.jdbc.monitor;
+
+import lombok.extern.slf4j.Slf4j;
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 커넥션 획득 위치와 보유 시간 기록, 누수 탐지
+ *
+ * 획득 위치는 JDBC/스프링/프록시 프레임과 저장소의 getConnection 헬퍼를 건너뛴 첫 애플리케이션 프레임(서비스, 저장소 메서드)이다.
+ * 트랜잭션 매니저의 doBegin에서 얻는 커넥션(@Transactional)은 트랜잭션을 시작한 프록시 메서드(서비스 메서드)가 획득 위치다.
+ * 반환(close) 시 호출 지점별 히스토그램에 보유 시간을 기록하고, threshold를 넘으면 획득 스택과 함께 로그를 남긴다.
+ * 반환되지 않은 커넥션은 checkLeaks(주기 실행 가능)가 threshold를 넘은 시점에 한 번 보고하고,
+ * 보고 후 leakRetention이 지나도 반환되지 않으면 추적을 멈춘다. (누수가 쌓여도 open이 계속 커지지 않도록)
+ */
+@Slf4j
+public class ConnectionTracker implements ConnectionTrackerMXBean {
+
+    private static final StackWalker STACK_WALKER = StackWalker.getInstance(StackWalker.Option.RETAIN_CLASS_REFERENCE);
+
+    private static final String[] SKIPPED_PREFIXES = {
+            "hello.jdbc.monitor.", "java.", "javax.", "jdk.", "sun.", "com.sun.", "com.zaxxer.",
+            "org.springframework.", "org.h2.", "net.bytebuddy."
+    };
+
+    private final Map<Long, Lease> open = new ConcurrentHashMap<>();
+    private final Map<String, Site> sites = new ConcurrentHashMap<>();
+    private final AtomicLong sequence = new AtomicLong();
+    private final AtomicLong leakCount = new AtomicLong();
+    private final boolean captureStack;
+    private volatile long holdThresholdNanos;
+    private volatile long leakRetentionNanos;
+    private ScheduledExecutorService leakDetector;
+
+    /**
+     * @param captureStack 획득 시 전체 스택을 저장할지, 누수 위치를 정확히 보여주지만 획득마다 비용이 든다.
+     */
+    public ConnectionTracker(long holdThresholdMillis, boolean captureStack) {
+        this(holdThresholdMillis, captureStack, TimeUnit.MINUTES.toMillis(10));
+    }
+
+    /**
+     * @param leakRetentionMillis 누수로 보고한 커넥션을 이 시간 뒤에 추적 대상에서 뺀다. 이후에 반환되면 보유 시간을 기록하지 않는다.
+     */
+    public ConnectionTracker(long holdThresholdMillis, boolean captureStack, long leakRetentionMillis) {
+        this.holdThresholdNanos = TimeUnit.MILLISECONDS.toNanos(holdThresholdMillis);
+        this.captureStack = captureStack;
+        this.leakRetentionNanos = TimeUnit.MILLISECONDS.toNanos(leakRetentionMillis);
+    }
+
+    Lease acquired() {
+        Throwable stack = captureStack ? new Throwable("connection acquired here") : null;
+        Lease lease = new Lease(sequence.incrementAndGet(), callSite(), System.nanoTime(), Thread.currentThread().getName(), stack);
+        open.put(lease.id, lease);
+        return lease;
+    }
+
+    void released(Lease lease) {
+        if (open.remove(lease.id) == null) {
+            return; //이미 반환
+        }
+        long held = System.nanoTime() - lease.acquiredAt;
+        Site site = sites.computeIfAbsent(lease.site, key -> new Site());
+        site.histogram.recordValue(Math.max(TimeUnit.NANOSECONDS.toMicros(held), 0));
+        site.totalNanos.add(held);
+
+        if (held > holdThresholdNanos) {
+            site.overThreshold.increment();
+            if (!lease.reported) {
+                log.warn("connection held {}ms site={} thread={}", TimeUnit.NANOSECONDS.toMillis(held),
+                        lease.site, lease.thread, lease.stack);
+            }
+        }
+    }
+
+    @Override
+    public int checkLeaks() {
+        long now = System.nanoTime();
+        int found = 0;
+        for (Lease lease : open.values()) {
+            long held = now - lease.acquiredAt;
+            if (lease.reported) {
+                if (now - lease.reportedAt > leakRetentionNanos && open.remove(lease.id) != null) {
+                    log.warn("connection not returned, stop tracking after {}ms site={} thread={}",
+                            TimeUnit.NANOSECONDS.toMillis(held), lease.site, lease.thread);
+                }
+                continue;
+            }
+            if (held > holdThresholdNanos) {
+                lease.reportedAt = now;
+                lease.reported = true;
+                leakCount.incrementAndGet();
+                found++;
+                log.warn("connection not returned for {}ms site={} thread={}", TimeUnit.NANOSECONDS.toMillis(held),
+                        lease.site, lease.thread, lease.stack);
+            }
+        }
+        return found;
+    }
+
+    /**
+     * 데몬 스레드에서 주기적으로 checkLeaks를 실행한다.
+     */
+    public synchronized void startLeakDetection(long periodMillis) {
+        if (leakDetector != null) {
+            return;
+        }
+        leakDetector = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "connection-leak-detector");
+            thread.setDaemon(true);
+            return thread;
+        });
+        leakDetector.scheduleWithFixedDelay(this::checkLeaks, periodMillis, periodMillis, TimeUnit.MILLISECONDS);
+    }
+
+    public synchronized void stopLeakDetection() {
+        if (leakDetector != null) {
+            leakDetector.shutdownNow();
+            leakDetector = null;
+        }
+    }
+
+    @Override
+    public List<HoldTimeSnapshot> getSites() {
+        List<HoldTimeSnapshot> snapshots = new ArrayList<>();
+        for (Map.Entry<String, Site> e : sites.entrySet()) {
+            Histogram histogram = e.getValue().histogram.copy();
+            snapshots.add(new HoldTimeSnapshot(e.getKey(), histogram.getTotalCount(),
+                    TimeUnit.NANOSECONDS.toMicros(e.getValue().totalNanos.sum()),
+                    histogram.getValueAtPercentile(50), histogram.getValueAtPercentile(99), histogram.getMaxValue(),
+                    e.getValue().overThreshold.sum()));
+        }
+        snapshots.sort(Comparator.comparingLong(HoldTimeSnapshot::getTotalMicros).reversed());
+        return snapshots;
+    }
+
+    /**
+     * 호출 지점별 보유 시간을 전체 보유 시간이 큰 순서로 로그에 남긴다.
+     */
+    public void report() {
+        for (HoldTimeSnapshot snapshot : getSites()) {
+            log.info("site={} count={} totalMs={} p50={}us p99={}us max={}us overThreshold={}",
+                    snapshot.getSite(), snapshot.getCount(), snapshot.getTotalMicros() / 1000, snapshot.getP50Micros(),
+                    snapshot.getP99Micros(), snapshot.getMaxMicros(), snapshot.getOverThresholdCount());
+        }
+    }
+
+    @Override
+    public int getOpenConnections() {
+        return open.size();
+    }
+
+    @Override
+    public long getLeakCount() {
+        return leakCount.get();
+    }
+
+    @Override
+    public long getHoldThresholdMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(holdThresholdNanos);
+    }
+
+    @Override
+    public void setHoldThresholdMillis(long holdThresholdMillis) {
+        this.holdThresholdNanos = TimeUnit.MILLISECONDS.toNanos(holdThresholdMillis);
+    }
+
+    @Override
+    public long getLeakRetentionMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(leakRetentionNanos);
+    }
+
+    @Override
+    public void setLeakRetentionMillis(long leakRetentionMillis) {
+        this.leakRetentionNanos = TimeUnit.MILLISECONDS.toNanos(leakRetentionMillis);
+    }
+
+    @Override
+    public void reset() {
+        sites.clear();
+        leakCount.set(0);
+    }
+
+    public void registerMBean(String name) {
+        try {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(this, new ObjectName("hello.jdbc:type=ConnectionTracker,name=" + name));
+        } catch (JMException e) {
+            throw new IllegalStateException("failed to register connection tracker mbean name=" + name, e);
+        }
+    }
+
+    static String callSite() {
+        return STACK_WALKER.walk(frames -> {
+            boolean beginning = false;
+            for (Iterator<StackWalker.StackFrame> it = frames.iterator(); it.hasNext(); ) {
+                StackWalker.StackFrame f = it.next();
+                String className = f.getClassName();
+                if (f.getMethodName().equals("doBegin") && className.endsWith("TransactionManager")) {
+                    //트랜잭션 시작 중, 그대로 두면 서비스를 호출한 쪽이 획득 위치가 된다.
+                    beginning = true;
+                    continue;
+                }
+                if (beginning && proxy(className)) {
+                    return proxiedName(f.getDeclaringClass()) + "." + f.getMethodName();
+                }
+                if (!skipped(className) && !f.getMethodName().equals("getConnection")) {
+                    return simpleName(className) + "." + f.getMethodName() + ":" + f.getLineNumber();
+                }
+            }
+            return "unknown";
+        });
+    }
+
+    private static boolean skipped(String className) {
+        if (proxy(className)) {
+            return true;
+        }
+        for (String prefix : SKIPPED_PREFIXES) {
+            if (className.startsWith(prefix)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * CGLIB, JDK 프록시
+     */
+    private static boolean proxy(String className) {
+        return className.contains("$$") || className.startsWith("com.sun.proxy.") || className.contains("$Proxy");
+    }
+
+    /**
+     * 프록시가 감싼 타입 이름, CGLIB는 상위 클래스, JDK 프록시는 첫 인터페이스
+     */
+    private static String proxiedName(Class<?> proxyClass) {
+        if (Proxy.isProxyClass(proxyClass) && proxyClass.getInterfaces().length > 0) {
+            return proxyClass.getInterfaces()[0].getSimpleName();
+        }
+        Class<?> type = proxyClass;
+        while (type.getName().contains("$$") && type.getSuperclass() != null) {
+            type = type.getSuperclass();
+        }
+        return type.getSimpleName();
+    }
+
+    private static String simpleName(String className) {
+        return className.substring(className.lastIndexOf('.') + 1);
+    }
+
+    static class Lease {
+
+        final long id;
+        final String site;
+        final long acquiredAt;
+        final String thread;
+        final Throwable stack;
+        volatile boolean reported;
+        volatile long reportedAt;
+
+        Lease(long id, String site, long acquiredAt, String thread, Throwable stack) {
+            this.id = id;
+            this.site = site;
+            this.acquiredAt = acquiredAt;
+            this.thread = thread;
+            this.stack = stack;
+        }
+    }
+
+    private static class Site {
+
+        final Histogram histogram = new ConcurrentHistogram(3);
+        final LongAdder totalNanos = new LongAdder();
+        final LongAdder overThreshold = new LongAdder();
+    }
+}
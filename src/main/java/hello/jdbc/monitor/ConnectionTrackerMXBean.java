@@ -0,0 +1,31 @@
+package hello.jdbc.monitor;
+
+import java.util.List;
+
+/**
+ * JMX 관리 인터페이스 - 호출 지점별 커넥션 보유 시간, 반환되지 않은 커넥션
+ */
+public interface ConnectionTrackerMXBean {
+
+    List<HoldTimeSnapshot> getSites();
+
+    int getOpenConnections();
+
+    long getLeakCount();
+
+    long getHoldThresholdMillis();
+
+    void setHoldThresholdMillis(long holdThresholdMillis);
+
+    long getLeakRetentionMillis();
+
+    void setLeakRetentionMillis(long leakRetentionMillis);
+
+    /**
+     * 지금 threshold보다 오래 열려 있는 커넥션을 로그로 남긴다.
+     * 보고한 뒤 leakRetention이 지나도 열려 있으면 추적을 멈춘다.
+     */
+    int checkLeaks();
+
+    void reset();
+}
@@ -0,0 +1,46 @@
+package hello.jdbc.monitor;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+import java.sql.SQLException;
+
+/**
+ * SQLException을 애플리케이션 예외로 변환한 기록
+ */
+@Name("hello.jdbc.ExceptionTranslation")
+@Label("SQL Exception Translation")
+@Category({"hello.jdbc", "JDBC"})
+@Description("SQLException translated to a data access exception")
+public class ExceptionTranslationEvent extends Event {
+
+    @Label("Task")
+    String task;
+
+    @Label("SQL State")
+    String sqlState;
+
+    @Label("Error Code")
+    int errorCode;
+
+    @Label("Translated To")
+    Class<?> translatedType;
+
+    /**
+     * 기록 중이 아니면 아무것도 만들지 않는다.
+     */
+    public static void emit(String task, SQLException ex, RuntimeException translated) {
+        ExceptionTranslationEvent event = new ExceptionTranslationEvent();
+        if (!event.isEnabled()) {
+            return;
+        }
+        event.task = task;
+        event.sqlState = ex.getSQLState();
+        event.errorCode = ex.getErrorCode();
+        event.translatedType = translated != null ? translated.getClass() : null;
+        event.commit();
+    }
+}
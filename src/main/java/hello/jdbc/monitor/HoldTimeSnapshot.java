@@ -0,0 +1,38 @@
+package hello.jdbc.monitor;
+
+import lombok.Getter;
+import lombok.ToString;
+
+import java.beans.ConstructorProperties;
+
+/**
+ * 커넥션을 획득한 위치(호출 지점) 하나의 커넥션 보유 시간 통계
+ */
+@Getter
+@ToString
+public class HoldTimeSnapshot {
+
+    private final String site;
+    private final long count;
+    private final long totalMicros;
+    private final long p50Micros;
+    private final long p99Micros;
+    private final long maxMicros;
+    private final long overThresholdCount;
+
+    @ConstructorProperties({"site", "count", "totalMicros", "p50Micros", "p99Micros", "maxMicros", "overThresholdCount"})
+    public HoldTimeSnapshot(String site, long count, long totalMicros, long p50Micros, long p99Micros, long maxMicros,
+                            long overThresholdCount) {
+        this.site = site;
+        this.count = count;
+        this.totalMicros = totalMicros;
+        this.p50Micros = p50Micros;
+        this.p99Micros = p99Micros;
+        this.maxMicros = maxMicros;
+        this.overThresholdCount = overThresholdCount;
+    }
+
+    public double getAverageMicros() {
+        return count == 0 ? 0 : (double) totalMicros / count;
+    }
+}
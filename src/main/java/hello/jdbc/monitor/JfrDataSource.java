@@ -0,0 +1,230 @@
+package hello.jdbc.monitor;
+
+import jdk.jfr.EventType;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * 커넥션 획득 대기({@link ConnectionAcquireEvent})와 SQL 실행({@link StatementEvent})을 JFR 이벤트로 기록한다.
+ * 저장소에 원래 DataSource 대신 넘겨서 사용한다.
+ *
+ * 커넥션을 얻을 때 Statement 이벤트가 꺼져 있으면 프록시를 만들지 않고 원래 커넥션을 그대로 돌려준다.
+ * 기록 중이 아닐 때의 비용은 isEnabled 확인 몇 번이다.
+ */
+public class JfrDataSource extends DelegatingDataSource {
+
+    private static final EventType ACQUIRE_TYPE = EventType.getEventType(ConnectionAcquireEvent.class);
+    private static final EventType STATEMENT_TYPE = EventType.getEventType(StatementEvent.class);
+
+    public JfrDataSource(DataSource targetDataSource) {
+        super(targetDataSource);
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return acquire(super::getConnection);
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return acquire(() -> super.getConnection(username, password));
+    }
+
+    private Connection acquire(ConnectionSource source) throws SQLException {
+        if (!ACQUIRE_TYPE.isEnabled()) {
+            return wrap(source.get());
+        }
+        ConnectionAcquireEvent event = new ConnectionAcquireEvent();
+        event.begin();
+        try {
+            Connection con = source.get();
+            event.success = true;
+            return wrap(con);
+        } finally {
+            event.commit();
+        }
+    }
+
+    private Connection wrap(Connection con) {
+        if (!STATEMENT_TYPE.isEnabled()) {
+            return con;
+        }
+        return (Connection) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class<?>[]{Connection.class}, new ConnectionHandler(con));
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getTargetException();
+        }
+    }
+
+    private static String sqlId(String sql) {
+        return Integer.toHexString(SqlStatsRegistry.normalize(sql).hashCode());
+    }
+
+    private interface ConnectionSource {
+
+        Connection get() throws SQLException;
+    }
+
+    private static class ConnectionHandler implements InvocationHandler {
+
+        private final Connection target;
+
+        ConnectionHandler(Connection target) {
+            this.target = target;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            if (name.equals("unwrap") && ((Class<?>) args[0]).isInstance(target)) {
+                return target;
+            }
+            Object result = JfrDataSource.invoke(target, method, args);
+            if (name.equals("prepareStatement")) {
+                return statementProxy(PreparedStatement.class, (Statement) result, (String) args[0]);
+            }
+            if (name.equals("prepareCall")) {
+                return statementProxy(CallableStatement.class, (Statement) result, (String) args[0]);
+            }
+            if (name.equals("createStatement")) {
+                return statementProxy(Statement.class, (Statement) result, null);
+            }
+            return result;
+        }
+
+        private Object statementProxy(Class<?> type, Statement statement, String sql) {
+            return Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{type},
+                    new StatementHandler(statement, sql));
+        }
+    }
+
+    private static class StatementHandler implements InvocationHandler {
+
+        private final Statement target;
+        private final String preparedSql;
+        private String preparedSqlId;
+
+        StatementHandler(Statement target, String preparedSql) {
+            this.target = target;
+            this.preparedSql = preparedSql;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            if (!name.startsWith("execute")) {
+                return JfrDataSource.invoke(target, method, args);
+            }
+
+            StatementEvent event = new StatementEvent();
+            event.begin();
+            Object result;
+            Throwable failure = null;
+            try {
+                result = JfrDataSource.invoke(target, method, args);
+            } catch (Throwable e) {
+                failure = e;
+                throw e;
+            } finally {
+                //실패한 실행(타임아웃, 락 대기 실패 등)도 기록한다.
+                if (failure != null && event.isEnabled()) {
+                    describe(event, name, args);
+                    event.failed = true;
+                    event.errorCode = failure instanceof SQLException ? ((SQLException) failure).getErrorCode() : 0;
+                    event.commit();
+                }
+            }
+            if (!event.isEnabled()) {
+                return result;
+            }
+
+            describe(event, name, args);
+            if (result instanceof ResultSet) {
+                //조회는 ResultSet을 다 읽고 닫을 때 기록한다.
+                return Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{ResultSet.class},
+                        new ResultSetHandler((ResultSet) result, event));
+            }
+            event.rows = rows(result);
+            event.commit();
+            return result;
+        }
+
+        private void describe(StatementEvent event, String name, Object[] args) {
+            boolean direct = args != null && args.length > 0 && args[0] instanceof String;
+            event.sql = direct ? (String) args[0] : preparedSql;
+            event.sqlId = direct ? sqlId(event.sql) : preparedSqlId();
+            event.batch = name.equals("executeBatch") || name.equals("executeLargeBatch");
+        }
+
+        private String preparedSqlId() {
+            if (preparedSql == null) {
+                return null;
+            }
+            if (preparedSqlId == null) {
+                preparedSqlId = sqlId(preparedSql);
+            }
+            return preparedSqlId;
+        }
+
+        private long rows(Object result) {
+            if (result instanceof Integer) {
+                return (Integer) result;
+            }
+            if (result instanceof Long) {
+                return (Long) result;
+            }
+            if (result instanceof int[]) {
+                long sum = 0;
+                for (int count : (int[]) result) {
+                    sum += Math.max(count, 0);
+                }
+                return sum;
+            }
+            return 0;
+        }
+    }
+
+    private static class ResultSetHandler implements InvocationHandler {
+
+        private final ResultSet target;
+        private final StatementEvent event;
+        private boolean closed;
+
+        ResultSetHandler(ResultSet target, StatementEvent event) {
+            this.target = target;
+            this.event = event;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            if (name.equals("unwrap") && ((Class<?>) args[0]).isInstance(target)) {
+                return target;
+            }
+            Object result = JfrDataSource.invoke(target, method, args);
+            if (name.equals("next") && Boolean.TRUE.equals(result)) {
+                event.rows++;
+            } else if (name.equals("close") && !closed) {
+                closed = true;
+                event.commit();
+            }
+            return result;
+        }
+    }
+}
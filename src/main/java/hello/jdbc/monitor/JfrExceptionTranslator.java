@@ -0,0 +1,26 @@
+package hello.jdbc.monitor;
+
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.support.SQLExceptionTranslator;
+
+import java.sql.SQLException;
+
+/**
+ * 예외 변환마다 JFR {@link ExceptionTranslationEvent}를 기록한다.
+ * MemberRepositoryV4_2에 SQLErrorCodeSQLExceptionTranslator 대신 넘겨서 사용한다.
+ */
+public class JfrExceptionTranslator implements SQLExceptionTranslator {
+
+    private final SQLExceptionTranslator target;
+
+    public JfrExceptionTranslator(SQLExceptionTranslator target) {
+        this.target = target;
+    }
+
+    @Override
+    public DataAccessException translate(String task, String sql, SQLException ex) {
+        DataAccessException translated = target.translate(task, sql, ex);
+        ExceptionTranslationEvent.emit(task, ex, translated);
+        return translated;
+    }
+}
@@ -0,0 +1,96 @@
+package hello.jdbc.monitor;
+
+import jdk.jfr.EventType;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.DefaultTransactionStatus;
+
+import javax.sql.DataSource;
+import java.util.ArrayDeque;
+
+/**
+ * 트랜잭션마다 JFR {@link TransactionEvent}를 기록하는 DataSourceTransactionManager
+ * 서비스 계층(@Transactional, TransactionTemplate)의 트랜잭션 이름이 이벤트 이름이 된다.
+ *
+ * REQUIRES_NEW로 중첩되면 바깥 트랜잭션이 먼저 시작하고 나중에 끝나므로 스레드별 스택으로 짝을 맞춘다.
+ * 기록 중이 아니면 공유 인스턴스만 넣고 빼므로 추가 할당이 없다.
+ */
+public class JfrTransactionManager extends DataSourceTransactionManager {
+
+    private static final EventType EVENT_TYPE = EventType.getEventType(TransactionEvent.class);
+    private static final TransactionEvent NOT_RECORDING = new TransactionEvent();
+
+    private final ThreadLocal<ArrayDeque<TransactionEvent>> events = ThreadLocal.withInitial(ArrayDeque::new);
+
+    public JfrTransactionManager(DataSource dataSource) {
+        super(dataSource);
+    }
+
+    @Override
+    protected void doBegin(Object transaction, TransactionDefinition definition) {
+        TransactionEvent event = NOT_RECORDING;
+        if (EVENT_TYPE.isEnabled()) {
+            event = new TransactionEvent();
+            event.begin();
+            event.name = definition.getName();
+            event.isolationLevel = definition.getIsolationLevel();
+            event.readOnly = definition.isReadOnly();
+            event.timeout = definition.getTimeout();
+        }
+        try {
+            super.doBegin(transaction, definition);
+        } catch (RuntimeException e) {
+            //실패하면 doCleanupAfterCompletion이 호출되지 않는다.
+            end(event, "BEGIN_FAILED");
+            throw e;
+        }
+        events.get().push(event);
+    }
+
+    @Override
+    protected void doCommit(DefaultTransactionStatus status) {
+        try {
+            super.doCommit(status);
+        } catch (RuntimeException e) {
+            outcome("COMMIT_FAILED");
+            throw e;
+        }
+        outcome("COMMIT");
+    }
+
+    @Override
+    protected void doRollback(DefaultTransactionStatus status) {
+        outcome("ROLLBACK");
+        super.doRollback(status);
+    }
+
+    @Override
+    protected void doCleanupAfterCompletion(Object transaction) {
+        super.doCleanupAfterCompletion(transaction);
+        TransactionEvent event = events.get().poll();
+        if (event != null) {
+            end(event, event.outcome);
+        }
+    }
+
+    /**
+     * 처음 정해진 결과만 남긴다. 커밋 실패 후 rollbackOnCommitFailure로 doRollback이 호출되어도 COMMIT_FAILED가 유지된다.
+     */
+    private void outcome(String outcome) {
+        TransactionEvent event = events.get().peek();
+        if (event != null && event != NOT_RECORDING && event.outcome == null) {
+            event.outcome = outcome;
+        }
+    }
+
+    private void end(TransactionEvent event, String outcome) {
+        if (event == NOT_RECORDING) {
+            return;
+        }
+        event.end();
+        if (event.shouldCommit()) {
+            event.outcome = outcome;
+            event.commit();
+        }
+    }
+}
@@ -0,0 +1,262 @@
+package hello.jdbc.monitor;
+
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 커넥션/Statement를 프록시로 감싸서 실행 시간, 영향받은/조회한 row 수, 오류 수를 {@link SqlStatsRegistry}에 기록한다.
+ * Statement.addBatch(sql)로 쌓은 배치는 SQL마다 실행 한 번으로 나누어 기록한다.
+ * MemberRepositoryV4_2, MemberRepositoryV5 등에 원래 DataSource 대신 넘겨서 사용한다.
+ */
+public class SqlStatsDataSource extends DelegatingDataSource {
+
+    private final SqlStatsRegistry registry;
+
+    public SqlStatsDataSource(DataSource targetDataSource, SqlStatsRegistry registry) {
+        super(targetDataSource);
+        this.registry = registry;
+    }
+
+    public SqlStatsRegistry getRegistry() {
+        return registry;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return wrap(super.getConnection());
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return wrap(super.getConnection(username, password));
+    }
+
+    private Connection wrap(Connection con) {
+        return (Connection) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class<?>[]{Connection.class}, new ConnectionHandler(con));
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getTargetException();
+        }
+    }
+
+    private class ConnectionHandler implements InvocationHandler {
+
+        private final Connection target;
+
+        ConnectionHandler(Connection target) {
+            this.target = target;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            if (name.equals("unwrap") && ((Class<?>) args[0]).isInstance(target)) {
+                return target;
+            }
+            Object result = SqlStatsDataSource.invoke(target, method, args);
+            if (name.equals("prepareStatement")) {
+                return statementProxy(PreparedStatement.class, (Statement) result, (String) args[0]);
+            }
+            if (name.equals("prepareCall")) {
+                return statementProxy(CallableStatement.class, (Statement) result, (String) args[0]);
+            }
+            if (name.equals("createStatement")) {
+                return statementProxy(Statement.class, (Statement) result, null);
+            }
+            return result;
+        }
+
+        private Object statementProxy(Class<?> type, Statement statement, String sql) {
+            return Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{type},
+                    new StatementHandler(statement, sql, target));
+        }
+    }
+
+    private class StatementHandler implements InvocationHandler {
+
+        private final Statement target;
+        private final String preparedSql;
+        private final Connection connection;
+        private Object[] binds;
+        /**
+         * 일반 Statement의 addBatch(sql)로 쌓은 SQL
+         */
+        private List<String> batchSql;
+
+        StatementHandler(Statement target, String preparedSql, Connection connection) {
+            this.target = target;
+            this.preparedSql = preparedSql;
+            this.connection = connection;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            if (!name.startsWith("execute")) {
+                if (preparedSql != null && name.startsWith("set") && args != null && args.length >= 2 && args[0] instanceof Integer) {
+                    bind((Integer) args[0], name.equals("setNull") ? null : args[1]);
+                } else if (name.equals("clearParameters")) {
+                    binds = null;
+                } else if (preparedSql == null && name.equals("addBatch") && args != null && args.length == 1) {
+                    if (batchSql == null) {
+                        batchSql = new ArrayList<>();
+                    }
+                    batchSql.add((String) args[0]);
+                } else if (name.equals("clearBatch")) {
+                    batchSql = null;
+                } else if (name.equals("getResultSet")) {
+                    ResultSet rs = (ResultSet) SqlStatsDataSource.invoke(target, method, args);
+                    return rs == null ? null : resultSetProxy(rs, preparedSql);
+                }
+                return SqlStatsDataSource.invoke(target, method, args);
+            }
+
+            String sql = args != null && args.length > 0 && args[0] instanceof String ? (String) args[0] : preparedSql;
+            List<String> batch = null;
+            if (name.equals("executeBatch") || name.equals("executeLargeBatch")) {
+                //실행 후 배치는 비워진다.
+                batch = batchSql;
+                batchSql = null;
+            }
+            long start = System.nanoTime();
+            Object result = null;
+            boolean failed = true;
+            try {
+                result = SqlStatsDataSource.invoke(target, method, args);
+                failed = false;
+            } finally {
+                long elapsed = System.nanoTime() - start;
+                if (batch != null && sql == null) {
+                    recordBatch(batch, result, elapsed, failed);
+                } else if (sql != null) {
+                    record(sql, result, elapsed, failed);
+                }
+            }
+
+            if (sql != null && result instanceof ResultSet) {
+                return resultSetProxy((ResultSet) result, sql);
+            }
+            return result;
+        }
+
+        private void record(String sql, Object result, long elapsed, boolean failed) {
+            boolean slow = failed ? registry.recordError(sql, elapsed) : registry.record(sql, elapsed, rows(result));
+            if (slow) {
+                registry.slow(sql, binds, elapsed, connection);
+            }
+        }
+
+        /**
+         * 배치 안의 SQL별 시간은 알 수 없으므로 전체 시간을 나누어 기록한다.
+         */
+        private void recordBatch(List<String> batch, Object result, long elapsed, boolean failed) {
+            long share = elapsed / batch.size();
+            for (int i = 0; i < batch.size(); i++) {
+                String sql = batch.get(i);
+                boolean slow = failed ? registry.recordError(sql, share) : registry.record(sql, share, batchRows(result, i));
+                if (slow) {
+                    registry.slow(sql, null, share, connection);
+                }
+            }
+        }
+
+        private long batchRows(Object result, int index) {
+            if (result instanceof int[] && index < ((int[]) result).length) {
+                return Math.max(((int[]) result)[index], 0);
+            }
+            if (result instanceof long[] && index < ((long[]) result).length) {
+                return Math.max(((long[]) result)[index], 0);
+            }
+            return 0;
+        }
+
+        private void bind(int index, Object value) {
+            if (binds == null || binds.length < index) {
+                binds = binds == null ? new Object[index] : Arrays.copyOf(binds, index);
+            }
+            binds[index - 1] = value;
+        }
+
+        private long rows(Object result) {
+            if (result instanceof Integer) {
+                return (Integer) result;
+            }
+            if (result instanceof Long) {
+                return (Long) result;
+            }
+            if (result instanceof int[]) {
+                long sum = 0;
+                for (int count : (int[]) result) {
+                    sum += Math.max(count, 0);
+                }
+                return sum;
+            }
+            if (result instanceof long[]) {
+                long sum = 0;
+                for (long count : (long[]) result) {
+                    sum += Math.max(count, 0);
+                }
+                return sum;
+            }
+            return 0;
+        }
+
+        private ResultSet resultSetProxy(ResultSet rs, String sql) {
+            return (ResultSet) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{ResultSet.class},
+                    new ResultSetHandler(rs, sql));
+        }
+    }
+
+    /**
+     * 조회한 row 수는 ResultSet을 닫을 때 한 번에 더한다.
+     */
+    private class ResultSetHandler implements InvocationHandler {
+
+        private final ResultSet target;
+        private final String sql;
+        private long rows;
+        private boolean closed;
+
+        ResultSetHandler(ResultSet target, String sql) {
+            this.target = target;
+            this.sql = sql;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            if (name.equals("unwrap") && ((Class<?>) args[0]).isInstance(target)) {
+                return target;
+            }
+            Object result = SqlStatsDataSource.invoke(target, method, args);
+            if (name.equals("next") && Boolean.TRUE.equals(result)) {
+                rows++;
+            } else if (name.equals("close") && !closed) {
+                closed = true;
+                if (sql != null && rows > 0) {
+                    registry.addRows(sql, rows);
+                }
+            }
+            return result;
+        }
+    }
+}
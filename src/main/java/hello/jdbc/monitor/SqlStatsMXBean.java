@@ -0,0 +1,21 @@
+package hello.jdbc.monitor;
+
+import java.util.List;
+
+/**
+ * JMX 관리 인터페이스 (jconsole 등에서 조회/초기화)
+ */
+public interface SqlStatsMXBean {
+
+    List<SqlStatsSnapshot> getStatements();
+
+    long getSlowThresholdMillis();
+
+    void setSlowThresholdMillis(long slowThresholdMillis);
+
+    boolean isExplainEnabled();
+
+    void setExplainEnabled(boolean explainEnabled);
+
+    void reset();
+}
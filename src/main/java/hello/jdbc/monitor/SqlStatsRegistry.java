@@ -0,0 +1,209 @@
+package hello.jdbc.monitor;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.support.JdbcUtils;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Pattern;
+
+/**
+ * SQL별 실행 통계와 느린 쿼리 기록
+ *
+ * SQL은 리터럴을 ?로 바꾸고 공백을 정리한 형태로 묶는다. 정규화 결과는 원본 SQL별로 캐시하므로
+ * 느리지 않은 실행은 맵 조회 한 번과 카운터 증가만 한다.
+ * 임계값을 넘은 실행은 바인딩 값과 함께 로그를 남기고, 같은 커넥션에서 EXPLAIN 결과를 수집한다.
+ */
+@Slf4j
+public class SqlStatsRegistry implements SqlStatsMXBean {
+
+    private static final int MAX_CACHED_SQL = 10_000;
+    private static final Pattern STRING_LITERAL = Pattern.compile("'(?:[^']|'')*'");
+    private static final Pattern NUMBER_LITERAL = Pattern.compile("\\b\\d+(?:\\.\\d+)?\\b");
+    private static final Pattern IN_LIST = Pattern.compile("\\(\\s*\\?(?:\\s*,\\s*\\?)+\\s*\\)");
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    private final Map<String, Entry> rawSqlCache = new ConcurrentHashMap<>();
+    private volatile long slowThresholdNanos;
+    private volatile boolean explainEnabled = true;
+
+    public SqlStatsRegistry(long slowThresholdMillis) {
+        this.slowThresholdNanos = TimeUnit.MILLISECONDS.toNanos(slowThresholdMillis);
+    }
+
+    /**
+     * 실행 한 번을 기록한다. 느린 실행이면 true를 반환하고 호출한 쪽이 {@link #slow}를 호출한다.
+     */
+    boolean record(String sql, long elapsedNanos, long rows) {
+        Entry entry = entry(sql);
+        return record(entry, elapsedNanos, rows);
+    }
+
+    /**
+     * 예외로 끝난 실행도 실행 횟수와 시간에 포함하고 오류 수를 더한다.
+     */
+    boolean recordError(String sql, long elapsedNanos) {
+        Entry entry = entry(sql);
+        entry.errorCount.increment();
+        return record(entry, elapsedNanos, 0);
+    }
+
+    private boolean record(Entry entry, long elapsedNanos, long rows) {
+        entry.count.increment();
+        entry.totalNanos.add(elapsedNanos);
+        if (rows > 0) {
+            entry.rows.add(rows);
+        }
+        if (elapsedNanos > entry.maxNanos.get()) {
+            entry.maxNanos.accumulateAndGet(elapsedNanos, Math::max);
+        }
+        return elapsedNanos > slowThresholdNanos;
+    }
+
+    void addRows(String sql, long rows) {
+        entry(sql).rows.add(rows);
+    }
+
+    void slow(String sql, Object[] binds, long elapsedNanos, Connection con) {
+        Entry entry = entry(sql);
+        entry.slowCount.increment();
+        String bindText = binds == null ? "[]" : Arrays.toString(binds);
+        entry.lastSlowBinds = bindText;
+
+        String plan = explainEnabled ? explain(con, sql, binds) : null;
+        if (plan != null) {
+            entry.lastPlan = plan;
+        }
+        log.warn("slow query {}ms sql=[{}] binds={} plan=[{}]",
+                TimeUnit.NANOSECONDS.toMillis(elapsedNanos), sql, bindText, plan);
+    }
+
+    @Override
+    public List<SqlStatsSnapshot> getStatements() {
+        List<SqlStatsSnapshot> snapshots = new ArrayList<>();
+        for (Map.Entry<String, Entry> e : entries.entrySet()) {
+            Entry entry = e.getValue();
+            snapshots.add(new SqlStatsSnapshot(e.getKey(), entry.count.sum(),
+                    TimeUnit.NANOSECONDS.toMicros(entry.totalNanos.sum()),
+                    TimeUnit.NANOSECONDS.toMicros(entry.maxNanos.get()),
+                    entry.rows.sum(), entry.slowCount.sum(), entry.errorCount.sum(), entry.lastSlowBinds, entry.lastPlan));
+        }
+        snapshots.sort(Comparator.comparingLong(SqlStatsSnapshot::getTotalMicros).reversed());
+        return snapshots;
+    }
+
+    @Override
+    public long getSlowThresholdMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(slowThresholdNanos);
+    }
+
+    @Override
+    public void setSlowThresholdMillis(long slowThresholdMillis) {
+        this.slowThresholdNanos = TimeUnit.MILLISECONDS.toNanos(slowThresholdMillis);
+    }
+
+    @Override
+    public boolean isExplainEnabled() {
+        return explainEnabled;
+    }
+
+    @Override
+    public void setExplainEnabled(boolean explainEnabled) {
+        this.explainEnabled = explainEnabled;
+    }
+
+    @Override
+    public void reset() {
+        rawSqlCache.clear();
+        entries.clear();
+    }
+
+    public void registerMBean(String name) {
+        try {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(this, new ObjectName("hello.jdbc:type=SqlStats,name=" + name));
+        } catch (JMException e) {
+            throw new IllegalStateException("failed to register sql stats mbean name=" + name, e);
+        }
+    }
+
+    private Entry entry(String sql) {
+        Entry entry = rawSqlCache.get(sql);
+        if (entry != null) {
+            return entry;
+        }
+        entry = entries.computeIfAbsent(normalize(sql), key -> new Entry());
+        if (rawSqlCache.size() < MAX_CACHED_SQL) {
+            rawSqlCache.put(sql, entry);
+        }
+        return entry;
+    }
+
+    static String normalize(String sql) {
+        String normalized = STRING_LITERAL.matcher(sql).replaceAll("?");
+        normalized = NUMBER_LITERAL.matcher(normalized).replaceAll("?");
+        normalized = IN_LIST.matcher(normalized).replaceAll("(?)");
+        return WHITESPACE.matcher(normalized).replaceAll(" ").trim();
+    }
+
+    private String explain(Connection con, String sql, Object[] binds) {
+        String lower = sql.trim().toLowerCase(Locale.ROOT);
+        if (!(lower.startsWith("select") || lower.startsWith("update") || lower.startsWith("delete")
+                || lower.startsWith("insert") || lower.startsWith("merge"))) {
+            return null;
+        }
+
+        PreparedStatement pstmt = null;
+        ResultSet rs = null;
+        try {
+            pstmt = con.prepareStatement("explain " + sql);
+            if (binds != null) {
+                for (int i = 0; i < binds.length; i++) {
+                    pstmt.setObject(i + 1, binds[i]);
+                }
+            }
+            rs = pstmt.executeQuery();
+            StringBuilder plan = new StringBuilder();
+            while (rs.next()) {
+                if (plan.length() > 0) {
+                    plan.append('\n');
+                }
+                plan.append(rs.getString(1));
+            }
+            return plan.toString();
+        } catch (SQLException e) {
+            log.debug("explain failed sql={}", sql, e);
+            return null;
+        } finally {
+            JdbcUtils.closeResultSet(rs);
+            JdbcUtils.closeStatement(pstmt);
+        }
+    }
+
+    private static class Entry {
+
+        private final LongAdder count = new LongAdder();
+        private final LongAdder totalNanos = new LongAdder();
+        private final LongAdder rows = new LongAdder();
+        private final LongAdder slowCount = new LongAdder();
+        private final LongAdder errorCount = new LongAdder();
+        private final AtomicLong maxNanos = new AtomicLong();
+        private volatile String lastSlowBinds;
+        private volatile String lastPlan;
+    }
+}
@@ -0,0 +1,42 @@
+package hello.jdbc.monitor;
+
+import lombok.Getter;
+import lombok.ToString;
+
+import java.beans.ConstructorProperties;
+
+/**
+ * 정규화된 SQL 하나의 누적 통계
+ */
+@Getter
+@ToString
+public class SqlStatsSnapshot {
+
+    private final String sql;
+    private final long count;
+    private final long totalMicros;
+    private final long maxMicros;
+    private final long rows;
+    private final long slowCount;
+    private final long errorCount;
+    private final String lastSlowBinds;
+    private final String lastPlan;
+
+    @ConstructorProperties({"sql", "count", "totalMicros", "maxMicros", "rows", "slowCount", "errorCount", "lastSlowBinds", "lastPlan"})
+    public SqlStatsSnapshot(String sql, long count, long totalMicros, long maxMicros, long rows, long slowCount, long errorCount,
+                            String lastSlowBinds, String lastPlan) {
+        this.sql = sql;
+        this.count = count;
+        this.totalMicros = totalMicros;
+        this.maxMicros = maxMicros;
+        this.rows = rows;
+        this.slowCount = slowCount;
+        this.errorCount = errorCount;
+        this.lastSlowBinds = lastSlowBinds;
+        this.lastPlan = lastPlan;
+    }
+
+    public double getAverageMicros() {
+        return count == 0 ? 0 : (double) totalMicros / count;
+    }
+}
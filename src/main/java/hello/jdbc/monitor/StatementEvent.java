@@ -0,0 +1,45 @@
+package hello.jdbc.monitor;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * SQL 실행 한 번, 조회는 ResultSet을 닫을 때까지 포함한다. {@link JfrDataSource}가 기록한다.
+ * 스택 트레이스로 어떤 저장소 메서드에서 실행했는지 볼 수 있다.
+ */
+@Name("hello.jdbc.Statement")
+@Label("JDBC Statement")
+@Category({"hello.jdbc", "JDBC"})
+@Description("SQL execution including result set iteration")
+class StatementEvent extends Event {
+
+    /**
+     * 리터럴을 제거한 SQL의 해시, 같은 SQL 모양끼리 묶을 때 사용
+     */
+    @Label("SQL Id")
+    String sqlId;
+
+    @Label("SQL")
+    String sql;
+
+    /**
+     * 영향받은 row 수 또는 조회한 row 수
+     */
+    @Label("Rows")
+    long rows;
+
+    @Label("Batch")
+    boolean batch;
+
+    /**
+     * 예외로 끝난 실행, 타임아웃과 락 대기 실패도 여기에 남는다.
+     */
+    @Label("Failed")
+    boolean failed;
+
+    @Label("Error Code")
+    int errorCode;
+}
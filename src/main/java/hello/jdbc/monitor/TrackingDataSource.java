@@ -0,0 +1,71 @@
+package hello.jdbc.monitor;
+
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * 커넥션을 프록시로 감싸서 획득 위치와 보유 시간(획득 ~ close)을 {@link ConnectionTracker}에 기록한다.
+ * MemberServiceV2처럼 커넥션을 직접 다루는 코드에서 close 누락을 찾는 데 사용한다.
+ */
+public class TrackingDataSource extends DelegatingDataSource {
+
+    private final ConnectionTracker tracker;
+
+    public TrackingDataSource(DataSource targetDataSource, ConnectionTracker tracker) {
+        super(targetDataSource);
+        this.tracker = tracker;
+    }
+
+    public ConnectionTracker getTracker() {
+        return tracker;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return wrap(super.getConnection());
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return wrap(super.getConnection(username, password));
+    }
+
+    private Connection wrap(Connection con) {
+        return (Connection) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class<?>[]{Connection.class}, new ConnectionHandler(con, tracker.acquired()));
+    }
+
+    private class ConnectionHandler implements InvocationHandler {
+
+        private final Connection target;
+        private final ConnectionTracker.Lease lease;
+
+        ConnectionHandler(Connection target, ConnectionTracker.Lease lease) {
+            this.target = target;
+            this.lease = lease;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            if (name.equals("unwrap") && ((Class<?>) args[0]).isInstance(target)) {
+                return target;
+            }
+            if (name.equals("close")) {
+                tracker.released(lease);
+            }
+            try {
+                return method.invoke(target, args);
+            } catch (InvocationTargetException e) {
+                throw e.getTargetException();
+            }
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package hello.jdbc.monitor;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * 트랜잭션 시작(커넥션 획득 포함) ~ 커밋/롤백 완료, {@link JfrTransactionManager}가 기록한다.
+ */
+@Name("hello.jdbc.Transaction")
+@Label("Transaction")
+@Category({"hello.jdbc", "JDBC"})
+@Description("DataSourceTransactionManager transaction from begin to commit or rollback")
+@StackTrace(false)
+class TransactionEvent extends Event {
+
+    @Label("Name")
+    String name;
+
+    @Label("Isolation Level")
+    int isolationLevel;
+
+    @Label("Read Only")
+    boolean readOnly;
+
+    @Label("Timeout Seconds")
+    int timeout;
+
+    /**
+     * COMMIT, ROLLBACK, COMMIT_FAILED, BEGIN_FAILED
+     */
+    @Label("Outcome")
+    String outcome;
+}
@@ -0,0 +1,32 @@
+package hello.jdbc.outbox;
+
+import lombok.Getter;
+import lombok.ToString;
+
+import java.time.Instant;
+
+/**
+ * 잔고 변경 이벤트 하나, event_id는 트랜잭션 커밋 순서가 아니라 outbox 저장 순서다.
+ * 릴레이는 최소 한 번(at-least-once) 전달하므로 받는 쪽은 eventId로 중복을 제거한다.
+ */
+@Getter
+@ToString
+public class BalanceEvent {
+
+    private final long eventId;
+    private final String memberId;
+    private final BalanceEventType type;
+    /**
+     * 변경 후 잔고, DELETED면 null
+     */
+    private final Integer money;
+    private final Instant createdAt;
+
+    public BalanceEvent(long eventId, String memberId, BalanceEventType type, Integer money, Instant createdAt) {
+        this.eventId = eventId;
+        this.memberId = memberId;
+        this.type = type;
+        this.money = money;
+        this.createdAt = createdAt;
+    }
+}
@@ -0,0 +1,12 @@
+package hello.jdbc.outbox;
+
+import java.util.List;
+
+/**
+ * 릴레이가 이벤트를 발행하는 대상 (파일, 메시지 브로커 등)
+ * 예외 없이 반환하면 발행 완료로 보고 outbox에서 제거한다.
+ */
+public interface BalanceEventSink {
+
+    void publish(List<BalanceEvent> events);
+}
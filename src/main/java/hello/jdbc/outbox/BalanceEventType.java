@@ -0,0 +1,5 @@
+package hello.jdbc.outbox;
+
+public enum BalanceEventType {
+    CREATED, UPDATED, DELETED
+}
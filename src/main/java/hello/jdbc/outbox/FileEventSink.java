@@ -0,0 +1,57 @@
+package hello.jdbc.outbox;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+/**
+ * 로컬 개발용 sink, 배치 하나를 CSV 줄(event_id,member_id,type,money,created_at)로 한 번에 파일 끝에 쓴다.
+ * force가 true면 배치마다 fsync 후 반환하므로 릴레이가 삭제한 이벤트는 디스크에 남아 있다.
+ */
+public class FileEventSink implements BalanceEventSink, AutoCloseable {
+
+    private final FileChannel channel;
+    private final boolean force;
+
+    public FileEventSink(Path path, boolean force) {
+        try {
+            this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        this.force = force;
+    }
+
+    @Override
+    public synchronized void publish(List<BalanceEvent> events) {
+        StringBuilder sb = new StringBuilder(events.size() * 48);
+        for (BalanceEvent event : events) {
+            sb.append(event.getEventId()).append(',')
+                    .append(event.getMemberId()).append(',')
+                    .append(event.getType()).append(',')
+                    .append(event.getMoney() == null ? "" : event.getMoney()).append(',')
+                    .append(event.getCreatedAt()).append('\n');
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(sb.toString().getBytes(StandardCharsets.UTF_8));
+        try {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            if (force) {
+                channel.force(false);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
@@ -0,0 +1,321 @@
+package hello.jdbc.outbox;
+
+import hello.jdbc.domain.Member;
+import hello.jdbc.repository.DelegatingMemberRepository;
+import hello.jdbc.repository.MemberRepository;
+import hello.jdbc.repository.UpsertResult;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.math.BigDecimal;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 잔고를 바꾸는 모든 호출에 대해 같은 트랜잭션 안에서 balance_event를 기록한다. (transactional outbox)
+ *
+ * 트랜잭션 안에서는 변경된 회원을 모아 두었다가 커밋 직전(beforeCommit)에 하나의 JDBC batch로 저장한다.
+ * 이체 한 건(update 2번)에 추가되는 DB 왕복은 한 번이다. 저장이 실패하면 커밋도 실패하고 롤백된다.
+ * 이벤트의 잔고는 커밋 직전의 member.money를 그대로 복사하므로 같은 트랜잭션에서 여러 번 바꿔도 회원당 이벤트 하나다.
+ * updateMoneyInRange는 구간만 모아 두었다가 커밋 직전에 구간 단위 문장으로 저장하고, 구간에 속한 회원의 개별 변경 이벤트는 생략한다.
+ * 트랜잭션 밖(auto commit)에서는 변경 직후 바로 저장한다.
+ *
+ * target과 같은 DataSource를 넘겨야 같은 트랜잭션 커넥션을 사용한다.
+ */
+@Slf4j
+public class OutboxMemberRepository extends DelegatingMemberRepository {
+
+    private static final String INSERT_FROM_MEMBER = "insert into balance_event(member_id, event_type, money, created_at) " +
+            "select member_id, ?, money, ? from member where member_id = ?";
+    private static final String INSERT_DELETED = "insert into balance_event(member_id, event_type, money, created_at) values(?, ?, null, ?)";
+
+    private final JdbcTemplate template;
+
+    public OutboxMemberRepository(MemberRepository target, DataSource dataSource) {
+        super(target);
+        this.template = new JdbcTemplate(dataSource);
+    }
+
+    @Override
+    public Member save(Member member) {
+        Member saved = target.save(member);
+        append(member.getMemberId(), BalanceEventType.CREATED);
+        return saved;
+    }
+
+    @Override
+    public void update(String memberId, int money) {
+        target.update(memberId, money);
+        append(memberId, BalanceEventType.UPDATED);
+    }
+
+    @Override
+    public void updateAll(Map<String, Integer> moneyById) {
+        target.updateAll(moneyById);
+        Map<String, BalanceEventType> events = new LinkedHashMap<>();
+        for (String memberId : moneyById.keySet()) {
+            events.put(memberId, BalanceEventType.UPDATED);
+        }
+        append(events);
+    }
+
+    @Override
+    public UpsertResult upsert(Member member) {
+        UpsertResult result = target.upsert(member);
+        append(member.getMemberId(), result == UpsertResult.INSERTED ? BalanceEventType.CREATED : BalanceEventType.UPDATED);
+        return result;
+    }
+
+    @Override
+    public Map<String, UpsertResult> upsertAll(Map<String, Integer> moneyById) {
+        Map<String, UpsertResult> results = target.upsertAll(moneyById);
+        Map<String, BalanceEventType> events = new LinkedHashMap<>();
+        results.forEach((memberId, result) ->
+                events.put(memberId, result == UpsertResult.INSERTED ? BalanceEventType.CREATED : BalanceEventType.UPDATED));
+        append(events);
+        return results;
+    }
+
+    /**
+     * 구간의 회원이 많을 수 있으므로 회원이 아니라 구간을 모아 두고, 구간마다 한 문장으로 저장한다.
+     */
+    @Override
+    public int updateMoneyInRange(String fromId, String toId, BigDecimal multiplier, int addend) {
+        int updated = target.updateMoneyInRange(fromId, toId, multiplier, addend);
+        PendingEvents pending = pending();
+        if (pending == null) {
+            insertRange(new String[]{fromId, toId}, Collections.emptyList(), Collections.emptySet(), new Timestamp(System.currentTimeMillis()));
+        } else {
+            pending.ranges.add(new String[]{fromId, toId});
+        }
+        return updated;
+    }
+
+    @Override
+    public void delete(String memberId) {
+        target.delete(memberId);
+        append(memberId, BalanceEventType.DELETED);
+    }
+
+    private void append(String memberId, BalanceEventType type) {
+        Map<String, BalanceEventType> events = new LinkedHashMap<>();
+        events.put(memberId, type);
+        append(events);
+    }
+
+    private void append(Map<String, BalanceEventType> events) {
+        PendingEvents pending = pending();
+        if (pending == null) {
+            insert(events, new Timestamp(System.currentTimeMillis()));
+            return;
+        }
+        for (Map.Entry<String, BalanceEventType> event : events.entrySet()) {
+            //생성 후 변경은 생성, 삭제는 마지막 상태로 덮어쓴다.
+            pending.members.merge(event.getKey(), event.getValue(),
+                    (before, after) -> before == BalanceEventType.CREATED && after == BalanceEventType.UPDATED ? before : after);
+        }
+    }
+
+    /**
+     * 현재 트랜잭션에서 모아 둔 이벤트, 트랜잭션 밖이면 null
+     */
+    private PendingEvents pending() {
+        if (!TransactionSynchronizationManager.isActualTransactionActive()
+                || !TransactionSynchronizationManager.isSynchronizationActive()) {
+            return null;
+        }
+        PendingEvents pending = (PendingEvents) TransactionSynchronizationManager.getResource(this);
+        if (pending == null) {
+            pending = new PendingEvents();
+            TransactionSynchronizationManager.bindResource(this, pending);
+            TransactionSynchronizationManager.registerSynchronization(new OutboxSynchronization(pending));
+        }
+        return pending;
+    }
+
+    /**
+     * 구간 이벤트를 저장하고, 구간에 속한 회원의 변경 이벤트는 구간 이벤트로 대신한다.
+     * 생성/삭제 이벤트는 종류를 남기기 위해 개별로 저장하고 구간 문장에서 제외한다.
+     */
+    private void flush(PendingEvents pending) {
+        Timestamp now = new Timestamp(System.currentTimeMillis());
+        Map<String, BalanceEventType> members = new LinkedHashMap<>(pending.members);
+        Set<String> excluded = new HashSet<>();
+        if (!pending.ranges.isEmpty()) {
+            Iterator<Map.Entry<String, BalanceEventType>> it = members.entrySet().iterator();
+            while (it.hasNext()) {
+                Map.Entry<String, BalanceEventType> event = it.next();
+                if (!inAnyRange(event.getKey(), pending.ranges)) {
+                    continue;
+                }
+                if (event.getValue() == BalanceEventType.UPDATED) {
+                    it.remove();
+                } else {
+                    excluded.add(event.getKey());
+                }
+            }
+        }
+        insert(members, now);
+        for (int i = 0; i < pending.ranges.size(); i++) {
+            //앞선 구간과 겹치는 회원은 한 번만 저장한다.
+            insertRange(pending.ranges.get(i), pending.ranges.subList(0, i), excluded, now);
+        }
+    }
+
+    private boolean inAnyRange(String memberId, List<String[]> ranges) {
+        for (String[] range : ranges) {
+            if (inRange(memberId, range[0], range[1])) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean inRange(String memberId, String fromId, String toId) {
+        return (fromId == null || memberId.compareTo(fromId) >= 0) && (toId == null || memberId.compareTo(toId) < 0);
+    }
+
+    private void insertRange(String[] range, List<String[]> skippedRanges, Set<String> excluded, Timestamp now) {
+        StringBuilder sql = new StringBuilder("insert into balance_event(member_id, event_type, money, created_at) " +
+                "select member_id, ?, money, ? from member where 1 = 1");
+        List<Object> args = new ArrayList<>();
+        args.add(BalanceEventType.UPDATED.name());
+        args.add(now);
+        appendRange(sql, args, range[0], range[1], false);
+        for (String[] skipped : skippedRanges) {
+            appendRange(sql, args, skipped[0], skipped[1], true);
+        }
+        for (String memberId : excluded) {
+            if (inRange(memberId, range[0], range[1])) {
+                sql.append(" and member_id <> ?");
+                args.add(memberId);
+            }
+        }
+        template.update(sql.toString(), args.toArray());
+    }
+
+    private void appendRange(StringBuilder sql, List<Object> args, String fromId, String toId, boolean negate) {
+        sql.append(negate ? " and not (1 = 1" : "");
+        if (fromId != null) {
+            sql.append(" and member_id >= ?");
+            args.add(fromId);
+        }
+        if (toId != null) {
+            sql.append(" and member_id < ?");
+            args.add(toId);
+        }
+        sql.append(negate ? ")" : "");
+    }
+
+    private void insert(Map<String, BalanceEventType> events, Timestamp now) {
+        if (events.isEmpty()) {
+            return;
+        }
+        List<Map.Entry<String, BalanceEventType>> changed = new ArrayList<>();
+        List<String> deleted = new ArrayList<>();
+        for (Map.Entry<String, BalanceEventType> event : events.entrySet()) {
+            if (event.getValue() == BalanceEventType.DELETED) {
+                deleted.add(event.getKey());
+            } else {
+                changed.add(event);
+            }
+        }
+
+        if (!changed.isEmpty()) {
+            template.batchUpdate(INSERT_FROM_MEMBER, new BatchPreparedStatementSetter() {
+                @Override
+                public void setValues(PreparedStatement ps, int i) throws SQLException {
+                    ps.setString(1, changed.get(i).getValue().name());
+                    ps.setTimestamp(2, now);
+                    ps.setString(3, changed.get(i).getKey());
+                }
+
+                @Override
+                public int getBatchSize() {
+                    return changed.size();
+                }
+            });
+        }
+        if (!deleted.isEmpty()) {
+            template.batchUpdate(INSERT_DELETED, new BatchPreparedStatementSetter() {
+                @Override
+                public void setValues(PreparedStatement ps, int i) throws SQLException {
+                    ps.setString(1, deleted.get(i));
+                    ps.setString(2, BalanceEventType.DELETED.name());
+                    ps.setTimestamp(3, now);
+                }
+
+                @Override
+                public int getBatchSize() {
+                    return deleted.size();
+                }
+            });
+        }
+    }
+
+    /**
+     * 트랜잭션 하나에서 모아 둔 회원별 이벤트와 updateMoneyInRange 구간 [fromId, toId)
+     */
+    private static class PendingEvents {
+
+        private final Map<String, BalanceEventType> members = new LinkedHashMap<>();
+        private final List<String[]> ranges = new ArrayList<>();
+
+        int size() {
+            return members.size() + ranges.size();
+        }
+
+        void clear() {
+            members.clear();
+            ranges.clear();
+        }
+    }
+
+    private class OutboxSynchronization implements TransactionSynchronization {
+
+        private final PendingEvents pending;
+
+        OutboxSynchronization(PendingEvents pending) {
+            this.pending = pending;
+        }
+
+        @Override
+        public void suspend() {
+            TransactionSynchronizationManager.unbindResource(OutboxMemberRepository.this);
+        }
+
+        @Override
+        public void resume() {
+            TransactionSynchronizationManager.bindResource(OutboxMemberRepository.this, pending);
+        }
+
+        /**
+         * 여기서 발생한 예외는 커밋을 실패시키고 트랜잭션 매니저가 롤백한다.
+         */
+        @Override
+        public void beforeCommit(boolean readOnly) {
+            log.debug("outbox events size={}", pending.size());
+            flush(pending);
+            pending.clear();
+        }
+
+        @Override
+        public void afterCompletion(int status) {
+            TransactionSynchronizationManager.unbindResourceIfPossible(OutboxMemberRepository.this);
+            pending.clear();
+        }
+    }
+}
@@ -0,0 +1,136 @@
+package hello.jdbc.outbox;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+
+import javax.sql.DataSource;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * balance_event를 event_id 순서로 읽어서 sink에 발행하고 한 번에 삭제(또는 표시)한다.
+ *
+ * 한 번의 poll 안에서는 마지막 event_id 이후를 읽는 keyset 방식으로 배치를 이어 읽고,
+ * poll마다 처음부터 다시 읽는다. event_id는 저장 순서라 늦게 커밋된 작은 event_id가 있을 수 있는데,
+ * 이렇게 하면 다음 poll에서 빠짐없이 발행된다.
+ * 발행 후 삭제 전에 실패하면 다시 발행하므로 전달은 최소 한 번(at-least-once)이다.
+ * 릴레이는 인스턴스 하나만 실행한다.
+ */
+@Slf4j
+public class OutboxRelay {
+
+    private static final String SELECT = "select event_id, member_id, event_type, money, created_at from balance_event " +
+            "where published_at is null and event_id > ? order by event_id limit ?";
+
+    private static final RowMapper<BalanceEvent> EVENT_MAPPER = (rs, rowNum) -> {
+        int money = rs.getInt("money");
+        Integer moneyOrNull = rs.wasNull() ? null : money;
+        return new BalanceEvent(rs.getLong("event_id"), rs.getString("member_id"),
+                BalanceEventType.valueOf(rs.getString("event_type")), moneyOrNull,
+                rs.getTimestamp("created_at").toInstant());
+    };
+
+    private final JdbcTemplate template;
+    private final BalanceEventSink sink;
+    private final RelayOptions options;
+    private final AtomicLong published = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+    private ScheduledExecutorService scheduler;
+
+    public OutboxRelay(DataSource dataSource, BalanceEventSink sink, RelayOptions options) {
+        this.template = new JdbcTemplate(dataSource);
+        this.sink = sink;
+        this.options = options;
+    }
+
+    /**
+     * 한 번 poll, 발행한 이벤트 수를 반환한다.
+     */
+    public int relayOnce() {
+        int count = 0;
+        long lastId = 0;
+        for (int i = 0; i < options.getMaxBatchesPerPoll(); i++) {
+            List<BalanceEvent> events = template.query(SELECT, EVENT_MAPPER, lastId, options.getBatchSize());
+            if (events.isEmpty()) {
+                break;
+            }
+            sink.publish(events);
+            ack(events);
+
+            count += events.size();
+            lastId = events.get(events.size() - 1).getEventId();
+            if (events.size() < options.getBatchSize()) {
+                break;
+            }
+        }
+        published.addAndGet(count);
+        return count;
+    }
+
+    public synchronized void start() {
+        if (scheduler != null) {
+            return;
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "outbox-relay");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::relaySafely, 0, options.getPollIntervalMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    public synchronized void stop() {
+        if (scheduler != null) {
+            scheduler.shutdown();
+            scheduler = null;
+        }
+    }
+
+    /**
+     * MARK 모드에서 발행이 끝난 이벤트 정리
+     */
+    public int purgePublishedBefore(Instant before) {
+        return template.update("delete from balance_event where published_at < ?", Timestamp.from(before));
+    }
+
+    public long getPublished() {
+        return published.get();
+    }
+
+    public long getFailures() {
+        return failures.get();
+    }
+
+    private void relaySafely() {
+        try {
+            relayOnce();
+        } catch (RuntimeException e) {
+            //다음 poll에서 다시 시도한다.
+            failures.incrementAndGet();
+            log.warn("outbox relay failed", e);
+        }
+    }
+
+    private void ack(List<BalanceEvent> events) {
+        List<Object[]> args = new ArrayList<>(events.size());
+        if (options.getAckMode() == RelayOptions.AckMode.DELETE) {
+            for (BalanceEvent event : events) {
+                args.add(new Object[]{event.getEventId()});
+            }
+            template.batchUpdate("delete from balance_event where event_id = ?", args);
+        } else {
+            Timestamp now = new Timestamp(System.currentTimeMillis());
+            for (BalanceEvent event : events) {
+                args.add(new Object[]{now, event.getEventId()});
+            }
+            template.batchUpdate("update balance_event set published_at = ? where event_id = ?", args);
+        }
+    }
+}
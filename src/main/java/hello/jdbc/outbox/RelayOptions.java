@@ -0,0 +1,26 @@
+package hello.jdbc.outbox;
+
+import lombok.Data;
+
+/**
+ * OutboxRelay 설정, 처리량은 batchSize * maxBatchesPerPoll / pollIntervalMillis 로 조절한다.
+ */
+@Data
+public class RelayOptions {
+
+    public enum AckMode {
+        /**
+         * 발행한 이벤트를 삭제
+         */
+        DELETE,
+        /**
+         * published_at만 기록하고 남겨둔다. purgePublishedBefore로 정리
+         */
+        MARK
+    }
+
+    private int batchSize = 500;
+    private int maxBatchesPerPoll = 20;
+    private long pollIntervalMillis = 200;
+    private AckMode ackMode = AckMode.DELETE;
+}
@@ -0,0 +1,54 @@
+package hello.jdbc.reconcile;
+
+import lombok.Getter;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+
+/**
+ * member_id 구간 [lo, hi), null은 열린 끝
+ */
+@Getter
+public class KeyRange {
+
+    private final String lo;
+    private final String hi;
+
+    public KeyRange(String lo, String hi) {
+        this.lo = lo;
+        this.hi = hi;
+    }
+
+    public boolean contains(String key) {
+        return (lo == null || key.compareTo(lo) >= 0) && (hi == null || key.compareTo(hi) < 0);
+    }
+
+    /**
+     * where 절에 붙일 조건, bind()로 같은 순서의 파라미터를 설정한다.
+     */
+    String condition(String column) {
+        StringBuilder sql = new StringBuilder();
+        if (lo != null) {
+            sql.append(" and ").append(column).append(" >= ?");
+        }
+        if (hi != null) {
+            sql.append(" and ").append(column).append(" < ?");
+        }
+        return sql.toString();
+    }
+
+    int bind(PreparedStatement pstmt, int index) throws SQLException {
+        if (lo != null) {
+            pstmt.setString(index++, lo);
+        }
+        if (hi != null) {
+            pstmt.setString(index++, hi);
+        }
+        return index;
+    }
+
+    @Override
+    public String toString() {
+        return "[" + (lo == null ? "" : lo) + ", " + (hi == null ? "" : hi) + ")";
+    }
+}
@@ -0,0 +1,22 @@
+package hello.jdbc.reconcile;
+
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * 이전 스냅샷 잔고 + 이체 합계(expected)와 스냅샷 잔고(actual)가 다른 회원
+ */
+@Getter
+@ToString
+public class MemberMismatch {
+
+    private final String memberId;
+    private final long expected;
+    private final long actual;
+
+    public MemberMismatch(String memberId, long expected, long actual) {
+        this.memberId = memberId;
+        this.expected = expected;
+        this.actual = actual;
+    }
+}
@@ -0,0 +1,32 @@
+package hello.jdbc.reconcile;
+
+import lombok.Data;
+
+import java.time.ZoneId;
+
+/**
+ * Reconciler 설정
+ */
+@Data
+public class ReconcileOptions {
+
+    /**
+     * 동시에 검사하는 구간 수, 커넥션 풀 크기보다 크면 안 된다.
+     */
+    private int parallelism = 4;
+
+    /**
+     * 처음 나누는 구간 수
+     */
+    private int initialRanges = 64;
+
+    /**
+     * 불일치 구간을 이 행 수 이하가 될 때까지 나눈 다음 회원 단위로 비교한다.
+     */
+    private int leafSize = 100;
+
+    /**
+     * 감사 테이블(transfer_audit_yyyyMMdd)의 날짜 기준
+     */
+    private ZoneId zone = ZoneId.systemDefault();
+}
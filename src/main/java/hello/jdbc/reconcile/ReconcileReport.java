@@ -0,0 +1,38 @@
+package hello.jdbc.reconcile;
+
+import lombok.Getter;
+import lombok.ToString;
+
+import java.util.List;
+
+@Getter
+@ToString
+public class ReconcileReport {
+
+    private final long expectedTotal;
+    private final long actualTotal;
+    private final long rowCount;
+    private final int checkedRanges;
+    private final int mismatchedRanges;
+    private final List<MemberMismatch> mismatches;
+    private final long elapsedMillis;
+
+    public ReconcileReport(long expectedTotal, long actualTotal, long rowCount, int checkedRanges, int mismatchedRanges,
+                           List<MemberMismatch> mismatches, long elapsedMillis) {
+        this.expectedTotal = expectedTotal;
+        this.actualTotal = actualTotal;
+        this.rowCount = rowCount;
+        this.checkedRanges = checkedRanges;
+        this.mismatchedRanges = mismatchedRanges;
+        this.mismatches = mismatches;
+        this.elapsedMillis = elapsedMillis;
+    }
+
+    public boolean isBalanced() {
+        return expectedTotal == actualTotal && mismatches.isEmpty();
+    }
+
+    public double rowsPerSecond() {
+        return elapsedMillis == 0 ? rowCount : rowCount * 1000.0 / elapsedMillis;
+    }
+}
@@ -0,0 +1,368 @@
+package hello.jdbc.reconcile;
+
+import hello.jdbc.audit.TransferAuditWriter;
+import hello.jdbc.repository.ex.MyDbException;
+import lombok.extern.slf4j.Slf4j;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * 잔고 보존 검증 - 이체는 돈을 옮기기만 하므로
+ * 이전 스냅샷 잔고 + (받은 이체 - 보낸 이체) = 이번 스냅샷 잔고 가 모든 member_id 구간에서 성립해야 한다.
+ *
+ * 살아있는 member 테이블 대신 스냅샷(balance_snapshot_item)끼리 비교하므로 검증 중에도 이체를 막지 않고,
+ * 구간마다 다른 시점에 읽어도 결과가 일관된다. 이체 내역은 감사 테이블(transfer_audit_yyyyMMdd)에서 읽는다.
+ * 구간은 fork-join 풀에서 병렬로, 각자 읽기 전용 커넥션으로 검사하고 불일치 구간은 반으로 나눠 회원 단위까지 내려간다.
+ * 감사 시각은 커밋 직후 시각이므로 스냅샷 직전에 커밋된 이체는 경계에서 불일치로 보일 수 있다.
+ */
+@Slf4j
+public class Reconciler {
+
+    private static final String ITEMS = "from balance_snapshot_item where snapshot_id = ?";
+
+    private final DataSource dataSource;
+    private final ReconcileOptions options;
+
+    public Reconciler(DataSource dataSource, ReconcileOptions options) {
+        this.dataSource = dataSource;
+        this.options = options;
+    }
+
+    /**
+     * fromSnapshotId 이후 이체만 있었다면 toSnapshotId와 일치해야 한다.
+     */
+    public ReconcileReport reconcile(long fromSnapshotId, long toSnapshotId) {
+        long startTime = System.currentTimeMillis();
+        Window window = withConnection(con -> window(con, fromSnapshotId, toSnapshotId));
+        List<String> bounds = withConnection(con -> boundaries(con, toSnapshotId));
+        long[] netByRange = withConnection(con -> netByRange(con, window, bounds));
+
+        ForkJoinPool pool = new ForkJoinPool(options.getParallelism());
+        Result total;
+        try {
+            total = pool.invoke(ForkJoinTask.adapt(() -> {
+                List<RangeTask> tasks = new ArrayList<>();
+                for (int i = 0; i <= bounds.size(); i++) {
+                    String lo = i == 0 ? null : bounds.get(i - 1);
+                    String hi = i == bounds.size() ? null : bounds.get(i);
+                    tasks.add(new RangeTask(window, new KeyRange(lo, hi), netByRange[i]));
+                }
+                ForkJoinTask.invokeAll(tasks);
+                Result result = new Result();
+                for (RangeTask task : tasks) {
+                    result.add(task.join());
+                }
+                return result;
+            }));
+        } finally {
+            pool.shutdown();
+        }
+
+        ReconcileReport report = new ReconcileReport(total.expected, total.actual, total.rows,
+                total.checkedRanges, total.mismatchedRanges, total.mismatches, System.currentTimeMillis() - startTime);
+        log.info("reconcile from={} to={} balanced={} rows={} ranges={} mismatchedRanges={} elapsed={}ms rows/s={}",
+                fromSnapshotId, toSnapshotId, report.isBalanced(), report.getRowCount(), report.getCheckedRanges(),
+                report.getMismatchedRanges(), report.getElapsedMillis(), Math.round(report.rowsPerSecond()));
+        return report;
+    }
+
+    private class RangeTask extends RecursiveTask<Result> {
+
+        private final Window window;
+        private final KeyRange range;
+        private final Long net;
+
+        RangeTask(Window window, KeyRange range, Long net) {
+            this.window = window;
+            this.range = range;
+            this.net = net;
+        }
+
+        @Override
+        protected Result compute() {
+            Result result = withConnection(con -> {
+                long[] actual = sum(con, window.toId, range);
+                long[] previous = sum(con, window.fromId, range);
+                long expected = previous[1] + (net != null ? net : net(con, window, range));
+                return new Result(actual[0], expected, actual[1]);
+            });
+            if (result.expected == result.actual) {
+                return result;
+            }
+            result.mismatchedRanges++;
+
+            String mid = result.rows <= options.getLeafSize() ? null : withConnection(con -> median(con, window.toId, range, result.rows));
+            if (mid == null || mid.equals(range.getLo())) {
+                result.mismatches.addAll(withConnection(con -> memberMismatches(con, window, range)));
+                return result;
+            }
+            RangeTask left = new RangeTask(window, new KeyRange(range.getLo(), mid), null);
+            RangeTask right = new RangeTask(window, new KeyRange(mid, range.getHi()), null);
+            invokeAll(left, right);
+            result.addDrillDown(left.join());
+            result.addDrillDown(right.join());
+            return result;
+        }
+    }
+
+    private Window window(Connection con, long fromId, long toId) throws SQLException {
+        Timestamp fromAt = takenAt(con, fromId);
+        Timestamp toAt = takenAt(con, toId);
+        Set<String> existing = new HashSet<>();
+        try (PreparedStatement pstmt = con.prepareStatement("select table_name from information_schema.tables where table_name like ?")) {
+            pstmt.setString(1, TransferAuditWriter.TABLE_PREFIX + "%");
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    existing.add(rs.getString(1));
+                }
+            }
+        }
+        List<String> auditTables = new ArrayList<>();
+        LocalDate last = toAt.toInstant().atZone(options.getZone()).toLocalDate();
+        for (LocalDate date = fromAt.toInstant().atZone(options.getZone()).toLocalDate(); !date.isAfter(last); date = date.plusDays(1)) {
+            String table = TransferAuditWriter.tableName(date);
+            if (existing.contains(table)) {
+                auditTables.add(table);
+            }
+        }
+        return new Window(fromId, toId, fromAt, toAt, auditTables);
+    }
+
+    private Timestamp takenAt(Connection con, long snapshotId) throws SQLException {
+        try (PreparedStatement pstmt = con.prepareStatement("select taken_at from balance_snapshot where snapshot_id = ?")) {
+            pstmt.setLong(1, snapshotId);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                if (!rs.next()) {
+                    throw new IllegalArgumentException("snapshot not found snapshotId=" + snapshotId);
+                }
+                return rs.getTimestamp(1);
+            }
+        }
+    }
+
+    /**
+     * 스냅샷을 키 순서로 한 번 훑어서 행 수가 비슷한 initialRanges개 구간의 경계를 구한다.
+     */
+    private List<String> boundaries(Connection con, long snapshotId) throws SQLException {
+        long rows = sum(con, snapshotId, new KeyRange(null, null))[0];
+        long step = Math.max(1, (rows + options.getInitialRanges() - 1) / options.getInitialRanges());
+        List<String> bounds = new ArrayList<>();
+        try (PreparedStatement pstmt = con.prepareStatement("select member_id from " +
+                "(select member_id, row_number() over (order by member_id) rn " + ITEMS + ") t " +
+                "where mod(rn, ?) = 0 and rn < ? order by member_id")) {
+            pstmt.setLong(1, snapshotId);
+            pstmt.setLong(2, step);
+            pstmt.setLong(3, rows);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    bounds.add(rs.getString(1));
+                }
+            }
+        }
+        return bounds;
+    }
+
+    /**
+     * 처음 구간들의 이체 합계는 감사 테이블을 한 번만 읽어서 구한다.
+     */
+    private long[] netByRange(Connection con, Window window, List<String> bounds) throws SQLException {
+        long[] net = new long[bounds.size() + 1];
+        for (String table : window.auditTables) {
+            try (PreparedStatement pstmt = con.prepareStatement("select member_id, sum(delta) from (" +
+                    "select to_id member_id, money delta from " + table + " where committed_at > ? and committed_at <= ? " +
+                    "union all select from_id, -money from " + table + " where committed_at > ? and committed_at <= ?) t " +
+                    "group by member_id")) {
+                window.bindTimes(pstmt, 1);
+                window.bindTimes(pstmt, 3);
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    while (rs.next()) {
+                        int pos = Collections.binarySearch(bounds, rs.getString(1));
+                        net[pos >= 0 ? pos + 1 : -pos - 1] += rs.getLong(2);
+                    }
+                }
+            }
+        }
+        return net;
+    }
+
+    private long net(Connection con, Window window, KeyRange range) throws SQLException {
+        long net = 0;
+        for (String table : window.auditTables) {
+            net += auditSum(con, window, table, "to_id", range);
+            net -= auditSum(con, window, table, "from_id", range);
+        }
+        return net;
+    }
+
+    private long auditSum(Connection con, Window window, String table, String column, KeyRange range) throws SQLException {
+        try (PreparedStatement pstmt = con.prepareStatement("select coalesce(sum(money), 0) from " + table +
+                " where committed_at > ? and committed_at <= ?" + range.condition(column))) {
+            range.bind(pstmt, window.bindTimes(pstmt, 1));
+            try (ResultSet rs = pstmt.executeQuery()) {
+                rs.next();
+                return rs.getLong(1);
+            }
+        }
+    }
+
+    /**
+     * {행 수, 잔고 합계}
+     */
+    private long[] sum(Connection con, long snapshotId, KeyRange range) throws SQLException {
+        try (PreparedStatement pstmt = con.prepareStatement("select count(*), coalesce(sum(money), 0) " + ITEMS + range.condition("member_id"))) {
+            pstmt.setLong(1, snapshotId);
+            range.bind(pstmt, 2);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                rs.next();
+                return new long[]{rs.getLong(1), rs.getLong(2)};
+            }
+        }
+    }
+
+    private String median(Connection con, long snapshotId, KeyRange range, long rows) throws SQLException {
+        try (PreparedStatement pstmt = con.prepareStatement("select member_id " + ITEMS + range.condition("member_id") +
+                " order by member_id limit 1 offset ?")) {
+            pstmt.setLong(1, snapshotId);
+            int index = range.bind(pstmt, 2);
+            pstmt.setLong(index, rows / 2);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                return rs.next() ? rs.getString(1) : null;
+            }
+        }
+    }
+
+    private List<MemberMismatch> memberMismatches(Connection con, Window window, KeyRange range) throws SQLException {
+        //회원별 {이전 잔고, 이번 잔고, 이체 합계}
+        Map<String, long[]> members = new TreeMap<>();
+        addBalances(con, window.fromId, range, members, 0);
+        addBalances(con, window.toId, range, members, 1);
+        for (String table : window.auditTables) {
+            addTransfers(con, window, table, "to_id", range, members, 1);
+            addTransfers(con, window, table, "from_id", range, members, -1);
+        }
+
+        List<MemberMismatch> mismatches = new ArrayList<>();
+        for (Map.Entry<String, long[]> entry : members.entrySet()) {
+            long[] values = entry.getValue();
+            long expected = values[0] + values[2];
+            if (expected != values[1]) {
+                mismatches.add(new MemberMismatch(entry.getKey(), expected, values[1]));
+            }
+        }
+        return mismatches;
+    }
+
+    private void addBalances(Connection con, long snapshotId, KeyRange range, Map<String, long[]> members, int slot) throws SQLException {
+        try (PreparedStatement pstmt = con.prepareStatement("select member_id, money " + ITEMS + range.condition("member_id"))) {
+            pstmt.setLong(1, snapshotId);
+            range.bind(pstmt, 2);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    members.computeIfAbsent(rs.getString(1), id -> new long[3])[slot] = rs.getLong(2);
+                }
+            }
+        }
+    }
+
+    private void addTransfers(Connection con, Window window, String table, String column, KeyRange range,
+                              Map<String, long[]> members, int sign) throws SQLException {
+        try (PreparedStatement pstmt = con.prepareStatement("select " + column + ", sum(money) from " + table +
+                " where committed_at > ? and committed_at <= ?" + range.condition(column) + " group by " + column)) {
+            range.bind(pstmt, window.bindTimes(pstmt, 1));
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    members.computeIfAbsent(rs.getString(1), id -> new long[3])[2] += sign * rs.getLong(2);
+                }
+            }
+        }
+    }
+
+    private <T> T withConnection(SqlWork<T> work) {
+        try (Connection con = dataSource.getConnection()) {
+            con.setReadOnly(true);
+            return work.run(con);
+        } catch (SQLException e) {
+            throw new MyDbException(e);
+        }
+    }
+
+    private interface SqlWork<T> {
+        T run(Connection con) throws SQLException;
+    }
+
+    /**
+     * 비교하는 두 스냅샷과 그 사이의 감사 테이블
+     */
+    private static class Window {
+
+        private final long fromId;
+        private final long toId;
+        private final Timestamp fromAt;
+        private final Timestamp toAt;
+        private final List<String> auditTables;
+
+        Window(long fromId, long toId, Timestamp fromAt, Timestamp toAt, List<String> auditTables) {
+            this.fromId = fromId;
+            this.toId = toId;
+            this.fromAt = fromAt;
+            this.toAt = toAt;
+            this.auditTables = auditTables;
+        }
+
+        int bindTimes(PreparedStatement pstmt, int index) throws SQLException {
+            pstmt.setTimestamp(index, fromAt);
+            pstmt.setTimestamp(index + 1, toAt);
+            return index + 2;
+        }
+    }
+
+    private static class Result {
+
+        private long rows;
+        private long expected;
+        private long actual;
+        private int checkedRanges;
+        private int mismatchedRanges;
+        private final List<MemberMismatch> mismatches = new ArrayList<>();
+
+        Result() {
+        }
+
+        Result(long rows, long expected, long actual) {
+            this.rows = rows;
+            this.expected = expected;
+            this.actual = actual;
+            this.checkedRanges = 1;
+        }
+
+        void add(Result other) {
+            rows += other.rows;
+            expected += other.expected;
+            actual += other.actual;
+            addDrillDown(other);
+        }
+
+        //하위 구간은 합계가 이미 상위 구간에 포함되어 있다.
+        void addDrillDown(Result child) {
+            checkedRanges += child.checkedRanges;
+            mismatchedRanges += child.mismatchedRanges;
+            mismatches.addAll(child.mismatches);
+        }
+    }
+}
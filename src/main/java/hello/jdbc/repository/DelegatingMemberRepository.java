@@ -0,0 +1,90 @@
+package hello.jdbc.repository;
+
+import hello.jdbc.domain.Member;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * 다른 MemberRepository를 감싸는 계층(캐시 등)의 공통 부모
+ * 기본적으로 모든 호출을 target에 그대로 위임한다.
+ */
+public abstract class DelegatingMemberRepository implements MemberRepository {
+
+    protected final MemberRepository target;
+
+    protected DelegatingMemberRepository(MemberRepository target) {
+        this.target = target;
+    }
+
+    public MemberRepository getTarget() {
+        return target;
+    }
+
+    @Override
+    public Member save(Member member) {
+        return target.save(member);
+    }
+
+    @Override
+    public Member findById(String memberId) {
+        return target.findById(memberId);
+    }
+
+    @Override
+    public Optional<Member> findByIdOptional(String memberId) {
+        return target.findByIdOptional(memberId);
+    }
+
+    @Override
+    public void update(String memberId, int money) {
+        target.update(memberId, money);
+    }
+
+    @Override
+    public void updateAll(Map<String, Integer> moneyById) {
+        target.updateAll(moneyById);
+    }
+
+    @Override
+    public UpsertResult upsert(Member member) {
+        return target.upsert(member);
+    }
+
+    @Override
+    public Map<String, UpsertResult> upsertAll(Map<String, Integer> moneyById) {
+        return target.upsertAll(moneyById);
+    }
+
+    @Override
+    public int updateMoneyInRange(String fromId, String toId, BigDecimal multiplier, int addend) {
+        return target.updateMoneyInRange(fromId, toId, multiplier, addend);
+    }
+
+    @Override
+    public void delete(String memberId) {
+        target.delete(memberId);
+    }
+
+    @Override
+    public int findMoneyById(String memberId) {
+        return target.findMoneyById(memberId);
+    }
+
+    @Override
+    public boolean existsById(String memberId) {
+        return target.existsById(memberId);
+    }
+
+    @Override
+    public List<Member> findByMoneyBetween(int min, int max, Member afterKey, int limit) {
+        return target.findByMoneyBetween(min, max, afterKey, limit);
+    }
+
+    @Override
+    public long countByMoneyBelow(int money) {
+        return target.countByMoneyBelow(money);
+    }
+}
@@ -0,0 +1,42 @@
+package hello.jdbc.repository;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * member_id 구간 [fromId, toId) 단위로 잔고를 바꾸는 SQL, null은 열린 끝
+ * 구간 조건은 member_id 범위 스캔(PK 인덱스)이므로 구간에 속한 row에만 락을 건다.
+ */
+final class MemberRangeSql {
+
+    private MemberRangeSql() {
+    }
+
+    /**
+     * money = round(money * multiplier + addend)
+     */
+    static String updateMoney(String fromId, String toId) {
+        StringBuilder sql = new StringBuilder("update member set money = cast(round(money * ? + ?, 0) as integer) where 1 = 1");
+        if (fromId != null) {
+            sql.append(" and member_id >= ?");
+        }
+        if (toId != null) {
+            sql.append(" and member_id < ?");
+        }
+        return sql.toString();
+    }
+
+    static Object[] updateMoneyArgs(String fromId, String toId, BigDecimal multiplier, int addend) {
+        List<Object> args = new ArrayList<>(4);
+        args.add(multiplier);
+        args.add(addend);
+        if (fromId != null) {
+            args.add(fromId);
+        }
+        if (toId != null) {
+            args.add(toId);
+        }
+        return args.toArray();
+    }
+}
@@ -2,10 +2,82 @@ package hello.jdbc.repository;
 
 import hello.jdbc.domain.Member;
 
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Consumer;
+
 public interface MemberRepository {
 
     Member save(Member member);
     Member findById(String memberId);
+
+    /**
+     * 회원이 없는 경우가 정상 흐름인 곳에서 사용, 예외를 만들지 않는다.
+     */
+    Optional<Member> findByIdOptional(String memberId);
+
     void update(String memberId, int money);
     void delete(String memberId);
+
+    /**
+     * 여러 회원의 잔고를 하나의 JDBC batch로 변경한다.
+     */
+    void updateAll(Map<String, Integer> moneyById);
+
+    /**
+     * 없으면 저장, 있으면 잔고 변경 - 한 번의 DB 왕복
+     */
+    UpsertResult upsert(Member member);
+
+    /**
+     * 여러 회원을 upsert한다. MemberUpsertSql.BATCH_SIZE 개씩 한 번의 DB 왕복으로 처리한다.
+     * 결과는 moneyById의 순서를 따른다.
+     */
+    Map<String, UpsertResult> upsertAll(Map<String, Integer> moneyById);
+
+    /**
+     * member_id가 [fromId, toId) 구간인 회원의 잔고를 round(money * multiplier + addend)로 바꾼다. null은 열린 끝
+     * 한 문장으로 DB에서 처리하며 변경된 회원 수를 반환한다.
+     */
+    int updateMoneyInRange(String fromId, String toId, BigDecimal multiplier, int addend);
+
+    /**
+     * 잔고만 조회 - money 컬럼 하나만 읽는다.
+     */
+    int findMoneyById(String memberId);
+
+    /**
+     * 존재 여부만 조회 - 컬럼을 읽지 않는다.
+     */
+    boolean existsById(String memberId);
+
+    /**
+     * money가 min 이상 max 이하인 회원을 (money, member_id) 순서로 limit개 조회한다.
+     * afterKey는 이전 페이지의 마지막 회원이며, 첫 페이지는 null을 넘긴다. (keyset 페이징)
+     */
+    List<Member> findByMoneyBetween(int min, int max, Member afterKey, int limit);
+
+    long countByMoneyBelow(int money);
+
+    /**
+     * findByMoneyBetween을 페이지 단위로 반복해서 범위 전체를 순회한다.
+     * 한 번에 pageSize개만 메모리에 올린다.
+     */
+    default long forEachByMoneyBetween(int min, int max, int pageSize, Consumer<Member> action) {
+        long count = 0;
+        Member afterKey = null;
+        while (true) {
+            List<Member> page = findByMoneyBetween(min, max, afterKey, pageSize);
+            for (Member member : page) {
+                action.accept(member);
+            }
+            count += page.size();
+            if (page.size() < pageSize) {
+                return count;
+            }
+            afterKey = page.get(page.size() - 1);
+        }
+    }
 }
@@ -36,7 +36,7 @@ public class MemberRepositoryV0 {
     }
 
     public Member findById(String memberId) throws SQLException {
-        String sql = "select * from member where member_id = ?";
+        String sql = "select member_id, money from member where member_id = ?";
 
         Connection con = null; //DB와 애플리케이션을 연결
         PreparedStatement pstmt = null; //DB에 SQL을 넘김
@@ -44,7 +44,7 @@ public class MemberRepositoryV2 {
     }
 
     public Member findById(String memberId) throws SQLException {
-        String sql = "select * from member where member_id = ?";
+        String sql = "select member_id, money from member where member_id = ?";
 
         Connection con = null; //DB와 애플리케이션을 연결
         PreparedStatement pstmt = null; //DB에 SQL을 넘김
@@ -74,7 +74,7 @@ public class MemberRepositoryV2 {
     }
 
     public Member findById(Connection con, String memberId) throws SQLException {
-        String sql = "select * from member where member_id = ?";
+        String sql = "select member_id, money from member where member_id = ?";
 
         PreparedStatement pstmt = null; //DB에 SQL을 넘김
         ResultSet rs = null; //DB로부터 응답 결과를 받음
@@ -1,14 +1,25 @@
 package hello.jdbc.repository;
 
 import hello.jdbc.domain.Member;
+import hello.jdbc.domain.MemberParameterBinder;
+import hello.jdbc.domain.MemberRowMapper;
+import hello.jdbc.monitor.ExceptionTranslationEvent;
+import hello.jdbc.repository.ex.LightweightDuplicateKeyException;
+import hello.jdbc.repository.ex.MemberNotFoundException;
 import hello.jdbc.repository.ex.MyDbException;
+import hello.jdbc.repository.ex.MyDbTimeoutException;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.jdbc.datasource.DataSourceUtils;
 import org.springframework.jdbc.support.JdbcUtils;
 
 import javax.sql.DataSource;
+import java.math.BigDecimal;
 import java.sql.*;
-import java.util.NoSuchElementException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
 
 /**
  * 예외 누수 문제 해결
@@ -34,13 +45,18 @@ public class MemberRepositoryV4_1 implements MemberRepository {
 
         try {
             con = getConnection();
-            pstmt = con.prepareStatement(sql);
-            pstmt.setString(1, member.getMemberId()); //sql 파라미터 바인딩
-            pstmt.setInt(2, member.getMoney()); //sql 파라미터 바인딩
+            pstmt = prepareStatement(con, sql);
+            MemberParameterBinder.bind(pstmt, 1, member); //sql 파라미터 바인딩
             pstmt.executeUpdate(); //커넥션을 통해 SQL을 데이터베이스에 전달하며 영향받은 row수를 반환
             return member;
         } catch (SQLException e) {
-            throw new MyDbException(e);
+            //h2 db 키 중복, 중복 가입은 정상 흐름이므로 스택 트레이스 없는 예외 사용
+            if (e.getErrorCode() == 23505) {
+                LightweightDuplicateKeyException duplicate = new LightweightDuplicateKeyException(e);
+                ExceptionTranslationEvent.emit("save", e, duplicate);
+                throw duplicate;
+            }
+            throw translate(e);
         } finally {
             close(con, pstmt, null);
         }
@@ -49,7 +65,7 @@ public class MemberRepositoryV4_1 implements MemberRepository {
 
     @Override
     public Member findById(String memberId) {
-        String sql = "select * from member where member_id = ?";
+        String sql = "select member_id, money from member where member_id = ?";
 
         Connection con = null; //DB와 애플리케이션을 연결
         PreparedStatement pstmt = null; //DB에 SQL을 넘김
@@ -57,21 +73,43 @@ public class MemberRepositoryV4_1 implements MemberRepository {
 
         try {
             con = getConnection();
-            pstmt = con.prepareStatement(sql);
+            pstmt = prepareStatement(con, sql);
             pstmt.setString(1, memberId);
 
             rs = pstmt.executeQuery(); //데이터 조회시에는 executeQuery
             if (rs.next()) {
-                Member member = new Member();
-                member.setMemberId(rs.getString("member_id"));
-                member.setMoney(rs.getInt("money"));
-                return member;
+                return MemberRowMapper.newMapper().mapRow(rs, 0);
             } else {
-                throw new NoSuchElementException("member not found memberId = " + memberId);
+                throw new MemberNotFoundException(memberId);
             }
 
         } catch (SQLException e) {
-            throw new MyDbException(e);
+            throw translate(e);
+        } finally {
+            close(con, pstmt, rs);
+        }
+    }
+
+    @Override
+    public Optional<Member> findByIdOptional(String memberId) {
+        String sql = "select member_id, money from member where member_id = ?";
+
+        Connection con = null; //DB와 애플리케이션을 연결
+        PreparedStatement pstmt = null; //DB에 SQL을 넘김
+        ResultSet rs = null; //DB로부터 응답 결과를 받음
+
+        try {
+            con = getConnection();
+            pstmt = prepareStatement(con, sql);
+            pstmt.setString(1, memberId);
+
+            rs = pstmt.executeQuery();
+            if (rs.next()) {
+                return Optional.of(MemberRowMapper.newMapper().mapRow(rs, 0));
+            }
+            return Optional.empty();
+        } catch (SQLException e) {
+            throw translate(e);
         } finally {
             close(con, pstmt, rs);
         }
@@ -86,18 +124,126 @@ public class MemberRepositoryV4_1 implements MemberRepository {
 
         try {
             con = getConnection();
-            pstmt = con.prepareStatement(sql);
+            pstmt = prepareStatement(con, sql);
             pstmt.setInt(1, money); //sql 파라미터 바인딩
             pstmt.setString(2, memberId); //sql 파라미터 바인딩
             int resultSize = pstmt.executeUpdate();//커넥션을 통해 SQL을 데이터베이스에 전달하며 영향받은 row수를 반환
             log.info("resultSize={}", resultSize);
         } catch (SQLException e) {
-            throw new MyDbException(e);
+            throw translate(e);
+        } finally {
+            close(con, pstmt, null);
+        }
+    }
+
+    @Override
+    public void updateAll(Map<String, Integer> moneyById) {
+        String sql = "update member set money=? where member_id=?";
+
+        Connection con = null; //DB와 애플리케이션을 연결
+        PreparedStatement pstmt = null; //DB에 SQL을 넘김
+
+        try {
+            con = getConnection();
+            pstmt = prepareStatement(con, sql);
+            for (Map.Entry<String, Integer> entry : moneyById.entrySet()) {
+                pstmt.setInt(1, entry.getValue());
+                pstmt.setString(2, entry.getKey());
+                pstmt.addBatch();
+            }
+            int[] resultSizes = pstmt.executeBatch(); //모아둔 SQL을 한 번에 전달
+            log.info("batch size={}", resultSizes.length);
+        } catch (SQLException e) {
+            throw translate(e);
+        } finally {
+            close(con, pstmt, null);
+        }
+    }
+
+    @Override
+    public int updateMoneyInRange(String fromId, String toId, BigDecimal multiplier, int addend) {
+        String sql = MemberRangeSql.updateMoney(fromId, toId);
+        Object[] args = MemberRangeSql.updateMoneyArgs(fromId, toId, multiplier, addend);
+
+        Connection con = null; //DB와 애플리케이션을 연결
+        PreparedStatement pstmt = null; //DB에 SQL을 넘김
+
+        try {
+            con = getConnection();
+            pstmt = prepareStatement(con, sql);
+            for (int i = 0; i < args.length; i++) {
+                pstmt.setObject(i + 1, args[i]); //sql 파라미터 바인딩
+            }
+            int resultSize = pstmt.executeUpdate();
+            log.info("range update fromId={}, toId={}, resultSize={}", fromId, toId, resultSize);
+            return resultSize;
+        } catch (SQLException e) {
+            throw translate(e);
         } finally {
             close(con, pstmt, null);
         }
     }
 
+    @Override
+    public UpsertResult upsert(Member member) {
+        String sql = MemberUpsertSql.UPSERT;
+
+        Connection con = null; //DB와 애플리케이션을 연결
+        PreparedStatement pstmt = null; //DB에 SQL을 넘김
+        ResultSet rs = null; //DB로부터 응답 결과를 받음
+
+        try {
+            con = getConnection();
+            pstmt = prepareStatement(con, sql);
+            MemberParameterBinder.bind(pstmt, 1, member);
+
+            rs = pstmt.executeQuery();
+            return rs.next() ? UpsertResult.UPDATED : UpsertResult.INSERTED;
+        } catch (SQLException e) {
+            throw translate(e);
+        } finally {
+            close(con, pstmt, rs);
+        }
+    }
+
+    @Override
+    public Map<String, UpsertResult> upsertAll(Map<String, Integer> moneyById) {
+        Map<String, UpsertResult> results = new LinkedHashMap<>();
+        List<Map.Entry<String, Integer>> entries = new ArrayList<>(moneyById.entrySet());
+        for (int from = 0; from < entries.size(); from += MemberUpsertSql.BATCH_SIZE) {
+            upsertChunk(entries.subList(from, Math.min(from + MemberUpsertSql.BATCH_SIZE, entries.size())), results);
+        }
+        return results;
+    }
+
+    private void upsertChunk(List<Map.Entry<String, Integer>> chunk, Map<String, UpsertResult> results) {
+        String sql = MemberUpsertSql.upsert(chunk.size());
+
+        Connection con = null; //DB와 애플리케이션을 연결
+        PreparedStatement pstmt = null; //DB에 SQL을 넘김
+        ResultSet rs = null; //DB로부터 응답 결과를 받음
+
+        try {
+            con = getConnection();
+            pstmt = prepareStatement(con, sql);
+            int index = 1;
+            for (Map.Entry<String, Integer> entry : chunk) {
+                pstmt.setString(index++, entry.getKey());
+                pstmt.setInt(index++, entry.getValue());
+                results.put(entry.getKey(), UpsertResult.INSERTED);
+            }
+
+            rs = pstmt.executeQuery(); //merge 전에 있던 회원만 조회된다.
+            while (rs.next()) {
+                results.put(rs.getString(1), UpsertResult.UPDATED);
+            }
+        } catch (SQLException e) {
+            throw translate(e);
+        } finally {
+            close(con, pstmt, rs);
+        }
+    }
+
     @Override
     public void delete(String memberId) {
         String sql = "delete from member where member_id=?";
@@ -107,16 +253,126 @@ public class MemberRepositoryV4_1 implements MemberRepository {
 
         try {
             con = getConnection();
-            pstmt = con.prepareStatement(sql);
+            pstmt = prepareStatement(con, sql);
             pstmt.setString(1, memberId); //sql 파라미터 바인딩
             pstmt.executeUpdate();//커넥션을 통해 SQL을 데이터베이스에 전달하며 영향받은 row수를 반환
         } catch (SQLException e) {
-            throw new MyDbException(e);
+            throw translate(e);
         } finally {
             close(con, pstmt, null);
         }
     }
 
+    @Override
+    public int findMoneyById(String memberId) {
+        String sql = "select money from member where member_id = ?";
+
+        Connection con = null; //DB와 애플리케이션을 연결
+        PreparedStatement pstmt = null; //DB에 SQL을 넘김
+        ResultSet rs = null; //DB로부터 응답 결과를 받음
+
+        try {
+            con = getConnection();
+            pstmt = prepareStatement(con, sql);
+            pstmt.setString(1, memberId);
+
+            rs = pstmt.executeQuery();
+            if (rs.next()) {
+                return rs.getInt(1);
+            } else {
+                throw new MemberNotFoundException(memberId);
+            }
+
+        } catch (SQLException e) {
+            throw translate(e);
+        } finally {
+            close(con, pstmt, rs);
+        }
+    }
+
+    @Override
+    public boolean existsById(String memberId) {
+        String sql = "select 1 from member where member_id = ?";
+
+        Connection con = null; //DB와 애플리케이션을 연결
+        PreparedStatement pstmt = null; //DB에 SQL을 넘김
+        ResultSet rs = null; //DB로부터 응답 결과를 받음
+
+        try {
+            con = getConnection();
+            pstmt = prepareStatement(con, sql);
+            pstmt.setString(1, memberId);
+
+            rs = pstmt.executeQuery();
+            return rs.next();
+        } catch (SQLException e) {
+            throw translate(e);
+        } finally {
+            close(con, pstmt, rs);
+        }
+    }
+
+    @Override
+    public List<Member> findByMoneyBetween(int min, int max, Member afterKey, int limit) {
+        String sql = afterKey == null
+                ? "select member_id, money from member where money between ? and ? order by money, member_id limit ?"
+                : "select member_id, money from member where money between ? and ?" +
+                " and (money > ? or (money = ? and member_id > ?)) order by money, member_id limit ?";
+
+        Connection con = null; //DB와 애플리케이션을 연결
+        PreparedStatement pstmt = null; //DB에 SQL을 넘김
+        ResultSet rs = null; //DB로부터 응답 결과를 받음
+
+        try {
+            con = getConnection();
+            pstmt = prepareStatement(con, sql);
+            int index = 1;
+            pstmt.setInt(index++, min);
+            pstmt.setInt(index++, max);
+            if (afterKey != null) {
+                pstmt.setInt(index++, afterKey.getMoney());
+                pstmt.setInt(index++, afterKey.getMoney());
+                pstmt.setString(index++, afterKey.getMemberId());
+            }
+            pstmt.setInt(index, limit);
+
+            rs = pstmt.executeQuery();
+            List<Member> members = new ArrayList<>();
+            MemberRowMapper mapper = MemberRowMapper.newMapper(); //컬럼 인덱스는 첫 행에서 한 번만 찾는다.
+            while (rs.next()) {
+                members.add(mapper.mapRow(rs, members.size()));
+            }
+            return members;
+        } catch (SQLException e) {
+            throw translate(e);
+        } finally {
+            close(con, pstmt, rs);
+        }
+    }
+
+    @Override
+    public long countByMoneyBelow(int money) {
+        String sql = "select count(*) from member where money < ?";
+
+        Connection con = null; //DB와 애플리케이션을 연결
+        PreparedStatement pstmt = null; //DB에 SQL을 넘김
+        ResultSet rs = null; //DB로부터 응답 결과를 받음
+
+        try {
+            con = getConnection();
+            pstmt = prepareStatement(con, sql);
+            pstmt.setInt(1, money);
+
+            rs = pstmt.executeQuery();
+            rs.next();
+            return rs.getLong(1);
+        } catch (SQLException e) {
+            throw translate(e);
+        } finally {
+            close(con, pstmt, rs);
+        }
+    }
+
     private void close(Connection con, Statement stmt, ResultSet rs) {
         JdbcUtils.closeResultSet(rs);
         JdbcUtils.closeStatement(stmt);
@@ -125,6 +381,20 @@ public class MemberRepositoryV4_1 implements MemberRepository {
 
     }
 
+    private MyDbException translate(SQLException e) {
+        //쿼리 타임아웃, Statement.cancel
+        MyDbException translated = e instanceof SQLTimeoutException ? new MyDbTimeoutException(e) : new MyDbException(e);
+        ExceptionTranslationEvent.emit(null, e, translated);
+        return translated;
+    }
+
+    private PreparedStatement prepareStatement(Connection con, String sql) throws SQLException {
+        PreparedStatement pstmt = con.prepareStatement(sql);
+        //트랜잭션 타임아웃이 있으면 남은 시간을 쿼리 타임아웃으로 설정
+        DataSourceUtils.applyTransactionTimeout(pstmt, dataSource);
+        return pstmt;
+    }
+
     private Connection getConnection() throws SQLException {
         //주의! 트랜잭션 동기화를 사용하려면 DataSourceUtils를 사용해야 한다.
         Connection con = DataSourceUtils.getConnection(dataSource);
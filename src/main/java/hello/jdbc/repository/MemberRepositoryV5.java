@@ -1,11 +1,24 @@
 package hello.jdbc.repository;
 
 import hello.jdbc.domain.Member;
+import hello.jdbc.domain.MemberParameterBinder;
+import hello.jdbc.domain.MemberRowMapper;
+import hello.jdbc.repository.ex.MemberNotFoundException;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
 import org.springframework.jdbc.core.JdbcTemplate;
-import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.ResultSetExtractor;
 
 import javax.sql.DataSource;
+import java.math.BigDecimal;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
 
 /**
  * JdbcTemplate 사용
@@ -22,24 +35,56 @@ public class MemberRepositoryV5 implements MemberRepository {
     @Override
     public Member save(Member member) {
         String sql = "insert into member(member_id, money) values (?, ?)";
-        template.update(sql, member.getMemberId(), member.getMoney());
+        template.update(sql, ps -> MemberParameterBinder.bind(ps, 1, member));
         return member;
     }
 
     @Override
     public Member findById(String memberId) {
-        String sql = "select * from member where member_id = ?";
-        Member member = template.queryForObject(sql, memberRowMapper(), memberId);
-        return member;
+        //queryForObject는 회원이 없으면 스택 트레이스가 있는 EmptyResultDataAccessException을 만든다.
+        return findByIdOptional(memberId).orElseThrow(() -> new MemberNotFoundException(memberId));
+    }
+
+    @Override
+    public Optional<Member> findByIdOptional(String memberId) {
+        String sql = "select member_id, money from member where member_id = ?";
+        List<Member> members = template.query(sql, MemberRowMapper.newMapper(), memberId);
+        return members.isEmpty() ? Optional.empty() : Optional.of(members.get(0));
+    }
+
+    @Override
+    public int findMoneyById(String memberId) {
+        String sql = "select money from member where member_id = ?";
+        List<Integer> money = template.queryForList(sql, Integer.class, memberId);
+        if (money.isEmpty()) {
+            throw new MemberNotFoundException(memberId);
+        }
+        return money.get(0);
     }
 
-    private RowMapper<Member> memberRowMapper() {
-        return (rs, rowNum) -> {
-            Member member = new Member();
-            member.setMemberId(rs.getString("member_id"));
-            member.setMoney(rs.getInt("money"));
-            return member;
-        };
+    @Override
+    public boolean existsById(String memberId) {
+        String sql = "select 1 from member where member_id = ?";
+        Boolean exists = template.query(sql, (ResultSetExtractor<Boolean>) ResultSet::next, memberId);
+        return Boolean.TRUE.equals(exists);
+    }
+
+    @Override
+    public List<Member> findByMoneyBetween(int min, int max, Member afterKey, int limit) {
+        if (afterKey == null) {
+            String sql = "select member_id, money from member where money between ? and ? order by money, member_id limit ?";
+            return template.query(sql, MemberRowMapper.newMapper(), min, max, limit);
+        }
+        String sql = "select member_id, money from member where money between ? and ?" +
+                " and (money > ? or (money = ? and member_id > ?)) order by money, member_id limit ?";
+        return template.query(sql, MemberRowMapper.newMapper(),
+                min, max, afterKey.getMoney(), afterKey.getMoney(), afterKey.getMemberId(), limit);
+    }
+
+    @Override
+    public long countByMoneyBelow(int money) {
+        String sql = "select count(*) from member where money < ?";
+        return template.queryForObject(sql, Long.class, money);
     }
 
     @Override
@@ -48,6 +93,57 @@ public class MemberRepositoryV5 implements MemberRepository {
         template.update(sql, money, memberId);
     }
 
+    @Override
+    public void updateAll(Map<String, Integer> moneyById) {
+        String sql = "update member set money=? where member_id=?";
+        List<Map.Entry<String, Integer>> entries = new ArrayList<>(moneyById.entrySet());
+        template.batchUpdate(sql, new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement ps, int i) throws SQLException {
+                Map.Entry<String, Integer> entry = entries.get(i);
+                ps.setInt(1, entry.getValue());
+                ps.setString(2, entry.getKey());
+            }
+
+            @Override
+            public int getBatchSize() {
+                return entries.size();
+            }
+        });
+    }
+
+    @Override
+    public UpsertResult upsert(Member member) {
+        Boolean existed = template.query(MemberUpsertSql.UPSERT,
+                ps -> MemberParameterBinder.bind(ps, 1, member), (ResultSetExtractor<Boolean>) ResultSet::next);
+        return Boolean.TRUE.equals(existed) ? UpsertResult.UPDATED : UpsertResult.INSERTED;
+    }
+
+    @Override
+    public Map<String, UpsertResult> upsertAll(Map<String, Integer> moneyById) {
+        Map<String, UpsertResult> results = new LinkedHashMap<>();
+        List<Map.Entry<String, Integer>> entries = new ArrayList<>(moneyById.entrySet());
+        for (int from = 0; from < entries.size(); from += MemberUpsertSql.BATCH_SIZE) {
+            List<Map.Entry<String, Integer>> chunk = entries.subList(from, Math.min(from + MemberUpsertSql.BATCH_SIZE, entries.size()));
+            Object[] args = new Object[chunk.size() * 2];
+            for (int i = 0; i < chunk.size(); i++) {
+                args[i * 2] = chunk.get(i).getKey();
+                args[i * 2 + 1] = chunk.get(i).getValue();
+                results.put(chunk.get(i).getKey(), UpsertResult.INSERTED);
+            }
+            //merge 전에 있던 회원만 조회된다.
+            template.query(MemberUpsertSql.upsert(chunk.size()),
+                    rs -> { results.put(rs.getString(1), UpsertResult.UPDATED); }, args);
+        }
+        return results;
+    }
+
+    @Override
+    public int updateMoneyInRange(String fromId, String toId, BigDecimal multiplier, int addend) {
+        return template.update(MemberRangeSql.updateMoney(fromId, toId),
+                MemberRangeSql.updateMoneyArgs(fromId, toId, multiplier, addend));
+    }
+
     @Override
     public void delete(String memberId) {
         String sql = "delete from member where member_id=?";
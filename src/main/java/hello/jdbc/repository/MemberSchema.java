@@ -0,0 +1,114 @@
+package hello.jdbc.repository;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.sql.DataSource;
+
+/**
+ * member 테이블/인덱스 관리
+ *
+ * idx_member_money(money, member_id)
+ * 잔고 범위 조회와 keyset 페이징(order by money, member_id)을 인덱스 범위 스캔으로 처리하고,
+ * countByMoneyBelow는 테이블을 읽지 않고 인덱스만으로 처리한다.
+ */
+@Slf4j
+public class MemberSchema {
+
+    public static final String MONEY_INDEX = "IDX_MEMBER_MONEY";
+    public static final String ID_SEQUENCE = "MEMBER_ID_SEQ";
+
+    private final JdbcTemplate template;
+
+    public MemberSchema(DataSource dataSource) {
+        this.template = new JdbcTemplate(dataSource);
+    }
+
+    /**
+     * 내장 DB(테스트, 벤치마크)용
+     */
+    public void createMemberTable() {
+        template.execute("create table if not exists member (member_id varchar(10) primary key, money integer not null default 0)");
+    }
+
+    /**
+     * 회원 ID 블록 할당용 시퀀스, 값 하나가 ID 블록 하나다.
+     */
+    public void createIdSequence() {
+        template.execute("create sequence if not exists " + ID_SEQUENCE + " start with 1");
+    }
+
+    /**
+     * 잔고 변경 이벤트 outbox, 릴레이가 event_id 순서로 읽고 발행 후 삭제하거나 published_at을 기록한다.
+     */
+    public void createBalanceEventTable() {
+        template.execute("create table if not exists balance_event (" +
+                "event_id bigint auto_increment primary key, " +
+                "member_id varchar(10) not null, " +
+                "event_type varchar(10) not null, " +
+                "money integer, " +
+                "created_at timestamp not null, " +
+                "published_at timestamp)");
+        template.execute("create index if not exists idx_balance_event_unpublished on balance_event(published_at, event_id)");
+    }
+
+    /**
+     * 잔고 이력 - 변경 로그와 주기적인 전체 스냅샷
+     * balance_change.money가 null이면 삭제된 회원이다.
+     */
+    public void createBalanceHistoryTables() {
+        template.execute("create table if not exists balance_change (" +
+                "change_id bigint primary key, " +
+                "member_id varchar(10) not null, " +
+                "money integer, " +
+                "changed_at timestamp not null)");
+        template.execute("create index if not exists idx_balance_change_member on balance_change(member_id, changed_at)");
+        template.execute("create index if not exists idx_balance_change_time on balance_change(changed_at)");
+        template.execute("create table if not exists balance_snapshot (" +
+                "snapshot_id bigint auto_increment primary key, " +
+                "taken_at timestamp not null)");
+        template.execute("create index if not exists idx_balance_snapshot_time on balance_snapshot(taken_at)");
+        template.execute("create table if not exists balance_snapshot_item (" +
+                "snapshot_id bigint not null, " +
+                "member_id varchar(10) not null, " +
+                "money integer not null, " +
+                "primary key (snapshot_id, member_id))");
+    }
+
+    /**
+     * 구간 단위 일괄 잔고 변경(BulkBalanceJob)의 작업과 구간별 진행 상태
+     */
+    public void createBulkJobTables() {
+        template.execute("create table if not exists bulk_job (" +
+                "job_id varchar(50) primary key, " +
+                "multiplier decimal(19, 6) not null, " +
+                "addend integer not null, " +
+                "created_at timestamp not null, " +
+                "completed_at timestamp)");
+        template.execute("create table if not exists bulk_job_range (" +
+                "job_id varchar(50) not null, " +
+                "range_no integer not null, " +
+                "from_id varchar(10), " +
+                "to_id varchar(10), " +
+                "updated_rows integer, " +
+                "done_at timestamp, " +
+                "primary key (job_id, range_no))");
+    }
+
+    public void createMoneyIndex() {
+        long start = System.currentTimeMillis();
+        template.execute("create index if not exists " + MONEY_INDEX + " on member(money, member_id)");
+        log.info("money index ready elapsed={}ms", System.currentTimeMillis() - start);
+    }
+
+    public void dropMoneyIndex() {
+        template.execute("drop index if exists " + MONEY_INDEX);
+    }
+
+    public boolean hasMoneyIndex() {
+        Long count = template.queryForObject(
+                "select count(*) from information_schema.indexes where table_name = 'MEMBER' and index_name = ?",
+                Long.class, MONEY_INDEX);
+        return count != null && count > 0;
+    }
+}
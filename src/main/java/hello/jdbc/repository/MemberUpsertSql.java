@@ -0,0 +1,28 @@
+package hello.jdbc.repository;
+
+/**
+ * H2 MERGE INTO ... KEY(member_id) 기반 upsert SQL
+ *
+ * old table(merge ...)은 merge 전에 존재하던 row만 돌려주므로,
+ * 조회된 member_id는 UPDATED, 나머지는 INSERTED다. 판별을 위한 추가 조회가 필요 없다.
+ */
+final class MemberUpsertSql {
+
+    /**
+     * 한 문장에 담는 최대 row 수, 파라미터 수 = 2 * BATCH_SIZE
+     */
+    static final int BATCH_SIZE = 500;
+
+    static final String UPSERT = upsert(1);
+
+    private MemberUpsertSql() {
+    }
+
+    static String upsert(int rows) {
+        StringBuilder sql = new StringBuilder("select member_id from old table (merge into member(member_id, money) key(member_id) values ");
+        for (int i = 0; i < rows; i++) {
+            sql.append(i == 0 ? "(?, ?)" : ", (?, ?)");
+        }
+        return sql.append(')').toString();
+    }
+}
@@ -0,0 +1,32 @@
+package hello.jdbc.repository;
+
+import hello.jdbc.domain.Member;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * MemberRepository의 리액티브 버전
+ * 쿼리가 진행되는 동안 스레드를 점유하지 않는다.
+ */
+public interface ReactiveMemberRepository {
+
+    Mono<Member> save(Member member);
+
+    /**
+     * 회원이 없으면 빈 Mono
+     */
+    Mono<Member> findById(String memberId);
+
+    /**
+     * 잔고만 조회, 회원이 없으면 MemberNotFoundException
+     */
+    Mono<Integer> findMoneyById(String memberId);
+
+    Mono<Void> update(String memberId, int money);
+    Mono<Void> delete(String memberId);
+
+    /**
+     * money가 min 이상 max 이하인 회원을 (money, member_id) 순서로 스트리밍한다.
+     */
+    Flux<Member> findByMoneyBetween(int min, int max);
+}
@@ -0,0 +1,88 @@
+package hello.jdbc.repository;
+
+import hello.jdbc.domain.Member;
+import hello.jdbc.repository.ex.MemberNotFoundException;
+import io.r2dbc.spi.ConnectionFactory;
+import io.r2dbc.spi.Row;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.r2dbc.core.DatabaseClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * R2DBC DatabaseClient 사용
+ *
+ * ConnectionFactoryUtils로 커넥션을 획득하므로 R2dbcTransactionManager(TransactionalOperator) 트랜잭션에 참여한다.
+ * R2dbcException은 DataAccessException으로 변환된다.
+ */
+@Slf4j
+public class ReactiveMemberRepositoryV1 implements ReactiveMemberRepository {
+
+    private final DatabaseClient client;
+
+    public ReactiveMemberRepositoryV1(ConnectionFactory connectionFactory) {
+        this.client = DatabaseClient.create(connectionFactory);
+    }
+
+    @Override
+    public Mono<Member> save(Member member) {
+        String sql = "insert into member(member_id, money) values(:memberId, :money)";
+        return client.sql(sql)
+                .bind("memberId", member.getMemberId())
+                .bind("money", member.getMoney())
+                .fetch().rowsUpdated()
+                .thenReturn(member);
+    }
+
+    @Override
+    public Mono<Member> findById(String memberId) {
+        String sql = "select member_id, money from member where member_id = :memberId";
+        return client.sql(sql)
+                .bind("memberId", memberId)
+                .map(ReactiveMemberRepositoryV1::toMember)
+                .one();
+    }
+
+    @Override
+    public Mono<Integer> findMoneyById(String memberId) {
+        String sql = "select money from member where member_id = :memberId";
+        return client.sql(sql)
+                .bind("memberId", memberId)
+                .map(row -> row.get("money", Integer.class))
+                .one()
+                .switchIfEmpty(Mono.error(() -> new MemberNotFoundException(memberId)));
+    }
+
+    @Override
+    public Mono<Void> update(String memberId, int money) {
+        String sql = "update member set money = :money where member_id = :memberId";
+        return client.sql(sql)
+                .bind("money", money)
+                .bind("memberId", memberId)
+                .fetch().rowsUpdated()
+                .then();
+    }
+
+    @Override
+    public Mono<Void> delete(String memberId) {
+        String sql = "delete from member where member_id = :memberId";
+        return client.sql(sql)
+                .bind("memberId", memberId)
+                .fetch().rowsUpdated()
+                .then();
+    }
+
+    @Override
+    public Flux<Member> findByMoneyBetween(int min, int max) {
+        String sql = "select member_id, money from member where money between :min and :max order by money, member_id";
+        return client.sql(sql)
+                .bind("min", min)
+                .bind("max", max)
+                .map(ReactiveMemberRepositoryV1::toMember)
+                .all();
+    }
+
+    private static Member toMember(Row row) {
+        return new Member(row.get("member_id", String.class), row.get("money", Integer.class));
+    }
+}
@@ -0,0 +1,8 @@
+package hello.jdbc.repository;
+
+/**
+ * upsert 결과
+ */
+public enum UpsertResult {
+    INSERTED, UPDATED
+}
@@ -0,0 +1,30 @@
+package hello.jdbc.repository.ex;
+
+/**
+ * DB 보호 계층(DbGuard)이 DB를 호출하지 않고 바로 거절할 때 던지는 예외
+ * 과부하 상황에서 대량으로 발생하므로 스택 트레이스를 만들지 않는다.
+ */
+public class DbUnavailableException extends MyDbException {
+
+    public enum Reason {
+        /**
+         * 동시 실행 한도 초과
+         */
+        BULKHEAD_FULL,
+        /**
+         * 서킷 열림
+         */
+        CIRCUIT_OPEN
+    }
+
+    private final Reason reason;
+
+    public DbUnavailableException(Reason reason, String message) {
+        super(message, null, false, false);
+        this.reason = reason;
+    }
+
+    public Reason getReason() {
+        return reason;
+    }
+}
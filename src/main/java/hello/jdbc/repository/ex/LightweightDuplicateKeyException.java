@@ -0,0 +1,20 @@
+package hello.jdbc.repository.ex;
+
+/**
+ * 스택 트레이스를 만들지 않는 MyDuplicateKeyException
+ * 중복 가입처럼 키 중복이 정상 흐름인 경우에 사용한다.
+ */
+public class LightweightDuplicateKeyException extends MyDuplicateKeyException {
+
+    public LightweightDuplicateKeyException(String message) {
+        super(message, null, false, false);
+    }
+
+    public LightweightDuplicateKeyException(String message, Throwable cause) {
+        super(message, cause, false, false);
+    }
+
+    public LightweightDuplicateKeyException(Throwable cause) {
+        super(cause == null ? null : cause.toString(), cause, false, false);
+    }
+}
@@ -0,0 +1,19 @@
+package hello.jdbc.repository.ex;
+
+import java.util.NoSuchElementException;
+
+/**
+ * findById에서 회원이 없을 때 던지는 예외, 스택 트레이스를 만들지 않는다.
+ * 기존 호출부와 호환되도록 NoSuchElementException을 상속한다.
+ */
+public class MemberNotFoundException extends NoSuchElementException {
+
+    public MemberNotFoundException(String memberId) {
+        super("member not found memberId = " + memberId);
+    }
+
+    @Override
+    public synchronized Throwable fillInStackTrace() {
+        return this;
+    }
+}
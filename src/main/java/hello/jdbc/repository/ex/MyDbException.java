@@ -17,4 +17,8 @@ public class MyDbException extends RuntimeException {
     public MyDbException(Throwable cause) {
         super(cause);
     }
+
+    protected MyDbException(String message, Throwable cause, boolean enableSuppression, boolean writableStackTrace) {
+        super(message, cause, enableSuppression, writableStackTrace);
+    }
 }
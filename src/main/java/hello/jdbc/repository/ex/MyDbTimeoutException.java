@@ -0,0 +1,19 @@
+package hello.jdbc.repository.ex;
+
+/**
+ * 쿼리 타임아웃 또는 데드라인 초과로 취소된 쿼리
+ */
+public class MyDbTimeoutException extends MyDbException {
+
+    public MyDbTimeoutException(String message) {
+        super(message);
+    }
+
+    public MyDbTimeoutException(String message, Throwable cause) {
+        super(message, cause);
+    }
+
+    public MyDbTimeoutException(Throwable cause) {
+        super(cause);
+    }
+}
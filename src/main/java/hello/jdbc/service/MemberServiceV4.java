@@ -1,6 +1,6 @@
 package hello.jdbc.service;
 
-import hello.jdbc.domain.Member;
+import hello.jdbc.audit.TransferAuditor;
 import hello.jdbc.repository.MemberRepository;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.transaction.annotation.Transactional;
@@ -17,27 +17,40 @@ import java.sql.SQLException;
 public class MemberServiceV4 {
 
     private final MemberRepository memberRepository;
+    private final TransferAuditor auditor;
 
     public MemberServiceV4(MemberRepository memberRepository) {
+        this(memberRepository, null);
+    }
+
+    /**
+     * 커밋된 이체를 감사 기록으로 남긴다.
+     */
+    public MemberServiceV4(MemberRepository memberRepository, TransferAuditor auditor) {
         this.memberRepository = memberRepository;
+        this.auditor = auditor;
     }
 
     @Transactional
     public void accountTransfer(String fromId, String toId, int money) {
         bizLogic(fromId, toId, money);
+        if (auditor != null) {
+            auditor.transferred(fromId, toId, money);
+        }
     }
 
     private void bizLogic(String fromId, String toId, int money) {
-        Member fromMember = memberRepository.findById(fromId);
-        Member toMember = memberRepository.findById(toId);
+        //잔고만 필요하므로 money 컬럼만 조회
+        int fromMoney = memberRepository.findMoneyById(fromId);
+        int toMoney = memberRepository.findMoneyById(toId);
 
-        memberRepository.update(fromId, fromMember.getMoney() - money);
-        validation(toMember);
-        memberRepository.update(toId, toMember.getMoney() + money);
+        memberRepository.update(fromId, fromMoney - money);
+        validation(toId);
+        memberRepository.update(toId, toMoney + money);
     }
 
-    private void validation(Member toMember) {
-        if (toMember.getMemberId().equals("ex")) {
+    private void validation(String toId) {
+        if (toId.equals("ex")) {
             throw new IllegalStateException("이체중 예외 발생");
         }
     }
@@ -0,0 +1,49 @@
+package hello.jdbc.service;
+
+import hello.jdbc.repository.MemberRepository;
+import hello.jdbc.transaction.PolicyTransactionExecutor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * 트랜잭션 정책
+ * 작업별 격리 수준, 읽기 전용, 타임아웃, 재시도를 코드가 아닌 설정(member.tx.policies.*)으로 지정
+ *
+ * MemberRepository 인터페이스 의존
+ */
+@Slf4j
+public class MemberServiceV5 {
+
+    public static final String ACCOUNT_TRANSFER = "accountTransfer";
+    public static final String FIND_MONEY = "findMoney";
+
+    private final PolicyTransactionExecutor txExecutor;
+    private final MemberRepository memberRepository;
+
+    public MemberServiceV5(PolicyTransactionExecutor txExecutor, MemberRepository memberRepository) {
+        this.txExecutor = txExecutor;
+        this.memberRepository = memberRepository;
+    }
+
+    public void accountTransfer(String fromId, String toId, int money) {
+        txExecutor.executeWithoutResult(ACCOUNT_TRANSFER, status -> bizLogic(fromId, toId, money));
+    }
+
+    public int findMoney(String memberId) {
+        return txExecutor.execute(FIND_MONEY, status -> memberRepository.findMoneyById(memberId));
+    }
+
+    private void bizLogic(String fromId, String toId, int money) {
+        int fromMoney = memberRepository.findMoneyById(fromId);
+        int toMoney = memberRepository.findMoneyById(toId);
+
+        memberRepository.update(fromId, fromMoney - money);
+        validation(toId);
+        memberRepository.update(toId, toMoney + money);
+    }
+
+    private void validation(String toId) {
+        if (toId.equals("ex")) {
+            throw new IllegalStateException("이체중 예외 발생");
+        }
+    }
+}
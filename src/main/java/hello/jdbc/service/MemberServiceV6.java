@@ -0,0 +1,51 @@
+package hello.jdbc.service;
+
+import hello.jdbc.repository.MemberRepository;
+import hello.jdbc.transaction.TransactionExecutor;
+import hello.jdbc.transaction.TxDefinition;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * 트랜잭션 - 함수형 TransactionExecutor
+ * 프록시 없이 미리 만든 TxDefinition으로 실행, 롤백 규칙은 @Transactional과 같다.
+ *
+ * MemberRepository 인터페이스 의존
+ */
+@Slf4j
+public class MemberServiceV6 {
+
+    private static final TxDefinition ACCOUNT_TRANSFER = TxDefinition.named("accountTransfer");
+    private static final TxDefinition FIND_MONEY = TxDefinition.named("findMoney").readOnly();
+
+    private final TransactionExecutor txExecutor;
+    private final MemberRepository memberRepository;
+
+    public MemberServiceV6(TransactionExecutor txExecutor, MemberRepository memberRepository) {
+        this.txExecutor = txExecutor;
+        this.memberRepository = memberRepository;
+    }
+
+    public void accountTransfer(String fromId, String toId, int money) {
+        txExecutor.run(ACCOUNT_TRANSFER, status -> bizLogic(fromId, toId, money));
+    }
+
+    public int findMoney(String memberId) {
+        return txExecutor.execute(FIND_MONEY, status -> memberRepository.findMoneyById(memberId));
+    }
+
+    private void bizLogic(String fromId, String toId, int money) {
+        //잔고만 필요하므로 money 컬럼만 조회
+        int fromMoney = memberRepository.findMoneyById(fromId);
+        int toMoney = memberRepository.findMoneyById(toId);
+
+        memberRepository.update(fromId, fromMoney - money);
+        validation(toId);
+        memberRepository.update(toId, toMoney + money);
+    }
+
+    private void validation(String toId) {
+        if (toId.equals("ex")) {
+            throw new IllegalStateException("이체중 예외 발생");
+        }
+    }
+}
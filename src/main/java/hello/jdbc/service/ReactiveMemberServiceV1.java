@@ -0,0 +1,44 @@
+package hello.jdbc.service;
+
+import hello.jdbc.repository.ReactiveMemberRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import reactor.core.publisher.Mono;
+
+/**
+ * 리액티브 이체 - TransactionalOperator
+ *
+ * MemberServiceV4와 같은 롤백 규칙: 이체 중 에러가 발생하면 전체를 롤백한다.
+ */
+@Slf4j
+public class ReactiveMemberServiceV1 {
+
+    private final ReactiveMemberRepository memberRepository;
+    private final TransactionalOperator transactionalOperator;
+
+    public ReactiveMemberServiceV1(ReactiveMemberRepository memberRepository, TransactionalOperator transactionalOperator) {
+        this.memberRepository = memberRepository;
+        this.transactionalOperator = transactionalOperator;
+    }
+
+    public Mono<Void> accountTransfer(String fromId, String toId, int money) {
+        return bizLogic(fromId, toId, money).as(transactionalOperator::transactional);
+    }
+
+    /**
+     * 하나의 트랜잭션 커넥션을 쓰므로 쿼리는 순서대로 실행한다.
+     */
+    private Mono<Void> bizLogic(String fromId, String toId, int money) {
+        return memberRepository.findMoneyById(fromId)
+                .flatMap(fromMoney -> memberRepository.findMoneyById(toId)
+                        .flatMap(toMoney -> memberRepository.update(fromId, fromMoney - money)
+                                .then(Mono.fromRunnable(() -> validation(toId)))
+                                .then(memberRepository.update(toId, toMoney + money))));
+    }
+
+    private void validation(String toId) {
+        if (toId.equals("ex")) {
+            throw new IllegalStateException("이체중 예외 발생");
+        }
+    }
+}
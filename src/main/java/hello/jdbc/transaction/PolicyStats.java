@@ -0,0 +1,36 @@
+package hello.jdbc.transaction;
+
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * 작업별 트랜잭션 실행 통계 스냅샷
+ */
+@Getter
+@ToString
+public class PolicyStats {
+
+    private final String operation;
+    private final long count;
+    private final long errors;
+    private final long retries;
+    private final long totalNanos;
+    private final long maxNanos;
+
+    public PolicyStats(String operation, long count, long errors, long retries, long totalNanos, long maxNanos) {
+        this.operation = operation;
+        this.count = count;
+        this.errors = errors;
+        this.retries = retries;
+        this.totalNanos = totalNanos;
+        this.maxNanos = maxNanos;
+    }
+
+    public double averageMillis() {
+        return count == 0 ? 0 : totalNanos / 1_000_000.0 / count;
+    }
+
+    public double maxMillis() {
+        return maxNanos / 1_000_000.0;
+    }
+}
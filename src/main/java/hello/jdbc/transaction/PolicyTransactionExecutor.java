@@ -0,0 +1,129 @@
+package hello.jdbc.transaction;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * 작업 이름으로 설정된 트랜잭션 정책(격리 수준, 읽기 전용, 타임아웃, 재시도)을 적용해서 실행한다.
+ *
+ * 작업별 TransactionTemplate은 처음 호출될 때 한 번 만들고 재사용한다.
+ * 읽기 전용 정책이면 DataSourceTransactionManager가 Connection.setReadOnly(true)를 호출하고,
+ * 트랜잭션 동기화 쪽에서도 커밋 전 flush를 건너뛸 수 있다.
+ *
+ * 재시도는 이 실행이 트랜잭션을 시작한 경우에만 한다. 호출한 쪽 트랜잭션에 참여했다면(REQUIRED)
+ * 실패한 시도가 바깥 트랜잭션을 rollback-only로 만들어서 재시도해도 커밋할 수 없다.
+ */
+@Slf4j
+public class PolicyTransactionExecutor {
+
+    private final PlatformTransactionManager transactionManager;
+    private final TransactionPolicyProperties properties;
+    private final Map<String, Operation> operations = new ConcurrentHashMap<>();
+
+    public PolicyTransactionExecutor(PlatformTransactionManager transactionManager, TransactionPolicyProperties properties) {
+        this.transactionManager = transactionManager;
+        this.properties = properties;
+    }
+
+    public <T> T execute(String operationName, TransactionCallback<T> action) {
+        Operation operation = operations.computeIfAbsent(operationName, this::createOperation);
+        int maxAttempts = TransactionSynchronizationManager.isActualTransactionActive() ? 1 : operation.policy.getMaxAttempts();
+        long start = System.nanoTime();
+        try {
+            for (int attempt = 1; ; attempt++) {
+                try {
+                    return operation.template.execute(action);
+                } catch (RuntimeException e) {
+                    if (attempt >= maxAttempts || !operation.policy.getRetry().isRetryable(e)) {
+                        operation.errors.increment();
+                        throw e;
+                    }
+                    operation.retries.increment();
+                    log.info("retry operation={}, attempt={}, cause={}", operationName, attempt, e.toString());
+                    backoff(operation.policy.getBackoffMillis() * attempt, e);
+                }
+            }
+        } finally {
+            operation.record(System.nanoTime() - start);
+        }
+    }
+
+    public void executeWithoutResult(String operationName, Consumer<TransactionStatus> action) {
+        execute(operationName, status -> {
+            action.accept(status);
+            return null;
+        });
+    }
+
+    public List<PolicyStats> stats() {
+        List<PolicyStats> stats = new ArrayList<>();
+        for (Map.Entry<String, Operation> entry : operations.entrySet()) {
+            stats.add(entry.getValue().snapshot(entry.getKey()));
+        }
+        return stats;
+    }
+
+    public void logStats() {
+        for (PolicyStats stats : stats()) {
+            log.info("operation={}, count={}, errors={}, retries={}, avg={}ms, max={}ms",
+                    stats.getOperation(), stats.getCount(), stats.getErrors(), stats.getRetries(),
+                    String.format("%.3f", stats.averageMillis()), String.format("%.3f", stats.maxMillis()));
+        }
+    }
+
+    private void backoff(long millis, RuntimeException cause) {
+        if (millis <= 0) {
+            return;
+        }
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw cause;
+        }
+    }
+
+    private Operation createOperation(String operationName) {
+        TransactionPolicy policy = properties.policyFor(operationName);
+        log.info("transaction policy operation={}, policy={}", operationName, policy);
+        return new Operation(policy, new TransactionTemplate(transactionManager, policy.toDefinition(operationName)));
+    }
+
+    private static class Operation {
+
+        private final TransactionPolicy policy;
+        private final TransactionTemplate template;
+        private final LongAdder count = new LongAdder();
+        private final LongAdder errors = new LongAdder();
+        private final LongAdder retries = new LongAdder();
+        private final LongAdder totalNanos = new LongAdder();
+        private final AtomicLong maxNanos = new AtomicLong();
+
+        Operation(TransactionPolicy policy, TransactionTemplate template) {
+            this.policy = policy;
+            this.template = template;
+        }
+
+        void record(long nanos) {
+            count.increment();
+            totalNanos.add(nanos);
+            maxNanos.accumulateAndGet(nanos, Math::max);
+        }
+
+        PolicyStats snapshot(String operationName) {
+            return new PolicyStats(operationName, count.sum(), errors.sum(), retries.sum(), totalNanos.sum(), maxNanos.get());
+        }
+    }
+}
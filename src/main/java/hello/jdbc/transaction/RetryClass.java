@@ -0,0 +1,45 @@
+package hello.jdbc.transaction;
+
+import org.springframework.dao.TransientDataAccessException;
+
+import java.sql.SQLException;
+import java.sql.SQLTransientException;
+
+/**
+ * 트랜잭션 재시도 분류
+ * NONE - 재시도하지 않는다.
+ * TRANSIENT - 데드락, 락 획득 실패, 동시 갱신 충돌처럼 다시 시도하면 성공할 수 있는 예외만 재시도한다.
+ *
+ * 스프링 예외 변환을 쓰지 않는 저장소(MemberRepositoryV4_1 등)는 데드락도 MyDbException으로 던지므로
+ * 원인 SQLException의 SQLState(40001)와 H2 락 타임아웃 에러 코드(50200)도 확인한다.
+ */
+public enum RetryClass {
+    NONE {
+        @Override
+        public boolean isRetryable(RuntimeException e) {
+            return false;
+        }
+    },
+    TRANSIENT {
+        @Override
+        public boolean isRetryable(RuntimeException e) {
+            if (e instanceof TransientDataAccessException) {
+                return true;
+            }
+            for (Throwable cause = e.getCause(); cause != null; cause = cause.getCause()) {
+                if (cause instanceof SQLException) {
+                    SQLException sqlException = (SQLException) cause;
+                    return sqlException instanceof SQLTransientException
+                            || SERIALIZATION_FAILURE.equals(sqlException.getSQLState())
+                            || sqlException.getErrorCode() == H2_LOCK_TIMEOUT;
+                }
+            }
+            return false;
+        }
+    };
+
+    private static final String SERIALIZATION_FAILURE = "40001";
+    private static final int H2_LOCK_TIMEOUT = 50200;
+
+    public abstract boolean isRetryable(RuntimeException e);
+}
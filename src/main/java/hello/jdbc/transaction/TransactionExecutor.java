@@ -0,0 +1,76 @@
+package hello.jdbc.transaction;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionStatus;
+
+/**
+ * 프록시 없이 람다로 트랜잭션을 실행한다.
+ *
+ * @Transactional AOP는 호출마다 프록시를 거쳐 TransactionAttributeSource에서 속성을 찾고,
+ * TransactionTemplate은 executeWithoutResult 등에서 콜백을 한 번 더 감싼다.
+ * 여기서는 미리 만들어 둔 {@link TxDefinition}을 트랜잭션 매니저에 바로 넘기므로 호출당 추가 할당은 람다 하나다.
+ * (트랜잭션 상태, 커넥션 홀더 등 트랜잭션 매니저 내부의 할당은 같다)
+ *
+ * 예외 처리는 @Transactional과 같다. 롤백 대상이 아닌 예외(기본은 체크 예외)는 커밋한 뒤 그대로 던진다.
+ * 콜백이 체크 예외를 선언할 수 있으므로 SQLException을 던지는 저장소도 감싸지 않고 호출할 수 있다.
+ */
+@Slf4j
+public class TransactionExecutor {
+
+    private final PlatformTransactionManager transactionManager;
+
+    public TransactionExecutor(PlatformTransactionManager transactionManager) {
+        this.transactionManager = transactionManager;
+    }
+
+    public <T, E extends Throwable> T execute(TxDefinition definition, Callback<T, E> action) throws E {
+        TransactionStatus status = transactionManager.getTransaction(definition);
+        T result;
+        try {
+            result = action.doInTransaction(status);
+        } catch (Throwable ex) {
+            completeAfterThrowing(definition, status, ex);
+            throw ex;
+        }
+        transactionManager.commit(status);
+        return result;
+    }
+
+    public <E extends Throwable> void run(TxDefinition definition, VoidCallback<E> action) throws E {
+        TransactionStatus status = transactionManager.getTransaction(definition);
+        try {
+            action.doInTransaction(status);
+        } catch (Throwable ex) {
+            completeAfterThrowing(definition, status, ex);
+            throw ex;
+        }
+        transactionManager.commit(status);
+    }
+
+    /**
+     * TransactionAspectSupport.completeTransactionAfterThrowing과 같은 처리
+     */
+    private void completeAfterThrowing(TxDefinition definition, TransactionStatus status, Throwable ex) {
+        if (!definition.rollbackOn(ex)) {
+            transactionManager.commit(status);
+            return;
+        }
+        try {
+            transactionManager.rollback(status);
+        } catch (RuntimeException | Error rollbackEx) {
+            log.error("Application exception overridden by rollback exception", ex);
+            throw rollbackEx;
+        }
+    }
+
+    @FunctionalInterface
+    public interface Callback<T, E extends Throwable> {
+        T doInTransaction(TransactionStatus status) throws E;
+    }
+
+    @FunctionalInterface
+    public interface VoidCallback<E extends Throwable> {
+        void doInTransaction(TransactionStatus status) throws E;
+    }
+}
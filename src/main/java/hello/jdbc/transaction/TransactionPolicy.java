@@ -0,0 +1,35 @@
+package hello.jdbc.transaction;
+
+import lombok.Data;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.Isolation;
+import org.springframework.transaction.support.DefaultTransactionDefinition;
+
+/**
+ * 작업 하나의 트랜잭션 정책
+ */
+@Data
+public class TransactionPolicy {
+
+    private Isolation isolation = Isolation.DEFAULT;
+    private boolean readOnly;
+    /**
+     * 초 단위, -1이면 트랜잭션 매니저 기본값
+     */
+    private int timeout = TransactionDefinition.TIMEOUT_DEFAULT;
+    private RetryClass retry = RetryClass.NONE;
+    private int maxAttempts = 3;
+    /**
+     * 재시도 전 대기 시간, n번째 재시도는 n배 대기한다.
+     */
+    private long backoffMillis = 20;
+
+    public TransactionDefinition toDefinition(String name) {
+        DefaultTransactionDefinition definition = new DefaultTransactionDefinition();
+        definition.setName(name);
+        definition.setIsolationLevel(isolation.value());
+        definition.setReadOnly(readOnly);
+        definition.setTimeout(timeout);
+        return definition;
+    }
+}
@@ -0,0 +1,23 @@
+package hello.jdbc.transaction;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * member.tx.default-policy.*     정책이 없는 작업에 적용
+ * member.tx.policies.<작업명>.*  작업별 정책
+ */
+@Data
+@ConfigurationProperties(prefix = "member.tx")
+public class TransactionPolicyProperties {
+
+    private TransactionPolicy defaultPolicy = new TransactionPolicy();
+    private Map<String, TransactionPolicy> policies = new HashMap<>();
+
+    public TransactionPolicy policyFor(String operation) {
+        return policies.getOrDefault(operation, defaultPolicy);
+    }
+}
@@ -0,0 +1,124 @@
+package hello.jdbc.transaction;
+
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.Isolation;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.interceptor.NoRollbackRuleAttribute;
+import org.springframework.transaction.interceptor.RollbackRuleAttribute;
+import org.springframework.transaction.interceptor.RuleBasedTransactionAttribute;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * {@link TransactionExecutor}에 넘기는 트랜잭션 속성, 상수로 한 번 만들어 두고 재사용한다.
+ * 변경 메서드는 새 인스턴스를 반환하므로 여러 스레드에서 공유해도 안전하다.
+ *
+ * 롤백 규칙은 @Transactional과 같다. 기본은 RuntimeException, Error만 롤백하고
+ * rollbackFor/noRollbackFor로 바꾼다. 판단은 스프링의 RuleBasedTransactionAttribute에 그대로 맡긴다.
+ */
+public final class TxDefinition implements TransactionDefinition {
+
+    private final RuleBasedTransactionAttribute attribute;
+
+    private TxDefinition(RuleBasedTransactionAttribute attribute) {
+        this.attribute = attribute;
+    }
+
+    /**
+     * @Transactional 기본값과 같은 설정 (REQUIRED, DEFAULT 격리 수준, 읽기/쓰기)
+     */
+    public static TxDefinition named(String name) {
+        RuleBasedTransactionAttribute attribute = new RuleBasedTransactionAttribute();
+        attribute.setName(name);
+        return new TxDefinition(attribute);
+    }
+
+    public TxDefinition propagation(Propagation propagation) {
+        RuleBasedTransactionAttribute copy = copy();
+        copy.setPropagationBehavior(propagation.value());
+        return new TxDefinition(copy);
+    }
+
+    public TxDefinition isolation(Isolation isolation) {
+        RuleBasedTransactionAttribute copy = copy();
+        copy.setIsolationLevel(isolation.value());
+        return new TxDefinition(copy);
+    }
+
+    public TxDefinition timeout(int seconds) {
+        RuleBasedTransactionAttribute copy = copy();
+        copy.setTimeout(seconds);
+        return new TxDefinition(copy);
+    }
+
+    public TxDefinition readOnly() {
+        RuleBasedTransactionAttribute copy = copy();
+        copy.setReadOnly(true);
+        return new TxDefinition(copy);
+    }
+
+    @SafeVarargs
+    public final TxDefinition rollbackFor(Class<? extends Throwable>... exceptionTypes) {
+        RuleBasedTransactionAttribute copy = copy();
+        List<RollbackRuleAttribute> rules = new ArrayList<>(copy.getRollbackRules());
+        for (Class<? extends Throwable> exceptionType : exceptionTypes) {
+            rules.add(new RollbackRuleAttribute(exceptionType));
+        }
+        copy.setRollbackRules(rules);
+        return new TxDefinition(copy);
+    }
+
+    @SafeVarargs
+    public final TxDefinition noRollbackFor(Class<? extends Throwable>... exceptionTypes) {
+        RuleBasedTransactionAttribute copy = copy();
+        List<RollbackRuleAttribute> rules = new ArrayList<>(copy.getRollbackRules());
+        for (Class<? extends Throwable> exceptionType : exceptionTypes) {
+            rules.add(new NoRollbackRuleAttribute(exceptionType));
+        }
+        copy.setRollbackRules(rules);
+        return new TxDefinition(copy);
+    }
+
+    /**
+     * 이 예외로 끝나면 롤백할지 여부
+     */
+    public boolean rollbackOn(Throwable ex) {
+        return attribute.rollbackOn(ex);
+    }
+
+    @Override
+    public int getPropagationBehavior() {
+        return attribute.getPropagationBehavior();
+    }
+
+    @Override
+    public int getIsolationLevel() {
+        return attribute.getIsolationLevel();
+    }
+
+    @Override
+    public int getTimeout() {
+        return attribute.getTimeout();
+    }
+
+    @Override
+    public boolean isReadOnly() {
+        return attribute.isReadOnly();
+    }
+
+    @Override
+    public String getName() {
+        return attribute.getName();
+    }
+
+    @Override
+    public String toString() {
+        return attribute.toString();
+    }
+
+    //규칙 목록도 복사된다.
+    private RuleBasedTransactionAttribute copy() {
+        return new RuleBasedTransactionAttribute(attribute);
+    }
+}
@@ -0,0 +1,165 @@
+package hello.jdbc.audit;
+
+import hello.jdbc.domain.Member;
+import hello.jdbc.repository.MemberRepository;
+import hello.jdbc.repository.MemberRepositoryV5;
+import hello.jdbc.repository.MemberSchema;
+import hello.jdbc.service.MemberServiceV4;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class TransferAuditorTest {
+
+    private static final String URL = "jdbc:h2:mem:audit;DB_CLOSE_DELAY=-1";
+
+    @TempDir
+    Path dir;
+
+    DriverManagerDataSource dataSource;
+    JdbcTemplate template;
+    MemberRepository repository;
+    TransactionTemplate txTemplate;
+
+    @BeforeEach
+    void before() {
+        dataSource = new DriverManagerDataSource(URL, "sa", "");
+        new MemberSchema(dataSource).createMemberTable();
+        template = new JdbcTemplate(dataSource);
+        template.update("delete from member");
+        template.execute("drop table if exists " + TransferAuditWriter.tableName(LocalDate.now()));
+
+        repository = new MemberRepositoryV5(dataSource);
+        repository.save(new Member("auA", 100000));
+        repository.save(new Member("auB", 100000));
+        repository.save(new Member("ex", 100000));
+        txTemplate = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+    }
+
+    @Test
+    void asyncWritesCommittedTransfersOnly() {
+        TransferAuditor auditor = new TransferAuditor(dataSource, options(AuditDurability.ASYNC, 1024));
+        auditor.start();
+        MemberServiceV4 memberService = new MemberServiceV4(repository, auditor);
+
+        for (int i = 0; i < 10; i++) {
+            txTemplate.executeWithoutResult(status -> memberService.accountTransfer("auA", "auB", 100));
+        }
+        assertThatThrownBy(() -> txTemplate.executeWithoutResult(status -> memberService.accountTransfer("auA", "ex", 100)))
+                .isInstanceOf(IllegalStateException.class);
+        auditor.close();
+
+        assertThat(auditor.getEnqueued()).isEqualTo(10);
+        assertThat(count()).isEqualTo(10);
+    }
+
+    @Test
+    void overflowSpillsToDiskAndReplays() {
+        TransferAuditor auditor = new TransferAuditor(dataSource, options(AuditDurability.ASYNC, 4));
+        MemberServiceV4 memberService = new MemberServiceV4(repository, auditor);
+
+        //writer 시작 전이므로 버퍼 4건 이후는 spill
+        for (int i = 0; i < 10; i++) {
+            txTemplate.executeWithoutResult(status -> memberService.accountTransfer("auA", "auB", 100));
+        }
+        assertThat(auditor.getBuffered()).isEqualTo(4);
+        assertThat(auditor.getSpilled()).isEqualTo(6);
+
+        auditor.start();
+        auditor.close();
+        assertThat(auditor.getWritten()).isEqualTo(10);
+        assertThat(count()).isEqualTo(10);
+    }
+
+    @Test
+    void restartReplaysLeftoverSpillFile() {
+        TransferAuditor crashed = new TransferAuditor(dataSource, options(AuditDurability.ASYNC, 4));
+        MemberServiceV4 memberService = new MemberServiceV4(repository, crashed);
+        for (int i = 0; i < 10; i++) {
+            txTemplate.executeWithoutResult(status -> memberService.accountTransfer("auA", "auB", 100));
+        }
+        assertThat(crashed.getSpilled()).isEqualTo(6);
+
+        //close 없이 종료된 것으로 보고 같은 spill 파일로 다시 시작, 메모리 버퍼 4건은 유실
+        TransferAuditor restarted = new TransferAuditor(dataSource, options(AuditDurability.ASYNC, 4));
+        restarted.start();
+        restarted.close();
+        assertThat(restarted.getWritten()).isEqualTo(6);
+        assertThat(count()).isEqualTo(6);
+    }
+
+    @Test
+    void enqueueAfterCloseSpillsForNextRun() {
+        TransferAuditor auditor = new TransferAuditor(dataSource, options(AuditDurability.ASYNC, 4));
+        auditor.start();
+        auditor.close();
+        MemberServiceV4 memberService = new MemberServiceV4(repository, auditor);
+        txTemplate.executeWithoutResult(status -> memberService.accountTransfer("auA", "auB", 100));
+        assertThat(auditor.getBuffered()).isZero();
+        assertThat(auditor.getSpilled()).isEqualTo(1);
+        assertThatThrownBy(auditor::start).isInstanceOf(IllegalStateException.class);
+
+        TransferAuditor next = new TransferAuditor(dataSource, options(AuditDurability.ASYNC, 4));
+        next.start();
+        next.close();
+        assertThat(count()).isEqualTo(1);
+    }
+
+    @Test
+    void syncWritesInsideTransaction() {
+        TransferAuditor auditor = new TransferAuditor(dataSource, options(AuditDurability.SYNC, 4));
+        auditor.start();
+        MemberServiceV4 memberService = new MemberServiceV4(repository, auditor);
+
+        txTemplate.executeWithoutResult(status -> memberService.accountTransfer("auA", "auB", 100));
+        assertThat(count()).isEqualTo(1);
+
+        //감사 기록도 이체와 함께 롤백
+        assertThatThrownBy(() -> txTemplate.executeWithoutResult(status -> {
+            memberService.accountTransfer("auA", "auB", 100);
+            throw new IllegalStateException("rollback");
+        })).isInstanceOf(IllegalStateException.class);
+        assertThat(count()).isEqualTo(1);
+        auditor.close();
+    }
+
+    @Test
+    void ringBuffer() {
+        AuditRingBuffer<Integer> ring = new AuditRingBuffer<>(4);
+        for (int i = 0; i < 4; i++) {
+            assertThat(ring.offer(i)).isTrue();
+        }
+        assertThat(ring.offer(4)).isFalse();
+
+        List<Integer> out = new ArrayList<>();
+        assertThat(ring.drainTo(out, 3)).isEqualTo(3);
+        assertThat(ring.offer(4)).isTrue();
+        ring.drainTo(out, 10);
+        assertThat(out).containsExactly(0, 1, 2, 3, 4);
+        assertThat(ring.size()).isZero();
+    }
+
+    private AuditOptions options(AuditDurability durability, int capacity) {
+        AuditOptions options = new AuditOptions();
+        options.setDurability(durability);
+        options.setCapacity(capacity);
+        options.setSpillPath(dir.resolve("spill.bin"));
+        return options;
+    }
+
+    private long count() {
+        return template.queryForObject("select count(*) from " + TransferAuditWriter.tableName(LocalDate.now()), Long.class);
+    }
+}
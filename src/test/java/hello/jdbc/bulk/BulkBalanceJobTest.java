@@ -0,0 +1,113 @@
+package hello.jdbc.bulk;
+
+import hello.jdbc.repository.DelegatingMemberRepository;
+import hello.jdbc.repository.MemberRepository;
+import hello.jdbc.repository.MemberRepositoryV5;
+import hello.jdbc.repository.MemberSchema;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class BulkBalanceJobTest {
+
+    private static final String URL = "jdbc:h2:mem:bulk;DB_CLOSE_DELAY=-1";
+    private static final int MEMBERS = 250;
+
+    DriverManagerDataSource dataSource;
+    JdbcTemplate template;
+    MemberRepository repository;
+    BulkOptions options;
+
+    @BeforeEach
+    void before() {
+        dataSource = new DriverManagerDataSource(URL, "sa", "");
+        MemberSchema schema = new MemberSchema(dataSource);
+        schema.createMemberTable();
+        schema.createBulkJobTables();
+        template = new JdbcTemplate(dataSource);
+        for (String table : List.of("member", "bulk_job_range", "bulk_job")) {
+            template.update("delete from " + table);
+        }
+        for (int i = 0; i < MEMBERS; i++) {
+            template.update("insert into member(member_id, money) values(?, 1000)", String.format("b%03d", i));
+        }
+        repository = new MemberRepositoryV5(dataSource);
+        options = new BulkOptions();
+        options.setChunkSize(50);
+        options.setParallelism(3);
+    }
+
+    @Test
+    void updateMoneyInRange() {
+        template.update("update member set money = 1001 where member_id = 'b000'");
+        int updated = repository.updateMoneyInRange("b000", "b002", new BigDecimal("1.5"), -1);
+
+        assertThat(updated).isEqualTo(2);
+        assertThat(repository.findMoneyById("b000")).isEqualTo(1501); //1501.5 - 1 반올림
+        assertThat(repository.findMoneyById("b001")).isEqualTo(1499);
+        assertThat(repository.findMoneyById("b002")).isEqualTo(1000);
+    }
+
+    @Test
+    void appliesOnceAcrossRuns() {
+        BulkBalanceJob job = job(repository);
+        BulkResult result = job.run("interest-1", new BigDecimal("1.015"), 0);
+
+        assertThat(result.getTotalRanges()).isEqualTo(5);
+        assertThat(result.getExecutedRanges()).isEqualTo(5);
+        assertThat(result.getUpdatedRows()).isEqualTo(MEMBERS);
+        assertThat(totalMoney()).isEqualTo(MEMBERS * 1015L);
+
+        //이미 완료된 작업을 다시 실행해도 적용되지 않는다.
+        BulkResult again = job.run("interest-1", new BigDecimal("1.015"), 0);
+        assertThat(again.getExecutedRanges()).isZero();
+        assertThat(totalMoney()).isEqualTo(MEMBERS * 1015L);
+
+        assertThatThrownBy(() -> job.run("interest-1", new BigDecimal("1.02"), 0))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void resumesAfterFailure() {
+        AtomicBoolean failOnce = new AtomicBoolean(true);
+        MemberRepository failing = new DelegatingMemberRepository(repository) {
+            @Override
+            public int updateMoneyInRange(String fromId, String toId, BigDecimal multiplier, int addend) {
+                int updated = super.updateMoneyInRange(fromId, toId, multiplier, addend);
+                if ("b100".equals(fromId) && failOnce.getAndSet(false)) {
+                    throw new IllegalStateException("crash");
+                }
+                return updated;
+            }
+        };
+        BulkBalanceJob job = job(failing);
+
+        assertThatThrownBy(() -> job.run("fee-1", BigDecimal.ONE, -10)).hasMessage("crash");
+        //실패한 구간만 롤백되고 나머지는 커밋됐다.
+        assertThat(repository.findMoneyById("b100")).isEqualTo(1000);
+        assertThat(repository.findMoneyById("b000")).isEqualTo(990);
+        assertThat(repository.findMoneyById("b249")).isEqualTo(990);
+
+        BulkResult result = job.run("fee-1", BigDecimal.ONE, -10);
+        assertThat(result.getExecutedRanges()).isEqualTo(1);
+        assertThat(result.getUpdatedRows()).isEqualTo(50);
+        assertThat(totalMoney()).isEqualTo(MEMBERS * 990L);
+    }
+
+    private BulkBalanceJob job(MemberRepository repository) {
+        return new BulkBalanceJob(dataSource, repository, new DataSourceTransactionManager(dataSource), options);
+    }
+
+    private long totalMoney() {
+        return template.queryForObject("select sum(money) from member", Long.class);
+    }
+}
@@ -0,0 +1,209 @@
+package hello.jdbc.cache;
+
+import hello.jdbc.domain.Member;
+import hello.jdbc.repository.DelegatingMemberRepository;
+import hello.jdbc.repository.MemberRepository;
+import hello.jdbc.repository.MemberRepositoryV5;
+import hello.jdbc.repository.MemberSchema;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@Slf4j
+class CachedMemberRepositoryTest {
+
+    private static final String URL = "jdbc:h2:mem:cachedmember;DB_CLOSE_DELAY=-1";
+    private static final String MEMBER_A = "cacheA";
+    private static final String MEMBER_B = "cacheB";
+
+    DriverManagerDataSource dataSource;
+    CountingMemberRepository counting;
+    OffHeapMemberStore store;
+    CachedMemberRepository repository;
+    TransactionTemplate txTemplate;
+
+    @BeforeEach
+    void before() {
+        dataSource = new DriverManagerDataSource(URL, "sa", "");
+        new MemberSchema(dataSource).createMemberTable();
+        JdbcTemplate template = new JdbcTemplate(dataSource);
+        template.update("delete from member");
+        template.update("insert into member(member_id, money) values(?, ?)", MEMBER_A, 10000);
+        template.update("insert into member(member_id, money) values(?, ?)", MEMBER_B, 20000);
+
+        counting = new CountingMemberRepository(new MemberRepositoryV5(dataSource));
+        store = new OffHeapMemberStore(100);
+        repository = new CachedMemberRepository(counting, store);
+        txTemplate = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+    }
+
+    @Test
+    void readThrough() {
+        assertThat(repository.findById(MEMBER_A)).isEqualTo(new Member(MEMBER_A, 10000));
+        assertThat(repository.findById(MEMBER_A)).isEqualTo(new Member(MEMBER_A, 10000));
+        assertThat(repository.findMoneyById(MEMBER_A)).isEqualTo(10000);
+        assertThat(repository.findByIdOptional(MEMBER_A)).contains(new Member(MEMBER_A, 10000));
+
+        //첫 조회만 target까지 간다.
+        assertThat(counting.reads.get()).isEqualTo(1);
+        assertThat(store.missCount()).isEqualTo(1);
+        assertThat(store.hitCount()).isEqualTo(3);
+
+        //없는 회원은 캐시에 채우지 않는다.
+        assertThat(repository.findByIdOptional("cacheNone")).isEmpty();
+        assertThat(repository.findByIdOptional("cacheNone")).isEmpty();
+        assertThat(counting.reads.get()).isEqualTo(3);
+        assertThat(store.size()).isEqualTo(1);
+    }
+
+    @Test
+    void updateEvicts() {
+        repository.findById(MEMBER_A);
+        repository.update(MEMBER_A, 7000);
+
+        assertThat(store.size()).isZero();
+        assertThat(repository.findMoneyById(MEMBER_A)).isEqualTo(7000);
+        assertThat(counting.reads.get()).isEqualTo(2);
+    }
+
+    @Test
+    void deleteEvicts() {
+        repository.findById(MEMBER_A);
+        repository.delete(MEMBER_A);
+
+        assertThat(store.size()).isZero();
+        assertThat(repository.findByIdOptional(MEMBER_A)).isEmpty();
+    }
+
+    @Test
+    void upsertEvicts() {
+        repository.findById(MEMBER_A);
+        repository.upsert(new Member(MEMBER_A, 3000));
+
+        assertThat(store.size()).isZero();
+        assertThat(repository.findMoneyById(MEMBER_A)).isEqualTo(3000);
+    }
+
+    @Test
+    void updateMoneyInRangeClearsCache() {
+        repository.findById(MEMBER_A);
+        repository.findById(MEMBER_B);
+        assertThat(store.size()).isEqualTo(2);
+
+        //[cacheA, cacheB) 구간이라 cacheA만 바뀌지만 구간의 키를 모르므로 전부 비운다.
+        int updated = repository.updateMoneyInRange(MEMBER_A, MEMBER_B, BigDecimal.ONE, 500);
+
+        assertThat(updated).isEqualTo(1);
+        assertThat(store.size()).isZero();
+        assertThat(repository.findMoneyById(MEMBER_A)).isEqualTo(10500);
+        assertThat(repository.findMoneyById(MEMBER_B)).isEqualTo(20000);
+    }
+
+    @Test
+    void writtenKeyIsEvictedOnRollback() {
+        txTemplate.executeWithoutResult(status -> {
+            repository.update(MEMBER_A, 1);
+            //트랜잭션 안에서 쓴 키는 캐시를 거치지 않는다.
+            assertThat(repository.findMoneyById(MEMBER_A)).isEqualTo(1);
+            assertThat(store.size()).isZero();
+
+            //다른 스레드가 커밋 전 값을 읽어 채워 넣은 상황
+            store.put(MEMBER_A, 1);
+            status.setRollbackOnly();
+        });
+
+        assertThat(store.size()).isZero();
+        assertThat(repository.findMoneyById(MEMBER_A)).isEqualTo(10000);
+    }
+
+    @Test
+    void rangeWrittenInTransactionIsClearedOnRollback() {
+        txTemplate.executeWithoutResult(status -> {
+            repository.updateMoneyInRange(MEMBER_A, null, BigDecimal.ONE, 1);
+            assertThat(repository.findMoneyById(MEMBER_B)).isEqualTo(20001);
+            assertThat(store.size()).isZero();
+
+            store.put(MEMBER_B, 20001);
+            status.setRollbackOnly();
+        });
+
+        assertThat(store.size()).isZero();
+        assertThat(repository.findMoneyById(MEMBER_B)).isEqualTo(20000);
+    }
+
+    @Test
+    void evictDuringLookupIsNotCached() {
+        //target 조회가 끝난 뒤, 캐시에 채우기 전에 다른 쓰기가 끼어든 상황
+        CachedMemberRepository[] cached = new CachedMemberRepository[1];
+        cached[0] = new CachedMemberRepository(new DelegatingMemberRepository(counting) {
+            @Override
+            public Optional<Member> findByIdOptional(String memberId) {
+                Optional<Member> member = super.findByIdOptional(memberId);
+                cached[0].update(MEMBER_A, 2000);
+                return member;
+            }
+        }, store);
+
+        assertThat(cached[0].findById(MEMBER_A).getMoney()).isEqualTo(10000);
+        assertThat(store.size()).isZero();
+        assertThat(cached[0].findMoneyById(MEMBER_A)).isEqualTo(2000);
+    }
+
+    @Test
+    void evictDuringPopulateIsNotCached() {
+        //버전 확인과 put 사이에 다른 쓰기가 끼어든 상황
+        CachedMemberRepository[] cached = new CachedMemberRepository[1];
+        AtomicInteger puts = new AtomicInteger();
+        OffHeapMemberStore racingStore = new OffHeapMemberStore(100) {
+            @Override
+            public void put(String memberId, int balance) {
+                if (puts.getAndIncrement() == 0) {
+                    cached[0].update(memberId, 2000);
+                }
+                super.put(memberId, balance);
+            }
+        };
+        cached[0] = new CachedMemberRepository(counting, racingStore);
+
+        assertThat(cached[0].findMoneyById(MEMBER_A)).isEqualTo(10000);
+        assertThat(racingStore.size()).isZero();
+        assertThat(cached[0].findMoneyById(MEMBER_A)).isEqualTo(2000);
+    }
+
+    static class CountingMemberRepository extends DelegatingMemberRepository {
+
+        final AtomicInteger reads = new AtomicInteger();
+
+        CountingMemberRepository(MemberRepository target) {
+            super(target);
+        }
+
+        @Override
+        public Member findById(String memberId) {
+            reads.incrementAndGet();
+            return super.findById(memberId);
+        }
+
+        @Override
+        public Optional<Member> findByIdOptional(String memberId) {
+            reads.incrementAndGet();
+            return super.findByIdOptional(memberId);
+        }
+
+        @Override
+        public int findMoneyById(String memberId) {
+            reads.incrementAndGet();
+            return super.findMoneyById(memberId);
+        }
+    }
+}
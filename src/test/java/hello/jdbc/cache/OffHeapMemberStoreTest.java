@@ -0,0 +1,111 @@
+package hello.jdbc.cache;
+
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@Slf4j
+class OffHeapMemberStoreTest {
+
+    @Test
+    void putGetRemove() {
+        OffHeapMemberStore store = new OffHeapMemberStore(100);
+        store.put("memberA", 10000);
+        store.put("memberB", 20000);
+        store.put("memberA", 15000);
+
+        assertThat(store.get("memberA")).isEqualTo(15000);
+        assertThat(store.get("memberB")).isEqualTo(20000);
+        assertThat(store.get("memberC")).isEqualTo(OffHeapMemberStore.MISSING);
+        assertThat(store.size()).isEqualTo(2);
+
+        assertThat(store.remove("memberA")).isTrue();
+        assertThat(store.remove("memberA")).isFalse();
+        assertThat(store.get("memberA")).isEqualTo(OffHeapMemberStore.MISSING);
+        assertThat(store.get("memberB")).isEqualTo(20000);
+    }
+
+    @Test
+    void multiByteKey() {
+        OffHeapMemberStore store = new OffHeapMemberStore(100);
+        store.put("회원A", -1);
+        assertThat(store.get("회원A")).isEqualTo(-1);
+    }
+
+    @Test
+    void tooLongKeyIsNotCached() {
+        OffHeapMemberStore store = new OffHeapMemberStore(100);
+        String key = "x".repeat(OffHeapMemberStore.MAX_KEY_BYTES + 1);
+        store.put(key, 1);
+        assertThat(store.get(key)).isEqualTo(OffHeapMemberStore.MISSING);
+        assertThat(store.size()).isZero();
+    }
+
+    @Test
+    void resizeAndRemoveKeepAllKeysReachable() {
+        OffHeapMemberStore store = new OffHeapMemberStore(10_000, 1);
+        long initialMemory = store.memoryBytes();
+        for (int i = 0; i < 10_000; i++) {
+            store.put("member" + i, i);
+        }
+        assertThat(store.memoryBytes()).isGreaterThan(initialMemory);
+
+        for (int i = 0; i < 10_000; i += 2) {
+            store.remove("member" + i);
+        }
+        for (int i = 0; i < 10_000; i++) {
+            long expected = i % 2 == 0 ? OffHeapMemberStore.MISSING : i;
+            assertThat(store.get("member" + i)).isEqualTo(expected);
+        }
+        assertThat(store.size()).isEqualTo(5_000);
+        assertThat(store.evictionCount()).isZero();
+    }
+
+    @Test
+    void evictWhenFull() {
+        OffHeapMemberStore store = new OffHeapMemberStore(1_000, 4);
+        for (int i = 0; i < 5_000; i++) {
+            store.put("member" + i, i);
+        }
+        assertThat(store.size()).isLessThanOrEqualTo(1_000);
+        assertThat(store.evictionCount()).isEqualTo(5_000 - store.size());
+    }
+
+    @Test
+    void concurrentReadWrite() throws Exception {
+        OffHeapMemberStore store = new OffHeapMemberStore(50_000);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            int thread = t;
+            futures.add(executor.submit(() -> {
+                for (int i = 0; i < 20_000; i++) {
+                    String key = "member" + (i % 5_000);
+                    if (i % 4 == thread % 4) {
+                        store.put(key, i % 5_000);
+                    } else {
+                        long balance = store.get(key);
+                        //값이 있다면 키에 대응하는 값이어야 한다.
+                        assertThat(balance == OffHeapMemberStore.MISSING || balance == i % 5_000).isTrue();
+                    }
+                }
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+        executor.awaitTermination(10, TimeUnit.SECONDS);
+
+        log.info("size={}, hit={}, miss={}", store.size(), store.hitCount(), store.missCount());
+        assertThat(store.size()).isEqualTo(5_000);
+    }
+}
@@ -0,0 +1,154 @@
+package hello.jdbc.cache;
+
+import hello.jdbc.connection.ConnectionConst;
+import hello.jdbc.domain.Member;
+import hello.jdbc.repository.DelegatingMemberRepository;
+import hello.jdbc.repository.MemberRepository;
+import hello.jdbc.repository.MemberRepositoryV5;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@Slf4j
+class TransactionScopedMemberRepositoryTest {
+
+    public static final String MEMBER_A = "txCacheA";
+
+    CountingMemberRepository counting;
+    TransactionScopedMemberRepository repository;
+    TransactionTemplate txTemplate;
+
+    @BeforeEach
+    void before() {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(ConnectionConst.URL, ConnectionConst.USERNAME, ConnectionConst.PASSWORD);
+        counting = new CountingMemberRepository(new MemberRepositoryV5(dataSource));
+        repository = new TransactionScopedMemberRepository(counting);
+        txTemplate = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+
+        repository.save(new Member(MEMBER_A, 10000));
+    }
+
+    @AfterEach
+    void after() {
+        repository.delete(MEMBER_A);
+    }
+
+    @Test
+    void repeatedReadsInTransactionHitMemory() {
+        txTemplate.executeWithoutResult(status -> {
+            repository.findById(MEMBER_A);
+            repository.findById(MEMBER_A);
+            repository.findMoneyById(MEMBER_A);
+            assertThat(counting.reads.get()).isEqualTo(1);
+
+            repository.update(MEMBER_A, 7000);
+            assertThat(repository.findById(MEMBER_A).getMoney()).isEqualTo(7000);
+            assertThat(repository.findMoneyById(MEMBER_A)).isEqualTo(7000);
+            assertThat(counting.reads.get()).isEqualTo(1);
+        });
+
+        //트랜잭션 밖에서는 캐시를 사용하지 않는다.
+        repository.findById(MEMBER_A);
+        repository.findById(MEMBER_A);
+        assertThat(counting.reads.get()).isEqualTo(3);
+    }
+
+    @Test
+    void cacheIsDiscardedOnRollback() {
+        txTemplate.executeWithoutResult(status -> {
+            repository.findById(MEMBER_A);
+            repository.update(MEMBER_A, 1);
+            status.setRollbackOnly();
+        });
+
+        txTemplate.executeWithoutResult(status -> {
+            assertThat(repository.findMoneyById(MEMBER_A)).isEqualTo(10000);
+        });
+        assertThat(counting.reads.get()).isEqualTo(2);
+    }
+
+    @Test
+    void writeBehindCoalescesUpdatesUntilCommit() {
+        TransactionScopedMemberRepository writeBehind = new TransactionScopedMemberRepository(counting, true);
+
+        txTemplate.executeWithoutResult(status -> {
+            int money = writeBehind.findMoneyById(MEMBER_A);
+            writeBehind.update(MEMBER_A, money - 100); //수수료
+            writeBehind.update(MEMBER_A, money - 50); //조정
+            writeBehind.update(MEMBER_A, money + 950); //보너스
+
+            assertThat(writeBehind.findMoneyById(MEMBER_A)).isEqualTo(10950);
+            assertThat(counting.updates.get()).isZero();
+            assertThat(counting.batches.get()).isZero();
+        });
+
+        assertThat(counting.updates.get()).isZero();
+        assertThat(counting.batches.get()).isEqualTo(1);
+        assertThat(repository.findMoneyById(MEMBER_A)).isEqualTo(10950);
+    }
+
+    @Test
+    void flushFailureFailsCommit() {
+        TransactionScopedMemberRepository writeBehind = new TransactionScopedMemberRepository(new DelegatingMemberRepository(counting) {
+            @Override
+            public void updateAll(Map<String, Integer> moneyById) {
+                super.updateAll(moneyById);
+                throw new IllegalStateException("flush 실패");
+            }
+        }, true);
+
+        assertThatThrownBy(() -> txTemplate.executeWithoutResult(status -> {
+            writeBehind.findById(MEMBER_A);
+            writeBehind.update(MEMBER_A, 1);
+        })).isInstanceOf(IllegalStateException.class);
+
+        //batch는 실행됐지만 커밋되지 않고 롤백된다.
+        assertThat(counting.batches.get()).isEqualTo(1);
+        assertThat(repository.findMoneyById(MEMBER_A)).isEqualTo(10000);
+    }
+
+    static class CountingMemberRepository extends DelegatingMemberRepository {
+
+        final AtomicInteger reads = new AtomicInteger();
+        final AtomicInteger updates = new AtomicInteger();
+        final AtomicInteger batches = new AtomicInteger();
+
+        CountingMemberRepository(MemberRepository target) {
+            super(target);
+        }
+
+        @Override
+        public Member findById(String memberId) {
+            reads.incrementAndGet();
+            return super.findById(memberId);
+        }
+
+        @Override
+        public int findMoneyById(String memberId) {
+            reads.incrementAndGet();
+            return super.findMoneyById(memberId);
+        }
+
+        @Override
+        public void update(String memberId, int money) {
+            updates.incrementAndGet();
+            super.update(memberId, money);
+        }
+
+        @Override
+        public void updateAll(Map<String, Integer> moneyById) {
+            batches.incrementAndGet();
+            super.updateAll(moneyById);
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package hello.jdbc.deadline;
+
+import hello.jdbc.domain.Member;
+import hello.jdbc.repository.MemberRepositoryV4_1;
+import hello.jdbc.repository.MemberRepositoryV5;
+import hello.jdbc.repository.MemberSchema;
+import hello.jdbc.repository.ex.MyDbTimeoutException;
+import hello.jdbc.service.MemberServiceV4;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.ConnectionHolder;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@Slf4j
+class DeadlineTest {
+
+    private static final String URL = "jdbc:h2:mem:deadline;DB_CLOSE_DELAY=-1";
+    //취소하지 않으면 수 분 이상 걸리는 쿼리
+    private static final String SLOW_SQL = "select sum(x) from system_range(1, 100000000000)";
+
+    DeadlineDataSource dataSource;
+    TransactionTemplate txTemplate;
+
+    @BeforeEach
+    void before() {
+        DriverManagerDataSource target = new DriverManagerDataSource(URL, "sa", "");
+        new MemberSchema(target).createMemberTable();
+        new JdbcTemplate(target).update("delete from member");
+
+        dataSource = new DeadlineDataSource(target);
+        txTemplate = new TransactionTemplate(new DeadlineTransactionManager(new DataSourceTransactionManager(dataSource)));
+    }
+
+    @Test
+    void cancelAtDeadline() {
+        JdbcTemplate template = new JdbcTemplate(dataSource);
+
+        long start = System.currentTimeMillis();
+        assertThatThrownBy(() -> Deadline.within(Duration.ofMillis(200), () -> template.queryForObject(SLOW_SQL, Long.class)))
+                .isInstanceOf(QueryTimeoutException.class);
+        long elapsed = System.currentTimeMillis() - start;
+        log.info("cancelled after {}ms", elapsed);
+        assertThat(elapsed).isLessThan(5000);
+
+        //수동 JDBC 저장소도 타임아웃 예외로 변환
+        MemberRepositoryV4_1 repository = new MemberRepositoryV4_1(dataSource);
+        repository.save(new Member("dlA", 10000));
+        assertThatThrownBy(() -> Deadline.within(Duration.ofMillis(200), () -> txTemplate.execute(status -> {
+            new JdbcTemplate(dataSource).queryForObject(SLOW_SQL, Long.class);
+            return null;
+        }))).isInstanceOf(QueryTimeoutException.class);
+
+        Deadline.runWithin(Duration.ofMillis(50), () -> {
+            sleep(100);
+            assertThatThrownBy(() -> repository.findById("dlA")).isInstanceOf(MyDbTimeoutException.class);
+        });
+    }
+
+    @Test
+    void deadlineBecomesTransactionTimeout() {
+        MemberRepositoryV5 repository = new MemberRepositoryV5(dataSource);
+        MemberServiceV4 memberService = new MemberServiceV4(repository);
+        repository.save(new Member("dlA", 10000));
+        repository.save(new Member("dlB", 10000));
+
+        Deadline.runWithin(Duration.ofSeconds(3), () -> txTemplate.executeWithoutResult(status -> {
+            ConnectionHolder holder = (ConnectionHolder) TransactionSynchronizationManager.getResource(dataSource);
+            assertThat(holder.hasTimeout()).isTrue();
+            assertThat(holder.getTimeToLiveInMillis()).isBetween(1L, 3000L);
+            memberService.accountTransfer("dlA", "dlB", 2000);
+        }));
+        assertThat(repository.findMoneyById("dlB")).isEqualTo(12000);
+    }
+
+    @Test
+    void expiredDeadlineFailsBeforeConnection() {
+        assertThatThrownBy(() -> Deadline.runWithin(Duration.ZERO, () -> txTemplate.executeWithoutResult(status -> {
+            throw new AssertionError("must not start");
+        }))).isInstanceOf(DeadlineExceededException.class);
+    }
+
+    @Test
+    void nestedDeadlineUsesEarlier() {
+        Deadline.runWithin(Duration.ofMillis(100), () -> Deadline.runWithin(Duration.ofSeconds(10), () ->
+                assertThat(Deadline.current().remainingNanos()).isLessThanOrEqualTo(Duration.ofMillis(100).toNanos())));
+        assertThat(Deadline.current()).isNull();
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
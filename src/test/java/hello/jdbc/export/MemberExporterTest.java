@@ -0,0 +1,89 @@
+package hello.jdbc.export;
+
+import hello.jdbc.connection.ConnectionConst;
+import hello.jdbc.domain.Member;
+import hello.jdbc.repository.MemberRepositoryV5;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@Slf4j
+class MemberExporterTest {
+
+    public static final String MEMBER_A = "exportA";
+    public static final String MEMBER_B = "exportB";
+
+    MemberRepositoryV5 memberRepository;
+    MemberExporter exporter;
+
+    @TempDir
+    Path tempDir;
+
+    @BeforeEach
+    void before() {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(ConnectionConst.URL, ConnectionConst.USERNAME, ConnectionConst.PASSWORD);
+        memberRepository = new MemberRepositoryV5(dataSource);
+        exporter = new MemberExporter(dataSource, new DataSourceTransactionManager(dataSource));
+
+        memberRepository.save(new Member(MEMBER_A, 10000));
+        memberRepository.save(new Member(MEMBER_B, 20000));
+    }
+
+    @AfterEach
+    void after() {
+        memberRepository.delete(MEMBER_A);
+        memberRepository.delete(MEMBER_B);
+    }
+
+    @Test
+    void exportCsv() throws IOException {
+        Path path = tempDir.resolve("member.csv");
+        ExportResult result = exporter.export(path, ExportFormat.CSV, ExportCompression.NONE);
+
+        List<String> lines = Files.readAllLines(path);
+        assertThat(lines).hasSize((int) result.getRowCount());
+        assertThat(lines).contains(MEMBER_A + ",10000", MEMBER_B + ",20000");
+    }
+
+    @Test
+    void exportBinaryGzip() throws IOException {
+        Path path = tempDir.resolve("member.bin.gz");
+        ExportResult result = exporter.export(path, ExportFormat.BINARY, ExportCompression.GZIP);
+
+        Map<String, Integer> rows = new HashMap<>();
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new GZIPInputStream(Files.newInputStream(path))))) {
+            while (true) {
+                int length;
+                try {
+                    length = in.readUnsignedShort();
+                } catch (EOFException e) {
+                    break;
+                }
+                byte[] memberId = new byte[length];
+                in.readFully(memberId);
+                rows.put(new String(memberId, StandardCharsets.UTF_8), in.readInt());
+            }
+        }
+
+        assertThat(rows).hasSize((int) result.getRowCount());
+        assertThat(rows).containsEntry(MEMBER_A, 10000).containsEntry(MEMBER_B, 20000);
+    }
+}
@@ -0,0 +1,186 @@
+package hello.jdbc.guard;
+
+import hello.jdbc.repository.ex.DbUnavailableException;
+import hello.jdbc.repository.ex.MemberNotFoundException;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.dao.EmptyResultDataAccessException;
+
+import java.util.NoSuchElementException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class DbGuardTest {
+
+    private final AtomicLong clock = new AtomicLong();
+
+    private GuardOptions options() {
+        GuardOptions options = new GuardOptions();
+        options.setReadConcurrency(2);
+        options.setWriteConcurrency(1);
+        options.setMaxWaitMillis(10);
+        options.setWindowSize(10);
+        options.setMinimumCalls(4);
+        options.setFailureRateThreshold(50);
+        options.setSlowCallMillis(100);
+        options.setOpenMillis(1000);
+        options.setHalfOpenCalls(2);
+        return options;
+    }
+
+    private DbGuard guard(GuardOptions options) {
+        return new DbGuard(new Bulkhead("read", options.getReadConcurrency(), options.getMaxWaitMillis()),
+                new Bulkhead("write", options.getWriteConcurrency(), options.getMaxWaitMillis()),
+                new CircuitBreaker("test", options, clock::get));
+    }
+
+    @Test
+    void circuitOpensOnFailureRateAndRecoversThroughHalfOpen() {
+        DbGuard guard = guard(options());
+
+        guard.read(() -> 1);
+        guard.read(() -> 1);
+        //키 중복은 DB 장애가 아니다.
+        assertThatThrownBy(() -> guard.write(() -> { throw new DuplicateKeyException("dup"); }))
+                .isInstanceOf(DuplicateKeyException.class);
+        assertThat(guard.getCircuitState()).isEqualTo("CLOSED");
+
+        assertThatThrownBy(() -> guard.read(() -> { throw new DataAccessResourceFailureException("down"); }));
+        assertThatThrownBy(() -> guard.read(() -> { throw new DataAccessResourceFailureException("down"); }));
+        assertThatThrownBy(() -> guard.read(() -> { throw new DataAccessResourceFailureException("down"); }));
+        assertThat(guard.getCircuitState()).isEqualTo("OPEN");
+
+        //열려 있는 동안은 호출하지 않고 바로 실패
+        assertThatThrownBy(() -> guard.read(() -> 1))
+                .isInstanceOfSatisfying(DbUnavailableException.class,
+                        e -> assertThat(e.getReason()).isEqualTo(DbUnavailableException.Reason.CIRCUIT_OPEN));
+        assertThat(guard.getCircuitRejected()).isEqualTo(1);
+
+        //openMillis 경과 -> 반열림, 시험 호출 halfOpenCalls 번 성공 -> 닫힘
+        clock.addAndGet(TimeUnit.MILLISECONDS.toNanos(1000));
+        guard.read(() -> 1);
+        assertThat(guard.getCircuitState()).isEqualTo("HALF_OPEN");
+        guard.read(() -> 1);
+        assertThat(guard.getCircuitState()).isEqualTo("CLOSED");
+
+        assertThat(guard.getTransitionsToOpen()).isEqualTo(1);
+        assertThat(guard.getTransitionsToHalfOpen()).isEqualTo(1);
+        assertThat(guard.getTransitionsToClosed()).isEqualTo(1);
+    }
+
+    @Test
+    void notFoundDoesNotOpenCircuit() {
+        DbGuard guard = guard(options());
+
+        //MemberRepositoryV5의 회원 없음, 해지된 계좌 조회는 정상 흐름이다.
+        for (int i = 0; i < 10; i++) {
+            assertThatThrownBy(() -> guard.read(() -> { throw new EmptyResultDataAccessException(1); }))
+                    .isInstanceOf(EmptyResultDataAccessException.class);
+            assertThatThrownBy(() -> guard.read(() -> { throw new MemberNotFoundException("closed"); }))
+                    .isInstanceOf(NoSuchElementException.class);
+        }
+        assertThat(guard.getCircuitState()).isEqualTo("CLOSED");
+        assertThat(guard.getTransitionsToOpen()).isZero();
+    }
+
+    @Test
+    void halfOpenFailureReopens() {
+        DbGuard guard = guard(options());
+        for (int i = 0; i < 4; i++) {
+            assertThatThrownBy(() -> guard.read(() -> { throw new DataAccessResourceFailureException("down"); }));
+        }
+        assertThat(guard.getCircuitState()).isEqualTo("OPEN");
+
+        clock.addAndGet(TimeUnit.MILLISECONDS.toNanos(1000));
+        assertThatThrownBy(() -> guard.read(() -> { throw new DataAccessResourceFailureException("still down"); }));
+        assertThat(guard.getCircuitState()).isEqualTo("OPEN");
+        assertThat(guard.getTransitionsToOpen()).isEqualTo(2);
+    }
+
+    @Test
+    void slowCallsOpenCircuit() {
+        GuardOptions options = options();
+        options.setSlowCallRateThreshold(50);
+        CircuitBreaker circuitBreaker = new CircuitBreaker("slow", options, clock::get);
+
+        for (int i = 0; i < 4; i++) {
+            long permission = circuitBreaker.acquirePermission();
+            circuitBreaker.onResult(permission, TimeUnit.MILLISECONDS.toNanos(200), false);
+        }
+        assertThat(circuitBreaker.getState()).isEqualTo(CircuitState.OPEN);
+    }
+
+    @Test
+    void staleResultIsNotCountedAsProbe() {
+        CircuitBreaker circuitBreaker = new CircuitBreaker("stale", options(), clock::get);
+        //CLOSED에서 시작해서 openMillis보다 오래 걸리는 호출
+        long slowCall = circuitBreaker.acquirePermission();
+        for (int i = 0; i < 4; i++) {
+            long permission = circuitBreaker.acquirePermission();
+            circuitBreaker.onResult(permission, 0, true);
+        }
+        assertThat(circuitBreaker.getState()).isEqualTo(CircuitState.OPEN);
+
+        clock.addAndGet(TimeUnit.MILLISECONDS.toNanos(1000));
+        long probe = circuitBreaker.acquirePermission();
+        assertThat(circuitBreaker.getState()).isEqualTo(CircuitState.HALF_OPEN);
+
+        //시험 호출이 아닌 결과는 성공이든 실패든 HALF_OPEN 상태를 바꾸지 않는다.
+        circuitBreaker.onResult(slowCall, 0, false);
+        circuitBreaker.onResult(slowCall, 0, true);
+        assertThat(circuitBreaker.getState()).isEqualTo(CircuitState.HALF_OPEN);
+
+        circuitBreaker.onResult(probe, 0, false);
+        assertThat(circuitBreaker.getState()).isEqualTo(CircuitState.HALF_OPEN);
+        long secondProbe = circuitBreaker.acquirePermission();
+        circuitBreaker.onResult(secondProbe, 0, false);
+        assertThat(circuitBreaker.getState()).isEqualTo(CircuitState.CLOSED);
+    }
+
+    @Test
+    void readsDoNotStarveWrites() throws Exception {
+        DbGuard guard = guard(options());
+        CountDownLatch entered = new CountDownLatch(2);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            for (int i = 0; i < 2; i++) {
+                executor.submit(() -> guard.read(() -> {
+                    entered.countDown();
+                    await(release);
+                    return null;
+                }));
+            }
+            assertThat(entered.await(1, TimeUnit.SECONDS)).isTrue();
+
+            //조회 격벽이 가득 차면 조회는 바로 거절
+            assertThatThrownBy(() -> guard.read(() -> 1))
+                    .isInstanceOfSatisfying(DbUnavailableException.class,
+                            e -> assertThat(e.getReason()).isEqualTo(DbUnavailableException.Reason.BULKHEAD_FULL));
+            assertThat(guard.getReadRejected()).isEqualTo(1);
+
+            //이체는 별도 격벽이므로 실행된다. 안에서 호출한 조회는 격벽을 다시 거치지 않는다.
+            assertThat(guard.write(() -> guard.read(() -> 42))).isEqualTo(42);
+        } finally {
+            release.countDown();
+            executor.shutdown();
+        }
+        //격벽 거절은 서킷 실패로 세지 않는다.
+        assertThat(guard.getCircuitState()).isEqualTo("CLOSED");
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,125 @@
+package hello.jdbc.history;
+
+import hello.jdbc.domain.Member;
+import hello.jdbc.outbox.BalanceEvent;
+import hello.jdbc.outbox.BalanceEventType;
+import hello.jdbc.outbox.OutboxMemberRepository;
+import hello.jdbc.outbox.OutboxRelay;
+import hello.jdbc.outbox.RelayOptions;
+import hello.jdbc.repository.MemberRepository;
+import hello.jdbc.repository.MemberRepositoryV5;
+import hello.jdbc.repository.MemberSchema;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.time.Instant;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class BalanceHistoryTest {
+
+    private static final String URL = "jdbc:h2:mem:history;DB_CLOSE_DELAY=-1";
+
+    DriverManagerDataSource dataSource;
+    JdbcTemplate template;
+    BalanceHistorySink sink;
+    HistoryOptions options;
+
+    @BeforeEach
+    void before() {
+        dataSource = new DriverManagerDataSource(URL, "sa", "");
+        MemberSchema schema = new MemberSchema(dataSource);
+        schema.createMemberTable();
+        schema.createBalanceEventTable();
+        schema.createBalanceHistoryTables();
+        template = new JdbcTemplate(dataSource);
+        for (String table : List.of("member", "balance_event", "balance_change", "balance_snapshot_item", "balance_snapshot")) {
+            template.update("delete from " + table);
+        }
+        sink = new BalanceHistorySink(dataSource);
+        options = new HistoryOptions();
+    }
+
+    @Test
+    void balanceAsOfCombinesSnapshotAndChanges() {
+        Instant now = Instant.now();
+        template.update("insert into member(member_id, money) values('hA', 1000)");
+        sink.publish(List.of(event(1, "hA", BalanceEventType.INSERTED, 1000, now.minusSeconds(10))));
+
+        BalanceHistory history = new BalanceHistory(dataSource, options);
+        history.takeSnapshot();
+        sink.publish(List.of(
+                event(2, "hA", BalanceEventType.UPDATED, 500, now.plusSeconds(10)),
+                event(3, "hA", BalanceEventType.DELETED, null, now.plusSeconds(20))));
+        //다시 발행되어도 한 번만 기록된다.
+        sink.publish(List.of(event(2, "hA", BalanceEventType.UPDATED, 500, now.plusSeconds(10))));
+
+        assertThat(history.findBalanceAsOf("hA", now.minusSeconds(20))).isEmpty();
+        assertThat(history.findBalanceAsOf("hA", now.minusSeconds(5))).contains(1000); //스냅샷 이전, 변경 로그
+        assertThat(history.findBalanceAsOf("hA", now.plusSeconds(5))).contains(1000); //스냅샷
+        assertThat(history.findBalanceAsOf("hA", now.plusSeconds(15))).contains(500);
+        assertThat(history.findBalanceAsOf("hA", now.plusSeconds(25))).isEmpty();
+        assertThat(history.findBalanceAsOf("none", now.plusSeconds(5))).isEmpty();
+        assertThat(template.queryForObject("select count(*) from balance_change", Integer.class)).isEqualTo(3);
+    }
+
+    @Test
+    void changeCommittedAfterSnapshotIsNotMissed() {
+        Instant now = Instant.now();
+        template.update("insert into member(member_id, money) values('hC', 1000)");
+        sink.publish(List.of(event(1, "hC", BalanceEventType.INSERTED, 1000, now.minusSeconds(10))));
+
+        BalanceHistory history = new BalanceHistory(dataSource, options);
+        history.takeSnapshot();
+        //스냅샷 전 시각으로 기록됐지만 스냅샷 이후에 커밋되어 스냅샷에는 1000이 남은 변경
+        template.update("update member set money = 700 where member_id = 'hC'");
+        sink.publish(List.of(event(2, "hC", BalanceEventType.UPDATED, 700, now.minusSeconds(1))));
+
+        assertThat(history.findBalanceAsOf("hC", Instant.now())).contains(700);
+        assertThat(history.findBalanceAsOf("hC", now.minusSeconds(5))).contains(1000);
+    }
+
+    @Test
+    void purgeKeepsLatestSnapshotBeforeCutoff() throws InterruptedException {
+        template.update("insert into member(member_id, money) values('hA', 1000)");
+        sink.publish(List.of(event(1, "hA", BalanceEventType.INSERTED, 1000, Instant.now())));
+        options.setRetentionMillis(0);
+        options.setMaxCommitLagMillis(0);
+        BalanceHistory history = new BalanceHistory(dataSource, options);
+
+        Thread.sleep(5);
+        history.takeSnapshot();
+        Thread.sleep(5);
+        history.takeSnapshot();
+        Thread.sleep(5);
+        history.purge();
+
+        assertThat(template.queryForObject("select count(*) from balance_snapshot", Integer.class)).isEqualTo(1);
+        assertThat(template.queryForObject("select count(*) from balance_snapshot_item", Integer.class)).isEqualTo(1);
+        assertThat(template.queryForObject("select count(*) from balance_change", Integer.class)).isZero();
+        assertThat(history.findBalanceAsOf("hA", Instant.now())).contains(1000);
+    }
+
+    @Test
+    void changesFlowFromOutbox() throws InterruptedException {
+        MemberRepository repository = new OutboxMemberRepository(new MemberRepositoryV5(dataSource), dataSource);
+        repository.save(new Member("hB", 1000));
+        Instant afterSave = Instant.now();
+        Thread.sleep(5);
+        repository.update("hB", 3000);
+
+        OutboxRelay relay = new OutboxRelay(dataSource, sink, new RelayOptions());
+        assertThat(relay.relayOnce()).isEqualTo(2);
+
+        BalanceHistory history = new BalanceHistory(dataSource, options);
+        assertThat(history.findBalanceAsOf("hB", afterSave)).contains(1000);
+        assertThat(history.findBalanceAsOf("hB", Instant.now())).contains(3000);
+    }
+
+    private BalanceEvent event(long id, String memberId, BalanceEventType type, Integer money, Instant createdAt) {
+        return new BalanceEvent(id, memberId, type, money, createdAt);
+    }
+}
@@ -0,0 +1,93 @@
+package hello.jdbc.id;
+
+import hello.jdbc.domain.Member;
+import hello.jdbc.repository.MemberRepository;
+import hello.jdbc.repository.MemberRepositoryV4_1;
+import hello.jdbc.repository.MemberSchema;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class MemberIdAllocatorTest {
+
+    private static final String URL = "jdbc:h2:mem:idalloc;DB_CLOSE_DELAY=-1";
+
+    DriverManagerDataSource dataSource;
+
+    @BeforeEach
+    void before() {
+        dataSource = new DriverManagerDataSource(URL, "sa", "");
+        JdbcTemplate template = new JdbcTemplate(dataSource);
+        template.execute("drop sequence if exists " + MemberSchema.ID_SEQUENCE);
+        MemberSchema schema = new MemberSchema(dataSource);
+        schema.createMemberTable();
+        schema.createIdSequence();
+        template.update("delete from member");
+    }
+
+    @Test
+    void format() {
+        MemberIdAllocator allocator = new MemberIdAllocator(dataSource, "m", 6, 100);
+        assertThat(allocator.format(100)).isEqualTo("m00002s");
+        assertThat(allocator.format(Long.parseLong("zzzzzzzzz", 36))).isEqualTo("mzzzzzzzzz");
+        assertThatThrownBy(() -> allocator.format(Long.parseLong("1000000000", 36)))
+                .isInstanceOf(IllegalStateException.class);
+        assertThatThrownBy(() -> new MemberIdAllocator(dataSource, "member", 6, 100))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void noReuseAfterRestart() {
+        MemberIdAllocator first = new MemberIdAllocator(dataSource, "m", 6, 100);
+        long used = first.nextValue();
+        first.nextValue();
+
+        //재시작: 새 인스턴스는 다음 블록부터 시작한다.
+        MemberIdAllocator restarted = new MemberIdAllocator(dataSource, "m", 6, 100);
+        assertThat(restarted.nextValue()).isGreaterThanOrEqualTo(used + 100);
+    }
+
+    @Test
+    void concurrentSignupsNeverCollide() throws Exception {
+        MemberIdAllocator allocator = new MemberIdAllocator(dataSource, "m", 6, 50);
+        MemberRepository repository = new MemberRepositoryV4_1(dataSource);
+        Set<String> ids = ConcurrentHashMap.newKeySet();
+
+        int threads = 8;
+        int perThread = 200;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                futures.add(executor.submit(() -> {
+                    for (int i = 0; i < perThread; i++) {
+                        String memberId = allocator.nextId();
+                        ids.add(memberId);
+                        repository.save(new Member(memberId, 0)); //키 중복 없이 한 번에 저장
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        assertThat(ids).hasSize(threads * perThread);
+        Long count = new JdbcTemplate(dataSource).queryForObject("select count(*) from member", Long.class);
+        assertThat(count).isEqualTo(threads * perThread);
+    }
+}
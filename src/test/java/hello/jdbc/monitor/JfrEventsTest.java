@@ -0,0 +1,203 @@
+package hello.jdbc.monitor;
+
+import hello.jdbc.domain.Member;
+import hello.jdbc.repository.MemberRepositoryV4_1;
+import hello.jdbc.repository.MemberRepositoryV4_2;
+import hello.jdbc.repository.MemberSchema;
+import hello.jdbc.repository.ex.LightweightDuplicateKeyException;
+import hello.jdbc.service.MemberServiceV4;
+import jdk.jfr.Configuration;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.support.SQLErrorCodeSQLExceptionTranslator;
+import org.springframework.transaction.TransactionSystemException;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class JfrEventsTest {
+
+    private static final String URL = "jdbc:h2:mem:jfr;DB_CLOSE_DELAY=-1";
+
+    DriverManagerDataSource target;
+
+    @BeforeEach
+    void before() {
+        target = new DriverManagerDataSource(URL, "sa", "");
+        new MemberSchema(target).createMemberTable();
+        new JdbcTemplate(target).update("delete from member");
+    }
+
+    @Test
+    void recordsJdbcEvents(@TempDir Path dir) throws Exception {
+        List<RecordedEvent> events;
+        try (Recording recording = new Recording()) {
+            for (String name : List.of("hello.jdbc.Transaction", "hello.jdbc.Statement",
+                    "hello.jdbc.ConnectionAcquire", "hello.jdbc.ExceptionTranslation")) {
+                recording.enable(name).withThreshold(Duration.ZERO);
+            }
+            recording.start();
+
+            //기록이 시작된 뒤에 커넥션을 얻어야 Statement 이벤트가 기록된다.
+            JfrDataSource dataSource = new JfrDataSource(target);
+            MemberRepositoryV4_2 repository = new MemberRepositoryV4_2(dataSource,
+                    new JfrExceptionTranslator(new SQLErrorCodeSQLExceptionTranslator(dataSource)));
+            MemberServiceV4 memberService = new MemberServiceV4(repository);
+            TransactionTemplate txTemplate = new TransactionTemplate(new JfrTransactionManager(dataSource));
+            txTemplate.setName("accountTransfer");
+
+            repository.save(new Member("jfrA", 10000));
+            repository.save(new Member("jfrB", 10000));
+            repository.save(new Member("ex", 10000));
+            txTemplate.executeWithoutResult(status -> memberService.accountTransfer("jfrA", "jfrB", 2000));
+            assertThatThrownBy(() -> txTemplate.executeWithoutResult(status -> memberService.accountTransfer("jfrA", "ex", 2000)))
+                    .isInstanceOf(IllegalStateException.class);
+            assertThatThrownBy(() -> repository.save(new Member("jfrA", 0)))
+                    .isInstanceOf(DuplicateKeyException.class);
+
+            recording.stop();
+            Path file = dir.resolve("jdbc.jfr");
+            recording.dump(file);
+            events = RecordingFile.readAllEvents(file);
+        }
+
+        List<RecordedEvent> transactions = byType(events, "hello.jdbc.Transaction");
+        assertThat(transactions).extracting(event -> event.getString("outcome")).containsExactly("COMMIT", "ROLLBACK");
+        assertThat(transactions).allMatch(event -> "accountTransfer".equals(event.getString("name")));
+
+        List<RecordedEvent> statements = byType(events, "hello.jdbc.Statement");
+        assertThat(statements).allMatch(event -> event.getString("sqlId") != null);
+        assertThat(statements).anyMatch(event -> event.getString("sql").startsWith("select") && event.getLong("rows") == 1);
+        assertThat(statements).anyMatch(event -> event.getString("sql").startsWith("update") && event.getLong("rows") == 1);
+        //키 중복으로 실패한 insert도 기록된다.
+        assertThat(statements).filteredOn(event -> event.getBoolean("failed"))
+                .singleElement()
+                .satisfies(event -> {
+                    assertThat(event.getString("sql")).startsWith("insert");
+                    assertThat(event.getInt("errorCode")).isEqualTo(23505);
+                });
+
+        assertThat(byType(events, "hello.jdbc.ConnectionAcquire")).isNotEmpty();
+        List<RecordedEvent> translations = byType(events, "hello.jdbc.ExceptionTranslation");
+        assertThat(translations).hasSize(1);
+        assertThat(translations.get(0).getInt("errorCode")).isEqualTo(23505);
+        assertThat(translations.get(0).getString("task")).isEqualTo("save");
+    }
+
+    @Test
+    void recordsAcquireWithCredentials(@TempDir Path dir) throws Exception {
+        List<RecordedEvent> events;
+        try (Recording recording = new Recording()) {
+            recording.enable("hello.jdbc.ConnectionAcquire").withThreshold(Duration.ZERO);
+            recording.start();
+
+            new JfrDataSource(target).getConnection("sa", "").close();
+
+            recording.stop();
+            Path file = dir.resolve("acquire.jfr");
+            recording.dump(file);
+            events = RecordingFile.readAllEvents(file);
+        }
+
+        assertThat(byType(events, "hello.jdbc.ConnectionAcquire")).singleElement()
+                .satisfies(event -> assertThat(event.getBoolean("success")).isTrue());
+    }
+
+    @Test
+    void commitFailureIsNotOverwrittenByRollback(@TempDir Path dir) throws Exception {
+        List<RecordedEvent> events;
+        try (Recording recording = new Recording()) {
+            recording.enable("hello.jdbc.Transaction").withThreshold(Duration.ZERO);
+            recording.start();
+
+            JfrTransactionManager transactionManager = new JfrTransactionManager(new DelegatingDataSource(target) {
+                @Override
+                public Connection getConnection() throws SQLException {
+                    return failingCommit(super.getConnection());
+                }
+            });
+            //커밋 실패 후 doRollback이 호출된다.
+            transactionManager.setRollbackOnCommitFailure(true);
+            TransactionTemplate txTemplate = new TransactionTemplate(transactionManager);
+            assertThatThrownBy(() -> txTemplate.executeWithoutResult(status -> { }))
+                    .isInstanceOf(TransactionSystemException.class);
+
+            recording.stop();
+            Path file = dir.resolve("commit.jfr");
+            recording.dump(file);
+            events = RecordingFile.readAllEvents(file);
+        }
+
+        assertThat(byType(events, "hello.jdbc.Transaction"))
+                .extracting(event -> event.getString("outcome")).containsExactly("COMMIT_FAILED");
+    }
+
+    @Test
+    void lightweightDuplicateKeyIsRecorded(@TempDir Path dir) throws Exception {
+        List<RecordedEvent> events;
+        try (Recording recording = new Recording()) {
+            recording.enable("hello.jdbc.ExceptionTranslation").withThreshold(Duration.ZERO);
+            recording.start();
+
+            MemberRepositoryV4_1 repository = new MemberRepositoryV4_1(target);
+            repository.save(new Member("jfrA", 10000));
+            assertThatThrownBy(() -> repository.save(new Member("jfrA", 0)))
+                    .isInstanceOf(LightweightDuplicateKeyException.class);
+
+            recording.stop();
+            Path file = dir.resolve("duplicate.jfr");
+            recording.dump(file);
+            events = RecordingFile.readAllEvents(file);
+        }
+
+        List<RecordedEvent> translations = byType(events, "hello.jdbc.ExceptionTranslation");
+        assertThat(translations).hasSize(1);
+        assertThat(translations.get(0).getInt("errorCode")).isEqualTo(23505);
+        assertThat(translations.get(0).getString("task")).isEqualTo("save");
+    }
+
+    @Test
+    void sampleProfileIsValid() throws Exception {
+        Configuration configuration = Configuration.create(Paths.get("src/main/resources/jfr/jdbc.jfc"));
+        assertThat(configuration.getSettings()).containsEntry("hello.jdbc.Statement#threshold", "5 ms");
+    }
+
+    private Connection failingCommit(Connection con) {
+        return (Connection) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{Connection.class},
+                (proxy, method, args) -> {
+                    if (method.getName().equals("commit")) {
+                        throw new SQLException("commit failed");
+                    }
+                    try {
+                        return method.invoke(con, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getCause();
+                    }
+                });
+    }
+
+    private List<RecordedEvent> byType(List<RecordedEvent> events, String name) {
+        return events.stream()
+                .filter(event -> event.getEventType().getName().equals(name))
+                .collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,126 @@
+package hello.jdbc.monitor;
+
+import hello.jdbc.domain.Member;
+import hello.jdbc.repository.MemberRepository;
+import hello.jdbc.repository.MemberRepositoryV4_2;
+import hello.jdbc.repository.MemberRepositoryV5;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@Slf4j
+class SqlStatsDataSourceTest {
+
+    private static final String URL = "jdbc:h2:mem:sqlstats;DB_CLOSE_DELAY=-1";
+
+    SqlStatsRegistry registry;
+    SqlStatsDataSource dataSource;
+
+    @BeforeEach
+    void before() {
+        DriverManagerDataSource target = new DriverManagerDataSource(URL, "sa", "");
+        JdbcTemplate template = new JdbcTemplate(target);
+        template.execute("create table if not exists member (member_id varchar(10) primary key, money integer not null default 0)");
+        template.update("delete from member");
+
+        registry = new SqlStatsRegistry(1000);
+        dataSource = new SqlStatsDataSource(target, registry);
+    }
+
+    @Test
+    void aggregateBySql() {
+        MemberRepository repository = new MemberRepositoryV5(dataSource);
+        repository.save(new Member("statA", 10000));
+        repository.save(new Member("statB", 20000));
+        repository.findById("statA");
+        repository.findById("statB");
+        repository.update("statA", 5000);
+
+        List<SqlStatsSnapshot> statements = registry.getStatements();
+        statements.forEach(stats -> log.info("stats={}", stats));
+
+        SqlStatsSnapshot insert = find(statements, "insert into member");
+        assertThat(insert.getCount()).isEqualTo(2);
+        assertThat(insert.getRows()).isEqualTo(2);
+
+        SqlStatsSnapshot select = find(statements, "select member_id, money from member");
+        assertThat(select.getCount()).isEqualTo(2);
+        assertThat(select.getRows()).isEqualTo(2);
+        assertThat(select.getSlowCount()).isZero();
+
+        registry.reset();
+        assertThat(registry.getStatements()).isEmpty();
+    }
+
+    @Test
+    void slowQueryCapturesBindsAndPlan() {
+        registry.setSlowThresholdMillis(-1); //모든 실행을 느린 쿼리로 취급
+        MemberRepository repository = new MemberRepositoryV4_2(dataSource);
+        repository.save(new Member("statA", 10000));
+        repository.findById("statA");
+
+        SqlStatsSnapshot select = find(registry.getStatements(), "select member_id, money from member");
+        assertThat(select.getSlowCount()).isEqualTo(1);
+        assertThat(select.getLastSlowBinds()).isEqualTo("[statA]");
+        assertThat(select.getLastPlan()).containsIgnoringCase("member");
+    }
+
+    @Test
+    void failedExecutionIsCounted() {
+        MemberRepository repository = new MemberRepositoryV5(dataSource);
+        repository.save(new Member("statA", 10000));
+        assertThatThrownBy(() -> repository.save(new Member("statA", 0)))
+                .isInstanceOf(DuplicateKeyException.class);
+
+        SqlStatsSnapshot insert = find(registry.getStatements(), "insert into member");
+        assertThat(insert.getCount()).isEqualTo(2);
+        assertThat(insert.getErrorCount()).isEqualTo(1);
+        assertThat(insert.getRows()).isEqualTo(1);
+    }
+
+    @Test
+    void plainStatementBatchIsAttributedBySql() throws SQLException {
+        try (Connection con = dataSource.getConnection(); Statement stmt = con.createStatement()) {
+            stmt.addBatch("insert into member(member_id, money) values('statA', 100)");
+            stmt.addBatch("insert into member(member_id, money) values('statB', 200)");
+            stmt.addBatch("update member set money = 300 where member_id = 'statA'");
+            stmt.executeBatch();
+        }
+
+        List<SqlStatsSnapshot> statements = registry.getStatements();
+        SqlStatsSnapshot insert = find(statements, "insert into member");
+        assertThat(insert.getCount()).isEqualTo(2);
+        assertThat(insert.getRows()).isEqualTo(2);
+        SqlStatsSnapshot update = find(statements, "update member");
+        assertThat(update.getCount()).isEqualTo(1);
+        assertThat(update.getRows()).isEqualTo(1);
+    }
+
+    @Test
+    void normalizeLiterals() {
+        assertThat(SqlStatsRegistry.normalize("select *  from member\n where member_id = 'a''b' and money > 10"))
+                .isEqualTo("select * from member where member_id = ? and money > ?");
+        assertThat(SqlStatsRegistry.normalize("delete from member where member_id in (?, ?, ?)"))
+                .isEqualTo("delete from member where member_id in (?)");
+        assertThat(SqlStatsRegistry.normalize("select member1 from t"))
+                .isEqualTo("select member1 from t");
+    }
+
+    private SqlStatsSnapshot find(List<SqlStatsSnapshot> statements, String prefix) {
+        return statements.stream()
+                .filter(stats -> stats.getSql().startsWith(prefix))
+                .findFirst()
+                .orElseThrow();
+    }
+}
@@ -0,0 +1,118 @@
+package hello.jdbc.monitor;
+
+import hello.jdbc.domain.Member;
+import hello.jdbc.repository.MemberRepositoryV2;
+import hello.jdbc.repository.MemberRepositoryV3;
+import hello.jdbc.repository.MemberSchema;
+import hello.jdbc.service.MemberServiceV2;
+import hello.jdbc.service.MemberServiceV3_3;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.aop.framework.ProxyFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.transaction.annotation.AnnotationTransactionAttributeSource;
+import org.springframework.transaction.interceptor.TransactionInterceptor;
+
+import java.sql.Connection;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@Slf4j
+class TrackingDataSourceTest {
+
+    private static final String URL = "jdbc:h2:mem:tracking;DB_CLOSE_DELAY=-1";
+
+    ConnectionTracker tracker;
+    TrackingDataSource dataSource;
+
+    @BeforeEach
+    void before() {
+        DriverManagerDataSource target = new DriverManagerDataSource(URL, "sa", "");
+        new MemberSchema(target).createMemberTable();
+        new JdbcTemplate(target).update("delete from member");
+
+        tracker = new ConnectionTracker(1000, true);
+        dataSource = new TrackingDataSource(target, tracker);
+    }
+
+    @Test
+    void holdTimeByCallSite() throws Exception {
+        MemberRepositoryV2 memberRepository = new MemberRepositoryV2(dataSource);
+        MemberServiceV2 memberService = new MemberServiceV2(dataSource, memberRepository);
+        memberRepository.save(new Member("trackA", 10000));
+        memberRepository.save(new Member("trackB", 10000));
+
+        memberService.accountTransfer("trackA", "trackB", 2000);
+        tracker.report();
+
+        List<HoldTimeSnapshot> sites = tracker.getSites();
+        assertThat(sites).anySatisfy(site -> {
+            assertThat(site.getSite()).startsWith("MemberServiceV2.accountTransfer:");
+            assertThat(site.getCount()).isEqualTo(1);
+        });
+        assertThat(sites).anySatisfy(site -> {
+            assertThat(site.getSite()).startsWith("MemberRepositoryV2.save:");
+            assertThat(site.getCount()).isEqualTo(2);
+        });
+        assertThat(tracker.getOpenConnections()).isZero();
+    }
+
+    @Test
+    void transactionalSiteIsProxiedMethod() throws Exception {
+        MemberRepositoryV3 memberRepository = new MemberRepositoryV3(dataSource);
+        memberRepository.save(new Member("trackA", 10000));
+        memberRepository.save(new Member("trackB", 10000));
+
+        ProxyFactory proxyFactory = new ProxyFactory(new MemberServiceV3_3(memberRepository));
+        proxyFactory.setProxyTargetClass(true);
+        proxyFactory.addAdvice(new TransactionInterceptor(new DataSourceTransactionManager(dataSource),
+                new AnnotationTransactionAttributeSource()));
+        MemberServiceV3_3 memberService = (MemberServiceV3_3) proxyFactory.getProxy();
+        tracker.reset();
+
+        memberService.accountTransfer("trackA", "trackB", 2000);
+
+        //doBegin에서 얻은 커넥션은 서비스를 호출한 테스트가 아니라 트랜잭션 메서드가 획득 위치
+        assertThat(tracker.getSites()).singleElement()
+                .satisfies(site -> assertThat(site.getSite()).isEqualTo("MemberServiceV3_3.accountTransfer"));
+    }
+
+    @Test
+    void stopTrackingReportedLeakAfterRetention() throws Exception {
+        tracker.setHoldThresholdMillis(0);
+        tracker.setLeakRetentionMillis(0);
+        Connection leaked = dataSource.getConnection();
+        Thread.sleep(5);
+
+        assertThat(tracker.checkLeaks()).isEqualTo(1);
+        Thread.sleep(5);
+        assertThat(tracker.checkLeaks()).isZero();
+        assertThat(tracker.getOpenConnections()).isZero();
+        assertThat(tracker.getLeakCount()).isEqualTo(1);
+
+        leaked.close(); //추적을 멈춘 뒤 반환되면 기록하지 않는다.
+        assertThat(tracker.getSites()).isEmpty();
+    }
+
+    @Test
+    void detectNotReturnedConnection() throws Exception {
+        tracker.setHoldThresholdMillis(0);
+        Connection leaked = dataSource.getConnection();
+        Thread.sleep(5);
+
+        assertThat(tracker.checkLeaks()).isEqualTo(1);
+        assertThat(tracker.checkLeaks()).isZero(); //한 번만 보고
+        assertThat(tracker.getLeakCount()).isEqualTo(1);
+        assertThat(tracker.getOpenConnections()).isEqualTo(1);
+
+        leaked.close();
+        leaked.close(); //두 번 닫아도 한 번만 기록
+        assertThat(tracker.getOpenConnections()).isZero();
+        assertThat(tracker.getSites()).singleElement()
+                .satisfies(site -> assertThat(site.getOverThresholdCount()).isEqualTo(1));
+    }
+}
@@ -0,0 +1,126 @@
+package hello.jdbc.outbox;
+
+import hello.jdbc.domain.Member;
+import hello.jdbc.repository.MemberRepository;
+import hello.jdbc.repository.MemberRepositoryV5;
+import hello.jdbc.repository.MemberSchema;
+import hello.jdbc.service.MemberServiceV4;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class OutboxTest {
+
+    private static final String URL = "jdbc:h2:mem:outbox;DB_CLOSE_DELAY=-1";
+
+    DriverManagerDataSource dataSource;
+    JdbcTemplate template;
+    MemberRepository repository;
+    MemberServiceV4 memberService;
+    TransactionTemplate txTemplate;
+
+    @BeforeEach
+    void before() {
+        dataSource = new DriverManagerDataSource(URL, "sa", "");
+        MemberSchema schema = new MemberSchema(dataSource);
+        schema.createMemberTable();
+        schema.createBalanceEventTable();
+        template = new JdbcTemplate(dataSource);
+        template.update("delete from member");
+        template.update("delete from balance_event");
+
+        repository = new OutboxMemberRepository(new MemberRepositoryV5(dataSource), dataSource);
+        memberService = new MemberServiceV4(repository);
+        txTemplate = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+    }
+
+    @Test
+    void transferWritesEventsInSameTransaction() {
+        repository.save(new Member("obA", 10000));
+        repository.save(new Member("obB", 10000));
+        repository.save(new Member("ex", 10000));
+        assertThat(count()).isEqualTo(3); //트랜잭션 밖은 바로 저장
+
+        txTemplate.executeWithoutResult(status -> memberService.accountTransfer("obA", "obB", 2000));
+        assertThat(template.queryForList("select money from balance_event where event_type = 'UPDATED' order by event_id", Integer.class))
+                .containsExactly(8000, 12000);
+
+        //롤백되면 이벤트도 남지 않는다.
+        assertThatThrownBy(() -> txTemplate.executeWithoutResult(status -> memberService.accountTransfer("obA", "ex", 2000)))
+                .isInstanceOf(IllegalStateException.class);
+        assertThat(count()).isEqualTo(5);
+    }
+
+    @Test
+    void rangeUpdateWritesOneEventPerMember() {
+        repository.save(new Member("obA", 10000));
+        repository.save(new Member("obB", 10000));
+        repository.save(new Member("obC", 10000));
+        template.update("delete from balance_event");
+
+        txTemplate.executeWithoutResult(status -> {
+            repository.update("obA", 5000);
+            repository.updateMoneyInRange("obA", "obC", BigDecimal.ONE, 100);
+            repository.updateMoneyInRange("obB", null, BigDecimal.ONE, 100);
+            repository.update("obB", 7000);
+            repository.save(new Member("obD", 1000));
+        });
+
+        assertThat(template.queryForList("select member_id || ':' || event_type || ':' || money from balance_event order by member_id", String.class))
+                .containsExactly("obA:UPDATED:5100", "obB:UPDATED:7000", "obC:UPDATED:10100", "obD:CREATED:1000");
+    }
+
+    @Test
+    void relayPublishesInOrderAndDeletes(@TempDir Path dir) throws Exception {
+        for (int i = 0; i < 25; i++) {
+            repository.save(new Member("ob" + i, i));
+        }
+
+        RelayOptions options = new RelayOptions();
+        options.setBatchSize(10);
+        Path file = dir.resolve("events.csv");
+        try (FileEventSink sink = new FileEventSink(file, true)) {
+            OutboxRelay relay = new OutboxRelay(dataSource, sink, options);
+            assertThat(relay.relayOnce()).isEqualTo(25);
+            assertThat(relay.relayOnce()).isZero();
+        }
+
+        List<String> lines = Files.readAllLines(file);
+        assertThat(lines).hasSize(25);
+        assertThat(lines.get(0)).contains(",ob0,CREATED,0,");
+        assertThat(lines.get(24)).contains(",ob24,CREATED,24,");
+        assertThat(count()).isZero();
+    }
+
+    @Test
+    void markMode(@TempDir Path dir) throws Exception {
+        repository.save(new Member("obA", 10000));
+        repository.delete("obA");
+
+        RelayOptions options = new RelayOptions();
+        options.setAckMode(RelayOptions.AckMode.MARK);
+        try (FileEventSink sink = new FileEventSink(dir.resolve("events.csv"), false)) {
+            OutboxRelay relay = new OutboxRelay(dataSource, sink, options);
+            assertThat(relay.relayOnce()).isEqualTo(2);
+            assertThat(relay.relayOnce()).isZero();
+        }
+        assertThat(count()).isEqualTo(2);
+        assertThat(template.queryForObject("select count(*) from balance_event where published_at is null", Long.class)).isZero();
+    }
+
+    private long count() {
+        return template.queryForObject("select count(*) from balance_event", Long.class);
+    }
+}
@@ -0,0 +1,102 @@
+package hello.jdbc.reconcile;
+
+import hello.jdbc.audit.TransferAudit;
+import hello.jdbc.audit.TransferAuditWriter;
+import hello.jdbc.history.BalanceHistory;
+import hello.jdbc.history.HistoryOptions;
+import hello.jdbc.repository.MemberSchema;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ReconcilerTest {
+
+    private static final String URL = "jdbc:h2:mem:reconcile;DB_CLOSE_DELAY=-1";
+    private static final int MEMBERS = 500;
+
+    DriverManagerDataSource dataSource;
+    JdbcTemplate template;
+    TransferAuditWriter auditWriter;
+    BalanceHistory history;
+    Reconciler reconciler;
+
+    @BeforeEach
+    void before() {
+        dataSource = new DriverManagerDataSource(URL, "sa", "");
+        MemberSchema schema = new MemberSchema(dataSource);
+        schema.createMemberTable();
+        schema.createBalanceHistoryTables();
+        template = new JdbcTemplate(dataSource);
+        for (String table : List.of("member", "balance_snapshot_item", "balance_snapshot")) {
+            template.update("delete from " + table);
+        }
+        auditWriter = new TransferAuditWriter(dataSource, ZoneId.systemDefault());
+        auditWriter.dropPartitionsBefore(LocalDate.now().plusDays(2));
+        history = new BalanceHistory(dataSource, new HistoryOptions());
+
+        for (int i = 0; i < MEMBERS; i++) {
+            template.update("insert into member(member_id, money) values(?, 1000)", String.format("r%03d", i));
+        }
+
+        ReconcileOptions options = new ReconcileOptions();
+        options.setParallelism(2);
+        options.setInitialRanges(4);
+        options.setLeafSize(10);
+        reconciler = new Reconciler(dataSource, options);
+    }
+
+    @Test
+    void transfersConserveMoney() throws InterruptedException {
+        long first = history.takeSnapshot();
+        transfer(40);
+        long second = history.takeSnapshot();
+
+        ReconcileReport report = reconciler.reconcile(first, second);
+        assertThat(report.isBalanced()).isTrue();
+        assertThat(report.getRowCount()).isEqualTo(MEMBERS);
+        assertThat(report.getActualTotal()).isEqualTo(MEMBERS * 1000L);
+        assertThat(report.getCheckedRanges()).isEqualTo(4);
+        assertThat(report.getMismatchedRanges()).isZero();
+    }
+
+    @Test
+    void drillsDownToMismatchedMember() throws InterruptedException {
+        long first = history.takeSnapshot();
+        transfer(40);
+        //감사 기록 없이 바뀐 잔고
+        template.update("update member set money = money + 7 where member_id = 'r321'");
+        long second = history.takeSnapshot();
+
+        ReconcileReport report = reconciler.reconcile(first, second);
+        assertThat(report.isBalanced()).isFalse();
+        assertThat(report.getActualTotal() - report.getExpectedTotal()).isEqualTo(7);
+        assertThat(report.getMismatches()).hasSize(1);
+        MemberMismatch mismatch = report.getMismatches().get(0);
+        assertThat(mismatch.getMemberId()).isEqualTo("r321");
+        assertThat(mismatch.getActual() - mismatch.getExpected()).isEqualTo(7);
+        assertThat(report.getMismatchedRanges()).isGreaterThan(1); //구간을 나눠 내려갔다.
+    }
+
+    private void transfer(int count) throws InterruptedException {
+        Thread.sleep(5);
+        List<TransferAudit> audits = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            String fromId = String.format("r%03d", i * 7 % MEMBERS);
+            String toId = String.format("r%03d", (i * 13 + 250) % MEMBERS);
+            template.update("update member set money = money - ? where member_id = ?", i, fromId);
+            template.update("update member set money = money + ? where member_id = ?", i, toId);
+            audits.add(new TransferAudit(fromId, toId, i, Instant.now()));
+        }
+        auditWriter.insert(audits, true);
+        Thread.sleep(5);
+    }
+}
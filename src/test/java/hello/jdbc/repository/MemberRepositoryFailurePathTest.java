@@ -0,0 +1,78 @@
+package hello.jdbc.repository;
+
+import hello.jdbc.cache.CachedMemberRepository;
+import hello.jdbc.cache.OffHeapMemberStore;
+import hello.jdbc.domain.Member;
+import hello.jdbc.repository.ex.LightweightDuplicateKeyException;
+import hello.jdbc.repository.ex.MemberNotFoundException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.sql.SQLException;
+import java.util.NoSuchElementException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * 회원 없음, 키 중복 같은 정상 흐름의 실패 경로
+ */
+class MemberRepositoryFailurePathTest {
+
+    private static final String MEMBER_A = "failA";
+
+    DriverManagerDataSource dataSource;
+
+    @BeforeEach
+    void before() {
+        dataSource = RepositoryVersion.memoryDataSource("failurepath");
+        new JdbcTemplate(dataSource).update("insert into member(member_id, money) values(?, ?)", MEMBER_A, 10000);
+    }
+
+    @ParameterizedTest
+    @EnumSource(RepositoryVersion.class)
+    void findByIdOptional(RepositoryVersion version) {
+        MemberRepository repository = version.create(dataSource);
+
+        assertThat(repository.findByIdOptional(MEMBER_A)).contains(new Member(MEMBER_A, 10000));
+        assertThat(repository.findByIdOptional("failNone")).isEmpty();
+    }
+
+    @ParameterizedTest
+    @EnumSource(RepositoryVersion.class)
+    void notFoundHasNoStackTrace(RepositoryVersion version) {
+        MemberRepository repository = version.create(dataSource);
+
+        //기존 호출부처럼 NoSuchElementException으로 잡을 수 있다.
+        assertThatThrownBy(() -> repository.findById("failNone"))
+                .isInstanceOf(NoSuchElementException.class)
+                .isInstanceOf(MemberNotFoundException.class)
+                .satisfies(e -> assertThat(e.getStackTrace()).isEmpty());
+        assertThatThrownBy(() -> repository.findMoneyById("failNone"))
+                .isInstanceOf(MemberNotFoundException.class);
+    }
+
+    @Test
+    void cacheMissUsesOptionalLookup() {
+        MemberRepository repository = new CachedMemberRepository(RepositoryVersion.V5.create(dataSource), new OffHeapMemberStore(100));
+
+        assertThat(repository.findById(MEMBER_A)).isEqualTo(new Member(MEMBER_A, 10000));
+        assertThatThrownBy(() -> repository.findById("failNone"))
+                .isInstanceOf(MemberNotFoundException.class)
+                .satisfies(e -> assertThat(e.getStackTrace()).isEmpty());
+    }
+
+    @Test
+    void duplicateKeyHasNoStackTrace() {
+        MemberRepository repository = RepositoryVersion.V4_1.create(dataSource);
+
+        assertThatThrownBy(() -> repository.save(new Member(MEMBER_A, 0)))
+                .isInstanceOf(LightweightDuplicateKeyException.class)
+                .hasCauseInstanceOf(SQLException.class)
+                .satisfies(e -> assertThat(e.getStackTrace()).isEmpty());
+    }
+}
@@ -0,0 +1,54 @@
+package hello.jdbc.repository;
+
+import hello.jdbc.domain.Member;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@Slf4j
+class MemberRepositoryMoneyRangeTest {
+
+    DriverManagerDataSource dataSource;
+    MemberSchema schema;
+
+    @BeforeEach
+    void before() {
+        dataSource = RepositoryVersion.memoryDataSource("moneyrange");
+        schema = new MemberSchema(dataSource);
+        schema.createMoneyIndex();
+
+        JdbcTemplate template = new JdbcTemplate(dataSource);
+        //money 0~99가 두 명씩
+        template.execute("insert into member select 'r' || x, mod(x, 100) from system_range(0, 199)");
+    }
+
+    @ParameterizedTest
+    @EnumSource(RepositoryVersion.class)
+    void keysetPaging(RepositoryVersion version) {
+        MemberRepository repository = version.create(dataSource);
+        assertThat(schema.hasMoneyIndex()).isTrue();
+
+        List<Member> firstPage = repository.findByMoneyBetween(10, 19, null, 5);
+        assertThat(firstPage).extracting(Member::getMoney).containsExactly(10, 10, 11, 11, 12);
+        assertThat(firstPage).extracting(Member::getMemberId).containsExactly("r10", "r110", "r11", "r111", "r12");
+
+        List<Member> secondPage = repository.findByMoneyBetween(10, 19, firstPage.get(4), 5);
+        assertThat(secondPage).extracting(Member::getMemberId).containsExactly("r112", "r13", "r113", "r14", "r114");
+
+        List<Member> all = new ArrayList<>();
+        long count = repository.forEachByMoneyBetween(10, 19, 3, all::add);
+        assertThat(count).isEqualTo(20);
+        assertThat(all).hasSize(20).doesNotHaveDuplicates();
+
+        assertThat(repository.countByMoneyBelow(10)).isEqualTo(20);
+        assertThat(repository.countByMoneyBelow(0)).isZero();
+    }
+}
@@ -0,0 +1,81 @@
+package hello.jdbc.repository;
+
+import hello.jdbc.connection.ConnectionConst;
+import hello.jdbc.domain.Member;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.regex.Pattern;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 자주 호출되는 조회 쿼리가 select * 로 돌아가지 않았는지 검사한다.
+ */
+@Slf4j
+class MemberRepositoryProjectionTest {
+
+    public static final String MEMBER_A = "projA";
+    private static final Pattern SELECT_ALL = Pattern.compile("(?i)select\\s+\\*");
+
+    private final List<String> executedSql = new CopyOnWriteArrayList<>();
+    private MemberRepository repository;
+
+    @AfterEach
+    void after() {
+        repository.delete(MEMBER_A);
+    }
+
+    @ParameterizedTest
+    @EnumSource(RepositoryVersion.class)
+    void hotQueriesUseExplicitColumns(RepositoryVersion version) {
+        repository = version.create(new SqlRecordingDataSource(
+                new DriverManagerDataSource(ConnectionConst.URL, ConnectionConst.USERNAME, ConnectionConst.PASSWORD)));
+        repository.save(new Member(MEMBER_A, 10000));
+        executedSql.clear();
+
+        assertThat(repository.findById(MEMBER_A)).isEqualTo(new Member(MEMBER_A, 10000));
+        assertThat(repository.findMoneyById(MEMBER_A)).isEqualTo(10000);
+        assertThat(repository.existsById(MEMBER_A)).isTrue();
+        assertThat(repository.existsById("projNone")).isFalse();
+
+        log.info("executedSql={}", executedSql);
+        assertThat(executedSql).hasSize(4);
+        assertThat(executedSql).noneMatch(sql -> SELECT_ALL.matcher(sql).find());
+        assertThat(executedSql).anyMatch(sql -> sql.startsWith("select money from"));
+        assertThat(executedSql).anyMatch(sql -> sql.startsWith("select 1 from"));
+    }
+
+    private class SqlRecordingDataSource extends DelegatingDataSource {
+
+        SqlRecordingDataSource(DriverManagerDataSource target) {
+            super(target);
+        }
+
+        @Override
+        public Connection getConnection() throws SQLException {
+            Connection target = super.getConnection();
+            return (Connection) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{Connection.class},
+                    (proxy, method, args) -> {
+                        if (method.getName().startsWith("prepare") && args != null && args[0] instanceof String) {
+                            executedSql.add((String) args[0]);
+                        }
+                        try {
+                            return method.invoke(target, args);
+                        } catch (InvocationTargetException e) {
+                            throw e.getTargetException();
+                        }
+                    });
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package hello.jdbc.repository;
+
+import hello.jdbc.domain.Member;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class MemberRepositoryUpsertTest {
+
+    DriverManagerDataSource dataSource;
+    JdbcTemplate template;
+
+    @BeforeEach
+    void before() {
+        dataSource = RepositoryVersion.memoryDataSource("upsert");
+        template = new JdbcTemplate(dataSource);
+    }
+
+    @ParameterizedTest
+    @EnumSource(RepositoryVersion.class)
+    void upsert(RepositoryVersion version) {
+        MemberRepository repository = version.create(dataSource);
+
+        assertThat(repository.upsert(new Member("upA", 1000))).isEqualTo(UpsertResult.INSERTED);
+        assertThat(repository.upsert(new Member("upA", 2000))).isEqualTo(UpsertResult.UPDATED);
+        assertThat(repository.findMoneyById("upA")).isEqualTo(2000);
+    }
+
+    @ParameterizedTest
+    @EnumSource(RepositoryVersion.class)
+    void upsertAll(RepositoryVersion version) {
+        MemberRepository repository = version.create(dataSource);
+        //BATCH_SIZE를 넘겨서 여러 문장으로 나뉘는 경우까지 확인
+        template.execute("insert into member select 'up' || x, 0 from system_range(0, 599) where mod(x, 2) = 0");
+
+        Map<String, Integer> moneyById = new LinkedHashMap<>();
+        for (int i = 0; i < 1200; i++) {
+            moneyById.put("up" + i, i);
+        }
+        Map<String, UpsertResult> results = repository.upsertAll(moneyById);
+
+        assertThat(results.keySet()).containsExactlyElementsOf(moneyById.keySet());
+        assertThat(results.get("up0")).isEqualTo(UpsertResult.UPDATED);
+        assertThat(results.get("up1")).isEqualTo(UpsertResult.INSERTED);
+        assertThat(results.get("up598")).isEqualTo(UpsertResult.UPDATED);
+        assertThat(results.get("up600")).isEqualTo(UpsertResult.INSERTED);
+        assertThat(results.values()).filteredOn(r -> r == UpsertResult.UPDATED).hasSize(300);
+        assertThat(repository.findMoneyById("up1199")).isEqualTo(1199);
+        assertThat(template.queryForObject("select count(*) from member", Long.class)).isEqualTo(1200L);
+    }
+}
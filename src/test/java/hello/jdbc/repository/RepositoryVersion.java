@@ -0,0 +1,37 @@
+package hello.jdbc.repository;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import javax.sql.DataSource;
+import java.util.function.Function;
+
+/**
+ * MemberRepository 인터페이스 구현 버전, 버전별로 같은 테스트를 돌릴 때 @EnumSource로 사용한다.
+ */
+enum RepositoryVersion {
+
+    V4_1(MemberRepositoryV4_1::new),
+    V4_2(MemberRepositoryV4_2::new),
+    V5(MemberRepositoryV5::new);
+
+    private final Function<DataSource, MemberRepository> factory;
+
+    RepositoryVersion(Function<DataSource, MemberRepository> factory) {
+        this.factory = factory;
+    }
+
+    MemberRepository create(DataSource dataSource) {
+        return factory.apply(dataSource);
+    }
+
+    /**
+     * 테스트 클래스별 H2 메모리 DB, member 테이블을 만들고 비운다.
+     */
+    static DriverManagerDataSource memoryDataSource(String name) {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource("jdbc:h2:mem:" + name + ";DB_CLOSE_DELAY=-1", "sa", "");
+        new MemberSchema(dataSource).createMemberTable();
+        new JdbcTemplate(dataSource).update("delete from member");
+        return dataSource;
+    }
+}
@@ -0,0 +1,292 @@
+package hello.jdbc.service;
+
+import hello.jdbc.connection.ConnectionConst;
+import hello.jdbc.domain.Member;
+import hello.jdbc.repository.DelegatingMemberRepository;
+import hello.jdbc.repository.MemberRepository;
+import hello.jdbc.repository.MemberRepositoryV5;
+import hello.jdbc.repository.ex.MyDbException;
+import hello.jdbc.transaction.PolicyStats;
+import hello.jdbc.transaction.PolicyTransactionExecutor;
+import hello.jdbc.transaction.RetryClass;
+import hello.jdbc.transaction.TransactionPolicyProperties;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.jdbc.datasource.ConnectionHolder;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DataSourceUtils;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Isolation;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * 트랜잭션 정책
+ * 작업별 격리 수준, 읽기 전용, 타임아웃, 재시도를 설정으로 지정
+ */
+@Slf4j
+@SpringBootTest
+class MemberServiceV5Test {
+
+    public static final String MEMBER_A = "memberA";
+    public static final String MEMBER_B = "memberB";
+    public static final String MEMBER_EX = "ex";
+
+    @Autowired
+    private MemberRepository memberRepository;
+    @Autowired
+    private MemberServiceV5 memberService;
+    @Autowired
+    private PolicyTransactionExecutor txExecutor;
+    @Autowired
+    private TransactionPolicyProperties properties;
+    @Autowired
+    private ReadOnlyProbe readOnlyProbe;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @TestConfiguration
+    @EnableConfigurationProperties(TransactionPolicyProperties.class)
+    static class TestConfig {
+
+        @Bean
+        DataSource dataSource() {
+            return new ReadOnlyTrackingDataSource(
+                    new DriverManagerDataSource(ConnectionConst.URL, ConnectionConst.USERNAME, ConnectionConst.PASSWORD));
+        }
+
+        @Bean
+        PlatformTransactionManager transactionManager() {
+            return new DataSourceTransactionManager(dataSource());
+        }
+
+        @Bean
+        ReadOnlyProbe readOnlyProbe() {
+            return new ReadOnlyProbe(new MemberRepositoryV5(dataSource()), dataSource());
+        }
+
+        @Bean
+        PolicyTransactionExecutor policyTransactionExecutor(PlatformTransactionManager transactionManager,
+                                                            TransactionPolicyProperties properties) {
+            return new PolicyTransactionExecutor(transactionManager, properties);
+        }
+
+        @Bean
+        MemberServiceV5 memberServiceV5(PolicyTransactionExecutor policyTransactionExecutor) {
+            return new MemberServiceV5(policyTransactionExecutor, readOnlyProbe());
+        }
+    }
+
+    @AfterEach
+    void after() {
+        readOnlyProbe.failNextUpdate.set(null);
+        memberRepository.delete(MEMBER_A);
+        memberRepository.delete(MEMBER_B);
+        memberRepository.delete(MEMBER_EX);
+        txExecutor.logStats();
+    }
+
+    @Test
+    void policiesFromConfiguration() {
+        assertThat(properties.policyFor(MemberServiceV5.ACCOUNT_TRANSFER).getIsolation()).isEqualTo(Isolation.READ_COMMITTED);
+        assertThat(properties.policyFor(MemberServiceV5.ACCOUNT_TRANSFER).getRetry()).isEqualTo(RetryClass.TRANSIENT);
+        assertThat(properties.policyFor(MemberServiceV5.FIND_MONEY).isReadOnly()).isTrue();
+        assertThat(properties.policyFor("unknown").isReadOnly()).isFalse();
+    }
+
+    @Test
+    @DisplayName("정상 이체")
+    void accountTransfer() {
+        //given
+        memberRepository.save(new Member(MEMBER_A, 10000));
+        memberRepository.save(new Member(MEMBER_B, 10000));
+
+        //when
+        memberService.accountTransfer(MEMBER_A, MEMBER_B, 2000);
+
+        //then
+        assertThat(memberService.findMoney(MEMBER_A)).isEqualTo(8000);
+        assertThat(memberService.findMoney(MEMBER_B)).isEqualTo(12000);
+    }
+
+    @Test
+    @DisplayName("이체중 예외 발생")
+    void accountTransferEx() {
+        //given
+        memberRepository.save(new Member(MEMBER_A, 10000));
+        memberRepository.save(new Member(MEMBER_EX, 10000));
+
+        //when
+        assertThatThrownBy(() -> memberService.accountTransfer(MEMBER_A, MEMBER_EX, 2000))
+                .isInstanceOf(IllegalStateException.class);
+
+        //then
+        assertThat(memberService.findMoney(MEMBER_A)).isEqualTo(10000);
+        assertThat(memberService.findMoney(MEMBER_EX)).isEqualTo(10000);
+    }
+
+    @Test
+    @DisplayName("조회 전용 작업은 읽기 전용 커넥션 사용")
+    void readOnlyQuery() {
+        memberRepository.save(new Member(MEMBER_A, 10000));
+
+        memberService.findMoney(MEMBER_A);
+        assertThat(readOnlyProbe.lastReadOnly.get()).isTrue();
+
+        memberService.accountTransfer(MEMBER_A, MEMBER_A, 0);
+        assertThat(readOnlyProbe.lastReadOnly.get()).isFalse();
+
+        assertThat(txExecutor.stats()).extracting(PolicyStats::getOperation)
+                .contains(MemberServiceV5.FIND_MONEY, MemberServiceV5.ACCOUNT_TRANSFER);
+    }
+
+    @Test
+    @DisplayName("작업별 격리 수준과 타임아웃 적용")
+    void isolationAndTimeout() {
+        memberRepository.save(new Member(MEMBER_A, 10000));
+
+        memberService.accountTransfer(MEMBER_A, MEMBER_A, 0);
+        assertThat(readOnlyProbe.lastIsolation.get()).isEqualTo(Connection.TRANSACTION_READ_COMMITTED);
+        assertThat(readOnlyProbe.lastTimeToLive.get()).isBetween(1, 5);
+
+        memberService.findMoney(MEMBER_A);
+        assertThat(readOnlyProbe.lastIsolation.get()).isNull(); //기본 격리 수준
+        assertThat(readOnlyProbe.lastTimeToLive.get()).isBetween(1, 2);
+    }
+
+    @Test
+    @DisplayName("데드락은 한 번 재시도 후 커밋")
+    void retryTransientFailure() {
+        memberRepository.save(new Member(MEMBER_A, 10000));
+        memberRepository.save(new Member(MEMBER_B, 10000));
+        long retries = retries();
+
+        //MemberRepositoryV4_1처럼 MyDbException으로 감싼 데드락
+        readOnlyProbe.failNextUpdate.set(new MyDbException(new SQLException("Deadlock detected", "40001", 40001)));
+        memberService.accountTransfer(MEMBER_A, MEMBER_B, 2000);
+
+        assertThat(retries() - retries).isEqualTo(1);
+        assertThat(memberService.findMoney(MEMBER_A)).isEqualTo(8000);
+        assertThat(memberService.findMoney(MEMBER_B)).isEqualTo(12000);
+    }
+
+    @Test
+    @DisplayName("바깥 트랜잭션에 참여하면 재시도하지 않는다")
+    void noRetryInsideCallerTransaction() {
+        memberRepository.save(new Member(MEMBER_A, 10000));
+        memberRepository.save(new Member(MEMBER_B, 10000));
+        long retries = retries();
+
+        //H2 락 타임아웃
+        readOnlyProbe.failNextUpdate.set(new MyDbException(new SQLException("Timeout trying to lock table", "HYT00", 50200)));
+        TransactionTemplate outer = new TransactionTemplate(transactionManager);
+        assertThatThrownBy(() -> outer.executeWithoutResult(status -> memberService.accountTransfer(MEMBER_A, MEMBER_B, 2000)))
+                .isInstanceOf(MyDbException.class);
+
+        assertThat(retries() - retries).isZero();
+        assertThat(memberService.findMoney(MEMBER_A)).isEqualTo(10000);
+        assertThat(memberService.findMoney(MEMBER_B)).isEqualTo(10000);
+    }
+
+    private long retries() {
+        return txExecutor.stats().stream()
+                .filter(stats -> stats.getOperation().equals(MemberServiceV5.ACCOUNT_TRANSFER))
+                .mapToLong(PolicyStats::getRetries)
+                .sum();
+    }
+
+    /**
+     * 잔고 조회 시점에 실제 커넥션의 읽기 전용 여부, 트랜잭션 격리 수준, 남은 타임아웃을 기록한다.
+     * 읽기 전용 트랜잭션이면 DataSourceUtils가 커넥션에 setReadOnly(true)를 호출한다.
+     * failNextUpdate를 설정하면 다음 update 한 번을 실패시킨다.
+     */
+    static class ReadOnlyProbe extends DelegatingMemberRepository {
+
+        final AtomicBoolean lastReadOnly = new AtomicBoolean();
+        final AtomicReference<Integer> lastIsolation = new AtomicReference<>();
+        final AtomicInteger lastTimeToLive = new AtomicInteger();
+        final AtomicReference<RuntimeException> failNextUpdate = new AtomicReference<>();
+        private final DataSource dataSource;
+
+        ReadOnlyProbe(MemberRepository target, DataSource dataSource) {
+            super(target);
+            this.dataSource = dataSource;
+        }
+
+        @Override
+        public int findMoneyById(String memberId) {
+            Connection con = DataSourceUtils.getConnection(dataSource);
+            try {
+                lastReadOnly.set(con.isReadOnly());
+            } catch (SQLException e) {
+                throw new IllegalStateException(e);
+            } finally {
+                DataSourceUtils.releaseConnection(con, dataSource);
+            }
+            lastIsolation.set(TransactionSynchronizationManager.getCurrentTransactionIsolationLevel());
+            ConnectionHolder holder = (ConnectionHolder) TransactionSynchronizationManager.getResource(dataSource);
+            lastTimeToLive.set(holder != null && holder.hasTimeout() ? holder.getTimeToLiveInSeconds() : -1);
+            return super.findMoneyById(memberId);
+        }
+
+        @Override
+        public void update(String memberId, int money) {
+            RuntimeException failure = failNextUpdate.getAndSet(null);
+            if (failure != null) {
+                throw failure;
+            }
+            super.update(memberId, money);
+        }
+    }
+
+    /**
+     * H2는 Connection.setReadOnly를 무시하고 isReadOnly가 DB 상태를 반환하므로
+     * 트랜잭션 매니저가 커넥션에 설정한 읽기 전용 여부를 커넥션 프록시에 기록한다.
+     */
+    static class ReadOnlyTrackingDataSource extends DelegatingDataSource {
+
+        ReadOnlyTrackingDataSource(DataSource target) {
+            super(target);
+        }
+
+        @Override
+        public Connection getConnection() throws SQLException {
+            Connection con = super.getConnection();
+            AtomicBoolean readOnly = new AtomicBoolean(con.isReadOnly());
+            return (Connection) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{Connection.class},
+                    (proxy, method, args) -> {
+                        if (method.getName().equals("setReadOnly")) {
+                            readOnly.set((Boolean) args[0]);
+                        } else if (method.getName().equals("isReadOnly")) {
+                            return readOnly.get();
+                        }
+                        try {
+                            return method.invoke(con, args);
+                        } catch (InvocationTargetException e) {
+                            throw e.getCause();
+                        }
+                    });
+        }
+    }
+}
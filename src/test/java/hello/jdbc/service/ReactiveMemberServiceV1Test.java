@@ -0,0 +1,89 @@
+package hello.jdbc.service;
+
+import hello.jdbc.domain.Member;
+import hello.jdbc.repository.MemberSchema;
+import hello.jdbc.repository.ReactiveMemberRepository;
+import hello.jdbc.repository.ReactiveMemberRepositoryV1;
+import hello.jdbc.repository.ex.MemberNotFoundException;
+import io.r2dbc.spi.ConnectionFactories;
+import io.r2dbc.spi.ConnectionFactory;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.r2dbc.connection.R2dbcTransactionManager;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import reactor.test.StepVerifier;
+
+/**
+ * 리액티브 이체 - MemberServiceV4Test와 같은 시나리오
+ * 같은 이름의 H2 메모리 DB를 JDBC(테이블 생성)와 R2DBC가 함께 사용한다.
+ */
+@Slf4j
+class ReactiveMemberServiceV1Test {
+
+    public static final String MEMBER_A = "memberA";
+    public static final String MEMBER_B = "memberB";
+    public static final String MEMBER_EX = "ex";
+
+    private ReactiveMemberRepository memberRepository;
+    private ReactiveMemberServiceV1 memberService;
+
+    @BeforeEach
+    void before() {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource("jdbc:h2:mem:reactive;DB_CLOSE_DELAY=-1", "sa", "");
+        new MemberSchema(dataSource).createMemberTable();
+        new JdbcTemplate(dataSource).update("delete from member");
+
+        ConnectionFactory connectionFactory = ConnectionFactories.get("r2dbc:h2:mem:///reactive;DB_CLOSE_DELAY=-1");
+        memberRepository = new ReactiveMemberRepositoryV1(connectionFactory);
+        TransactionalOperator transactionalOperator = TransactionalOperator.create(new R2dbcTransactionManager(connectionFactory));
+        memberService = new ReactiveMemberServiceV1(memberRepository, transactionalOperator);
+    }
+
+    @Test
+    @DisplayName("정상 이체")
+    void accountTransfer() {
+        //given
+        memberRepository.save(new Member(MEMBER_A, 10000)).block();
+        memberRepository.save(new Member(MEMBER_B, 10000)).block();
+
+        //when
+        StepVerifier.create(memberService.accountTransfer(MEMBER_A, MEMBER_B, 2000))
+                .verifyComplete();
+
+        //then
+        StepVerifier.create(memberRepository.findById(MEMBER_A).map(Member::getMoney))
+                .expectNext(8000).verifyComplete();
+        StepVerifier.create(memberRepository.findById(MEMBER_B).map(Member::getMoney))
+                .expectNext(12000).verifyComplete();
+    }
+
+    @Test
+    @DisplayName("이체중 예외 발생")
+    void accountTransferEx() {
+        //given
+        memberRepository.save(new Member(MEMBER_A, 10000)).block();
+        memberRepository.save(new Member(MEMBER_EX, 10000)).block();
+
+        //when
+        StepVerifier.create(memberService.accountTransfer(MEMBER_A, MEMBER_EX, 2000))
+                .verifyError(IllegalStateException.class);
+
+        //then - 롤백
+        StepVerifier.create(memberRepository.findById(MEMBER_A).map(Member::getMoney))
+                .expectNext(10000).verifyComplete();
+        StepVerifier.create(memberRepository.findById(MEMBER_EX).map(Member::getMoney))
+                .expectNext(10000).verifyComplete();
+    }
+
+    @Test
+    @DisplayName("없는 회원")
+    void memberNotFound() {
+        StepVerifier.create(memberRepository.findById("none")).verifyComplete();
+        StepVerifier.create(memberService.accountTransfer("none", MEMBER_B, 2000))
+                .verifyError(MemberNotFoundException.class);
+    }
+}
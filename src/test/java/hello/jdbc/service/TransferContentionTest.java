@@ -0,0 +1,228 @@
+package hello.jdbc.service;
+
+import com.zaxxer.hikari.HikariDataSource;
+import hello.jdbc.repository.MemberRepositoryV5;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 소수의 hot key에 대한 동시 이체 스트레스 테스트
+ * 격리 수준과 이체 구현(잠금 전략)별로 처리량, 재시도(abort) 비율, 데드락 수를 기록하고
+ * 종료 후 전체 잔고 합계가 보존되는지 검사한다.
+ *
+ * 행 잠금과 격리 수준 동작만 보면 되므로 내장 H2를 사용한다.
+ */
+@Slf4j
+class TransferContentionTest {
+
+    private static final String URL = "jdbc:h2:mem:contention;DB_CLOSE_DELAY=-1;LOCK_TIMEOUT=10000";
+    private static final int HOT_KEYS = 4;
+    private static final int INITIAL_MONEY = 100_000;
+    private static final int THREADS = 8;
+    private static final int TRANSFERS_PER_THREAD = 300;
+    private static final int MAX_ATTEMPTS = 100;
+
+    //H2 에러 코드
+    private static final int DEADLOCK = 40001;
+    private static final int LOCK_TIMEOUT = 50200;
+    private static final int CONCURRENT_UPDATE = 90131;
+
+    private static HikariDataSource dataSource;
+    private static JdbcTemplate template;
+
+    @BeforeAll
+    static void beforeAll() {
+        dataSource = new HikariDataSource();
+        dataSource.setJdbcUrl(URL);
+        dataSource.setUsername("sa");
+        dataSource.setMaximumPoolSize(THREADS);
+        template = new JdbcTemplate(dataSource);
+        template.execute("create table if not exists member (member_id varchar(10) primary key, money integer not null default 0)");
+    }
+
+    @AfterAll
+    static void afterAll() {
+        dataSource.close();
+    }
+
+    static Stream<Arguments> scenarios() {
+        List<Arguments> scenarios = new ArrayList<>();
+        for (int isolation : new int[]{TransactionDefinition.ISOLATION_READ_COMMITTED,
+                TransactionDefinition.ISOLATION_REPEATABLE_READ, TransactionDefinition.ISOLATION_SERIALIZABLE}) {
+            for (Strategy strategy : Strategy.values()) {
+                scenarios.add(Arguments.of(isolationName(isolation), isolation, strategy));
+            }
+        }
+        return scenarios.stream();
+    }
+
+    @ParameterizedTest(name = "{0} {2}")
+    @MethodSource("scenarios")
+    void hotKeyTransfers(String isolationName, int isolation, Strategy strategy) throws Exception {
+        resetAccounts();
+        TransactionTemplate txTemplate = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+        txTemplate.setIsolationLevel(isolation);
+        Transfer transfer = strategy.create(template);
+
+        AtomicLong attempts = new AtomicLong();
+        AtomicLong aborts = new AtomicLong();
+        AtomicLong deadlocks = new AtomicLong();
+        AtomicLong failures = new AtomicLong();
+
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        List<Future<?>> futures = new ArrayList<>();
+        long start = System.nanoTime();
+        for (int t = 0; t < THREADS; t++) {
+            futures.add(executor.submit(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                for (int i = 0; i < TRANSFERS_PER_THREAD; i++) {
+                    int from = random.nextInt(HOT_KEYS);
+                    int to = (from + 1 + random.nextInt(HOT_KEYS - 1)) % HOT_KEYS;
+                    int amount = 1 + random.nextInt(100);
+
+                    for (int attempt = 1; ; attempt++) {
+                        attempts.incrementAndGet();
+                        try {
+                            txTemplate.executeWithoutResult(status -> transfer.transfer(key(from), key(to), amount));
+                            break;
+                        } catch (RuntimeException e) {
+                            int errorCode = errorCode(e);
+                            if (errorCode != DEADLOCK && errorCode != LOCK_TIMEOUT && errorCode != CONCURRENT_UPDATE) {
+                                throw e;
+                            }
+                            aborts.incrementAndGet();
+                            if (errorCode == DEADLOCK) {
+                                deadlocks.incrementAndGet();
+                            }
+                            if (attempt == MAX_ATTEMPTS) {
+                                failures.incrementAndGet();
+                                break;
+                            }
+                        }
+                    }
+                }
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+        long elapsedNanos = System.nanoTime() - start;
+
+        long transfers = (long) THREADS * TRANSFERS_PER_THREAD;
+        long total = template.queryForObject("select sum(money) from member where member_id like 'hot%'", Long.class);
+        log.info("[{} {}] transfers={}, tx/s={}, attempts={}, abortRate={}%, deadlocks={}, failed={}, total={}, drift={}",
+                isolationName, strategy, transfers,
+                String.format("%.0f", transfers * 1_000_000_000.0 / elapsedNanos),
+                attempts.get(), String.format("%.2f", aborts.get() * 100.0 / attempts.get()),
+                deadlocks.get(), failures.get(), total, total - (long) HOT_KEYS * INITIAL_MONEY);
+
+        if (strategy == Strategy.READ_MODIFY_WRITE && isolation == TransactionDefinition.ISOLATION_READ_COMMITTED) {
+            //읽은 값으로 덮어쓰므로 READ_COMMITTED에서는 갱신 손실이 생길 수 있다. drift만 기록한다.
+            return;
+        }
+        assertThat(total).isEqualTo((long) HOT_KEYS * INITIAL_MONEY);
+    }
+
+    private void resetAccounts() {
+        template.update("delete from member where member_id like 'hot%'");
+        for (int i = 0; i < HOT_KEYS; i++) {
+            template.update("insert into member(member_id, money) values (?, ?)", key(i), INITIAL_MONEY);
+        }
+    }
+
+    private static String key(int index) {
+        return "hot" + index;
+    }
+
+    private static int errorCode(Throwable e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof SQLException) {
+                return ((SQLException) cause).getErrorCode();
+            }
+        }
+        return 0;
+    }
+
+    private static String isolationName(int isolation) {
+        switch (isolation) {
+            case TransactionDefinition.ISOLATION_READ_COMMITTED:
+                return "READ_COMMITTED";
+            case TransactionDefinition.ISOLATION_REPEATABLE_READ:
+                return "REPEATABLE_READ";
+            default:
+                return "SERIALIZABLE";
+        }
+    }
+
+    interface Transfer {
+        void transfer(String fromId, String toId, int money);
+    }
+
+    enum Strategy {
+        /**
+         * MemberServiceV4 - 잔고 조회 후 계산한 값으로 update
+         * 격리 수준은 바깥 TransactionTemplate이 정하므로 프록시 없이 호출한다.
+         */
+        READ_MODIFY_WRITE {
+            @Override
+            Transfer create(JdbcTemplate template) {
+                MemberServiceV4 service = new MemberServiceV4(new MemberRepositoryV5(template.getDataSource()));
+                return service::accountTransfer;
+            }
+        },
+        /**
+         * select for update로 두 행을 키 순서대로 잠근 뒤 update, 잠금 순서가 같으므로 데드락이 없다.
+         */
+        SELECT_FOR_UPDATE {
+            @Override
+            Transfer create(JdbcTemplate template) {
+                return (fromId, toId, money) -> {
+                    String first = fromId.compareTo(toId) < 0 ? fromId : toId;
+                    String second = first.equals(fromId) ? toId : fromId;
+                    String sql = "select money from member where member_id = ? for update";
+                    int firstMoney = template.queryForObject(sql, Integer.class, first);
+                    int secondMoney = template.queryForObject(sql, Integer.class, second);
+                    int fromMoney = first.equals(fromId) ? firstMoney : secondMoney;
+                    int toMoney = first.equals(fromId) ? secondMoney : firstMoney;
+                    template.update("update member set money=? where member_id=?", fromMoney - money, fromId);
+                    template.update("update member set money=? where member_id=?", toMoney + money, toId);
+                };
+            }
+        },
+        /**
+         * money = money +/- ? 로 DB에서 계산, 잠금 순서를 정하지 않으므로 데드락이 날 수 있다.
+         */
+        ATOMIC_DELTA {
+            @Override
+            Transfer create(JdbcTemplate template) {
+                return (fromId, toId, money) -> {
+                    template.update("update member set money = money - ? where member_id = ?", money, fromId);
+                    template.update("update member set money = money + ? where member_id = ?", money, toId);
+                };
+            }
+        };
+
+        abstract Transfer create(JdbcTemplate template);
+    }
+}
@@ -0,0 +1,140 @@
+package hello.jdbc.transaction;
+
+import hello.jdbc.domain.Member;
+import hello.jdbc.repository.MemberRepository;
+import hello.jdbc.repository.MemberRepositoryV5;
+import hello.jdbc.repository.MemberSchema;
+import hello.jdbc.service.MemberServiceV6;
+import org.assertj.core.api.ThrowableAssert.ThrowingCallable;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.aop.framework.ProxyFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.transaction.annotation.AnnotationTransactionAttributeSource;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.interceptor.TransactionInterceptor;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.io.IOException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class TransactionExecutorTest {
+
+    private static final String URL = "jdbc:h2:mem:executor;DB_CLOSE_DELAY=-1";
+
+    JdbcTemplate template;
+    MemberRepository repository;
+    TransactionExecutor executor;
+    Probe proxy;
+
+    @BeforeEach
+    void before() {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(URL, "sa", "");
+        new MemberSchema(dataSource).createMemberTable();
+        template = new JdbcTemplate(dataSource);
+        template.update("delete from member");
+        repository = new MemberRepositoryV5(dataSource);
+        repository.save(new Member("txA", 0));
+
+        DataSourceTransactionManager transactionManager = new DataSourceTransactionManager(dataSource);
+        executor = new TransactionExecutor(transactionManager);
+
+        //@Transactional과 비교하기 위한 CGLIB 프록시
+        ProxyFactory proxyFactory = new ProxyFactory(new Probe(repository));
+        proxyFactory.setProxyTargetClass(true);
+        proxyFactory.addAdvice(new TransactionInterceptor(transactionManager, new AnnotationTransactionAttributeSource()));
+        proxy = (Probe) proxyFactory.getProxy();
+    }
+
+    @Test
+    void rollbackRulesMatchTransactional() {
+        TxDefinition defaults = TxDefinition.named("probe");
+
+        //RuntimeException, Error는 롤백
+        assertSameOutcome(defaults, new IllegalStateException(), () -> proxy.fail(new IllegalStateException()), false);
+        assertSameOutcome(defaults, new AssertionError(), () -> proxy.fail(new AssertionError()), false);
+        //체크 예외는 커밋
+        assertSameOutcome(defaults, new IOException(), () -> proxy.fail(new IOException()), true);
+
+        assertSameOutcome(defaults.rollbackFor(IOException.class), new IOException(),
+                () -> proxy.failRollbackFor(new IOException()), false);
+        assertSameOutcome(defaults.noRollbackFor(IllegalArgumentException.class), new IllegalArgumentException(),
+                () -> proxy.failNoRollbackFor(new IllegalArgumentException()), true);
+    }
+
+    @Test
+    void definitionIsAppliedAndImmutable() {
+        TxDefinition base = TxDefinition.named("findMoney");
+        TxDefinition readOnly = base.readOnly();
+        assertThat(base.isReadOnly()).isFalse();
+
+        boolean[] observed = new boolean[2];
+        executor.run(readOnly, status -> {
+            observed[0] = status.isNewTransaction();
+            observed[1] = TransactionSynchronizationManager.isCurrentTransactionReadOnly();
+        });
+        assertThat(observed).containsExactly(true, true);
+        assertThat(executor.execute(base, status -> repository.findMoneyById("txA"))).isZero();
+    }
+
+    @Test
+    void accountTransfer() {
+        MemberServiceV6 memberService = new MemberServiceV6(executor, repository);
+        repository.save(new Member("txB", 0));
+        repository.save(new Member("ex", 0));
+        repository.update("txA", 10000);
+
+        memberService.accountTransfer("txA", "txB", 2000);
+        assertThat(memberService.findMoney("txA")).isEqualTo(8000);
+        assertThat(memberService.findMoney("txB")).isEqualTo(2000);
+
+        assertThatThrownBy(() -> memberService.accountTransfer("txA", "ex", 2000))
+                .isInstanceOf(IllegalStateException.class);
+        assertThat(memberService.findMoney("txA")).isEqualTo(8000);
+    }
+
+    private void assertSameOutcome(TxDefinition definition, Throwable ex, ThrowingCallable proxyCall, boolean committed) {
+        assertThat(committed(() -> executor.run(definition, status -> {
+            repository.update("txA", 1);
+            throw ex;
+        }))).as("executor %s", ex).isEqualTo(committed);
+        assertThat(committed(proxyCall)).as("@Transactional %s", ex).isEqualTo(committed);
+    }
+
+    private boolean committed(ThrowingCallable call) {
+        template.update("update member set money = 0 where member_id = 'txA'");
+        assertThatThrownBy(call);
+        return template.queryForObject("select money from member where member_id = 'txA'", Integer.class) == 1;
+    }
+
+    static class Probe {
+
+        private final MemberRepository repository;
+
+        Probe(MemberRepository repository) {
+            this.repository = repository;
+        }
+
+        @Transactional
+        public void fail(Throwable ex) throws Throwable {
+            repository.update("txA", 1);
+            throw ex;
+        }
+
+        @Transactional(rollbackFor = IOException.class)
+        public void failRollbackFor(Throwable ex) throws Throwable {
+            repository.update("txA", 1);
+            throw ex;
+        }
+
+        @Transactional(noRollbackFor = IllegalArgumentException.class)
+        public void failNoRollbackFor(Throwable ex) throws Throwable {
+            repository.update("txA", 1);
+            throw ex;
+        }
+    }
+}